@@ -0,0 +1,92 @@
+package com.garbaking.inventoryservice.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing one public menu's image URLs (menus/sec) from several threads, the way concurrent app
+ * opens do: the previous per-call Mac and URI parsing, a per-thread Mac without the cache, and
+ * the cached signer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class SignedUrlSignerBenchmark {
+
+    private static final String SECRET = "benchmark-signing-secret";
+    private static final Duration DURATION = Duration.ofMinutes(15);
+    private static final int MENU_IMAGES = 60;
+
+    private SignedUrlSigner signer;
+    private String[] urls;
+
+    @Setup
+    public void setUp() {
+        signer = new SignedUrlSigner(SECRET, Duration.ofMinutes(5), 10_000, Clock.systemUTC());
+        urls = new String[MENU_IMAGES];
+        for (int i = 0; i < MENU_IMAGES; i++) {
+            urls[i] = "https://cdn.local.garbaking/menu-items/" + i + "/3f2b9c1e-7d4a-4e8b-9a61-" + i + ".jpg";
+        }
+    }
+
+    @Benchmark
+    public void perCallMac(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(perCallSign(url));
+        }
+    }
+
+    @Benchmark
+    public void threadLocalMac(Blackhole blackhole) {
+        long expires = Instant.now().plus(DURATION).getEpochSecond();
+        for (String url : urls) {
+            blackhole.consume(signer.signedUrl(url, expires));
+        }
+    }
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        for (String url : urls) {
+            blackhole.consume(signer.sign(url, DURATION));
+        }
+    }
+
+    /**
+     * Signing as ImageStorageService did before SignedUrlSigner
+     */
+    private static String perCallSign(String url) {
+        long expires = Instant.now().plus(DURATION).getEpochSecond();
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal((url + ":" + expires).getBytes(StandardCharsets.UTF_8));
+            String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+            return UriComponentsBuilder.fromUriString(url)
+                    .queryParam("expires", expires)
+                    .queryParam("signature", signature)
+                    .build()
+                    .toUriString();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
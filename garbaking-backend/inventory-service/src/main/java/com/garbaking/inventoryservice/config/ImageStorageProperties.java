@@ -45,6 +45,16 @@ public class ImageStorageProperties {
      */
     private Duration signedUrlDuration = Duration.ofMinutes(15);
 
+    /**
+     * Signed URL expiries are rounded up to this window, so one signed URL is reused within it.
+     */
+    private Duration signingWindow = Duration.ofMinutes(5);
+
+    /**
+     * Maximum number of signed URLs kept for reuse.
+     */
+    private int signedUrlCacheSize = 10_000;
+
     /**
      * Trim leading/trailing whitespace from configured values.
      */
@@ -67,4 +77,8 @@ public class ImageStorageProperties {
     public Duration getSignedUrlDuration() {
         return signedUrlDuration == null ? Duration.ofMinutes(15) : signedUrlDuration;
     }
+
+    public Duration getSigningWindow() {
+        return signingWindow == null ? Duration.ofMinutes(5) : signingWindow;
+    }
 }
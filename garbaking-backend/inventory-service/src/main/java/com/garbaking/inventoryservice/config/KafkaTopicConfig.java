@@ -1,6 +1,7 @@
 package com.garbaking.inventoryservice.config;
 
 import com.garbaking.inventoryservice.service.InventoryEventPublisher;
+import com.garbaking.inventoryservice.service.InventoryStockRequestListener;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,7 +36,16 @@ public class KafkaTopicConfig {
 
     @Bean
     public NewTopic inventoryStockRequestsTopic() {
-        return TopicBuilder.name("inventory.stock.requests")
+        return TopicBuilder.name(InventoryStockRequestListener.TOPIC_STOCK_REQUESTS)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic inventoryStockRequestsDeadLetterTopic() {
+        // Same partition count: dead letters keep the partition of the failed record
+        return TopicBuilder.name(InventoryStockRequestListener.TOPIC_STOCK_REQUESTS + ".DLT")
                 .partitions(3)
                 .replicas(1)
                 .build();
@@ -6,6 +6,8 @@ import com.garbaking.inventoryservice.dto.MenuItemDTO;
 import com.garbaking.inventoryservice.dto.MenuItemImageDTO;
 import com.garbaking.inventoryservice.dto.MenuItemImageUploadResponse;
 import com.garbaking.inventoryservice.dto.StockAdjustmentDTO;
+import com.garbaking.inventoryservice.dto.StockReservationDTO;
+import com.garbaking.inventoryservice.dto.StockReservationRequest;
 import com.garbaking.inventoryservice.dto.SupplierAssignmentRequest;
 import com.garbaking.inventoryservice.service.MenuItemService;
 import jakarta.validation.Valid;
@@ -160,6 +162,45 @@ public class MenuItemController {
         return ResponseEntity.ok(updatedMenuItem);
     }
 
+    /**
+     * Hold stock for an in-flight order
+     * POST /menu-items/{id}/reservations
+     */
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<StockReservationDTO> reserveStock(
+            @PathVariable Long id,
+            @Valid @RequestBody StockReservationRequest request
+    ) {
+        log.info("POST /menu-items/{}/reservations - Quantity: {}", id, request.getQuantity());
+        StockReservationDTO reservation = menuItemService.reserveStock(id, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+    }
+
+    /**
+     * Commit a reservation, decrementing the held stock
+     * POST /menu-items/reservations/{reservationId}/commit
+     */
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<MenuItemDTO> commitReservation(
+            @PathVariable String reservationId,
+            @RequestParam(required = false) String performedBy
+    ) {
+        log.info("POST /menu-items/reservations/{}/commit", reservationId);
+        MenuItemDTO menuItem = menuItemService.commitReservation(reservationId, performedBy);
+        return ResponseEntity.ok(menuItem);
+    }
+
+    /**
+     * Release a reservation
+     * DELETE /menu-items/reservations/{reservationId}
+     */
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        log.info("DELETE /menu-items/reservations/{}", reservationId);
+        menuItemService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
     /**
      * Upload menu item image
      * POST /menu-items/{id}/images
@@ -4,20 +4,25 @@ import com.garbaking.inventoryservice.dto.ApiResponseDTO;
 import com.garbaking.inventoryservice.dto.CategoryDTO;
 import com.garbaking.inventoryservice.dto.PublicMenuCategoryDTO;
 import com.garbaking.inventoryservice.dto.PublicMenuItemDTO;
-import com.garbaking.inventoryservice.dto.PublicMenuResponse;
 import com.garbaking.inventoryservice.service.CategoryService;
 import com.garbaking.inventoryservice.service.MenuItemService;
-import java.time.Instant;
+import com.garbaking.inventoryservice.service.PublicMenuSnapshotService;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,7 +30,8 @@ import org.springframework.web.bind.annotation.RestController;
 /**
  * Public Menu Controller
  *
- * Lightweight read APIs for customer applications.
+ * Lightweight read APIs for customer applications. The full menu is served from a precomputed
+ * snapshot with a strong ETag, so unchanged menus cost a 304.
  */
 @RestController
 @RequestMapping("/menu")
@@ -35,39 +41,31 @@ public class PublicMenuController {
 
     private final CategoryService categoryService;
     private final MenuItemService menuItemService;
+    private final PublicMenuSnapshotService publicMenuSnapshotService;
 
     @GetMapping("/public")
-    public ResponseEntity<ApiResponseDTO<PublicMenuResponse>> getPublicMenu(
-        @RequestParam(name = "includeEmpty", defaultValue = "false") boolean includeEmpty
+    public ResponseEntity<byte[]> getPublicMenu(
+        @RequestParam(name = "includeEmpty", defaultValue = "false") boolean includeEmpty,
+        @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+        @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
     ) {
         log.debug("GET /menu/public includeEmpty={}", includeEmpty);
-        List<CategoryDTO> categories = categoryService.getActiveCategories();
-
-        List<PublicMenuCategoryDTO> payload = categories.stream()
-            .sorted(Comparator.comparing(category -> Optional.ofNullable(category.getDisplayOrder()).orElse(0)))
-            .map(category -> toPublicCategory(category, includeEmpty))
-            .filter(category -> includeEmpty || (category.getMenuItems() != null && !category.getMenuItems().isEmpty()))
-            .collect(Collectors.toList());
-
-        int totalItems = payload.stream()
-            .mapToInt(category -> category.getMenuItems() != null ? category.getMenuItems().size() : 0)
-            .sum();
-
-        PublicMenuResponse menu = PublicMenuResponse
-            .builder()
-            .generatedAt(Instant.now())
-            .categories(payload)
-            .totalCategories(payload.size())
-            .totalItems(totalItems)
-            .build();
-
-        ApiResponseDTO<PublicMenuResponse> response = ApiResponseDTO
-            .<PublicMenuResponse>builder()
-            .success(true)
-            .data(menu)
-            .build();
-
-        return ResponseEntity.ok(response);
+        PublicMenuSnapshotService.Snapshot snapshot = publicMenuSnapshotService.current(includeEmpty);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        boolean notModified = snapshot.matches(ifNoneMatch);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+            .eTag(gzip ? snapshot.gzipEtag() : snapshot.etag())
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (notModified) {
+            return response.build();
+        }
+        response.contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzipped());
+        }
+        return response.body(snapshot.json());
     }
 
     @GetMapping("/categories")
@@ -125,22 +123,6 @@ public class PublicMenuController {
         return ResponseEntity.ok(response);
     }
 
-    private PublicMenuCategoryDTO toPublicCategory(CategoryDTO category, boolean includeEmpty) {
-        List<PublicMenuItemDTO> publicItems = menuItemService.getPublicMenuItemsByCategory(category.getId());
-
-        return PublicMenuCategoryDTO
-            .builder()
-            .id(category.getId())
-            .name(category.getName())
-            .description(category.getDescription())
-            .imageUrl(category.getImageUrl())
-            .displayOrder(category.getDisplayOrder())
-            .color(category.getColor())
-            .itemCount(publicItems.size())
-            .menuItems(publicItems)
-            .build();
-    }
-
     private PublicMenuCategoryDTO toPublicCategorySkeleton(CategoryDTO category, boolean includeEmpty) {
         long itemCount = menuItemService.countAvailableMenuItemsByCategory(category.getId());
         if (!includeEmpty && itemCount == 0) {
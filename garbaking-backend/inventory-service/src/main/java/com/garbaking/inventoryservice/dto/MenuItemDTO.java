@@ -96,6 +96,10 @@ public class MenuItemDTO {
 
     private Boolean isInStock;  // Calculated field
 
+    private Integer reservedQuantity;  // Calculated field, held by in-flight orders
+
+    private Integer availableQuantity;  // Calculated field, stock less reserved
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
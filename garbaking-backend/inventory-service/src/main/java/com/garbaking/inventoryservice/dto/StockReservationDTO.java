@@ -0,0 +1,28 @@
+package com.garbaking.inventoryservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock Reservation Data Transfer Object
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private String reservationId;
+
+    private Long menuItemId;
+
+    private Integer quantity;
+
+    private LocalDateTime expiresAt;
+
+    private Integer availableQuantity;  // At least this much stock is left for other orders after this hold
+}
@@ -0,0 +1,11 @@
+package com.garbaking.inventoryservice.exception;
+
+/**
+ * Thrown when a reservation asks for more than the stock still available.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
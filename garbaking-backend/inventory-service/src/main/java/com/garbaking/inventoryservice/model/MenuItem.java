@@ -87,6 +87,14 @@ public class MenuItem {
     @Builder.Default
     private Integer stockQuantity = 0;
 
+    /**
+     * Stock held by unexpired reservations or allotted to an instance to hold from (see StockReservationService)
+     * Only changed by the conditional UPDATEs in MenuItemRepository, never by saving the entity
+     */
+    @Column(nullable = false, updatable = false)
+    @Builder.Default
+    private Integer reservedQuantity = 0;
+
     @Column
     private Integer lowStockThreshold;  // Alert when stock falls below this
 
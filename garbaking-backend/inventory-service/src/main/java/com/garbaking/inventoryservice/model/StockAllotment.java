@@ -0,0 +1,52 @@
+package com.garbaking.inventoryservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * StockAllotment Entity
+ *
+ * Part of an item's reserved_quantity leased to one inventory-service instance, which hands it out
+ * to reservations from memory (see StockReservationService). The instance renews the lease every
+ * tick; once it lapses, any instance may take the allotment back. Written with JDBC by
+ * StockAllotmentStore; mapped here so the schema update creates the table.
+ */
+@Entity
+@Table(name = StockAllotment.TABLE, indexes = {
+        @Index(name = "idx_stock_allotment_owner", columnList = "owner_id"),
+        @Index(name = "idx_stock_allotment_lease", columnList = "lease_expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAllotment {
+
+    public static final String TABLE = "stock_allotments";
+
+    /**
+     * "&lt;owner&gt;:&lt;menu item id&gt;"
+     */
+    @Id
+    @Column(name = "allotment_id", length = 80)
+    private String allotmentId;
+
+    @Column(name = "menu_item_id", nullable = false)
+    private Long menuItemId;
+
+    @Column(name = "owner_id", nullable = false, length = 40)
+    private String ownerId;
+
+    /**
+     * Units of the item's reserved_quantity this allotment accounts for
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * When the owner's lease lapses unless renewed, epoch millis
+     */
+    @Column(name = "lease_expires_at", nullable = false)
+    private Long leaseExpiresAt;
+}
@@ -0,0 +1,33 @@
+package com.garbaking.inventoryservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * StockRequestOffset Entity
+ *
+ * Highest offset of each stock request partition whose batch has been applied. Written in the same
+ * transaction as the stock changes (see StockRequestOffsetTracker), so a redelivered batch skips
+ * what it already applied; mapped here so the schema update creates the table.
+ */
+@Entity
+@Table(name = StockRequestOffset.TABLE)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRequestOffset {
+
+    public static final String TABLE = "stock_request_offsets";
+
+    /**
+     * "&lt;topic&gt;-&lt;partition&gt;"
+     */
+    @Id
+    @Column(name = "topic_partition", length = 255)
+    private String topicPartition;
+
+    @Column(name = "last_offset", nullable = false)
+    private Long lastOffset;
+}
@@ -0,0 +1,50 @@
+package com.garbaking.inventoryservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * StockReservation Entity
+ *
+ * Stock held for an in-flight order until it is committed, released or expires. Written by
+ * StockReservationService with JDBC: either behind the request, for a hold taken from an
+ * instance's allotment (owner_id set), or in the same transaction that changes the item's
+ * reserved_quantity (owner_id null). Mapped here so the schema update creates the table.
+ */
+@Entity
+@Table(name = StockReservation.TABLE, indexes = {
+        @Index(name = "idx_stock_reservation_expires_at", columnList = "expires_at"),
+        @Index(name = "idx_stock_reservation_owner", columnList = "owner_id, menu_item_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+
+    public static final String TABLE = "stock_reservations";
+
+    @Id
+    @Column(name = "reservation_id", length = 40)
+    private String reservationId;
+
+    @Column(name = "menu_item_id", nullable = false)
+    private Long menuItemId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * When the hold lapses unless committed, epoch millis
+     */
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+
+    /**
+     * Instance whose allotment the hold was taken from; null when the hold is counted in the
+     * item's reserved_quantity directly
+     */
+    @Column(name = "owner_id", length = 40)
+    private String ownerId;
+}
@@ -2,10 +2,12 @@ package com.garbaking.inventoryservice.repository;
 
 import com.garbaking.inventoryservice.model.MenuItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -76,12 +78,68 @@ public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
     @Query("SELECT DISTINCT m FROM MenuItem m LEFT JOIN FETCH m.images WHERE m.isActive = true ORDER BY m.displayOrder")
     List<MenuItem> findAllActiveWithImages();
 
+    /**
+     * Find the whole public menu (active, available items of active categories) with categories and images
+     */
+    @Query("SELECT DISTINCT m FROM MenuItem m JOIN FETCH m.category c LEFT JOIN FETCH m.images " +
+            "WHERE m.isActive = true AND m.isAvailable = true AND c.isActive = true ORDER BY m.displayOrder")
+    List<MenuItem> findPublicMenuWithImages();
+
     /**
      * Find menu item with images by ID
      */
     @Query("SELECT m FROM MenuItem m LEFT JOIN FETCH m.images LEFT JOIN FETCH m.suppliers WHERE m.id = :id")
     Optional<MenuItem> findByIdWithDetails(@Param("id") Long id);
 
+    /**
+     * Add a stock delta in one conditional UPDATE, unless it would take the stock below what
+     * reservations hold (a decrease may only use stock - reservedQuantity; increases always apply).
+     * isAvailable is assigned first, so it sees the old quantity on MySQL (which applies SET
+     * clauses left to right) as well as on databases that evaluate them all against the old row.
+     *
+     * @return 1 when applied, 0 when the item is missing or the unreserved stock is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MenuItem m SET " +
+            "m.isAvailable = CASE WHEN m.stockQuantity + :delta > 0 THEN true ELSE false END, " +
+            "m.stockQuantity = m.stockQuantity + :delta, m.updatedAt = :now " +
+            "WHERE m.id = :id AND (:delta >= 0 OR m.stockQuantity - m.reservedQuantity + :delta >= 0)")
+    int applyStockDelta(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    /**
+     * Hold stock of a sellable item in one conditional UPDATE, unless stock - reservedQuantity can't cover it
+     *
+     * @return 1 when held, 0 when the item is missing, not sellable or short
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MenuItem m SET m.reservedQuantity = m.reservedQuantity + :quantity " +
+            "WHERE m.id = :id AND m.isActive = true AND m.isAvailable = true " +
+            "AND m.stockQuantity - m.reservedQuantity >= :quantity")
+    int reserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Give back stock held by a released or expired reservation
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MenuItem m SET m.reservedQuantity = " +
+            "CASE WHEN m.reservedQuantity > :quantity THEN m.reservedQuantity - :quantity ELSE 0 END " +
+            "WHERE m.id = :id")
+    int unreserveStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Take a reservation's quantity out of both the stock and the reserved stock in one conditional UPDATE
+     *
+     * @return 1 when applied, 0 when the item is missing or its stock was counted below the held quantity
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE MenuItem m SET " +
+            "m.isAvailable = CASE WHEN m.stockQuantity - :quantity > 0 THEN true ELSE false END, " +
+            "m.stockQuantity = m.stockQuantity - :quantity, " +
+            "m.reservedQuantity = CASE WHEN m.reservedQuantity > :quantity THEN m.reservedQuantity - :quantity ELSE 0 END, " +
+            "m.updatedAt = :now " +
+            "WHERE m.id = :id AND m.stockQuantity >= :quantity")
+    int commitReservedStock(@Param("id") Long id, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
     /**
      * Count menu items by category
      */
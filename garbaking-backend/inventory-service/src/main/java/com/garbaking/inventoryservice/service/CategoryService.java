@@ -10,6 +10,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -209,13 +211,26 @@ public class CategoryService {
     }
 
     /**
-     * Publish category events to Kafka
+     * Publish once the current transaction (if any) commits, so consumers never re-read the old category
      */
     private void publishCategoryEvent(String topic, Category category) {
+        CategoryDTO categoryDTO = convertToDTO(category);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    sendCategoryEvent(topic, categoryDTO);
+                }
+            });
+            return;
+        }
+        sendCategoryEvent(topic, categoryDTO);
+    }
+
+    private void sendCategoryEvent(String topic, CategoryDTO categoryDTO) {
         try {
-            CategoryDTO categoryDTO = convertToDTO(category);
-            kafkaTemplate.send(topic, category.getId().toString(), categoryDTO);
-            log.info("Published event to topic {}: {}", topic, category.getId());
+            kafkaTemplate.send(topic, categoryDTO.getId().toString(), categoryDTO);
+            log.info("Published event to topic {}: {}", topic, categoryDTO.getId());
         } catch (Exception e) {
             log.error("Failed to publish event to topic {}: {}", topic, e.getMessage());
             // Don't throw exception - event publishing shouldn't fail the main operation
@@ -10,17 +10,11 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.security.GeneralSecurityException;
 import java.time.Duration;
-import java.time.Instant;
-import java.util.Base64;
 import java.util.UUID;
 
 /**
@@ -31,9 +25,8 @@ import java.util.UUID;
 @Slf4j
 public class ImageStorageService {
 
-    private static final String HMAC_SHA256 = "HmacSHA256";
-
     private final ImageStorageProperties properties;
+    private final SignedUrlSigner signedUrlSigner;
 
     @PostConstruct
     void ensureDirectoryExists() {
@@ -95,14 +88,7 @@ public class ImageStorageService {
             return url;
         }
         Duration duration = customDuration != null ? customDuration : properties.getSignedUrlDuration();
-        long expires = Instant.now().plus(duration).getEpochSecond();
-        String data = url + ":" + expires;
-        String signature = hmac(data, properties.getSigningSecret());
-        return UriComponentsBuilder.fromUriString(url)
-                .queryParam("expires", expires)
-                .queryParam("signature", signature)
-                .build()
-                .toUriString();
+        return signedUrlSigner.sign(url, duration);
     }
 
     private String extractExtension(String filename) {
@@ -113,17 +99,6 @@ public class ImageStorageService {
         return filename.substring(idx + 1);
     }
 
-    private String hmac(String data, String secret) {
-        try {
-            Mac mac = Mac.getInstance(HMAC_SHA256);
-            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256));
-            byte[] digest = mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
-        } catch (GeneralSecurityException ex) {
-            throw new IllegalStateException("Unable to generate signed URL", ex);
-        }
-    }
-
     @Value
     public static class ImageUploadResult {
         String storagePath;
@@ -11,11 +11,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Handles persistence and retrieval of inventory audit entries.
@@ -25,7 +36,12 @@ import java.time.LocalDateTime;
 @Slf4j
 public class InventoryAuditService {
 
+    private static final String INSERT_SQL = "INSERT INTO inventory_audits (menu_item_id, menu_item_name, " +
+            "change_quantity, previous_quantity, new_quantity, reason, source, performed_by, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final InventoryAuditRepository inventoryAuditRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     @Transactional
     public InventoryAuditDTO recordStockAdjustment(MenuItem menuItem,
@@ -49,6 +65,64 @@ public class InventoryAuditService {
         return toDto(saved);
     }
 
+    /**
+     * Record many stock adjustments with one batched INSERT
+     *
+     * @param adjustments Entries to persist; their id and createdAt are ignored
+     * @return The persisted entries, in the same order, with their ids
+     */
+    @Transactional
+    public List<InventoryAuditDTO> recordStockAdjustments(List<InventoryAuditDTO> adjustments) {
+        if (adjustments.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        InventoryAuditDTO adjustment = adjustments.get(i);
+                        ps.setLong(1, adjustment.getMenuItemId());
+                        ps.setString(2, adjustment.getMenuItemName());
+                        ps.setInt(3, adjustment.getChangeQuantity());
+                        ps.setInt(4, adjustment.getPreviousQuantity());
+                        ps.setInt(5, adjustment.getNewQuantity());
+                        ps.setString(6, adjustment.getReason());
+                        ps.setString(7, adjustment.getSource().name());
+                        ps.setString(8, StringUtils.hasText(adjustment.getPerformedBy())
+                                ? adjustment.getPerformedBy() : "system");
+                        ps.setTimestamp(9, Timestamp.valueOf(createdAt));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return adjustments.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<InventoryAuditDTO> recorded = new ArrayList<>(adjustments.size());
+        for (int i = 0; i < adjustments.size(); i++) {
+            InventoryAuditDTO adjustment = adjustments.get(i);
+            Long id = i < keys.size() ? ((Number) keys.get(i).values().iterator().next()).longValue() : null;
+            recorded.add(InventoryAuditDTO.builder()
+                    .id(id)
+                    .menuItemId(adjustment.getMenuItemId())
+                    .menuItemName(adjustment.getMenuItemName())
+                    .changeQuantity(adjustment.getChangeQuantity())
+                    .previousQuantity(adjustment.getPreviousQuantity())
+                    .newQuantity(adjustment.getNewQuantity())
+                    .reason(adjustment.getReason())
+                    .source(adjustment.getSource())
+                    .performedBy(StringUtils.hasText(adjustment.getPerformedBy()) ? adjustment.getPerformedBy() : "system")
+                    .createdAt(createdAt)
+                    .build());
+        }
+        log.debug("Recorded {} inventory audits in one batch", recorded.size());
+        return recorded;
+    }
+
     @Transactional
     public InventoryAuditDTO recordExternalAudit(InventoryAuditEvent event) {
         if (event.getSource() == InventoryAuditSource.INVENTORY_SERVICE) {
@@ -8,6 +8,8 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 
@@ -25,27 +27,57 @@ public class InventoryEventPublisher {
 
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
+    /**
+     * Publish a menu item lifecycle event once the current transaction (if any) commits, so
+     * consumers such as the public menu snapshot never re-read the menu before the change is visible
+     */
     public void publishMenuItemLifecycle(String type, MenuItemDTO payload) {
         MenuItemLifecycleEvent event = MenuItemLifecycleEvent.builder()
                 .type(type)
                 .payload(payload)
                 .occurredAt(Instant.now())
                 .build();
-        kafkaTemplate.send(TOPIC_MENU_ITEM_LIFECYCLE, payload.getId() != null ? payload.getId().toString() : null, event);
-        log.debug("Published menu item lifecycle event {} for item {}", type, payload.getId());
+        afterCommit(() -> {
+            kafkaTemplate.send(TOPIC_MENU_ITEM_LIFECYCLE, payload.getId() != null ? payload.getId().toString() : null, event);
+            log.debug("Published menu item lifecycle event {} for item {}", type, payload.getId());
+        });
     }
 
+    /**
+     * Publish a stock adjustment once the current transaction (if any) commits, so a rolled-back
+     * or redelivered batch never announces a change that didn't happen
+     */
     public void publishStockAdjustment(StockAdjustmentEvent event) {
-        kafkaTemplate.send(TOPIC_STOCK_ADJUSTED,
-                event.getMenuItemId() != null ? event.getMenuItemId().toString() : null,
-                event);
-        log.debug("Published stock adjustment for item {}", event.getMenuItemId());
+        afterCommit(() -> {
+            kafkaTemplate.send(TOPIC_STOCK_ADJUSTED,
+                    event.getMenuItemId() != null ? event.getMenuItemId().toString() : null,
+                    event);
+            log.debug("Published stock adjustment for item {}", event.getMenuItemId());
+        });
     }
 
+    /**
+     * Publish an audit event once the current transaction (if any) commits, so its audit id exists
+     */
     public void publishInventoryAudit(InventoryAuditEvent event) {
-        kafkaTemplate.send(TOPIC_INVENTORY_AUDIT,
-                event.getMenuItemId() != null ? event.getMenuItemId().toString() : null,
-                event);
-        log.debug("Published inventory audit event {}", event.getAuditId());
+        afterCommit(() -> {
+            kafkaTemplate.send(TOPIC_INVENTORY_AUDIT,
+                    event.getMenuItemId() != null ? event.getMenuItemId().toString() : null,
+                    event);
+            log.debug("Published inventory audit event {}", event.getAuditId());
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
     }
 }
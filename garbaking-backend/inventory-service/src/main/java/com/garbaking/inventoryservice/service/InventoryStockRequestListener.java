@@ -1,38 +1,142 @@
 package com.garbaking.inventoryservice.service;
 
-import com.garbaking.inventoryservice.dto.StockAdjustmentDTO;
 import com.garbaking.inventoryservice.event.StockAdjustmentRequest;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Listens for cross-service stock adjustment requests.
+ *
+ * Consumes a whole poll at a time and applies it in one transaction (see
+ * MenuItemService#applyStockRequests), so a rush costs one round trip per item and batch rather
+ * than one transaction per record. Requests that can't be applied go to the dead-letter topic.
+ *
+ * Everything the batch does is one unit of work: rejected records are dead-lettered once the stock
+ * changes have been applied, and the sends wait for the broker before the transaction commits, so
+ * a failed send rolls the stock changes back instead of leaving them to be applied again on
+ * redelivery. The applied offsets are committed with the stock changes too (see
+ * StockRequestOffsetTracker), so a batch redelivered after it committed skips what it applied.
+ * Payloads that can't be deserialized arrive as null values and are dead-lettered as-is.
+ *
+ * If the batch fails, its records are applied one per transaction up to the first that fails,
+ * which is reported by index (BatchListenerFailedException): the container keeps the records
+ * before it and retries from it, and only that record is dead-lettered once retries run out.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class InventoryStockRequestListener {
 
+    public static final String TOPIC_STOCK_REQUESTS = "inventory.stock.requests";
+
     private final MenuItemService menuItemService;
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    private final StockRequestOffsetTracker offsetTracker;
+    private final TransactionTemplate transactionTemplate;
 
-    @KafkaListener(topics = "inventory.stock.requests", groupId = "inventory-service")
-    public void handleStockRequest(StockAdjustmentRequest request) {
-        if (request == null || request.getMenuItemId() == null || request.getQuantity() == null) {
-            log.warn("Received invalid stock adjustment request: {}", request);
-            return;
-        }
+    public InventoryStockRequestListener(MenuItemService menuItemService,
+                                         DeadLetterPublishingRecoverer deadLetterPublishingRecoverer,
+                                         StockRequestOffsetTracker offsetTracker,
+                                         PlatformTransactionManager transactionManager) {
+        this.menuItemService = menuItemService;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer;
+        this.offsetTracker = offsetTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @KafkaListener(
+            topics = TOPIC_STOCK_REQUESTS,
+            groupId = "inventory-service",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = {
+                    "max.poll.records=${inventory.stock-requests.batch-size:200}",
+                    "value.deserializer=org.springframework.kafka.support.serializer.ErrorHandlingDeserializer",
+                    "spring.deserializer.value.delegate.class=org.springframework.kafka.support.serializer.JsonDeserializer",
+                    "spring.json.use.type.headers=false",
+                    "spring.json.value.default.type=com.garbaking.inventoryservice.event.StockAdjustmentRequest"
+            }
+    )
+    public void handleStockRequests(List<ConsumerRecord<String, StockAdjustmentRequest>> records) {
         try {
-            StockAdjustmentDTO dto = StockAdjustmentDTO.builder()
-                    .menuItemId(request.getMenuItemId())
-                    .quantity(request.getQuantity())
-                    .reason(request.getReason())
-                    .performedBy(request.getPerformedBy())
-                    .build();
-            menuItemService.adjustStock(dto);
-        } catch (Exception ex) {
-            log.error("Failed to process stock adjustment request for item {}", request.getMenuItemId(), ex);
+            transactionTemplate.executeWithoutResult(status -> applyBatch(records));
+        } catch (RuntimeException batchFailure) {
+            if (records.size() == 1) {
+                throw new BatchListenerFailedException("Stock request failed", batchFailure, 0);
+            }
+            log.warn("Stock request batch of {} failed ({}), applying its records one by one", records.size(),
+                    batchFailure.getMessage());
+            for (int i = 0; i < records.size(); i++) {
+                List<ConsumerRecord<String, StockAdjustmentRequest>> single = List.of(records.get(i));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> applyBatch(single));
+                } catch (RuntimeException e) {
+                    throw new BatchListenerFailedException("Stock request failed", e, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply records in the caller's transaction, dead-lettering the ones that can't be applied
+     * only after the rest went through
+     */
+    private void applyBatch(List<ConsumerRecord<String, StockAdjustmentRequest>> records) {
+        Map<Integer, Long> lastOffsets = new HashMap<>();
+        for (ConsumerRecord<String, StockAdjustmentRequest> record : records) {
+            lastOffsets.merge(record.partition(), record.offset(), Math::max);
         }
+        Map<Integer, Long> applied = offsetTracker.lockLastApplied(TOPIC_STOCK_REQUESTS, lastOffsets.keySet());
+
+        Map<StockAdjustmentRequest, ConsumerRecord<String, StockAdjustmentRequest>> recordsByRequest =
+                new IdentityHashMap<>();
+        List<StockAdjustmentRequest> requests = new ArrayList<>(records.size());
+        List<ConsumerRecord<String, StockAdjustmentRequest>> invalid = new ArrayList<>();
+        for (ConsumerRecord<String, StockAdjustmentRequest> record : records) {
+            Long appliedOffset = applied.get(record.partition());
+            if (appliedOffset != null && record.offset() <= appliedOffset) {
+                log.debug("Skipping stock request already applied (partition {}, offset {})", record.partition(),
+                        record.offset());
+                continue;
+            }
+            StockAdjustmentRequest request = record.value();
+            if (request == null || request.getMenuItemId() == null || request.getQuantity() == null) {
+                invalid.add(record);
+                continue;
+            }
+            recordsByRequest.put(request, record);
+            requests.add(request);
+        }
+        List<StockAdjustmentRequest> rejected = requests.isEmpty()
+                ? List.of()
+                : menuItemService.applyStockRequests(requests);
+
+        for (ConsumerRecord<String, StockAdjustmentRequest> record : invalid) {
+            deadLetter(record, "Invalid stock adjustment request");
+        }
+        for (StockAdjustmentRequest request : rejected) {
+            deadLetter(recordsByRequest.get(request), "Stock adjustment rejected for item " + request.getMenuItemId());
+        }
+        offsetTracker.markApplied(TOPIC_STOCK_REQUESTS, lastOffsets);
+    }
+
+    /**
+     * Blocks until the broker has the record and throws if the send fails (the recoverer's
+     * default), which rolls the batch back
+     */
+    private void deadLetter(ConsumerRecord<String, StockAdjustmentRequest> record, String reason) {
+        log.warn("{} (partition {}, offset {}), sending to dead-letter topic", reason, record.partition(),
+                record.offset());
+        deadLetterPublishingRecoverer.accept(record, new IllegalArgumentException(reason));
     }
 }
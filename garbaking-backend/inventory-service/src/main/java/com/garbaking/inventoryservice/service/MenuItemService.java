@@ -9,10 +9,13 @@ import com.garbaking.inventoryservice.dto.MenuItemImageDTO;
 import com.garbaking.inventoryservice.dto.MenuItemImageUploadResponse;
 import com.garbaking.inventoryservice.dto.PublicMenuItemDTO;
 import com.garbaking.inventoryservice.dto.StockAdjustmentDTO;
+import com.garbaking.inventoryservice.dto.StockReservationDTO;
+import com.garbaking.inventoryservice.dto.StockReservationRequest;
 import com.garbaking.inventoryservice.dto.SupplierAssignmentRequest;
 import com.garbaking.inventoryservice.dto.SupplierSummaryDTO;
 import com.garbaking.inventoryservice.event.InventoryAuditEvent;
 import com.garbaking.inventoryservice.event.StockAdjustmentEvent;
+import com.garbaking.inventoryservice.event.StockAdjustmentRequest;
 import com.garbaking.inventoryservice.exception.InvalidStockAdjustmentException;
 import com.garbaking.inventoryservice.exception.ResourceAlreadyExistsException;
 import com.garbaking.inventoryservice.exception.ResourceNotFoundException;
@@ -35,10 +38,15 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -60,6 +68,7 @@ public class MenuItemService {
     private final InventoryEventPublisher inventoryEventPublisher;
     private final ImageStorageService imageStorageService;
     private final MinioImageStorageService minioImageStorageService;
+    private final StockReservationService stockReservationService;
 
     @Transactional
     public MenuItemDTO createMenuItem(MenuItemDTO menuItemDTO) {
@@ -172,6 +181,16 @@ public class MenuItemService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Public menu items of every active category in one query, keyed by category ID
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<PublicMenuItemDTO>> getPublicMenuItemsGroupedByCategory() {
+        return menuItemRepository.findPublicMenuWithImages().stream()
+                .collect(Collectors.groupingBy(MenuItem::getCategoryId, LinkedHashMap::new,
+                        Collectors.mapping(this::mapToPublicMenuItem, Collectors.toList())));
+    }
+
     @Transactional(readOnly = true)
     public List<PublicMenuItemDTO> searchPublicMenuItems(String name) {
         return menuItemRepository.searchByName(name).stream()
@@ -257,7 +276,8 @@ public class MenuItemService {
         for (FeaturedItemOrderRequest.ItemOrder itemOrder : request.getItems()) {
             menuItemRepository.findById(itemOrder.getMenuItemId()).ifPresent(menuItem -> {
                 menuItem.setDisplayOrder(itemOrder.getDisplayOrder());
-                menuItemRepository.save(menuItem);
+                MenuItem saved = menuItemRepository.save(menuItem);
+                inventoryEventPublisher.publishMenuItemLifecycle("FEATURE_UPDATED", convertToDTO(saved));
             });
         }
         return getFeaturedMenuItems();
@@ -294,6 +314,7 @@ public class MenuItemService {
         }
 
         MenuItemImage savedImage = menuItemImageRepository.save(image);
+        publishImagesUpdated(menuItemId);
         MenuItemImageDTO imageDTO = convertImageToDTO(savedImage);
         String signedUrl = imageStorageService.generateSignedUrl(savedImage.getImageUrl(), null);
         return MenuItemImageUploadResponse.builder()
@@ -327,6 +348,7 @@ public class MenuItemService {
         if (displayOrder != null) image.setDisplayOrder(displayOrder);
         if (altText != null) image.setAltText(altText);
         MenuItemImage saved = menuItemImageRepository.save(image);
+        publishImagesUpdated(menuItemId);
         return convertImageToDTO(saved);
     }
 
@@ -339,6 +361,7 @@ public class MenuItemService {
         }
         menuItemImageRepository.delete(image);
         imageStorageService.delete(image.getStoragePath());
+        publishImagesUpdated(menuItemId);
     }
 
     @Transactional(readOnly = true)
@@ -360,9 +383,11 @@ public class MenuItemService {
         }
         int previousQuantity = menuItem.getStockQuantity();
         int change = request.getCountedQuantity() - previousQuantity;
+        boolean wasAvailable = Boolean.TRUE.equals(menuItem.getIsAvailable());
         menuItem.setStockQuantity(request.getCountedQuantity());
         menuItem.setIsAvailable(request.getCountedQuantity() > 0);
         MenuItem saved = menuItemRepository.save(menuItem);
+        publishAvailabilityChange(saved, wasAvailable);
 
         InventoryAuditDTO audit = inventoryAuditService.recordStockAdjustment(saved, change, previousQuantity,
                 request.getReason(), InventoryAuditSource.MANUAL_COUNT, request.getPerformedBy());
@@ -371,11 +396,14 @@ public class MenuItemService {
         return audit;
     }
 
+    /**
+     * Apply a stock delta atomically: one conditional UPDATE, so concurrent orders for the last
+     * portions can't both succeed, stock held by reservations can't be sold, and the stock can't
+     * drift or go negative.
+     */
     @Transactional
     public MenuItemDTO adjustStock(StockAdjustmentDTO adjustmentDTO) {
-        MenuItem menuItem = menuItemRepository.findById(adjustmentDTO.getMenuItemId())
-                .orElseThrow(() -> new ResourceNotFoundException("Menu item not found with id: " + adjustmentDTO.getMenuItemId()));
-
+        Long menuItemId = adjustmentDTO.getMenuItemId();
         if (adjustmentDTO.getQuantity() == 0) {
             throw new InvalidStockAdjustmentException("Quantity must be non-zero");
         }
@@ -383,16 +411,29 @@ public class MenuItemService {
             throw new InvalidStockAdjustmentException("Reason is required when reducing stock");
         }
 
-        int previousQuantity = menuItem.getStockQuantity();
-        int newQuantity = previousQuantity + adjustmentDTO.getQuantity();
-        if (newQuantity < 0) {
+        int updated = menuItemRepository.applyStockDelta(menuItemId, adjustmentDTO.getQuantity(), LocalDateTime.now());
+        return recordStockAdjustment(adjustmentDTO, updated);
+    }
+
+    /**
+     * Audit and publish a stock delta applied by a conditional UPDATE
+     *
+     * @param updated Rows the UPDATE changed; 0 when the item is missing or its stock is insufficient
+     */
+    private MenuItemDTO recordStockAdjustment(StockAdjustmentDTO adjustmentDTO, int updated) {
+        Long menuItemId = adjustmentDTO.getMenuItemId();
+        if (updated == 0) {
+            if (!menuItemRepository.existsById(menuItemId)) {
+                throw new ResourceNotFoundException("Menu item not found with id: " + menuItemId);
+            }
             throw new InvalidStockAdjustmentException("Insufficient stock for requested adjustment");
         }
+        // The UPDATE holds the row lock until commit, so this read sees exactly our result
+        MenuItem updatedMenuItem = menuItemRepository.findById(menuItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Menu item not found with id: " + menuItemId));
+        int previousQuantity = updatedMenuItem.getStockQuantity() - adjustmentDTO.getQuantity();
+        publishAvailabilityChange(updatedMenuItem, previousQuantity > 0);
 
-        menuItem.setStockQuantity(newQuantity);
-        menuItem.setIsAvailable(newQuantity > 0);
-
-        MenuItem updatedMenuItem = menuItemRepository.save(menuItem);
         InventoryAuditDTO audit = inventoryAuditService.recordStockAdjustment(updatedMenuItem,
                 adjustmentDTO.getQuantity(), previousQuantity, adjustmentDTO.getReason(),
                 InventoryAuditSource.INVENTORY_SERVICE, adjustmentDTO.getPerformedBy());
@@ -403,6 +444,79 @@ public class MenuItemService {
         return convertToDTO(updatedMenuItem);
     }
 
+    /**
+     * Apply a batch of stock requests in one transaction. Requests for the same item are netted
+     * into one conditional UPDATE; only when the net delta doesn't fit are they applied one by one.
+     * Every applied request still gets its own audit entry (inserted in one batch) and events.
+     *
+     * @return The requests that were not applied: invalid, for a missing item, or out of stock
+     */
+    @Transactional
+    public List<StockAdjustmentRequest> applyStockRequests(List<StockAdjustmentRequest> requests) {
+        List<StockAdjustmentRequest> rejected = new ArrayList<>();
+        Map<Long, List<StockAdjustmentRequest>> requestsByItem = new LinkedHashMap<>();
+        for (StockAdjustmentRequest request : requests) {
+            boolean valid = request.getQuantity() != 0
+                    && (request.getQuantity() > 0 || StringUtils.hasText(request.getReason()));
+            if (valid) {
+                requestsByItem.computeIfAbsent(request.getMenuItemId(), id -> new ArrayList<>()).add(request);
+            } else {
+                rejected.add(request);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<MenuItem> adjustedItems = new ArrayList<>();
+        List<StockAdjustmentRequest> appliedRequests = new ArrayList<>();
+        List<InventoryAuditDTO> pendingAudits = new ArrayList<>();
+        requestsByItem.forEach((menuItemId, itemRequests) -> {
+            int netChange = itemRequests.stream().mapToInt(StockAdjustmentRequest::getQuantity).sum();
+            List<StockAdjustmentRequest> applied = itemRequests;
+            if (menuItemRepository.applyStockDelta(menuItemId, netChange, now) == 0) {
+                applied = new ArrayList<>();
+                for (StockAdjustmentRequest request : itemRequests) {
+                    if (menuItemRepository.applyStockDelta(menuItemId, request.getQuantity(), now) == 1) {
+                        applied.add(request);
+                    } else {
+                        rejected.add(request);
+                    }
+                }
+                netChange = applied.stream().mapToInt(StockAdjustmentRequest::getQuantity).sum();
+            }
+            if (applied.isEmpty()) {
+                return;
+            }
+            MenuItem menuItem = menuItemRepository.findById(menuItemId).orElseThrow();
+            int quantity = menuItem.getStockQuantity() - netChange;
+            publishAvailabilityChange(menuItem, quantity > 0);
+            for (StockAdjustmentRequest request : applied) {
+                pendingAudits.add(InventoryAuditDTO.builder()
+                        .menuItemId(menuItemId)
+                        .menuItemName(menuItem.getName())
+                        .changeQuantity(request.getQuantity())
+                        .previousQuantity(quantity)
+                        .newQuantity(quantity + request.getQuantity())
+                        .reason(request.getReason())
+                        .source(InventoryAuditSource.INVENTORY_SERVICE)
+                        .performedBy(request.getPerformedBy())
+                        .build());
+                quantity += request.getQuantity();
+                adjustedItems.add(menuItem);
+                appliedRequests.add(request);
+            }
+        });
+
+        List<InventoryAuditDTO> audits = inventoryAuditService.recordStockAdjustments(pendingAudits);
+        for (int i = 0; i < audits.size(); i++) {
+            StockAdjustmentRequest request = appliedRequests.get(i);
+            publishStockEvents(adjustedItems.get(i), audits.get(i), request.getQuantity(), request.getReason(),
+                    request.getPerformedBy(), InventoryAuditSource.INVENTORY_SERVICE);
+        }
+        log.debug("Applied {} of {} stock requests across {} items", appliedRequests.size(), requests.size(),
+                requestsByItem.size());
+        return rejected;
+    }
+
     @Transactional
     public void deleteMenuItem(Long id) {
         MenuItem menuItem = menuItemRepository.findById(id)
@@ -422,6 +536,61 @@ public class MenuItemService {
         inventoryEventPublisher.publishMenuItemLifecycle("HARD_DELETED", MenuItemDTO.builder().id(id).build());
     }
 
+    /**
+     * Hold stock for an in-flight order, usually from this instance's allotment of the item without
+     * touching the database (see StockReservationService)
+     */
+    public StockReservationDTO reserveStock(Long menuItemId, StockReservationRequest request) {
+        Duration ttl = request.getTtlSeconds() != null ? Duration.ofSeconds(request.getTtlSeconds()) : null;
+        StockReservationService.Reservation reservation =
+                stockReservationService.reserve(menuItemId, request.getQuantity(), ttl);
+        return StockReservationDTO.builder()
+                .reservationId(reservation.id())
+                .menuItemId(reservation.menuItemId())
+                .quantity(reservation.quantity())
+                .expiresAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(reservation.expiresAtMillis()),
+                        ZoneId.systemDefault()))
+                .availableQuantity(stockReservationService.unheldQuantity(menuItemId))
+                .build();
+    }
+
+    /**
+     * Turn a hold into a stock decrement. The held quantity leaves the stock and the reserved
+     * stock in one UPDATE; if the transaction rolls back, the hold is still there.
+     */
+    @Transactional
+    public MenuItemDTO commitReservation(String reservationId, String performedBy) {
+        StockReservationService.Reservation reservation = stockReservationService.claim(reservationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reservation not found or expired: " + reservationId));
+        int updated = menuItemRepository.commitReservedStock(reservation.menuItemId(), reservation.quantity(),
+                LocalDateTime.now());
+        return recordStockAdjustment(StockAdjustmentDTO.builder()
+                .menuItemId(reservation.menuItemId())
+                .quantity(-reservation.quantity())
+                .reason("Reservation " + reservationId)
+                .performedBy(performedBy)
+                .build(), updated);
+    }
+
+    public void releaseReservation(String reservationId) {
+        if (!stockReservationService.release(reservationId)) {
+            throw new ResourceNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+    }
+
+    private void publishImagesUpdated(Long menuItemId) {
+        inventoryEventPublisher.publishMenuItemLifecycle("IMAGES_UPDATED", MenuItemDTO.builder().id(menuItemId).build());
+    }
+
+    /**
+     * Stock changes only reach the lifecycle topic when they take an item on or off the menu
+     */
+    private void publishAvailabilityChange(MenuItem menuItem, boolean wasAvailable) {
+        if (wasAvailable != Boolean.TRUE.equals(menuItem.getIsAvailable())) {
+            inventoryEventPublisher.publishMenuItemLifecycle("AVAILABILITY_UPDATED", convertToDTO(menuItem));
+        }
+    }
+
     private void publishStockEvents(MenuItem menuItem,
                                     InventoryAuditDTO audit,
                                     int change,
@@ -470,6 +639,7 @@ public class MenuItemService {
     }
 
     private MenuItemDTO convertToDTO(MenuItem menuItem) {
+        int reserved = menuItem.getReservedQuantity() != null ? menuItem.getReservedQuantity() : 0;
         return MenuItemDTO.builder()
                 .id(menuItem.getId())
                 .name(menuItem.getName())
@@ -492,6 +662,8 @@ public class MenuItemService {
                 .displayOrder(menuItem.getDisplayOrder())
                 .isLowStock(menuItem.isLowStock())
                 .isInStock(menuItem.isInStock())
+                .reservedQuantity(reserved)
+                .availableQuantity(Math.max(0, (menuItem.getStockQuantity() != null ? menuItem.getStockQuantity() : 0) - reserved))
                 .supplierIds(menuItem.getSuppliers().stream().map(Supplier::getId).collect(Collectors.toList()))
                 .suppliers(menuItem.getSuppliers().stream().map(this::convertSupplierToSummary).collect(Collectors.toList()))
                 .createdAt(menuItem.getCreatedAt())
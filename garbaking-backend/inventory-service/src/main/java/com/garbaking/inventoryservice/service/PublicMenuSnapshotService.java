@@ -0,0 +1,238 @@
+package com.garbaking.inventoryservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.inventoryservice.config.ImageStorageProperties;
+import com.garbaking.inventoryservice.dto.ApiResponseDTO;
+import com.garbaking.inventoryservice.dto.CategoryDTO;
+import com.garbaking.inventoryservice.dto.PublicMenuCategoryDTO;
+import com.garbaking.inventoryservice.dto.PublicMenuItemDTO;
+import com.garbaking.inventoryservice.dto.PublicMenuResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Public Menu Snapshot Service
+ *
+ * Keeps the GET /menu/public response materialised as pre-serialised and pre-gzipped bytes with a
+ * strong ETag, so app opens and kiosk refreshes never touch the database. The snapshot is built
+ * from two queries (active categories, then every public item with its images) and marked stale
+ * by menu item lifecycle and category events; the next request rebuilds it. Those events are only
+ * sent once the change commits, so a rebuild they trigger always sees the change.
+ *
+ * Every replica listens in its own consumer group, so an edit made on one instance invalidates
+ * the snapshot on all of them. Snapshots are also rebuilt after half the signed image URL
+ * duration, so the image links they hand out are always valid for a while longer.
+ */
+@Service
+@Slf4j
+public class PublicMenuSnapshotService {
+
+    private final CategoryService categoryService;
+    private final MenuItemService menuItemService;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration maxAge;
+    private final Counter rebuildCounter;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshots snapshots;
+
+    @Autowired
+    public PublicMenuSnapshotService(
+            CategoryService categoryService,
+            MenuItemService menuItemService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            ImageStorageProperties imageStorageProperties
+    ) {
+        this(categoryService, menuItemService, objectMapper, meterRegistry,
+                imageStorageProperties.getSignedUrlDuration().dividedBy(2), Clock.systemUTC());
+    }
+
+    PublicMenuSnapshotService(CategoryService categoryService, MenuItemService menuItemService,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry, Duration maxAge, Clock clock) {
+        this.categoryService = categoryService;
+        this.menuItemService = menuItemService;
+        this.objectMapper = objectMapper;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.rebuildCounter = meterRegistry.counter("garbaking_public_menu_snapshot_rebuilds_total");
+    }
+
+    /**
+     * Current public menu, rebuilt first when stale
+     *
+     * @param includeEmpty Whether categories without public items are listed
+     */
+    public Snapshot current(boolean includeEmpty) {
+        Snapshots current = snapshots;
+        if (current == null || !current.isFresh(generation.get(), clock.instant())) {
+            current = rebuild();
+        }
+        return includeEmpty ? current.withEmpty() : current.withoutEmpty();
+    }
+
+    /**
+     * Mark the snapshot stale; the next request rebuilds it
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    @KafkaListener(
+            topics = {InventoryEventPublisher.TOPIC_MENU_ITEM_LIFECYCLE,
+                    "category.created", "category.updated", "category.deleted"},
+            groupId = "inventory-service-menu-snapshot-${random.uuid}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer"
+            }
+    )
+    public void onMenuChanged(String event) {
+        // Only the fact that the menu changed matters, not which item
+        invalidate();
+    }
+
+    private synchronized Snapshots rebuild() {
+        long buildGeneration = generation.get();
+        Instant now = clock.instant();
+        Snapshots current = snapshots;
+        if (current != null && current.isFresh(buildGeneration, now)) {
+            return current;
+        }
+
+        Map<Long, List<PublicMenuItemDTO>> itemsByCategory = menuItemService.getPublicMenuItemsGroupedByCategory();
+        List<PublicMenuCategoryDTO> categories = categoryService.getActiveCategories().stream()
+                .sorted(Comparator.comparing(category -> Optional.ofNullable(category.getDisplayOrder()).orElse(0)))
+                .map(category -> toPublicCategory(category, itemsByCategory.getOrDefault(category.getId(), List.of())))
+                .toList();
+        List<PublicMenuCategoryDTO> nonEmpty = categories.stream()
+                .filter(category -> !category.getMenuItems().isEmpty())
+                .toList();
+
+        // Unchanged content keeps its bytes, generatedAt and ETag, so clients keep getting 304s
+        Snapshot withEmpty = snapshot(categories, current != null ? current.withEmpty() : null, now);
+        Snapshot withoutEmpty = snapshot(nonEmpty, current != null ? current.withoutEmpty() : null, now);
+        Snapshots rebuilt = new Snapshots(withEmpty, withoutEmpty, buildGeneration, now.plus(maxAge));
+        snapshots = rebuilt;
+        rebuildCounter.increment();
+        log.debug("Rebuilt public menu snapshot: {} categories, etag {}", categories.size(), withEmpty.etag());
+        return rebuilt;
+    }
+
+    private Snapshot snapshot(List<PublicMenuCategoryDTO> categories, Snapshot previous, Instant now) {
+        byte[] contentDigest = sha256(serialize(categories));
+        if (previous != null && Arrays.equals(previous.contentDigest(), contentDigest)) {
+            return previous;
+        }
+
+        int totalItems = categories.stream().mapToInt(category -> category.getMenuItems().size()).sum();
+        PublicMenuResponse menu = PublicMenuResponse
+                .builder()
+                .generatedAt(now)
+                .categories(categories)
+                .totalCategories(categories.size())
+                .totalItems(totalItems)
+                .build();
+        byte[] json = serialize(ApiResponseDTO.<PublicMenuResponse>builder()
+                .success(true)
+                .data(menu)
+                .build());
+        String tag = Base64.getUrlEncoder().withoutPadding().encodeToString(sha256(json));
+        return new Snapshot("\"" + tag + "\"", "\"" + tag + "-gzip\"", json, gzip(json), contentDigest, now);
+    }
+
+    private PublicMenuCategoryDTO toPublicCategory(CategoryDTO category, List<PublicMenuItemDTO> items) {
+        return PublicMenuCategoryDTO
+                .builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .imageUrl(category.getImageUrl())
+                .displayOrder(category.getDisplayOrder())
+                .color(category.getColor())
+                .itemCount(items.size())
+                .menuItems(items)
+                .build();
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize public menu", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to gzip public menu", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * One serialised public menu; the gzip representation has its own strong ETag
+     */
+    public record Snapshot(String etag, String gzipEtag, byte[] json, byte[] gzipped, byte[] contentDigest,
+                           Instant generatedAt) {
+
+        /**
+         * Whether an If-None-Match header names this snapshot in either representation
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Snapshots(Snapshot withEmpty, Snapshot withoutEmpty, long generation, Instant expiresAt) {
+
+        boolean isFresh(long currentGeneration, Instant now) {
+            return generation == currentGeneration && now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.config.ImageStorageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signs image URLs for temporary access.
+ *
+ * Expiries are rounded up to the next signing window, so every read within a window produces the
+ * same signed URL; those are cached by (url, expiry) and signed once. Links stay valid for at
+ * least the requested duration and at most one window longer. Each thread keeps its own
+ * initialised Mac, so cache misses skip the provider lookup and key setup.
+ */
+@Component
+public class SignedUrlSigner {
+
+    private static final String HMAC_SHA256 = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> mac;
+    private final long windowSeconds;
+    private final int maxEntries;
+    private final Clock clock;
+    private final Map<CacheKey, String> signedUrls = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SignedUrlSigner(ImageStorageProperties properties) {
+        this(properties.getSigningSecret(), properties.getSigningWindow(), properties.getSignedUrlCacheSize(),
+                Clock.systemUTC());
+    }
+
+    SignedUrlSigner(String secret, Duration window, int maxEntries, Clock clock) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_SHA256);
+        this.mac = ThreadLocal.withInitial(this::newMac);
+        this.windowSeconds = Math.max(1, window.toSeconds());
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Signed URL valid for at least the given duration
+     */
+    public String sign(String url, Duration duration) {
+        if (!StringUtils.hasText(url)) {
+            return url;
+        }
+        long earliestExpiry = clock.instant().plus(duration).getEpochSecond();
+        long expires = Math.floorDiv(earliestExpiry + windowSeconds - 1, windowSeconds) * windowSeconds;
+
+        CacheKey cacheKey = new CacheKey(url, expires);
+        String signed = signedUrls.get(cacheKey);
+        if (signed == null) {
+            if (signedUrls.size() >= maxEntries) {
+                evict(earliestExpiry);
+            }
+            signed = signedUrl(url, expires);
+            signedUrls.put(cacheKey, signed);
+        }
+        return signed;
+    }
+
+    /**
+     * Sign without the cache
+     */
+    String signedUrl(String url, long expires) {
+        byte[] digest = mac.get().doFinal((url + ":" + expires).getBytes(StandardCharsets.UTF_8));
+        String signature = Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        return url + (url.indexOf('?') >= 0 ? '&' : '?') + "expires=" + expires + "&signature=" + signature;
+    }
+
+    int cachedUrls() {
+        return signedUrls.size();
+    }
+
+    private void evict(long earliestExpiry) {
+        // URLs of past windows are never asked for again; if that isn't enough, start over
+        signedUrls.keySet().removeIf(cached -> cached.expires() < earliestExpiry);
+        if (signedUrls.size() >= maxEntries) {
+            signedUrls.clear();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac instance = Mac.getInstance(HMAC_SHA256);
+            instance.init(key);
+            return instance;
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Unable to generate signed URL", ex);
+        }
+    }
+
+    private record CacheKey(String url, long expires) {
+    }
+}
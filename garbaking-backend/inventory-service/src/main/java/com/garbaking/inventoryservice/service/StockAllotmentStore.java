@@ -0,0 +1,108 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.model.StockAllotment;
+import com.garbaking.inventoryservice.model.StockReservation;
+import com.garbaking.inventoryservice.repository.MenuItemRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Persists the allotments of reserved stock leased to inventory-service instances.
+ *
+ * The invariant kept with menu_items.reserved_quantity: an item's reserved quantity is the sum of
+ * its allotments plus the holds that belong to no instance (owner_id null). Every method runs in
+ * the caller's transaction.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockAllotmentStore {
+
+    static final String GROW_SQL = "INSERT INTO " + StockAllotment.TABLE +
+            " (allotment_id, menu_item_id, owner_id, quantity, lease_expires_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity), lease_expires_at = VALUES(lease_expires_at)";
+
+    static final String SHRINK_SQL = "UPDATE " + StockAllotment.TABLE +
+            " SET quantity = GREATEST(quantity - ?, 0) WHERE allotment_id = ?";
+
+    static final String DELETE_EMPTY_SQL = "DELETE FROM " + StockAllotment.TABLE +
+            " WHERE allotment_id = ? AND quantity = 0";
+
+    static final String RENEW_SQL = "UPDATE " + StockAllotment.TABLE + " SET lease_expires_at = ? WHERE owner_id = ?";
+
+    static final String LOCK_LAPSED_SQL = "SELECT allotment_id, menu_item_id, owner_id, quantity FROM " +
+            StockAllotment.TABLE + " WHERE lease_expires_at <= ? ORDER BY lease_expires_at LIMIT ? " +
+            "FOR UPDATE SKIP LOCKED";
+
+    static final String LOCK_OWNED_HOLDS_SQL = "SELECT COALESCE(SUM(quantity), 0) FROM " + StockReservation.TABLE +
+            " WHERE owner_id = ? AND menu_item_id = ? FOR UPDATE";
+
+    static final String DISOWN_HOLDS_SQL = "UPDATE " + StockReservation.TABLE +
+            " SET owner_id = NULL WHERE owner_id = ? AND menu_item_id = ?";
+
+    static final String DELETE_SQL = "DELETE FROM " + StockAllotment.TABLE + " WHERE allotment_id = ?";
+
+    private static final RowMapper<Lapsed> LAPSED_MAPPER = (rs, rowNum) -> new Lapsed(
+            rs.getString("allotment_id"), rs.getLong("menu_item_id"), rs.getString("owner_id"), rs.getInt("quantity"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MenuItemRepository menuItemRepository;
+
+    /**
+     * Add units the caller has just added to the item's reserved_quantity, renewing the lease
+     */
+    public void grow(String owner, Long menuItemId, int quantity, long leaseExpiresAt) {
+        jdbcTemplate.update(GROW_SQL, key(owner, menuItemId), menuItemId, owner, quantity, leaseExpiresAt);
+    }
+
+    /**
+     * Take units out of an allotment: committed, released through another instance, or given back.
+     * The caller takes them out of the item's reserved_quantity (or stock) as well.
+     */
+    public void shrink(String owner, Long menuItemId, int quantity) {
+        String key = key(owner, menuItemId);
+        jdbcTemplate.update(SHRINK_SQL, quantity, key);
+        jdbcTemplate.update(DELETE_EMPTY_SQL, key);
+    }
+
+    /**
+     * Extend the lease on every allotment of an instance
+     */
+    public void renew(String owner, long leaseExpiresAt) {
+        jdbcTemplate.update(RENEW_SQL, leaseExpiresAt, owner);
+    }
+
+    /**
+     * Take back allotments whose owner stopped renewing them. Their holds are kept but belong to no
+     * instance from then on, and the rest of the allotment goes back to the item.
+     *
+     * @return Number of allotments taken back; rows another instance is already reclaiming are skipped
+     */
+    public int reclaimLapsed(long now, int limit) {
+        List<Lapsed> lapsed = jdbcTemplate.query(LOCK_LAPSED_SQL, LAPSED_MAPPER, now, limit);
+        for (Lapsed allotment : lapsed) {
+            Integer held = jdbcTemplate.queryForObject(LOCK_OWNED_HOLDS_SQL, Integer.class,
+                    allotment.owner(), allotment.menuItemId());
+            jdbcTemplate.update(DISOWN_HOLDS_SQL, allotment.owner(), allotment.menuItemId());
+            int unheld = allotment.quantity() - (held != null ? held : 0);
+            if (unheld > 0) {
+                menuItemRepository.unreserveStock(allotment.menuItemId(), unheld);
+            }
+            jdbcTemplate.update(DELETE_SQL, allotment.id());
+            log.info("Reclaimed lapsed stock allotment {} ({} unit(s) not held)", allotment.id(), Math.max(unheld, 0));
+        }
+        return lapsed.size();
+    }
+
+    private static String key(String owner, Long menuItemId) {
+        return owner + ":" + menuItemId;
+    }
+
+    private record Lapsed(String id, Long menuItemId, String owner, int quantity) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.model.StockRequestOffset;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which stock request offsets have been applied.
+ *
+ * Used inside the listener's transaction: the offsets are locked while the batch is applied and
+ * advanced before it commits, so a batch redelivered after a failed offset commit (or a rebalance)
+ * doesn't apply the same stock change twice.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockRequestOffsetTracker {
+
+    static final String UPSERT_SQL = "INSERT INTO " + StockRequestOffset.TABLE +
+            " (topic_partition, last_offset) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE last_offset = GREATEST(last_offset, VALUES(last_offset))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Last applied offset per partition, locked until the transaction ends
+     *
+     * @return Offsets keyed by partition; partitions never applied are absent
+     */
+    public Map<Integer, Long> lockLastApplied(String topic, Iterable<Integer> partitions) {
+        Map<String, Integer> partitionsByKey = new HashMap<>();
+        for (Integer partition : partitions) {
+            partitionsByKey.put(key(topic, partition), partition);
+        }
+        Map<Integer, Long> lastApplied = new HashMap<>();
+        if (partitionsByKey.isEmpty()) {
+            return lastApplied;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(partitionsByKey.size(), "?"));
+        jdbcTemplate.query("SELECT topic_partition, last_offset FROM " + StockRequestOffset.TABLE +
+                        " WHERE topic_partition IN (" + placeholders + ") FOR UPDATE",
+                (RowCallbackHandler) rs -> lastApplied.put(partitionsByKey.get(rs.getString("topic_partition")),
+                        rs.getLong("last_offset")),
+                partitionsByKey.keySet().toArray());
+        return lastApplied;
+    }
+
+    /**
+     * Advance the applied offsets; never moves one back
+     */
+    public void markApplied(String topic, Map<Integer, Long> offsets) {
+        if (offsets.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(offsets.size());
+        offsets.forEach((partition, offset) -> rows.add(new Object[]{key(topic, partition), offset}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+    }
+
+    private static String key(String topic, int partition) {
+        return topic + "-" + partition;
+    }
+}
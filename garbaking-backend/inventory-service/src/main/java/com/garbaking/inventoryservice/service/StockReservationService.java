@@ -0,0 +1,869 @@
+package com.garbaking.inventoryservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.inventoryservice.exception.InsufficientStockException;
+import com.garbaking.inventoryservice.exception.InvalidStockAdjustmentException;
+import com.garbaking.inventoryservice.exception.ResourceNotFoundException;
+import com.garbaking.inventoryservice.model.InventoryAuditSource;
+import com.garbaking.inventoryservice.model.MenuItem;
+import com.garbaking.inventoryservice.model.StockReservation;
+import com.garbaking.inventoryservice.repository.MenuItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Stock Reservation Service
+ *
+ * Holds stock for in-flight orders (baskets, kiosk checkouts) until they are committed, released
+ * or expire, without a database round trip per hold.
+ *
+ * Each instance leases blocks of an item's stock as an allotment: one conditional UPDATE adds
+ * stock.reservations.allotment-size units to menu_items.reserved_quantity, and the allotment is
+ * recorded in stock_allotments (see StockAllotmentStore). Holds are carved out of the allotment in
+ * memory, and only a hold the allotment can't cover goes to the database for another block. Since
+ * allotted units are already reserved, no other instance and no stock decrement other than a
+ * commit (see MenuItemRepository#applyStockDelta) can take them. Units an item hasn't needed for
+ * stock.reservations.allotment-idle go back, and so does the unused part of an allotment as soon
+ * as its item changes (a lifecycle event or a manual stock count).
+ *
+ * Holds expire on a hashed time wheel advanced every tick, and are written to stock_reservations
+ * behind the request path, once per tick. A written hold can be committed or released through any
+ * instance, which takes its units out of the owner's allotment; the owner notices when it finds
+ * the row gone. A hold younger than a tick is known only to its owner until then, and is lost if
+ * the owner dies.
+ *
+ * The owner renews the lease on its allotments every tick and stops carving holds once two thirds
+ * of stock.reservations.lease have passed without a renewal. Once the lease lapses, any instance
+ * takes the allotments back, and their written holds belong to no instance from then on. Those,
+ * and the holds taken while this instance has no valid lease (at startup, or while the database
+ * is out of reach), are counted in reserved_quantity directly and reaped by any instance.
+ *
+ * The price: up to allotment-size unused units per instance and item stay reserved until they go
+ * back, so the available quantity (stock - reserved) reads that much low and a sale or a hold on
+ * another instance may be refused meanwhile. A released hold's units can be held again after the
+ * next tick.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    static final String INSERT_SQL = "INSERT INTO " + StockReservation.TABLE +
+            " (reservation_id, menu_item_id, quantity, expires_at, owner_id) VALUES (?, ?, ?, ?, ?)";
+
+    static final String LOCK_SQL = "SELECT reservation_id, menu_item_id, quantity, expires_at, owner_id FROM " +
+            StockReservation.TABLE + " WHERE reservation_id = ? FOR UPDATE";
+
+    static final String LOCK_EXPIRED_SQL = "SELECT reservation_id, menu_item_id, quantity, expires_at, owner_id FROM " +
+            StockReservation.TABLE + " WHERE owner_id IS NULL AND expires_at <= ? ORDER BY expires_at LIMIT ? " +
+            "FOR UPDATE SKIP LOCKED";
+
+    static final String DELETE_SQL = "DELETE FROM " + StockReservation.TABLE + " WHERE reservation_id = ?";
+
+    private static final RowMapper<StoredHold> STORED_HOLD_MAPPER = (rs, rowNum) -> new StoredHold(new Reservation(
+            rs.getString("reservation_id"), rs.getLong("menu_item_id"), rs.getInt("quantity"),
+            rs.getLong("expires_at")), rs.getString("owner_id"));
+
+    private final MenuItemRepository menuItemRepository;
+    private final StockAllotmentStore allotmentStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final long tickMillis;
+    private final int reapBatchSize;
+    private final int allotmentSize;
+    private final long allotmentIdleMillis;
+    private final long leaseMillis;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Allotment> allotments = new ConcurrentHashMap<>();
+    private final List<Set<String>> wheel;
+    private final Queue<Hold> pendingInserts = new ConcurrentLinkedQueue<>();
+    private final Queue<Hold> pendingRemovals = new ConcurrentLinkedQueue<>();
+    // Claims and releases take holds out of the table under the read lock, the write-behind writes
+    // them under the write lock: a hold taken out is never written afterwards
+    private final ReadWriteLock writeBehindLock = new ReentrantReadWriteLock();
+    private volatile String owner = newOwnerId();
+    private volatile long leaseValidUntil;
+    private long lastTick;
+
+    private final Counter reservedCounter;
+    private final Counter rejectedCounter;
+    private final Counter committedCounter;
+    private final Counter releasedCounter;
+    private final Counter expiredCounter;
+
+    @Autowired
+    public StockReservationService(
+            MenuItemRepository menuItemRepository,
+            StockAllotmentStore allotmentStore,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${stock.reservations.default-ttl:PT10M}") Duration defaultTtl,
+            @Value("${stock.reservations.max-ttl:PT30M}") Duration maxTtl,
+            @Value("${stock.reservations.tick:PT1S}") Duration tick,
+            @Value("${stock.reservations.reap-batch-size:500}") int reapBatchSize,
+            @Value("${stock.reservations.allotment-size:5}") int allotmentSize,
+            @Value("${stock.reservations.allotment-idle:PT10S}") Duration allotmentIdle,
+            @Value("${stock.reservations.lease:PT30S}") Duration lease
+    ) {
+        this(menuItemRepository, allotmentStore, jdbcTemplate, transactionManager, objectMapper, meterRegistry,
+                defaultTtl, maxTtl, tick, reapBatchSize, allotmentSize, allotmentIdle, lease,
+                Clock.systemUTC(), newReaperThread());
+    }
+
+    StockReservationService(MenuItemRepository menuItemRepository, StockAllotmentStore allotmentStore,
+                            JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                            Duration defaultTtl, Duration maxTtl, Duration tick, int reapBatchSize,
+                            int allotmentSize, Duration allotmentIdle, Duration lease,
+                            Clock clock, ScheduledExecutorService scheduler) {
+        this.menuItemRepository = menuItemRepository;
+        this.allotmentStore = allotmentStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.tickMillis = Math.max(1, tick.toMillis());
+        this.reapBatchSize = reapBatchSize;
+        this.allotmentSize = Math.max(1, allotmentSize);
+        this.allotmentIdleMillis = allotmentIdle.toMillis();
+        this.leaseMillis = lease.toMillis();
+        this.clock = clock;
+        this.scheduler = scheduler;
+
+        // One slot per tick of the longest hold, plus slack so a slot is drained before it is reused
+        int slots = (int) (maxTtl.toMillis() / tickMillis) + 2;
+        this.wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        this.lastTick = clock.millis() / tickMillis - 1;
+
+        this.reservedCounter = meterRegistry.counter("garbaking_stock_reservations_total", "result", "reserved");
+        this.rejectedCounter = meterRegistry.counter("garbaking_stock_reservations_total", "result", "rejected");
+        this.committedCounter = meterRegistry.counter("garbaking_stock_reservations_total", "result", "committed");
+        this.releasedCounter = meterRegistry.counter("garbaking_stock_reservations_total", "result", "released");
+        this.expiredCounter = meterRegistry.counter("garbaking_stock_reservations_total", "result", "expired");
+        meterRegistry.gaugeMapSize("garbaking_stock_reservations_active", List.of(), holds);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(this::tickSafely, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Write pending holds and give the unused allotments back, so the next lease holder starts clean
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(tickMillis * 5, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+            settleRemovals();
+            allotments.keySet().forEach(this::revoke);
+            returnUnused(clock.millis());
+        } catch (RuntimeException e) {
+            log.warn("Failed to hand stock allotments back on shutdown; they go back when the lease lapses: {}",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Hold stock of an item for an in-flight order
+     *
+     * @param ttl How long the hold lasts unless committed; the default when null, capped at the maximum
+     * @throws InsufficientStockException when the item's stock less current holds can't cover the quantity
+     */
+    public Reservation reserve(Long menuItemId, int quantity, Duration ttl) {
+        if (quantity <= 0) {
+            throw new InvalidStockAdjustmentException("Reservation quantity must be positive");
+        }
+        Duration holdFor = ttl == null ? defaultTtl : ttl;
+        if (holdFor.isNegative() || holdFor.isZero()) {
+            throw new InvalidStockAdjustmentException("Reservation TTL must be positive");
+        }
+        if (holdFor.compareTo(maxTtl) > 0) {
+            holdFor = maxTtl;
+        }
+
+        long now = clock.millis();
+        Reservation reservation = now < leaseValidUntil
+                ? reserveFromAllotment(menuItemId, quantity, now + holdFor.toMillis(), now)
+                : reserveInDatabase(menuItemId, quantity, now + holdFor.toMillis());
+        reservedCounter.increment();
+        return reservation;
+    }
+
+    /**
+     * Take an unexpired hold for committing, in the caller's transaction. The hold is gone with
+     * that transaction and comes back if it rolls back; the caller moves the held quantity out of
+     * stock (see MenuItemRepository#commitReservedStock).
+     *
+     * @return The hold, or empty when it is unknown, expired or already committed
+     */
+    @Transactional
+    public Optional<Reservation> claim(String reservationId) {
+        Hold hold = holds.get(reservationId);
+        if (hold == null) {
+            return claimInDatabase(reservationId);
+        }
+        if (!take(hold)) {
+            return Optional.empty();
+        }
+        if (hold.persisted && jdbcTemplate.update(DELETE_SQL, hold.id()) == 0) {
+            // Committed or released through another instance since it was written
+            hold.allotment.settle(hold.quantity(), true);
+            return Optional.empty();
+        }
+        allotmentStore.shrink(hold.allotment.owner, hold.menuItemId(), hold.quantity());
+        afterCompletion(committed -> {
+            if (committed) {
+                hold.allotment.settle(hold.quantity(), true);
+            } else {
+                restore(hold);
+            }
+        });
+        committedCounter.increment();
+        return Optional.of(hold.reservation);
+    }
+
+    /**
+     * Give a hold's stock back. A hold of this instance goes back to its allotment at the next tick.
+     *
+     * @return false when the hold is unknown, already gone or had expired
+     */
+    public boolean release(String reservationId) {
+        Hold hold = holds.get(reservationId);
+        if (hold == null) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> releaseInDatabase(reservationId)));
+        }
+        if (!take(hold)) {
+            return false;
+        }
+        pendingRemovals.add(hold);
+        releasedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Units of an item this instance can hold right away: a lower bound of the item's available quantity
+     */
+    public int unheldQuantity(Long menuItemId) {
+        Allotment allotment = allotments.get(menuItemId);
+        if (allotment == null) {
+            return 0;
+        }
+        synchronized (allotment) {
+            return allotment.free();
+        }
+    }
+
+    /**
+     * Stock of an item not held by in-flight orders or allotted to an instance; 0 while the item is off the menu
+     */
+    public static int availableQuantity(MenuItem menuItem) {
+        boolean sellable = Boolean.TRUE.equals(menuItem.getIsActive()) && Boolean.TRUE.equals(menuItem.getIsAvailable());
+        if (!sellable || menuItem.getStockQuantity() == null) {
+            return 0;
+        }
+        int reserved = menuItem.getReservedQuantity() != null ? menuItem.getReservedQuantity() : 0;
+        return Math.max(0, menuItem.getStockQuantity() - reserved);
+    }
+
+    /**
+     * Give the unused part of an item's allotment back at the next tick, so a stock change is
+     * judged against the item's stock rather than against units this instance merely set aside
+     */
+    @KafkaListener(
+            topics = {InventoryEventPublisher.TOPIC_MENU_ITEM_LIFECYCLE, InventoryEventPublisher.TOPIC_STOCK_ADJUSTED},
+            groupId = "inventory-service-reservations-${random.uuid}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer"
+            }
+    )
+    public void onMenuItemChanged(ConsumerRecord<String, String> record) {
+        if (record.key() == null) {
+            return;
+        }
+        // Sales and restocks leave the allotments alone; only a count can take stock from under them
+        if (InventoryEventPublisher.TOPIC_STOCK_ADJUSTED.equals(record.topic()) && !isManualCount(record.value())) {
+            return;
+        }
+        try {
+            revoke(Long.valueOf(record.key()));
+        } catch (NumberFormatException e) {
+            log.debug("Ignoring menu item event keyed {}", record.key());
+        }
+    }
+
+    void revoke(Long menuItemId) {
+        Allotment allotment = allotments.get(menuItemId);
+        if (allotment != null) {
+            synchronized (allotment) {
+                allotment.revoke();
+            }
+        }
+    }
+
+    /**
+     * Expire due holds, write new ones, delete removed ones, hand unused allotments back and renew
+     * the lease; then take back lapsed allotments and reap expired holds of no instance
+     *
+     * @return Number of holds expired
+     */
+    int tick() {
+        long now = clock.millis();
+        if (now >= leaseValidUntil) {
+            abandonAllotments();
+        }
+        renewLease(now);
+        int expired = expireDue(now);
+        flush();
+        settleRemovals();
+        returnUnused(now);
+
+        int reclaimed;
+        do {
+            Integer batch = transactionTemplate.execute(status -> allotmentStore.reclaimLapsed(now, reapBatchSize));
+            reclaimed = batch != null ? batch : 0;
+        } while (reclaimed == reapBatchSize);
+
+        Integer batch;
+        do {
+            batch = transactionTemplate.execute(status -> expireBatch(now));
+            expired += batch != null ? batch : 0;
+        } while (batch != null && batch == reapBatchSize);
+        if (expired > 0) {
+            expiredCounter.increment(expired);
+            log.debug("Released {} expired stock reservation(s)", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Write the holds taken since the last flush, all or none
+     */
+    void flush() {
+        writeBehindLock.writeLock().lock();
+        try {
+            // A hold claimed back after a rollback can be queued twice
+            Map<String, Hold> due = new LinkedHashMap<>();
+            Hold hold;
+            while ((hold = pendingInserts.poll()) != null) {
+                if (!hold.persisted && holds.get(hold.id()) == hold && hold.allotment.owner.equals(owner)) {
+                    due.put(hold.id(), hold);
+                }
+            }
+            if (due.isEmpty()) {
+                return;
+            }
+            List<Hold> rows = new ArrayList<>(due.values());
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows,
+                        rows.size(), (ps, row) -> {
+                            ps.setString(1, row.id());
+                            ps.setLong(2, row.menuItemId());
+                            ps.setInt(3, row.quantity());
+                            ps.setLong(4, row.expiresAtMillis());
+                            ps.setString(5, row.allotment.owner);
+                        }));
+                rows.forEach(row -> row.persisted = true);
+            } catch (DataAccessException e) {
+                pendingInserts.addAll(rows);
+                log.warn("Failed to write {} stock reservation(s), retrying next tick: {}", rows.size(), e.getMessage());
+            }
+        } finally {
+            writeBehindLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete the rows of released and expired holds and give their units back to the allotments
+     */
+    void settleRemovals() {
+        List<Hold> removed = new ArrayList<>();
+        Hold hold;
+        while ((hold = pendingRemovals.poll()) != null) {
+            removed.add(hold);
+        }
+        for (int from = 0; from < removed.size(); from += reapBatchSize) {
+            List<Hold> batch = removed.subList(from, Math.min(from + reapBatchSize, removed.size()));
+            try {
+                Set<String> deleted = deleteWritten(batch);
+                for (Hold settled : batch) {
+                    // A written hold without a row was committed or released through another instance
+                    settled.allotment.settle(settled.quantity(), settled.persisted && !deleted.contains(settled.id()));
+                }
+            } catch (DataAccessException e) {
+                pendingRemovals.addAll(batch);
+                log.warn("Failed to delete {} stock reservation(s), retrying next tick: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    private Reservation reserveFromAllotment(Long menuItemId, int quantity, long expiresAtMillis, long now) {
+        String holder = owner;
+        Allotment allotment = allotments.computeIfAbsent(menuItemId, id -> new Allotment(id, holder, now));
+        synchronized (allotment) {
+            int missing = quantity - allotment.free();
+            if (missing > 0 && !grow(allotment, missing, now)) {
+                throw rejected(menuItemId, quantity, allotment.free());
+            }
+            allotment.held += quantity;
+            allotment.lastUsedMillis = now;
+        }
+        Hold hold = new Hold(new Reservation(newReservationId(), menuItemId, quantity, expiresAtMillis), allotment);
+        holds.put(hold.id(), hold);
+        slot(expiresAtMillis / tickMillis).add(hold.id());
+        pendingInserts.add(hold);
+        return hold.reservation;
+    }
+
+    /**
+     * Lease another block of the item for the allotment, or at least what the hold is missing
+     */
+    private boolean grow(Allotment allotment, int missing, long now) {
+        Integer granted = transactionTemplate.execute(status -> {
+            int block = Math.max(missing, allotmentSize);
+            if (menuItemRepository.reserveStock(allotment.menuItemId, block) == 0) {
+                if (block == missing || menuItemRepository.reserveStock(allotment.menuItemId, missing) == 0) {
+                    return 0;
+                }
+                block = missing;
+            }
+            allotmentStore.grow(allotment.owner, allotment.menuItemId, block, now + leaseMillis);
+            return block;
+        });
+        if (granted == null || granted == 0) {
+            return false;
+        }
+        allotment.granted += granted;
+        return true;
+    }
+
+    private Reservation reserveInDatabase(Long menuItemId, int quantity, long expiresAtMillis) {
+        Reservation reservation = transactionTemplate.execute(status -> {
+            if (menuItemRepository.reserveStock(menuItemId, quantity) == 0) {
+                return null;
+            }
+            Reservation held = new Reservation(newReservationId(), menuItemId, quantity, expiresAtMillis);
+            jdbcTemplate.update(INSERT_SQL, held.id(), menuItemId, quantity, expiresAtMillis, null);
+            return held;
+        });
+        if (reservation == null) {
+            throw rejected(menuItemId, quantity, 0);
+        }
+        return reservation;
+    }
+
+    private InsufficientStockException rejected(Long menuItemId, int quantity, int unheld) {
+        MenuItem menuItem = menuItemRepository.findById(menuItemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Menu item not found with id: " + menuItemId));
+        rejectedCounter.increment();
+        return new InsufficientStockException("Insufficient stock to reserve " + quantity +
+                " of menu item " + menuItemId + ": " + (availableQuantity(menuItem) + unheld) + " available");
+    }
+
+    /**
+     * Take an unexpired hold of the current lease out of the table; expired holds are left to the wheel
+     */
+    private boolean take(Hold hold) {
+        writeBehindLock.readLock().lock();
+        try {
+            if (!hold.allotment.owner.equals(owner)) {
+                // Taken just as the lease lapsed; its allotment is no longer ours to change
+                holds.remove(hold.id(), hold);
+                return false;
+            }
+            return hold.expiresAtMillis() > clock.millis() && holds.remove(hold.id(), hold);
+        } finally {
+            writeBehindLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Put a hold back after the commit that claimed it rolled back
+     */
+    private void restore(Hold hold) {
+        if (hold.expiresAtMillis() <= clock.millis() || !hold.allotment.owner.equals(owner)) {
+            pendingRemovals.add(hold);
+            return;
+        }
+        holds.put(hold.id(), hold);
+        slot(hold.expiresAtMillis() / tickMillis).add(hold.id());
+        if (!hold.persisted) {
+            pendingInserts.add(hold);
+        }
+    }
+
+    private Optional<Reservation> claimInDatabase(String reservationId) {
+        // A row of this instance with no hold in memory was released or expired here and awaits deletion
+        Optional<StoredHold> stored = lock(reservationId)
+                .filter(held -> held.reservation().expiresAtMillis() > clock.millis())
+                .filter(held -> !owner.equals(held.owner()));
+        stored.ifPresent(held -> {
+            Reservation reservation = held.reservation();
+            jdbcTemplate.update(DELETE_SQL, reservation.id());
+            if (held.owner() != null) {
+                allotmentStore.shrink(held.owner(), reservation.menuItemId(), reservation.quantity());
+            }
+            committedCounter.increment();
+        });
+        return stored.map(StoredHold::reservation);
+    }
+
+    private boolean releaseInDatabase(String reservationId) {
+        StoredHold stored = lock(reservationId).filter(held -> !owner.equals(held.owner())).orElse(null);
+        if (stored == null) {
+            return false;
+        }
+        Reservation reservation = stored.reservation();
+        jdbcTemplate.update(DELETE_SQL, reservation.id());
+        if (stored.owner() != null) {
+            allotmentStore.shrink(stored.owner(), reservation.menuItemId(), reservation.quantity());
+        }
+        menuItemRepository.unreserveStock(reservation.menuItemId(), reservation.quantity());
+        if (reservation.expiresAtMillis() <= clock.millis()) {
+            expiredCounter.increment();
+            return false;
+        }
+        releasedCounter.increment();
+        return true;
+    }
+
+    private int expireDue(long now) {
+        int expired = 0;
+        long currentTick = now / tickMillis;
+        // Slots of ticks that have fully passed; after a stall, at most one turn of the wheel
+        long from = Math.max(lastTick + 1, currentTick - wheel.size());
+        for (long tick = from; tick < currentTick; tick++) {
+            Iterator<String> ids = slot(tick).iterator();
+            while (ids.hasNext()) {
+                String id = ids.next();
+                Hold hold = holds.get(id);
+                if (hold == null) {
+                    ids.remove();
+                } else if (hold.expiresAtMillis() <= now) {
+                    ids.remove();
+                    if (holds.remove(id, hold)) {
+                        pendingRemovals.add(hold);
+                        expired++;
+                    }
+                }
+            }
+        }
+        lastTick = Math.max(lastTick, currentTick - 1);
+        return expired;
+    }
+
+    /**
+     * Lock and delete the rows of written holds
+     *
+     * @return Ids of the rows deleted
+     */
+    private Set<String> deleteWritten(List<Hold> batch) {
+        Map<String, List<String>> idsByOwner = batch.stream()
+                .filter(hold -> hold.persisted)
+                .collect(Collectors.groupingBy(hold -> hold.allotment.owner,
+                        Collectors.mapping(Hold::id, Collectors.toList())));
+        if (idsByOwner.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> deleted = transactionTemplate.execute(status -> {
+            Set<String> present = new HashSet<>();
+            idsByOwner.forEach((holder, ids) -> {
+                List<Object> args = new ArrayList<>(ids.size() + 1);
+                args.add(holder);
+                args.addAll(ids);
+                List<String> locked = jdbcTemplate.queryForList(lockWrittenSql(ids.size()), String.class, args.toArray());
+                if (!locked.isEmpty()) {
+                    jdbcTemplate.batchUpdate(DELETE_SQL, locked, locked.size(), (ps, id) -> ps.setString(1, id));
+                    present.addAll(locked);
+                }
+            });
+            return present;
+        });
+        return deleted != null ? deleted : Set.of();
+    }
+
+    private void returnUnused(long now) {
+        for (Allotment allotment : allotments.values()) {
+            int unused;
+            synchronized (allotment) {
+                if (now - allotment.lastUsedMillis >= allotmentIdleMillis) {
+                    allotment.revoke();
+                }
+                unused = allotment.returning;
+            }
+            if (unused == 0) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    allotmentStore.shrink(allotment.owner, allotment.menuItemId, unused);
+                    menuItemRepository.unreserveStock(allotment.menuItemId, unused);
+                });
+                synchronized (allotment) {
+                    allotment.returning -= unused;
+                }
+            } catch (DataAccessException e) {
+                log.warn("Failed to return {} allotted unit(s) of menu item {}, retrying next tick: {}",
+                        unused, allotment.menuItemId, e.getMessage());
+            }
+        }
+    }
+
+    private void renewLease(long now) {
+        try {
+            allotmentStore.renew(owner, now + leaseMillis);
+            // Stop a third of the lease early, so a slow clock here can't outlive it elsewhere
+            leaseValidUntil = now + leaseMillis - leaseMillis / 3;
+        } catch (DataAccessException e) {
+            log.warn("Failed to renew the stock allotment lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Forget the allotments of a lapsed lease; the instance that reclaims them keeps their written
+     * holds, and the holds not yet written are lost. Holds are taken from the database under a new
+     * owner id until the next renewal.
+     */
+    private void abandonAllotments() {
+        if (allotments.isEmpty() && holds.isEmpty()) {
+            return;
+        }
+        log.warn("Stock allotment lease of {} lapsed; leaving {} allotment(s) and {} hold(s) to be reclaimed",
+                owner, allotments.size(), holds.size());
+        owner = newOwnerId();
+        writeBehindLock.writeLock().lock();
+        try {
+            holds.clear();
+            pendingInserts.clear();
+            pendingRemovals.clear();
+            wheel.forEach(Set::clear);
+        } finally {
+            writeBehindLock.writeLock().unlock();
+        }
+        allotments.clear();
+    }
+
+    private int expireBatch(long now) {
+        List<StoredHold> due = jdbcTemplate.query(LOCK_EXPIRED_SQL, STORED_HOLD_MAPPER, now, reapBatchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        // One UPDATE per item, however many of its holds expired together
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (StoredHold held : due) {
+            quantities.merge(held.reservation().menuItemId(), held.reservation().quantity(), Integer::sum);
+        }
+        quantities.forEach(menuItemRepository::unreserveStock);
+        jdbcTemplate.batchUpdate(DELETE_SQL, due, due.size(),
+                (ps, held) -> ps.setString(1, held.reservation().id()));
+        return due.size();
+    }
+
+    static String lockWrittenSql(int count) {
+        return "SELECT reservation_id FROM " + StockReservation.TABLE + " WHERE owner_id = ? AND reservation_id IN (" +
+                String.join(", ", Collections.nCopies(count, "?")) + ") FOR UPDATE";
+    }
+
+    private Optional<StoredHold> lock(String reservationId) {
+        return jdbcTemplate.query(LOCK_SQL, STORED_HOLD_MAPPER, reservationId).stream().findFirst();
+    }
+
+    private boolean isManualCount(String event) {
+        try {
+            return InventoryAuditSource.MANUAL_COUNT.name()
+                    .equals(objectMapper.readTree(event).path("source").asText());
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    private Set<String> slot(long tick) {
+        return wheel.get((int) Math.floorMod(tick, (long) wheel.size()));
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.error("Stock reservation tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run once the caller's transaction completes, or right away outside one
+     */
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status == STATUS_COMMITTED);
+                }
+            });
+            return;
+        }
+        action.accept(true);
+    }
+
+    private static String newReservationId() {
+        return "res_" + UUID.randomUUID();
+    }
+
+    private static String newOwnerId() {
+        return "inv_" + UUID.randomUUID();
+    }
+
+    private static ScheduledExecutorService newReaperThread() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservations");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stock held for one in-flight order
+     */
+    public record Reservation(String id, Long menuItemId, int quantity, long expiresAtMillis) {
+    }
+
+    /**
+     * A hold as written, with the instance whose allotment it was carved from (null: none)
+     */
+    record StoredHold(Reservation reservation, String owner) {
+    }
+
+    /**
+     * A hold of this instance; persisted once its row is written
+     */
+    private static final class Hold {
+        private final Reservation reservation;
+        private final Allotment allotment;
+        private volatile boolean persisted;
+
+        private Hold(Reservation reservation, Allotment allotment) {
+            this.reservation = reservation;
+            this.allotment = allotment;
+        }
+
+        String id() {
+            return reservation.id();
+        }
+
+        Long menuItemId() {
+            return reservation.menuItemId();
+        }
+
+        int quantity() {
+            return reservation.quantity();
+        }
+
+        long expiresAtMillis() {
+            return reservation.expiresAtMillis();
+        }
+    }
+
+    /**
+     * The part of an item's reserved stock leased to this instance: granted units, of which held
+     * are carved into holds (or await their row's deletion) and returning are on their way back.
+     * Guarded by its own monitor.
+     */
+    private static final class Allotment {
+        private final Long menuItemId;
+        private final String owner;
+        private int granted;
+        private int held;
+        private int returning;
+        private long lastUsedMillis;
+
+        private Allotment(Long menuItemId, String owner, long now) {
+            this.menuItemId = menuItemId;
+            this.owner = owner;
+            this.lastUsedMillis = now;
+        }
+
+        int free() {
+            return granted - held;
+        }
+
+        void revoke() {
+            int free = free();
+            if (free > 0) {
+                granted -= free;
+                returning += free;
+            }
+        }
+
+        /**
+         * A hold is gone; its units leave the allotment with it when committed or taken through another instance
+         */
+        synchronized void settle(int quantity, boolean leftAllotment) {
+            held -= quantity;
+            if (leftAllotment) {
+                granted -= quantity;
+            }
+        }
+    }
+}
@@ -24,7 +24,7 @@ class ImageStorageServiceTest {
         properties.setCdnBaseUrl("https://cdn.example.com/menu-items");
         properties.setSigningSecret("secret");
 
-        ImageStorageService service = new ImageStorageService(properties);
+        ImageStorageService service = new ImageStorageService(properties, new SignedUrlSigner(properties));
         service.ensureDirectoryExists();
 
         MockMultipartFile file = new MockMultipartFile("file", "image.png", "image/png", new byte[]{1, 2, 3});
@@ -0,0 +1,87 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.dto.MenuItemDTO;
+import com.garbaking.inventoryservice.event.InventoryAuditEvent;
+import com.garbaking.inventoryservice.event.MenuItemLifecycleEvent;
+import com.garbaking.inventoryservice.event.StockAdjustmentEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryEventPublisherTest {
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private InventoryEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = new InventoryEventPublisher(kafkaTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void lifecycleEventIsSentOnlyOnceItsTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.publishMenuItemLifecycle("UPDATED", MenuItemDTO.builder().id(5L).build());
+        verifyNoInteractions(kafkaTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(kafkaTemplate).send(eq(InventoryEventPublisher.TOPIC_MENU_ITEM_LIFECYCLE), eq("5"),
+                any(MenuItemLifecycleEvent.class));
+    }
+
+    @Test
+    void rolledBackChangeIsNeverSent() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.publishMenuItemLifecycle("DELETED", MenuItemDTO.builder().id(5L).build());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    void stockAndAuditEventsAreSentOnlyOnceTheirTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.publishStockAdjustment(StockAdjustmentEvent.builder().menuItemId(7L).build());
+        publisher.publishInventoryAudit(InventoryAuditEvent.builder().auditId(3L).menuItemId(7L).build());
+        verifyNoInteractions(kafkaTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(kafkaTemplate).send(eq(InventoryEventPublisher.TOPIC_STOCK_ADJUSTED), eq("7"),
+                any(StockAdjustmentEvent.class));
+        verify(kafkaTemplate).send(eq(InventoryEventPublisher.TOPIC_INVENTORY_AUDIT), eq("7"),
+                any(InventoryAuditEvent.class));
+    }
+
+    @Test
+    void sendsImmediatelyOutsideTransactions() {
+        publisher.publishMenuItemLifecycle("CREATED", MenuItemDTO.builder().id(6L).build());
+
+        verify(kafkaTemplate).send(eq(InventoryEventPublisher.TOPIC_MENU_ITEM_LIFECYCLE), eq("6"),
+                any(MenuItemLifecycleEvent.class));
+    }
+}
@@ -0,0 +1,124 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.event.StockAdjustmentRequest;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryStockRequestListenerTest {
+
+    private static final String TOPIC = InventoryStockRequestListener.TOPIC_STOCK_REQUESTS;
+
+    @Mock
+    private MenuItemService menuItemService;
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+    @Mock
+    private StockRequestOffsetTracker offsetTracker;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private InventoryStockRequestListener listener;
+
+    @Test
+    void skipsRecordsAlreadyAppliedAndAdvancesOffsets() {
+        StockAdjustmentRequest applied = request(-1);
+        StockAdjustmentRequest fresh = request(-2);
+        when(offsetTracker.lockLastApplied(eq(TOPIC), anyCollection())).thenReturn(Map.of(0, 41L));
+        when(menuItemService.applyStockRequests(List.of(fresh))).thenReturn(List.of());
+
+        listener.handleStockRequests(List.of(record(41, applied), record(42, fresh), record(7, null, 1)));
+
+        verify(menuItemService).applyStockRequests(List.of(fresh));
+        verify(deadLetterPublishingRecoverer).accept(argThat(record -> record.partition() == 1), any());
+        verify(offsetTracker).markApplied(TOPIC, Map.of(0, 42L, 1, 7L));
+    }
+
+    @Test
+    void failedDeadLetterSendFailsTheBatchBeforeOffsetsAdvance() {
+        StockAdjustmentRequest rejected = request(-5);
+        when(offsetTracker.lockLastApplied(eq(TOPIC), anyCollection())).thenReturn(Map.of());
+        when(menuItemService.applyStockRequests(List.of(rejected))).thenReturn(List.of(rejected));
+        doThrow(new KafkaException("broker unavailable")).when(deadLetterPublishingRecoverer).accept(any(), any());
+
+        assertThatThrownBy(() -> listener.handleStockRequests(List.of(record(3, rejected))))
+                .isInstanceOf(BatchListenerFailedException.class)
+                .hasCauseInstanceOf(KafkaException.class)
+                .satisfies(e -> assertThat(((BatchListenerFailedException) e).getIndex()).isZero());
+        verify(offsetTracker, never()).markApplied(any(), any());
+    }
+
+    @Test
+    void deadLettersRejectedRecordsOnlyAfterTheBatchIsApplied() {
+        StockAdjustmentRequest rejected = request(-5);
+        StockAdjustmentRequest fresh = request(-1);
+        when(offsetTracker.lockLastApplied(eq(TOPIC), anyCollection())).thenReturn(Map.of());
+        when(menuItemService.applyStockRequests(List.of(rejected, fresh))).thenReturn(List.of(rejected));
+
+        listener.handleStockRequests(List.of(record(1, null), record(2, rejected), record(3, fresh)));
+
+        InOrder inOrder = inOrder(menuItemService, deadLetterPublishingRecoverer, offsetTracker);
+        inOrder.verify(menuItemService).applyStockRequests(List.of(rejected, fresh));
+        inOrder.verify(deadLetterPublishingRecoverer).accept(argThat(record -> record.offset() == 1), any());
+        inOrder.verify(deadLetterPublishingRecoverer).accept(argThat(record -> record.offset() == 2), any());
+        inOrder.verify(offsetTracker).markApplied(TOPIC, Map.of(0, 3L));
+    }
+
+    @Test
+    void failedBatchIsAppliedRecordByRecordAndReportsTheFailingIndex() {
+        StockAdjustmentRequest first = request(-1);
+        StockAdjustmentRequest failing = request(-2);
+        StockAdjustmentRequest last = request(-3);
+        when(offsetTracker.lockLastApplied(eq(TOPIC), anyCollection())).thenReturn(Map.of());
+        when(menuItemService.applyStockRequests(List.of(first, failing, last)))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+        when(menuItemService.applyStockRequests(List.of(first))).thenReturn(List.of());
+        when(menuItemService.applyStockRequests(List.of(failing)))
+                .thenThrow(new QueryTimeoutException("lock wait timeout"));
+
+        assertThatThrownBy(() -> listener.handleStockRequests(
+                List.of(record(10, first), record(11, failing), record(12, last))))
+                .isInstanceOf(BatchListenerFailedException.class)
+                .satisfies(e -> assertThat(((BatchListenerFailedException) e).getIndex()).isEqualTo(1));
+        verify(offsetTracker).markApplied(TOPIC, Map.of(0, 10L));
+        verify(menuItemService, never()).applyStockRequests(List.of(last));
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    private static ConsumerRecord<String, StockAdjustmentRequest> record(long offset, StockAdjustmentRequest request) {
+        return record(offset, request, 0);
+    }
+
+    private static ConsumerRecord<String, StockAdjustmentRequest> record(long offset, StockAdjustmentRequest request,
+                                                                        int partition) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, "1", request);
+    }
+
+    private static StockAdjustmentRequest request(int quantity) {
+        return StockAdjustmentRequest.builder()
+                .menuItemId(1L)
+                .quantity(quantity)
+                .reason("Order fulfillment")
+                .performedBy("order-service")
+                .build();
+    }
+}
@@ -1,9 +1,11 @@
 package com.garbaking.inventoryservice.service;
 
 import com.garbaking.inventoryservice.dto.InventoryAuditDTO;
+import com.garbaking.inventoryservice.dto.MenuItemDTO;
 import com.garbaking.inventoryservice.dto.StockAdjustmentDTO;
 import com.garbaking.inventoryservice.event.InventoryAuditEvent;
 import com.garbaking.inventoryservice.event.StockAdjustmentEvent;
+import com.garbaking.inventoryservice.event.StockAdjustmentRequest;
 import com.garbaking.inventoryservice.exception.InvalidStockAdjustmentException;
 import com.garbaking.inventoryservice.exception.ResourceNotFoundException;
 import com.garbaking.inventoryservice.model.InventoryAuditSource;
@@ -16,15 +18,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -45,6 +50,10 @@ class MenuItemServiceTest {
     private InventoryEventPublisher inventoryEventPublisher;
     @Mock
     private ImageStorageService imageStorageService;
+    @Mock
+    private StockReservationService stockReservationService;
+    @Captor
+    private ArgumentCaptor<List<InventoryAuditDTO>> audits;
 
     @InjectMocks
     private MenuItemService menuItemService;
@@ -69,11 +78,11 @@ class MenuItemServiceTest {
                 .menuItemId(1L)
                 .quantity(-2)
                 .build();
-        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(menuItem));
 
         assertThatThrownBy(() -> menuItemService.adjustStock(dto))
                 .isInstanceOf(InvalidStockAdjustmentException.class)
                 .hasMessageContaining("Reason is required");
+        verifyNoInteractions(menuItemRepository);
     }
 
     @Test
@@ -84,8 +93,11 @@ class MenuItemServiceTest {
                 .reason("Order fulfillment")
                 .performedBy("order-service")
                 .build();
+        when(menuItemRepository.applyStockDelta(eq(1L), eq(-4), any())).thenAnswer(invocation -> {
+            menuItem.setStockQuantity(6);
+            return 1;
+        });
         when(menuItemRepository.findById(1L)).thenReturn(Optional.of(menuItem));
-        when(menuItemRepository.save(any(MenuItem.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(inventoryAuditService.recordStockAdjustment(any(MenuItem.class), anyInt(), anyInt(), any(), any(), any()))
                 .thenReturn(InventoryAuditDTO.builder()
                         .id(42L)
@@ -97,22 +109,37 @@ class MenuItemServiceTest {
                         .source(InventoryAuditSource.INVENTORY_SERVICE)
                         .build());
 
-        menuItemService.adjustStock(dto);
-
-        ArgumentCaptor<MenuItem> savedCaptor = ArgumentCaptor.forClass(MenuItem.class);
-        verify(menuItemRepository).save(savedCaptor.capture());
-        assertThat(savedCaptor.getValue().getStockQuantity()).isEqualTo(6);
-        assertThat(savedCaptor.getValue().getIsAvailable()).isTrue();
+        MenuItemDTO result = menuItemService.adjustStock(dto);
 
+        assertThat(result.getStockQuantity()).isEqualTo(6);
+        verify(menuItemRepository, never()).save(any(MenuItem.class));
+        verify(inventoryEventPublisher, never()).publishMenuItemLifecycle(any(), any());
         verify(inventoryAuditService).recordStockAdjustment(any(MenuItem.class), eq(-4), eq(10), eq("Order fulfillment"),
                 eq(InventoryAuditSource.INVENTORY_SERVICE), eq("order-service"));
         verify(inventoryEventPublisher).publishStockAdjustment(any(StockAdjustmentEvent.class));
         verify(inventoryEventPublisher).publishInventoryAudit(any(InventoryAuditEvent.class));
     }
 
+    @Test
+    void adjustStock_whenStockInsufficientThrows() {
+        when(menuItemRepository.applyStockDelta(eq(1L), eq(-11), any())).thenReturn(0);
+        when(menuItemRepository.existsById(1L)).thenReturn(true);
+        StockAdjustmentDTO dto = StockAdjustmentDTO.builder()
+                .menuItemId(1L)
+                .quantity(-11)
+                .reason("Order fulfillment")
+                .build();
+
+        assertThatThrownBy(() -> menuItemService.adjustStock(dto))
+                .isInstanceOf(InvalidStockAdjustmentException.class)
+                .hasMessageContaining("Insufficient stock");
+        verifyNoInteractions(inventoryAuditService, inventoryEventPublisher);
+    }
+
     @Test
     void adjustStock_whenMenuItemMissingThrows() {
-        when(menuItemRepository.findById(99L)).thenReturn(Optional.empty());
+        when(menuItemRepository.applyStockDelta(eq(99L), eq(5), any())).thenReturn(0);
+        when(menuItemRepository.existsById(99L)).thenReturn(false);
         StockAdjustmentDTO dto = StockAdjustmentDTO.builder()
                 .menuItemId(99L)
                 .quantity(5)
@@ -122,4 +149,84 @@ class MenuItemServiceTest {
         assertThatThrownBy(() -> menuItemService.adjustStock(dto))
                 .isInstanceOf(ResourceNotFoundException.class);
     }
+
+    @Test
+    void applyStockRequests_netsDeltasPerItemIntoOneUpdate() {
+        when(menuItemRepository.applyStockDelta(eq(1L), eq(-3), any())).thenAnswer(invocation -> {
+            menuItem.setStockQuantity(7);
+            return 1;
+        });
+        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(menuItem));
+        when(inventoryAuditService.recordStockAdjustments(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        StockAdjustmentRequest invalid = request(-1, null);
+
+        List<StockAdjustmentRequest> rejected = menuItemService.applyStockRequests(
+                List.of(request(-2, "Order 1"), invalid, request(-4, "Order 2"), request(3, "Restock")));
+
+        assertThat(rejected).containsExactly(invalid);
+        verify(menuItemRepository, times(1)).applyStockDelta(anyLong(), anyInt(), any());
+        verify(inventoryAuditService).recordStockAdjustments(audits.capture());
+        assertThat(audits.getValue()).extracting(InventoryAuditDTO::getPreviousQuantity, InventoryAuditDTO::getNewQuantity)
+                .containsExactly(tuple(10, 8), tuple(8, 4), tuple(4, 7));
+        verify(inventoryEventPublisher, times(3)).publishStockAdjustment(any(StockAdjustmentEvent.class));
+    }
+
+    @Test
+    void applyStockRequests_appliesOneByOneWhenNetDeltaDoesNotFit() {
+        menuItem.setStockQuantity(3);
+        when(menuItemRepository.applyStockDelta(eq(1L), eq(-4), any())).thenReturn(0);
+        when(menuItemRepository.applyStockDelta(eq(1L), eq(-2), any())).thenReturn(1, 0);
+        when(menuItemRepository.findById(1L)).thenAnswer(invocation -> {
+            menuItem.setStockQuantity(1);
+            return Optional.of(menuItem);
+        });
+        when(inventoryAuditService.recordStockAdjustments(anyList()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        StockAdjustmentRequest second = request(-2, "Order 2");
+
+        List<StockAdjustmentRequest> rejected = menuItemService.applyStockRequests(
+                List.of(request(-2, "Order 1"), second));
+
+        assertThat(rejected).containsExactly(second);
+        verify(inventoryEventPublisher, times(1)).publishStockAdjustment(any(StockAdjustmentEvent.class));
+    }
+
+    @Test
+    void commitReservation_decrementsHeldQuantity() {
+        when(stockReservationService.claim("res_1"))
+                .thenReturn(Optional.of(new StockReservationService.Reservation("res_1", 1L, 3, 0L)));
+        when(menuItemRepository.commitReservedStock(eq(1L), eq(3), any())).thenAnswer(invocation -> {
+            menuItem.setStockQuantity(7);
+            return 1;
+        });
+        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(menuItem));
+        when(inventoryAuditService.recordStockAdjustment(any(MenuItem.class), anyInt(), anyInt(), any(), any(), any()))
+                .thenReturn(InventoryAuditDTO.builder().id(43L).menuItemId(1L).changeQuantity(-3).build());
+
+        MenuItemDTO result = menuItemService.commitReservation("res_1", "kiosk-2");
+
+        assertThat(result.getStockQuantity()).isEqualTo(7);
+        verify(inventoryAuditService).recordStockAdjustment(any(MenuItem.class), eq(-3), eq(10), eq("Reservation res_1"),
+                eq(InventoryAuditSource.INVENTORY_SERVICE), eq("kiosk-2"));
+    }
+
+    @Test
+    void commitReservation_whenExpiredThrows() {
+        when(stockReservationService.claim("res_gone")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> menuItemService.commitReservation("res_gone", "kiosk-2"))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Reservation not found or expired");
+        verifyNoInteractions(menuItemRepository);
+    }
+
+    private static StockAdjustmentRequest request(int quantity, String reason) {
+        return StockAdjustmentRequest.builder()
+                .menuItemId(1L)
+                .quantity(quantity)
+                .reason(reason)
+                .performedBy("order-service")
+                .build();
+    }
 }
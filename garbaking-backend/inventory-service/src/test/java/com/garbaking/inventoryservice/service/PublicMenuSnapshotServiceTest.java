@@ -0,0 +1,126 @@
+package com.garbaking.inventoryservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.inventoryservice.dto.CategoryDTO;
+import com.garbaking.inventoryservice.dto.PublicMenuItemDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PublicMenuSnapshotServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T09:00:00Z");
+
+    @Mock
+    private CategoryService categoryService;
+    @Mock
+    private MenuItemService menuItemService;
+    @Mock
+    private Clock clock;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private PublicMenuSnapshotService snapshotService;
+
+    @BeforeEach
+    void setUp() {
+        snapshotService = new PublicMenuSnapshotService(categoryService, menuItemService, objectMapper,
+                new SimpleMeterRegistry(), Duration.ofMinutes(7), clock);
+        when(categoryService.getActiveCategories()).thenReturn(List.of(
+                CategoryDTO.builder().id(2L).name("Drinks").displayOrder(2).build(),
+                CategoryDTO.builder().id(1L).name("Breakfast").displayOrder(1).build(),
+                CategoryDTO.builder().id(3L).name("Seasonal").displayOrder(3).build()));
+        when(menuItemService.getPublicMenuItemsGroupedByCategory()).thenReturn(Map.of(
+                1L, List.of(item(10L, "Croissant")),
+                2L, List.of(item(20L, "Latte"), item(21L, "Espresso"))));
+    }
+
+    @Test
+    void servesTheSameSnapshotUntilInvalidated() {
+        when(clock.instant()).thenReturn(NOW);
+
+        PublicMenuSnapshotService.Snapshot first = snapshotService.current(false);
+        PublicMenuSnapshotService.Snapshot second = snapshotService.current(false);
+
+        assertThat(second).isSameAs(first);
+        verify(menuItemService, times(1)).getPublicMenuItemsGroupedByCategory();
+
+        snapshotService.invalidate();
+        PublicMenuSnapshotService.Snapshot rebuilt = snapshotService.current(false);
+
+        verify(menuItemService, times(2)).getPublicMenuItemsGroupedByCategory();
+        // Same menu content: clients holding the old ETag keep getting 304s
+        assertThat(rebuilt).isSameAs(first);
+    }
+
+    @Test
+    void buildsMenuInCategoryOrderAndSkipsEmptyCategories() throws Exception {
+        when(clock.instant()).thenReturn(NOW);
+
+        PublicMenuSnapshotService.Snapshot snapshot = snapshotService.current(false);
+        JsonNode menu = objectMapper.readTree(snapshot.json()).get("data");
+
+        assertThat(menu.get("totalCategories").asInt()).isEqualTo(2);
+        assertThat(menu.get("totalItems").asInt()).isEqualTo(3);
+        assertThat(menu.get("categories").get(0).get("name").asText()).isEqualTo("Breakfast");
+        assertThat(menu.get("categories").get(1).get("menuItems").get(1).get("name").asText()).isEqualTo("Espresso");
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzipped()))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(snapshot.json());
+        }
+
+        JsonNode withEmpty = objectMapper.readTree(snapshotService.current(true).json()).get("data");
+        assertThat(withEmpty.get("totalCategories").asInt()).isEqualTo(3);
+        assertThat(snapshotService.current(true).etag()).isNotEqualTo(snapshot.etag());
+    }
+
+    @Test
+    void rebuildsOnceMaxAgeHasPassed() {
+        when(clock.instant()).thenReturn(NOW, NOW.plus(Duration.ofMinutes(3)), NOW.plus(Duration.ofMinutes(8)));
+
+        snapshotService.current(false);
+        snapshotService.current(false);
+        verify(menuItemService, times(1)).getPublicMenuItemsGroupedByCategory();
+
+        snapshotService.current(false);
+        verify(menuItemService, times(2)).getPublicMenuItemsGroupedByCategory();
+    }
+
+    @Test
+    void matchesEitherRepresentationAndWeakOrListedTags() {
+        when(clock.instant()).thenReturn(NOW);
+        PublicMenuSnapshotService.Snapshot snapshot = snapshotService.current(false);
+
+        assertThat(snapshot.matches(snapshot.etag())).isTrue();
+        assertThat(snapshot.matches("\"stale\", W/" + snapshot.gzipEtag())).isTrue();
+        assertThat(snapshot.matches("*")).isTrue();
+        assertThat(snapshot.matches("\"stale\"")).isFalse();
+        assertThat(snapshot.matches(null)).isFalse();
+    }
+
+    private static PublicMenuItemDTO item(Long id, String name) {
+        return PublicMenuItemDTO.builder()
+                .id(id)
+                .name(name)
+                .price(BigDecimal.valueOf(2500))
+                .featured(false)
+                .build();
+    }
+}
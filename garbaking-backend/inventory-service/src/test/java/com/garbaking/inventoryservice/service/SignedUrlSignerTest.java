@@ -0,0 +1,66 @@
+package com.garbaking.inventoryservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SignedUrlSignerTest {
+
+    private static final String URL = "https://cdn.example.com/menu-items/5/latte.jpg";
+    private static final Instant NOW = Instant.parse("2024-01-15T09:01:00Z");
+
+    @Mock
+    private Clock clock;
+
+    @Test
+    void reusesSignedUrlWithinWindowAndRoundsExpiryUp() {
+        when(clock.instant()).thenReturn(NOW, NOW.plusSeconds(200), NOW.plusSeconds(300));
+        SignedUrlSigner signer = new SignedUrlSigner("secret", Duration.ofMinutes(5), 100, clock);
+
+        String first = signer.sign(URL, Duration.ofMinutes(15));
+        String second = signer.sign(URL, Duration.ofMinutes(15));
+        String nextWindow = signer.sign(URL, Duration.ofMinutes(15));
+
+        long expires = Instant.parse("2024-01-15T09:20:00Z").getEpochSecond();
+        assertThat(first).isSameAs(second)
+                .isEqualTo(URL + "?expires=" + expires + "&signature=" + hmac(URL + ":" + expires));
+        assertThat(nextWindow).contains("expires=" + (expires + 300));
+    }
+
+    @Test
+    void dropsUrlsOfPastWindowsOnceFull() {
+        when(clock.instant()).thenReturn(NOW, NOW, NOW.plusSeconds(600));
+        SignedUrlSigner signer = new SignedUrlSigner("secret", Duration.ofMinutes(5), 2, clock);
+
+        signer.sign(URL, Duration.ofMinutes(15));
+        signer.sign(URL + "?w=200", Duration.ofMinutes(15));
+        String signed = signer.sign(URL, Duration.ofMinutes(15));
+
+        assertThat(signed).startsWith(URL + "?expires=");
+        assertThat(signer.cachedUrls()).isEqualTo(1);
+    }
+
+    private static String hmac(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec("secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.garbaking.inventoryservice.service;
+
+import com.garbaking.inventoryservice.dto.StockAdjustmentDTO;
+import com.garbaking.inventoryservice.exception.InvalidStockAdjustmentException;
+import com.garbaking.inventoryservice.model.Category;
+import com.garbaking.inventoryservice.model.MenuItem;
+import com.garbaking.inventoryservice.repository.CategoryRepository;
+import com.garbaking.inventoryservice.repository.InventoryAuditRepository;
+import com.garbaking.inventoryservice.repository.MenuItemRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 200 concurrent orders decrementing the last 150 portions of one dish against MySQL: exactly
+ * 150 must succeed, the stock must end at zero, and every success must leave one audit row.
+ * Tagged "benchmark" and excluded from the regular test run; run it with
+ * ./gradlew :inventory-service:benchmarkTest (needs Docker).
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect",
+        "spring.datasource.hikari.maximum-pool-size=50"
+})
+@ActiveProfiles("test")
+class StockAdjustmentConcurrencyBenchmark {
+
+    private static final int CONCURRENT_ORDERS = 200;
+    private static final int STOCK = 150;
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", MYSQL::getJdbcUrl);
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+        registry.add("spring.datasource.driver-class-name", MYSQL::getDriverClassName);
+    }
+
+    @Autowired
+    private MenuItemService menuItemService;
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private InventoryAuditRepository inventoryAuditRepository;
+
+    @MockBean
+    private InventoryEventPublisher inventoryEventPublisher;
+    @MockBean
+    private ImageStorageService imageStorageService;
+
+    @Test
+    void concurrentDecrementsNeverOversell() throws Exception {
+        Category category = categoryRepository.save(Category.builder().name("Grill").build());
+        MenuItem dish = menuItemRepository.save(MenuItem.builder()
+                .name("Poulet braisé")
+                .price(BigDecimal.valueOf(3500))
+                .category(category)
+                .stockQuantity(STOCK)
+                .isAvailable(true)
+                .isActive(true)
+                .build());
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(CONCURRENT_ORDERS);
+        ExecutorService tills = Executors.newFixedThreadPool(CONCURRENT_ORDERS);
+        long start;
+        try {
+            List<Future<?>> futures = new ArrayList<>(CONCURRENT_ORDERS);
+            start = System.nanoTime();
+            for (int i = 0; i < CONCURRENT_ORDERS; i++) {
+                futures.add(tills.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    try {
+                        menuItemService.adjustStock(StockAdjustmentDTO.builder()
+                                .menuItemId(dish.getId())
+                                .quantity(-1)
+                                .reason("Order fulfillment")
+                                .performedBy("order-service")
+                                .build());
+                        succeeded.incrementAndGet();
+                    } catch (InvalidStockAdjustmentException e) {
+                        rejected.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            tills.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.printf("adjustStock, %d concurrent decrements: %.2f s = %.0f adjustments/s%n",
+                CONCURRENT_ORDERS, seconds, CONCURRENT_ORDERS / seconds);
+        MenuItem reloaded = menuItemRepository.findById(dish.getId()).orElseThrow();
+        assertThat(succeeded).hasValue(STOCK);
+        assertThat(rejected).hasValue(CONCURRENT_ORDERS - STOCK);
+        assertThat(reloaded.getStockQuantity()).isZero();
+        assertThat(reloaded.getIsAvailable()).isFalse();
+        assertThat(inventoryAuditRepository.findByMenuItemId(dish.getId(), Pageable.unpaged()).getTotalElements())
+                .isEqualTo(STOCK);
+    }
+}
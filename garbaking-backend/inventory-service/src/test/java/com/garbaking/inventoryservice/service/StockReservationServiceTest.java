@@ -0,0 +1,292 @@
+package com.garbaking.inventoryservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.inventoryservice.exception.InsufficientStockException;
+import com.garbaking.inventoryservice.model.MenuItem;
+import com.garbaking.inventoryservice.repository.MenuItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationServiceTest {
+
+    private static final long START = 1_705_309_260_000L;
+
+    @Mock
+    private MenuItemRepository menuItemRepository;
+    @Mock
+    private StockAllotmentStore allotmentStore;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MutableClock clock;
+    private StockReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clock = new MutableClock(START);
+        reservations = new StockReservationService(menuItemRepository, allotmentStore, jdbcTemplate, transactionManager,
+                new ObjectMapper(), meterRegistry, Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofSeconds(1),
+                500, 5, Duration.ofSeconds(10), Duration.ofSeconds(30), clock, null);
+    }
+
+    @Test
+    void reserveHoldsStockInTheDatabaseUntilTheLeaseIsTaken() {
+        when(menuItemRepository.reserveStock(1L, 3)).thenReturn(1);
+
+        StockReservationService.Reservation reservation = reservations.reserve(1L, 3, Duration.ofHours(2));
+
+        assertThat(reservation.expiresAtMillis()).isEqualTo(START + Duration.ofMinutes(30).toMillis());
+        verify(jdbcTemplate).update(StockReservationService.INSERT_SQL, reservation.id(), 1L, 3,
+                reservation.expiresAtMillis(), null);
+        verifyNoInteractions(allotmentStore);
+    }
+
+    @Test
+    void reserveRejectsWhatStockLessHoldsCannotCover() {
+        when(menuItemRepository.reserveStock(1L, 1)).thenReturn(0);
+        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(item(5, 5)));
+
+        assertThatThrownBy(() -> reservations.reserve(1L, 1, null))
+                .isInstanceOf(InsufficientStockException.class)
+                .hasMessageContaining("0 available");
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(meterRegistry.counter("garbaking_stock_reservations_total", "result", "rejected").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void holdsAreCarvedFromTheAllotmentWithoutTheDatabase() {
+        reservations.tick();
+        clearInvocations(jdbcTemplate);
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(1);
+
+        reservations.reserve(1L, 1, null);
+        reservations.reserve(1L, 3, null);
+        reservations.reserve(1L, 1, null);
+
+        verify(menuItemRepository, times(1)).reserveStock(1L, 5);
+        verify(allotmentStore).grow(anyString(), eq(1L), eq(5), eq(START + 30_000));
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(reservations.unheldQuantity(1L)).isZero();
+    }
+
+    @Test
+    void allotmentTakesWhatIsLeftWhenAFullBlockIsNotAvailable() {
+        reservations.tick();
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(0);
+        when(menuItemRepository.reserveStock(1L, 2)).thenReturn(1);
+
+        reservations.reserve(1L, 2, null);
+
+        verify(allotmentStore).grow(anyString(), eq(1L), eq(2), anyLong());
+        assertThat(reservations.unheldQuantity(1L)).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tickWritesNewHoldsAndDeletesReleasedOnes() {
+        reservations.tick();
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(1);
+        StockReservationService.Reservation reservation = reservations.reserve(1L, 2, null);
+
+        clock.advance(Duration.ofSeconds(1));
+        reservations.tick();
+        verify(jdbcTemplate).batchUpdate(eq(StockReservationService.INSERT_SQL),
+                argThat((Collection<?> rows) -> rows.size() == 1), eq(1), any(ParameterizedPreparedStatementSetter.class));
+
+        assertThat(reservations.release(reservation.id())).isTrue();
+        assertThat(reservations.unheldQuantity(1L)).isEqualTo(3);
+        when(jdbcTemplate.queryForList(eq(StockReservationService.lockWrittenSql(1)), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of(reservation.id()));
+
+        clock.advance(Duration.ofSeconds(1));
+        reservations.tick();
+        verify(jdbcTemplate).batchUpdate(eq(StockReservationService.DELETE_SQL), eq(List.of(reservation.id())), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(reservations.unheldQuantity(1L)).isEqualTo(5);
+        verify(menuItemRepository, never()).unreserveStock(anyLong(), anyInt());
+    }
+
+    @Test
+    void claimOfALocalHoldTakesItOutOfTheAllotment() {
+        reservations.tick();
+        clearInvocations(jdbcTemplate);
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(1);
+        StockReservationService.Reservation reservation = reservations.reserve(1L, 2, null);
+
+        assertThat(reservations.claim(reservation.id())).contains(reservation);
+
+        verify(allotmentStore).shrink(anyString(), eq(1L), eq(2));
+        assertThat(reservations.unheldQuantity(1L)).isEqualTo(3);
+        verifyNoInteractions(jdbcTemplate);
+        assertThat(reservations.claim(reservation.id())).isEmpty();
+    }
+
+    @Test
+    void claimTakesUnexpiredHoldsOfOtherInstancesOnly() {
+        StockReservationService.Reservation held = new StockReservationService.Reservation("res_1", 1L, 3, START + 1_000);
+        StockReservationService.Reservation owned = new StockReservationService.Reservation("res_2", 1L, 2, START + 1_000);
+        StockReservationService.Reservation expired = new StockReservationService.Reservation("res_3", 1L, 2, START);
+        locks(held, null);
+        locks(owned, "inv_other");
+        locks(expired, null);
+
+        assertThat(reservations.claim("res_1")).contains(held);
+        assertThat(reservations.claim("res_2")).contains(owned);
+        assertThat(reservations.claim("res_3")).isEmpty();
+
+        verify(jdbcTemplate).update(StockReservationService.DELETE_SQL, "res_1");
+        verify(jdbcTemplate).update(StockReservationService.DELETE_SQL, "res_2");
+        verify(jdbcTemplate, never()).update(StockReservationService.DELETE_SQL, "res_3");
+        verify(allotmentStore).shrink("inv_other", 1L, 2);
+        verifyNoMoreInteractions(allotmentStore);
+        verifyNoInteractions(menuItemRepository);
+    }
+
+    @Test
+    void releaseGivesTheHeldStockBack() {
+        locks(new StockReservationService.Reservation("res_1", 1L, 3, START + 1_000), null);
+
+        assertThat(reservations.release("res_1")).isTrue();
+        assertThat(reservations.release("res_unknown")).isFalse();
+
+        verify(jdbcTemplate).update(StockReservationService.DELETE_SQL, "res_1");
+        verify(menuItemRepository).unreserveStock(1L, 3);
+    }
+
+    @Test
+    void manualCountHandsTheUnusedAllotmentBack() {
+        reservations.tick();
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(1);
+        reservations.reserve(1L, 2, null);
+
+        reservations.onMenuItemChanged(new ConsumerRecord<>(InventoryEventPublisher.TOPIC_STOCK_ADJUSTED, 0, 0L,
+                "1", "{\"menuItemId\":1,\"source\":\"ORDER_SERVICE\"}"));
+        assertThat(reservations.unheldQuantity(1L)).isEqualTo(3);
+
+        reservations.onMenuItemChanged(new ConsumerRecord<>(InventoryEventPublisher.TOPIC_STOCK_ADJUSTED, 0, 1L,
+                "1", "{\"menuItemId\":1,\"source\":\"MANUAL_COUNT\"}"));
+        assertThat(reservations.unheldQuantity(1L)).isZero();
+
+        reservations.tick();
+        verify(allotmentStore).shrink(anyString(), eq(1L), eq(3));
+        verify(menuItemRepository).unreserveStock(1L, 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void allotmentsAreLeftToBeReclaimedOnceTheLeaseLapses() {
+        reservations.tick();
+        when(menuItemRepository.reserveStock(1L, 5)).thenReturn(1);
+        StockReservationService.Reservation reservation = reservations.reserve(1L, 2, null);
+
+        clock.advance(Duration.ofSeconds(20));
+        when(menuItemRepository.reserveStock(1L, 1)).thenReturn(1);
+        reservations.reserve(1L, 1, null);
+        verify(jdbcTemplate).update(eq(StockReservationService.INSERT_SQL), anyString(), eq(1L), eq(1), anyLong(), isNull());
+
+        reservations.tick();
+        assertThat(reservations.unheldQuantity(1L)).isZero();
+        when(jdbcTemplate.query(eq(StockReservationService.LOCK_SQL), any(RowMapper.class), eq(reservation.id())))
+                .thenReturn(List.of());
+        assertThat(reservations.release(reservation.id())).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void tickReleasesExpiredHoldsOfNoInstanceWithOneUpdatePerItem() {
+        List<StockReservationService.StoredHold> due = List.of(
+                stored(new StockReservationService.Reservation("res_1", 1L, 2, START - 1), null),
+                stored(new StockReservationService.Reservation("res_2", 2L, 4, START - 1), null),
+                stored(new StockReservationService.Reservation("res_3", 1L, 1, START), null));
+        when(jdbcTemplate.query(eq(StockReservationService.LOCK_EXPIRED_SQL), any(RowMapper.class), eq(START), eq(500)))
+                .thenReturn(due);
+
+        assertThat(reservations.tick()).isEqualTo(3);
+
+        verify(menuItemRepository).unreserveStock(1L, 3);
+        verify(menuItemRepository).unreserveStock(2L, 4);
+        verify(jdbcTemplate).batchUpdate(eq(StockReservationService.DELETE_SQL), eq(due), eq(3), any());
+        assertThat(meterRegistry.counter("garbaking_stock_reservations_total", "result", "expired").count())
+                .isEqualTo(3);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void locks(StockReservationService.Reservation reservation, String owner) {
+        when(jdbcTemplate.query(eq(StockReservationService.LOCK_SQL), any(RowMapper.class), eq(reservation.id())))
+                .thenReturn(List.of(stored(reservation, owner)));
+    }
+
+    private static StockReservationService.StoredHold stored(StockReservationService.Reservation reservation, String owner) {
+        return new StockReservationService.StoredHold(reservation, owner);
+    }
+
+    private static MenuItem item(int stock, int reserved) {
+        return MenuItem.builder()
+                .id(1L)
+                .name("Latte")
+                .price(BigDecimal.TEN)
+                .stockQuantity(stock)
+                .reservedQuantity(reserved)
+                .isAvailable(true)
+                .isActive(true)
+                .build();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private long millis;
+
+        private MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(Duration duration) {
+            millis += duration.toMillis();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
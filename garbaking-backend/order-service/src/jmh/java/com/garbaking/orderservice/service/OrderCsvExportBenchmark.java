@@ -0,0 +1,65 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.analytics.OrderExportRow;
+import com.garbaking.orderservice.model.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export writer throughput. Each operation is one CSV row, so the reported score is rows/sec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+public class OrderCsvExportBenchmark {
+
+    private static final int ROWS = 100_000;
+
+    @Param({"false", "true"})
+    public boolean includeItems;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private OrderExportRow[] rows;
+
+    @Setup
+    public void setUp() {
+        rows = new OrderExportRow[ROWS];
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+        for (int i = 0; i < ROWS; i++) {
+            rows[i] = new OrderExportRow("ORD-20240101-" + i, Order.OrderStatus.COMPLETED,
+                    BigDecimal.valueOf(4500 + i % 100, 2), Order.PaymentMethod.CARD, start.plusSeconds(i),
+                    (long) (i % 40), "Jollof Rice, large", "MEAL-001", 1 + i % 3,
+                    BigDecimal.valueOf(1500, 2), BigDecimal.valueOf(4500, 2));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long writeRows() throws IOException {
+        OutputStream target = gzip
+                ? new GZIPOutputStream(OutputStream.nullOutputStream(), 64 * 1024)
+                : OutputStream.nullOutputStream();
+        try (OrderCsvWriter writer = new OrderCsvWriter(target, includeItems)) {
+            writer.writeHeader();
+            for (OrderExportRow row : rows) {
+                writer.write(row);
+            }
+            return writer.getRowCount();
+        }
+    }
+}
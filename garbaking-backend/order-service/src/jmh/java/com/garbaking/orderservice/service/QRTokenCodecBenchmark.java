@@ -0,0 +1,63 @@
+package com.garbaking.orderservice.service;
+
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR token generate / validate / hash throughput (ops/sec), using the shared codec from
+ * several threads the way concurrent tills do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class QRTokenCodecBenchmark {
+
+    private QRTokenCodec codec;
+    private String token;
+    private Map<String, Object> claims;
+
+    @Setup
+    public void setUp() {
+        codec = new QRTokenCodec("k2", "benchmark-secret-benchmark-secret-0123456789",
+                Map.of("k1", "retired-secret-retired-secret-0123456789"), "garbaking-pos", "payment-confirmation");
+        claims = new HashMap<>();
+        claims.put("order_id", 42L);
+        claims.put("order_number", "ORD-20240115-0042");
+        claims.put("nonce", UUID.randomUUID().toString());
+        claims.put("amount", "4500.00");
+        claims.put("currency", "XOF");
+        claims.put("short_code", "QRABC234");
+        claims.put("v", 1);
+        token = generate();
+    }
+
+    @Benchmark
+    public String generate() {
+        long now = System.currentTimeMillis();
+        return codec.sign("qr_" + now, "order_42", new Date(now), new Date(now + 300_000), claims);
+    }
+
+    @Benchmark
+    public Claims validate() {
+        return codec.parse(token);
+    }
+
+    @Benchmark
+    public String hash() {
+        return codec.hash(token);
+    }
+}
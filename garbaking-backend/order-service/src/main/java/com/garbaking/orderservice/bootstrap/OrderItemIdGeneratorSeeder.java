@@ -0,0 +1,37 @@
+package com.garbaking.orderservice.bootstrap;
+
+import com.garbaking.orderservice.model.OrderItem;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the order item id generator past the ids already in order_items, which were assigned by
+ * AUTO_INCREMENT before the table generator existed. Runs while the context starts, before any
+ * order can be created, and never moves the generator backwards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderItemIdGeneratorSeeder {
+
+    private static final String SEED_SQL =
+            "INSERT INTO " + OrderItem.ID_GENERATOR_TABLE + " (sequence_name, next_val) " +
+            "SELECT ?, COALESCE(MAX(id), 0) + ? FROM order_items " +
+            "ON DUPLICATE KEY UPDATE next_val = GREATEST(next_val, VALUES(next_val))";
+
+    // Depends on the entity manager factory so the schema update has created the generator table
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void seed() {
+        // Two blocks of headroom: safe whether the pooled optimizer reads the stored value as the block's start or end
+        int headroom = 2 * OrderItem.ID_ALLOCATION_SIZE;
+        jdbcTemplate.update(SEED_SQL, OrderItem.ID_GENERATOR_SEGMENT, headroom);
+        log.debug("Order item id generator seeded above existing ids");
+    }
+}
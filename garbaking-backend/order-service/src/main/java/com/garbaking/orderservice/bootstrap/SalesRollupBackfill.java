@@ -0,0 +1,54 @@
+package com.garbaking.orderservice.bootstrap;
+
+import com.garbaking.orderservice.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Folds orders recorded before the sales rollups existed (or written outside the outbox,
+ * like the demo seed) into the rollup tables once the application is up.
+ * Runs page by page so each transaction stays short, and ahead of other startup listeners
+ * that read the rollups.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupBackfill {
+
+    private final SalesRollupService salesRollupService;
+
+    @Value("${analytics.rollup.backfill-on-startup:true}")
+    private boolean enabled;
+
+    @Value("${analytics.rollup.batch-size:500}")
+    private int pageSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+
+        long processed = 0;
+        Long lastId = 0L;
+        try {
+            while ((lastId = salesRollupService.backfillPage(lastId, pageSize)) != null) {
+                processed++;
+            }
+        } catch (Exception e) {
+            log.error("Sales rollup backfill stopped early: {}", e.getMessage(), e);
+            return;
+        }
+
+        if (processed > 0) {
+            log.info("Sales rollup backfill completed in {} page(s)", processed);
+        }
+    }
+}
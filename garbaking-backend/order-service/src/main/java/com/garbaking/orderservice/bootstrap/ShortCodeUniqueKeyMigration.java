@@ -0,0 +1,55 @@
+package com.garbaking.orderservice.bootstrap;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Keeps payment_qr_tokens.short_code unique while letting expired tokens give their code up.
+ * ddl-auto update never relaxes a column, so tables created while short_code was NOT NULL are
+ * altered here, and a unique key missing on tables where it was once dropped is added back after
+ * clearing the code of every older token that shares it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShortCodeUniqueKeyMigration {
+
+    private static final String FIND_NULLABLE_SQL =
+            "SELECT is_nullable FROM information_schema.columns " +
+            "WHERE table_schema = DATABASE() AND table_name = 'payment_qr_tokens' AND column_name = 'short_code'";
+
+    private static final String FIND_UNIQUE_KEYS_SQL =
+            "SELECT DISTINCT index_name FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'payment_qr_tokens' " +
+            "AND column_name = 'short_code' AND non_unique = 0";
+
+    private static final String CLEAR_DUPLICATES_SQL =
+            "UPDATE payment_qr_tokens t JOIN payment_qr_tokens newer " +
+            "ON newer.short_code = t.short_code AND newer.id > t.id SET t.short_code = NULL";
+
+    // Depends on the entity manager factory so the schema update has run first
+    private final EntityManagerFactory entityManagerFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        List<String> nullable = jdbcTemplate.queryForList(FIND_NULLABLE_SQL, String.class);
+        if (nullable.contains("NO")) {
+            jdbcTemplate.execute("ALTER TABLE payment_qr_tokens MODIFY short_code VARCHAR(8) NULL");
+            log.info("Made payment_qr_tokens.short_code nullable");
+        }
+
+        if (jdbcTemplate.queryForList(FIND_UNIQUE_KEYS_SQL, String.class).isEmpty()) {
+            int cleared = jdbcTemplate.update(CLEAR_DUPLICATES_SQL);
+            jdbcTemplate.execute("ALTER TABLE payment_qr_tokens " +
+                    "ADD CONSTRAINT uk_payment_qr_tokens_short_code UNIQUE (short_code)");
+            log.info("Added unique key on payment_qr_tokens.short_code ({} duplicate code(s) cleared)", cleared);
+        }
+    }
+}
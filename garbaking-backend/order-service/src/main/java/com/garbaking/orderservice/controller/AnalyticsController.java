@@ -9,19 +9,24 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/analytics")
 @RequiredArgsConstructor
 public class AnalyticsController {
 
+    private static final int EXPORT_GZIP_BUFFER_SIZE = 64 * 1024;
+
     private final AnalyticsService analyticsService;
 
     @GetMapping("/dashboard")
@@ -114,19 +119,29 @@ public class AnalyticsController {
     }
 
     @GetMapping("/export")
-    public ResponseEntity<byte[]> exportData(@RequestParam(defaultValue = "sales") String type,
-                                             @RequestParam(defaultValue = "CSV") String format,
-                                             @RequestParam(defaultValue = "month") String period,
-                                             @RequestParam(required = false) String startDate,
-                                             @RequestParam(required = false) String endDate) {
+    public ResponseEntity<StreamingResponseBody> exportData(@RequestParam(defaultValue = "sales") String type,
+                                                            @RequestParam(defaultValue = "CSV") String format,
+                                                            @RequestParam(defaultValue = "month") String period,
+                                                            @RequestParam(required = false) String startDate,
+                                                            @RequestParam(required = false) String endDate,
+                                                            @RequestParam(defaultValue = "false") boolean includeItems,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         LocalDateTime start = Optional.ofNullable(startDate).map(LocalDate::parse).map(LocalDate::atStartOfDay).orElse(null);
         LocalDateTime end = Optional.ofNullable(endDate).map(LocalDate::parse).map(date -> date.atTime(23, 59, 59)).orElse(null);
-        byte[] data = analyticsService.exportData(type, period, start, end);
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
         String filename = type + "-" + period + "." + format.toLowerCase();
-        return ResponseEntity.ok()
+
+        StreamingResponseBody body = outputStream -> analyticsService.exportData(period, start, end, includeItems,
+                gzip ? new GZIPOutputStream(outputStream, EXPORT_GZIP_BUFFER_SIZE) : outputStream);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + filename)
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(data);
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/comparison/yoy")
@@ -1,6 +1,7 @@
 package com.garbaking.orderservice.controller;
 
 import com.garbaking.orderservice.dto.*;
+import com.garbaking.orderservice.idempotency.IdempotencyService;
 import com.garbaking.orderservice.model.Order;
 import com.garbaking.orderservice.service.OrderService;
 import jakarta.validation.Valid;
@@ -27,17 +28,27 @@ import java.util.List;
 @Slf4j
 public class OrderController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Create new order
      * POST /orders
+     * A retry carrying the same Idempotency-Key gets the first response back without a second order
      */
     @PostMapping
-    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody CreateOrderDTO createOrderDTO) {
+    public ResponseEntity<?> createOrder(
+            @Valid @RequestBody CreateOrderDTO createOrderDTO,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey
+    ) {
         log.info("POST /orders - Creating order for user: {}", createOrderDTO.getUserId());
-        OrderDTO createdOrder = orderService.createOrder(createOrderDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+        return idempotencyService.execute("order-create", idempotencyKey, createOrderDTO, () -> {
+            OrderDTO createdOrder = orderService.createOrder(createOrderDTO);
+            return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+        });
     }
 
     /**
@@ -101,20 +112,37 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Get orders by user ID, newest first, one page of summaries at a time
+     * GET /orders/user/{userId}/summaries?limit=20&cursor=...
+     * The next page's cursor is returned in the X-Next-Cursor header (absent on the last page)
+     */
+    @GetMapping("/user/{userId}/summaries")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF') or #userId == authentication.principal.id")
+    public ResponseEntity<List<OrderSummaryDTO>> getOrderSummariesByUserId(
+            @PathVariable Long userId,
+            @RequestParam(name = "limit", required = false, defaultValue = "20") Integer limitParam,
+            @RequestParam(name = "cursor", required = false) String cursor
+    ) {
+        log.info("GET /orders/user/{}/summaries", userId);
+        return summaryPage(orderService.getOrderSummariesByUserId(userId, cursor(cursor), pageSize(limitParam)));
+    }
+
     /**
      * Get customer orders by phone number (public)
-     * GET /orders/customer/history?phone=...
+     * GET /orders/customer/history?phone=...&limit=20&cursor=...
      */
     @GetMapping("/customer/history")
     public ResponseEntity<CustomerOrderHistoryResponse> getCustomerOrderHistory(
             @RequestParam String phone,
-            @RequestParam(name = "limit", required = false, defaultValue = "20") Integer limitParam
+            @RequestParam(name = "limit", required = false, defaultValue = "20") Integer limitParam,
+            @RequestParam(name = "cursor", required = false) String cursor
     ) {
         if (!StringUtils.hasText(phone)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "phone is required");
         }
         int limit = limitParam == null ? 20 : Math.max(1, Math.min(limitParam, 50));
-        CustomerOrderHistoryResponse response = orderService.getOrdersByCustomerPhone(phone.trim(), limit);
+        CustomerOrderHistoryResponse response = orderService.getOrdersByCustomerPhone(phone.trim(), cursor(cursor), limit);
         return ResponseEntity.ok(response);
     }
 
@@ -131,6 +159,20 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Get my orders (current user), newest first, one page of summaries at a time
+     * GET /orders/my/summaries?limit=20&cursor=...
+     */
+    @GetMapping("/my/summaries")
+    public ResponseEntity<List<OrderSummaryDTO>> getMyOrderSummaries(
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestParam(name = "limit", required = false, defaultValue = "20") Integer limitParam,
+            @RequestParam(name = "cursor", required = false) String cursor
+    ) {
+        log.info("GET /orders/my/summaries for user: {}", userId);
+        return summaryPage(orderService.getOrderSummariesByUserId(userId, cursor(cursor), pageSize(limitParam)));
+    }
+
     /**
      * Get orders by status
      * GET /orders/status/{status}
@@ -155,6 +197,17 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Resynchronise a kitchen display after a reconnect
+     * GET /orders/active/sync?since={eventSequence}
+     */
+    @GetMapping("/active/sync")
+    @PreAuthorize("hasAnyRole('ADMIN', 'STAFF')")
+    public ResponseEntity<ActiveOrdersSyncDTO> syncActiveOrders(@RequestParam(required = false) Long since) {
+        log.info("GET /orders/active/sync?since={}", since);
+        return ResponseEntity.ok(orderService.syncActiveOrders(since));
+    }
+
     /**
      * Get today's orders
      * GET /orders/today
@@ -249,4 +302,25 @@ public class OrderController {
         orderService.hardDeleteOrder(id);
         return ResponseEntity.noContent().build();
     }
+
+    private static ResponseEntity<List<OrderSummaryDTO>> summaryPage(OrderSummaryPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(page.getCount()));
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getOrders());
+    }
+
+    private static int pageSize(Integer limitParam) {
+        return limitParam == null ? 20 : Math.max(1, Math.min(limitParam, 100));
+    }
+
+    private static OrderHistoryCursor cursor(String cursor) {
+        try {
+            return OrderHistoryCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor is invalid");
+        }
+    }
 }
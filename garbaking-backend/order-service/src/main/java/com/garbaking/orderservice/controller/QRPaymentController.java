@@ -4,18 +4,19 @@ import com.garbaking.orderservice.dto.ConfirmPaymentDTO;
 import com.garbaking.orderservice.dto.OrderDTO;
 import com.garbaking.orderservice.dto.QRScanResultDTO;
 import com.garbaking.orderservice.dto.QRTokenResponseDTO;
+import com.garbaking.orderservice.dto.analytics.QRScanStats;
+import com.garbaking.orderservice.idempotency.IdempotencyService;
+import com.garbaking.orderservice.ratelimit.QRRateLimiter;
 import com.garbaking.orderservice.service.OrderService;
 import com.garbaking.orderservice.service.QRPaymentService;
+import com.garbaking.orderservice.service.QRScanStatsService;
 import com.garbaking.orderservice.service.QRTokenService;
-import io.github.bucket4j.Bandwidth;
-import io.github.bucket4j.Bucket;
-import io.github.bucket4j.Refill;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -23,10 +24,9 @@ import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Duration;
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.util.Enumeration;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * QR Payment Controller
@@ -45,23 +45,9 @@ public class QRPaymentController {
     private final QRPaymentService qrPaymentService;
     private final QRTokenService qrTokenService;
     private final OrderService orderService;
-
-    // Rate limiting configuration
-    @Value("${security.rate-limit.qr-scan.requests:10}")
-    private int scanRateLimit;
-
-    @Value("${security.rate-limit.qr-scan.per-seconds:60}")
-    private int scanRatePeriod;
-
-    @Value("${security.rate-limit.qr-confirm.requests:5}")
-    private int confirmRateLimit;
-
-    @Value("${security.rate-limit.qr-confirm.per-seconds:60}")
-    private int confirmRatePeriod;
-
-    // Rate limiter buckets per device
-    private final Map<String, Bucket> scanBuckets = new ConcurrentHashMap<>();
-    private final Map<String, Bucket> confirmBuckets = new ConcurrentHashMap<>();
+    private final QRRateLimiter rateLimiter;
+    private final QRScanStatsService scanStatsService;
+    private final IdempotencyService idempotencyService;
 
     /**
      * Scan QR code and retrieve order details
@@ -94,11 +80,13 @@ public class QRPaymentController {
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF', 'CASHIER')")
     public ResponseEntity<?> scanQRCode(
             @Valid @RequestBody ScanQRRequest request,
-            Authentication authentication
+            Authentication authentication,
+            HttpServletRequest httpRequest
     ) {
         try {
-            // Rate limiting
-            if (!checkRateLimit(request.getDeviceId(), scanBuckets, scanRateLimit, scanRatePeriod)) {
+            // Rate limiting (per device, user and client IP)
+            if (!rateLimiter.tryAcquire(QRRateLimiter.Action.SCAN, request.getDeviceId(),
+                    userName(authentication), clientAddress(httpRequest))) {
                 log.warn("Rate limit exceeded for device: {} during QR scan", request.getDeviceId());
                 return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                         .body(Map.of(
@@ -150,11 +138,13 @@ public class QRPaymentController {
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF', 'CASHIER')")
     public ResponseEntity<?> scanByShortCode(
             @Valid @RequestBody ScanShortCodeRequest request,
-            Authentication authentication
+            Authentication authentication,
+            HttpServletRequest httpRequest
     ) {
         try {
-            // Rate limiting
-            if (!checkRateLimit(request.getDeviceId(), scanBuckets, scanRateLimit, scanRatePeriod)) {
+            // Rate limiting (per device, user and client IP)
+            if (!rateLimiter.tryAcquire(QRRateLimiter.Action.SCAN, request.getDeviceId(),
+                    userName(authentication), clientAddress(httpRequest))) {
                 log.warn("Rate limit exceeded for device: {} during short code scan", request.getDeviceId());
                 return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                         .body(Map.of(
@@ -206,16 +196,28 @@ public class QRPaymentController {
      *   "notes": "Optional notes",
      *   "deviceId": "POS-001"
      * }
+     *
+     * A retry carrying the same Idempotency-Key header gets the first successful response back
+     * without confirming again.
      */
     @PostMapping("/confirm")
     @PreAuthorize("hasAnyRole('ADMIN', 'STAFF', 'CASHIER')")
     public ResponseEntity<?> confirmPayment(
             @Valid @RequestBody ConfirmPaymentRequest request,
-            Authentication authentication
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            Authentication authentication,
+            HttpServletRequest httpRequest
     ) {
+        return idempotencyService.execute("qr-confirm", idempotencyKey, request,
+                () -> confirm(request, authentication, httpRequest));
+    }
+
+    private ResponseEntity<?> confirm(ConfirmPaymentRequest request, Authentication authentication,
+                                      HttpServletRequest httpRequest) {
         try {
-            // Rate limiting
-            if (!checkRateLimit(request.getDeviceId(), confirmBuckets, confirmRateLimit, confirmRatePeriod)) {
+            // Rate limiting (per device, user and client IP)
+            if (!rateLimiter.tryAcquire(QRRateLimiter.Action.CONFIRM, request.getDeviceId(),
+                    userName(authentication), clientAddress(httpRequest))) {
                 log.warn("Rate limit exceeded for device: {} during payment confirmation", request.getDeviceId());
                 return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                         .body(Map.of(
@@ -361,21 +363,47 @@ public class QRPaymentController {
         }
     }
 
+    /**
+     * QR operation statistics (counts, error codes, latency percentiles, payment methods)
+     *
+     * GET /api/qr-payment/stats?from=2025-11-01T00:00:00&to=2025-11-02T00:00:00
+     *
+     * Served from per-minute aggregates; defaults to the last 24 hours
+     */
+    @GetMapping("/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public QRScanStats getScanStats(@RequestParam(required = false) String from,
+                                    @RequestParam(required = false) String to) {
+        LocalDateTime end = to != null ? LocalDateTime.parse(to) : LocalDateTime.now();
+        LocalDateTime start = from != null ? LocalDateTime.parse(from) : end.minusDays(1);
+        return scanStatsService.getStats(start, end);
+    }
+
     // ==================== Helper Methods ====================
 
     /**
-     * Check rate limit for device
+     * Authenticated principal name, used to rate limit per user
      */
-    private boolean checkRateLimit(String deviceId, Map<String, Bucket> buckets,
-                                     int requests, int perSeconds) {
-        Bucket bucket = buckets.computeIfAbsent(deviceId, key -> {
-            Bandwidth limit = Bandwidth.classic(requests, Refill.intervally(requests, Duration.ofSeconds(perSeconds)));
-            return Bucket.builder()
-                    .addLimit(limit)
-                    .build();
-        });
+    private String userName(Authentication authentication) {
+        return authentication != null ? authentication.getName() : null;
+    }
 
-        return bucket.tryConsume(1);
+    /**
+     * Client address for rate limiting: the last X-Forwarded-For hop, which the gateway appends
+     * with the address it accepted the connection from, otherwise the connection's remote address.
+     * Earlier hops are supplied by the client and can be forged, so they are ignored.
+     */
+    private String clientAddress(HttpServletRequest httpRequest) {
+        String lastHop = null;
+        Enumeration<String> headers = httpRequest.getHeaders("X-Forwarded-For");
+        while (headers != null && headers.hasMoreElements()) {
+            String header = headers.nextElement();
+            String hop = header.substring(header.lastIndexOf(',') + 1).trim();
+            if (!hop.isEmpty()) {
+                lastHop = hop;
+            }
+        }
+        return lastHop != null ? lastHop : httpRequest.getRemoteAddr();
     }
 
     /**
@@ -0,0 +1,23 @@
+package com.garbaking.orderservice.dto;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Active Orders Sync
+ *
+ * Answer to a reconnecting display: either the order events it missed since its last
+ * sequence, or a full snapshot of the active orders when those events are no longer buffered.
+ * Live events with an eventSequence at or below {@code sequence} are already reflected.
+ */
+@Value
+@Builder
+public class ActiveOrdersSyncDTO {
+    long sequence;
+    boolean snapshot;
+    List<OrderDTO> orders;
+    List<RawValue> events;
+}
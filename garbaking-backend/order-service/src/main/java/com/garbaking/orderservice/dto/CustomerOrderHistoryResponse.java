@@ -9,5 +9,8 @@ import lombok.Value;
 public class CustomerOrderHistoryResponse {
     List<OrderDTO> orders;
     long count;
+    /**
+     * Cursor of the next page, null on the last page
+     */
+    String nextCursor;
 }
-
@@ -1,5 +1,6 @@
 package com.garbaking.orderservice.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonAppend;
 import com.garbaking.orderservice.model.Order;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,13 +16,18 @@ import java.util.List;
  * Order Data Transfer Object
  *
  * Used for order responses with full details.
+ * WebSocket order events also carry an eventSequence, written from a serialisation
+ * attribute so REST responses are unchanged.
  */
+@JsonAppend(attrs = @JsonAppend.Attr(value = OrderDTO.EVENT_SEQUENCE_ATTRIBUTE))
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderDTO {
 
+    public static final String EVENT_SEQUENCE_ATTRIBUTE = "eventSequence";
+
     private Long id;
     private String orderNumber;
     private Order.OrderStatus status;
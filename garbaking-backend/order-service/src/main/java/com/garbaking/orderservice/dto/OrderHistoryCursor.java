@@ -0,0 +1,44 @@
+package com.garbaking.orderservice.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in an order history list, newest first: the (createdAt, id) of the last order returned.
+ * The next page starts strictly after it, so pages stay stable while new orders arrive and cost the
+ * same however deep the client pages. Sent to clients as an opaque URL-safe string.
+ */
+public record OrderHistoryCursor(LocalDateTime createdAt, Long id) {
+
+    private static final char SEPARATOR = '~';
+
+    public static OrderHistoryCursor of(OrderSummaryDTO order) {
+        return new OrderHistoryCursor(order.createdAt(), order.id());
+    }
+
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param encoded Cursor from {@link #encode()}, may be null or blank for the first page
+     * @return The decoded cursor, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static OrderHistoryCursor decode(String encoded) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new OrderHistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + encoded, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.garbaking.orderservice.dto;
+
+import com.garbaking.orderservice.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order list entry without line items.
+ * Built directly by JPQL constructor expressions, so listing a history loads no entities;
+ * field names match OrderDTO so list views read the same JSON.
+ */
+public record OrderSummaryDTO(
+        Long id,
+        String orderNumber,
+        Order.OrderStatus status,
+        Order.OrderType orderType,
+        Order.PaymentStatus paymentStatus,
+        Order.PaymentMethod paymentMethod,
+        BigDecimal totalAmount,
+        LocalDateTime createdAt
+) {
+}
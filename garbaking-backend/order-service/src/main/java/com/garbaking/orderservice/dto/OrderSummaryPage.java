@@ -0,0 +1,20 @@
+package com.garbaking.orderservice.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of an order history, newest first
+ */
+@Value
+@Builder
+public class OrderSummaryPage {
+    List<OrderSummaryDTO> orders;
+    /**
+     * Cursor of the next page, null on the last page
+     */
+    String nextCursor;
+    long count;
+}
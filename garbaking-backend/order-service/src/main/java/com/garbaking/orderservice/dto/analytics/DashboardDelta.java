@@ -0,0 +1,22 @@
+package com.garbaking.orderservice.dto.analytics;
+
+import lombok.Builder;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Change to the live dashboard pushed on /topic/analytics/dashboard.
+ * Sections that did not change since the previous delta are null; a gap in
+ * {@code sequence} means the client should refetch GET /analytics/dashboard.
+ */
+@Builder
+public record DashboardDelta(
+        long sequence,
+        Instant generatedAt,
+        DashboardPeriodMetrics today,
+        DashboardPeriodMetrics yesterday,
+        ActiveOrdersSummary orders,
+        List<ProductAnalytics> topMenuItems
+) {
+}
@@ -0,0 +1,31 @@
+package com.garbaking.orderservice.dto.analytics;
+
+import com.garbaking.orderservice.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Flat order (and optionally line item) row read by the streaming export.
+ * Built directly by JPQL constructor expressions so no entity is attached to the
+ * persistence context while the cursor is open.
+ */
+public record OrderExportRow(
+        String orderNumber,
+        Order.OrderStatus status,
+        BigDecimal totalAmount,
+        Order.PaymentMethod paymentMethod,
+        LocalDateTime createdAt,
+        Long menuItemId,
+        String menuItemName,
+        String menuItemSku,
+        Integer quantity,
+        BigDecimal unitPrice,
+        BigDecimal subtotal
+) {
+
+    public OrderExportRow(String orderNumber, Order.OrderStatus status, BigDecimal totalAmount,
+                          Order.PaymentMethod paymentMethod, LocalDateTime createdAt) {
+        this(orderNumber, status, totalAmount, paymentMethod, createdAt, null, null, null, null, null, null);
+    }
+}
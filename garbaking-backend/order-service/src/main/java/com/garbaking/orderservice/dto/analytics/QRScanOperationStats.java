@@ -0,0 +1,22 @@
+package com.garbaking.orderservice.dto.analytics;
+
+import lombok.Builder;
+
+import java.util.Map;
+
+/**
+ * Counts and latencies of one QR operation; percentiles are histogram bucket upper bounds
+ */
+@Builder
+public record QRScanOperationStats(
+        String operation,
+        long count,
+        long successCount,
+        Map<String, Long> errorCounts,
+        double averageMs,
+        long maxMs,
+        long p50Ms,
+        long p95Ms,
+        long p99Ms
+) {
+}
@@ -0,0 +1,21 @@
+package com.garbaking.orderservice.dto.analytics;
+
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QR payment operation statistics over a time range, read from per-minute aggregates
+ */
+@Builder
+public record QRScanStats(
+        LocalDateTime from,
+        LocalDateTime to,
+        List<QRScanOperationStats> operations,
+        Map<String, Long> paymentMethodCounts,
+        Map<String, BigDecimal> paymentMethodAmounts
+) {
+}
@@ -0,0 +1,21 @@
+package com.garbaking.orderservice.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Idempotency Key Exception
+ *
+ * Thrown when an Idempotency-Key cannot be honoured: too long, still in use by a running request,
+ * or already used for a different request.
+ */
+@Getter
+public class IdempotencyKeyException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,275 @@
+package com.garbaking.orderservice.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.exception.IdempotencyKeyException;
+import com.garbaking.orderservice.model.IdempotencyRecord;
+import com.garbaking.orderservice.ratelimit.BoundedExpiringMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency Service
+ *
+ * Makes mutating endpoints safe to retry with an Idempotency-Key header. The first request with a
+ * key claims it and runs; once it succeeds its response is stored, and every retry with the same
+ * key and body gets that response back without running the request again (no second order, no
+ * second Kafka or WebSocket event). Retries are answered from a bounded in-memory map when this
+ * instance has seen the key, otherwise from the idempotency_keys table shared by all replicas.
+ *
+ * A retry while the first request is still running gets 409, and a key reused for a different
+ * body gets 422. Failed requests release their key so the client can try again, and a claim left
+ * behind by a crashed instance is taken over after idempotency.pending-timeout. Requests without
+ * the header run as before.
+ */
+@Component
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 200;
+
+    private static final String INSERT_SQL = "INSERT INTO " + IdempotencyRecord.TABLE +
+            " (idempotency_key, request_hash, claimed_at, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_SQL = "SELECT request_hash, status_code, response_body, claimed_at FROM " +
+            IdempotencyRecord.TABLE + " WHERE idempotency_key = ? AND expires_at > ?";
+    private static final String TAKE_OVER_SQL = "UPDATE " + IdempotencyRecord.TABLE +
+            " SET request_hash = ?, claimed_at = ?, expires_at = ?, status_code = NULL, response_body = NULL" +
+            " WHERE idempotency_key = ? AND (status_code IS NULL AND claimed_at = ? OR expires_at <= ?)";
+    private static final String COMPLETE_SQL = "UPDATE " + IdempotencyRecord.TABLE +
+            " SET status_code = ?, response_body = ?, expires_at = ? WHERE idempotency_key = ?";
+    private static final String RELEASE_SQL = "DELETE FROM " + IdempotencyRecord.TABLE +
+            " WHERE idempotency_key = ? AND status_code IS NULL";
+    private static final String PURGE_SQL = "DELETE FROM " + IdempotencyRecord.TABLE +
+            " WHERE expires_at < ? LIMIT 1000";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final Duration ttl;
+    private final Duration pendingTimeout;
+    private final BoundedExpiringMap<Entry> recent;
+
+    @Autowired
+    public IdempotencyService(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${idempotency.pending-timeout:PT30S}") Duration pendingTimeout,
+            @Value("${idempotency.max-keys:10000}") int maxKeys
+    ) {
+        this(jdbcTemplate, objectMapper, meterRegistry, ttl, pendingTimeout, maxKeys, Clock.systemUTC());
+    }
+
+    IdempotencyService(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       Duration ttl, Duration pendingTimeout, int maxKeys, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        this.pendingTimeout = pendingTimeout;
+        this.clock = clock;
+        this.recent = new BoundedExpiringMap<>(maxKeys);
+    }
+
+    /**
+     * Run a request at most once per idempotency key
+     *
+     * @param scope Endpoint the key belongs to, e.g. "order-create"
+     * @param key Client's Idempotency-Key header, may be null
+     * @param request Request body; retries must send the same one
+     * @param action Runs the request; only 2xx responses are stored
+     * @return The response of this run, or the stored response of the first run
+     * @throws IdempotencyKeyException if the key is in use by a running or a different request
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String storeKey = scope + ":" + key;
+        String requestHash = fingerprint(request);
+        long now = clock.millis();
+
+        Entry existing = recent.putIfAbsent(storeKey, Entry.pending(requestHash, now), now,
+                now + pendingTimeout.toMillis());
+        if (existing == null) {
+            existing = claim(storeKey, requestHash, now);
+            if (existing != null && existing.pending()) {
+                // Another replica is running it; don't shadow its claim with ours
+                recent.remove(storeKey);
+            }
+        }
+        if (existing != null) {
+            return replay(scope, storeKey, existing, requestHash);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(storeKey);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            release(storeKey);
+            return response;
+        }
+        complete(scope, storeKey, requestHash, response);
+        return response;
+    }
+
+    /**
+     * Remove keys past their time to live
+     */
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval:PT5M}")
+    public void purgeExpired() {
+        long now = clock.millis();
+        recent.removeExpired(now);
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, now);
+        } while (deleted == 1000);
+    }
+
+    /**
+     * Claim the key in the shared table
+     *
+     * @return null when this request owns the key, otherwise the entry of the request that does
+     */
+    private Entry claim(String storeKey, String requestHash, long now) {
+        long claimExpiry = now + ttl.toMillis();
+        try {
+            jdbcTemplate.update(INSERT_SQL, storeKey, requestHash, now, claimExpiry);
+            return null;
+        } catch (DuplicateKeyException e) {
+            Entry stored = load(storeKey, now);
+            long staleClaim = stored != null ? stored.claimedAt() : -1;
+            if (stored == null || stored.pending() && staleClaim < now - pendingTimeout.toMillis()) {
+                // Expired, or left behind by an instance that never finished: take it over
+                int taken = jdbcTemplate.update(TAKE_OVER_SQL, requestHash, now, claimExpiry, storeKey, staleClaim, now);
+                return taken == 1 ? null : Entry.pending(requestHash, now);
+            }
+            if (stored.completed()) {
+                recent.put(storeKey, stored, now + ttl.toMillis());
+            }
+            return stored;
+        } catch (DataAccessException e) {
+            // The table is unavailable: fall back to this instance's own memory
+            log.warn("Idempotency store unavailable, deduplicating {} locally only: {}", storeKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private Entry load(String storeKey, long now) {
+        List<Entry> rows = jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> {
+            int statusCode = rs.getInt("status_code");
+            return new Entry(rs.getString("request_hash"), rs.wasNull() ? 0 : statusCode,
+                    rs.getBytes("response_body"), rs.getLong("claimed_at"));
+        }, storeKey, now);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    private ResponseEntity<?> replay(String scope, String storeKey, Entry entry, String requestHash) {
+        if (!entry.requestHash().equals(requestHash)) {
+            count(scope, "mismatch");
+            throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+        }
+        if (entry.pending()) {
+            count(scope, "in_progress");
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is still being processed");
+        }
+        count(scope, "replayed");
+        log.debug("Replaying stored response for {}", storeKey);
+        return ResponseEntity.status(entry.statusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(entry.responseBody());
+    }
+
+    private void complete(String scope, String storeKey, String requestHash, ResponseEntity<?> response) {
+        long now = clock.millis();
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(response.getBody());
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to store response for {}: {}", storeKey, e.getMessage());
+            release(storeKey);
+            return;
+        }
+        Entry completed = new Entry(requestHash, response.getStatusCode().value(), body, now);
+        recent.put(storeKey, completed, now + ttl.toMillis());
+        try {
+            jdbcTemplate.update(COMPLETE_SQL, completed.statusCode(), body, now + ttl.toMillis(), storeKey);
+        } catch (DataAccessException e) {
+            log.warn("Failed to persist response for {}: {}", storeKey, e.getMessage());
+        }
+        count(scope, "executed");
+    }
+
+    private void release(String storeKey) {
+        recent.remove(storeKey);
+        try {
+            jdbcTemplate.update(RELEASE_SQL, storeKey);
+        } catch (DataAccessException e) {
+            log.warn("Failed to release {}: {}", storeKey, e.getMessage());
+        }
+    }
+
+    private void count(String scope, String result) {
+        meterRegistry.counter("garbaking_idempotency_requests_total", "scope", scope, "result", result).increment();
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to fingerprint request", e);
+        }
+    }
+
+    /**
+     * Claim or stored response of one key; statusCode 0 while the first request is running
+     */
+    record Entry(String requestHash, int statusCode, byte[] responseBody, long claimedAt) {
+
+        static Entry pending(String requestHash, long claimedAt) {
+            return new Entry(requestHash, 0, null, claimedAt);
+        }
+
+        boolean pending() {
+            return statusCode == 0;
+        }
+
+        boolean completed() {
+            return statusCode != 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * IdempotencyRecord Entity
+ *
+ * Idempotency-Key of a recent mutating request and, once it has succeeded, the response to replay.
+ * Written with plain JDBC by IdempotencyService; mapped here so the schema update creates the table.
+ */
+@Entity
+@Table(name = IdempotencyRecord.TABLE, indexes = {
+        @Index(name = "idx_idempotency_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public static final String TABLE = "idempotency_keys";
+
+    /**
+     * Endpoint scope and client key, e.g. "order-create:9b2c..."
+     */
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 of the request body, so a key reused for a different request is rejected
+     */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * HTTP status of the stored response; null while the first request is still running
+     */
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    /**
+     * Response body as sent, JSON
+     */
+    @Lob
+    @Column(name = "response_body", columnDefinition = "MEDIUMBLOB")
+    private byte[] responseBody;
+
+    /**
+     * When the first request claimed the key, epoch millis
+     */
+    @Column(name = "claimed_at", nullable = false)
+    private Long claimedAt;
+
+    /**
+     * When the key may be forgotten, epoch millis
+     */
+    @Column(name = "expires_at", nullable = false)
+    private Long expiresAt;
+}
@@ -0,0 +1,61 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * MenuItemSalesRollup Entity
+ *
+ * Pre-aggregated quantity and revenue per menu item for one hour or one day.
+ */
+@Entity
+@Table(name = "menu_item_sales_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_menu_item_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "menu_item_id"})
+}, indexes = {
+        @Index(name = "idx_menu_item_rollup_range", columnList = "granularity, bucket_start")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuItemSalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private SalesRollup.Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(name = "menu_item_id", nullable = false)
+    private Long menuItemId;
+
+    @Column(name = "menu_item_name", length = 100)
+    private String menuItemName;
+
+    @Column(name = "menu_item_sku", length = 50)
+    private String menuItemSku;
+
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    /**
+     * Number of orders containing the item
+     */
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+}
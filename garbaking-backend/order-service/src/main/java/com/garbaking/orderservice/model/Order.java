@@ -27,7 +27,8 @@ import java.util.List;
         @Index(name = "idx_order_type", columnList = "orderType"),
         @Index(name = "idx_order_payment_status", columnList = "paymentStatus"),
         @Index(name = "idx_order_created_at", columnList = "createdAt"),
-        @Index(name = "idx_order_user_created", columnList = "userId, createdAt")
+        @Index(name = "idx_order_user_created", columnList = "userId, createdAt"),
+        @Index(name = "idx_order_phone_created", columnList = "customerPhone, createdAt")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Data
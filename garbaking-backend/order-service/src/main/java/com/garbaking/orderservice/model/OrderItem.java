@@ -19,6 +19,8 @@ import java.time.LocalDateTime;
  *
  * Represents an item within an order.
  * Stores snapshot of menu item details at time of order.
+ * Ids come from a pooled table generator rather than AUTO_INCREMENT so the items of an
+ * order are inserted in one JDBC batch.
  */
 @Entity
 @Table(name = "order_items", indexes = {
@@ -33,8 +35,15 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class OrderItem {
 
+    public static final String ID_GENERATOR_TABLE = "id_generators";
+    public static final String ID_GENERATOR_SEGMENT = "order_items";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_item_id")
+    @TableGenerator(name = "order_item_id", table = ID_GENERATOR_TABLE,
+            pkColumnName = "sequence_name", valueColumnName = "next_val",
+            pkColumnValue = ID_GENERATOR_SEGMENT, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,40 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * OrderNumberSequence Entity
+ *
+ * High-water mark of the daily order number sequence.
+ * Replicas reserve blocks of numbers from it, so each day's sequence restarts at 1
+ * and numbers never collide across nodes.
+ */
+@Entity
+@Table(name = "order_number_sequences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderNumberSequence {
+
+    /**
+     * Business day the sequence belongs to
+     */
+    @Id
+    private LocalDate sequenceDate;
+
+    /**
+     * First value not yet handed out to any node
+     */
+    @Column(nullable = false)
+    private Long nextValue;
+}
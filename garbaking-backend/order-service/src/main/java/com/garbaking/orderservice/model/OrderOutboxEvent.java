@@ -0,0 +1,97 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * OrderOutboxEvent Entity
+ *
+ * Order lifecycle event written in the same transaction as the order change.
+ * Drained to Kafka by OrderOutboxRelay, so a rollback never leaves a published event behind
+ * and a slow broker never delays the order write. SalesRollupService consumes the same rows
+ * independently to maintain the analytics rollups.
+ */
+@Entity
+@Table(name = "order_outbox_events", indexes = {
+        @Index(name = "idx_outbox_event_id", columnList = "eventId", unique = true),
+        @Index(name = "idx_outbox_published_at", columnList = "publishedAt"),
+        @Index(name = "idx_outbox_rollup_applied_at", columnList = "rollupAppliedAt"),
+        @Index(name = "idx_outbox_order_id", columnList = "orderId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Unique event identifier, sent as the "event-id" header so consumers can de-duplicate redeliveries
+     */
+    @Column(nullable = false, unique = true, length = 36)
+    private String eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private EventType eventType;
+
+    /**
+     * Order the event belongs to, used as the Kafka record key to keep per-order ordering
+     */
+    @Column(nullable = false)
+    private Long orderId;
+
+    /**
+     * Serialized OrderDTO at the time of the change
+     */
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime publishedAt;
+
+    /**
+     * When the event was folded into the sales rollups
+     */
+    private LocalDateTime rollupAppliedAt;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(length = 500)
+    private String lastError;
+
+    /**
+     * Until when a relay instance holds the event for sending; another instance may take it over after
+     */
+    private LocalDateTime claimedUntil;
+
+    /**
+     * Earliest time a failed event is sent again (exponential backoff)
+     */
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * When the relay gave up on the event after order.outbox.max-attempts; parked events are left for an operator
+     */
+    private LocalDateTime parkedAt;
+
+    public enum EventType {
+        ORDER_CREATED,
+        ORDER_STATUS_CHANGED,
+        ORDER_PAYMENT_UPDATED,
+        ORDER_CANCELLED
+    }
+}
@@ -0,0 +1,51 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * OrderRollupState Entity
+ *
+ * Last order snapshot folded into the sales rollups.
+ * Lets SalesRollupService turn each full-order event into a delta, ignore stale or
+ * redelivered events, and move counts between status and payment method buckets.
+ */
+@Entity
+@Table(name = "order_rollup_state")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderRollupState {
+
+    @Id
+    private Long orderId;
+
+    /**
+     * Order creation time, which decides the rollup bucket
+     */
+    @Column(nullable = false)
+    private LocalDateTime orderCreatedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Order.OrderStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private Order.PaymentMethod paymentMethod;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal totalAmount;
+
+    /**
+     * updatedAt of the snapshot that was applied last
+     */
+    private LocalDateTime sourceUpdatedAt;
+}
@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
         @Index(name = "idx_order_id", columnList = "orderId"),
         @Index(name = "idx_nonce", columnList = "nonce"),
         @Index(name = "idx_short_code", columnList = "shortCode"),
+        @Index(name = "idx_retired_short_code", columnList = "retiredShortCode"),
         @Index(name = "idx_expires_at", columnList = "expiresAt"),
         @Index(name = "idx_is_used", columnList = "isUsed")
 })
@@ -61,10 +62,18 @@ public class PaymentQRToken {
      * Short code fallback (6-8 characters)
      * Format: "QR{6 alphanumeric chars}"
      * For manual entry when camera unavailable
+     * Cleared once the token is long expired, so the code can be issued again (see ShortCodeAllocator)
      */
-    @Column(nullable = false, unique = true, length = 8)
+    @Column(unique = true, length = 8)
     private String shortCode;
 
+    /**
+     * Short code this token held before it was cleared
+     * Not unique: lets a scan of a long-expired code still be reported as expired rather than invalid
+     */
+    @Column(length = 8)
+    private String retiredShortCode;
+
     /**
      * SHA-256 hash of the full JWT token
      * Stored for additional verification
@@ -0,0 +1,52 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * QRScanDailyStats Entity
+ *
+ * Daily counts of QR scan audit records per action and status, kept after the
+ * detailed qr_scan_audit_log rows are purged by QRRetentionService.
+ */
+@Entity
+@Table(name = "qr_scan_daily_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_qr_scan_daily_stats", columnNames = {"day", "action", "status"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QRScanDailyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "action", nullable = false, length = 20)
+    private String action;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "scan_count", nullable = false)
+    private Long scanCount;
+
+    /**
+     * Sum of processing times, for averages
+     */
+    @Column(name = "total_processing_ms", nullable = false)
+    private Long totalProcessingMs;
+
+    @Column(name = "payment_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal paymentAmount;
+}
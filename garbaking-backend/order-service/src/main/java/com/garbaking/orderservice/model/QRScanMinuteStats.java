@@ -0,0 +1,102 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * QRScanMinuteStats Entity
+ *
+ * Per-minute totals of QR operations (scan, short-code scan, payment confirmation) by status
+ * and payment method, with a latency histogram so percentiles can be estimated for any range.
+ * Written by QRScanMetrics; replaces aggregate queries over qr_scan_audit_log.
+ */
+@Entity
+@Table(name = "qr_scan_minute_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_qr_scan_minute_stats",
+                columnNames = {"minute_start", "operation", "status", "payment_method"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QRScanMinuteStats {
+
+    /**
+     * Upper bounds of the latency histogram buckets, in milliseconds; a last bucket takes the rest
+     */
+    public static final long[] LATENCY_BUCKETS_MS = {10, 50, 100, 250, 500, 1000, 5000};
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "minute_start", nullable = false)
+    private LocalDateTime minuteStart;
+
+    /**
+     * scan, short_code_scan or confirm
+     */
+    @Column(name = "operation", nullable = false, length = 20)
+    private String operation;
+
+    /**
+     * SUCCESS or the error code of the attempt
+     */
+    @Column(name = "status", nullable = false, length = 30)
+    private String status;
+
+    /**
+     * Payment method of successful confirmations, empty otherwise
+     */
+    @Column(name = "payment_method", nullable = false, length = 20)
+    private String paymentMethod;
+
+    @Column(name = "operation_count", nullable = false)
+    private Long operationCount;
+
+    @Column(name = "total_processing_ms", nullable = false)
+    private Long totalProcessingMs;
+
+    @Column(name = "max_processing_ms", nullable = false)
+    private Long maxProcessingMs;
+
+    @Column(name = "payment_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal paymentAmount;
+
+    @Column(name = "le_10ms", nullable = false)
+    private Long le10ms;
+
+    @Column(name = "le_50ms", nullable = false)
+    private Long le50ms;
+
+    @Column(name = "le_100ms", nullable = false)
+    private Long le100ms;
+
+    @Column(name = "le_250ms", nullable = false)
+    private Long le250ms;
+
+    @Column(name = "le_500ms", nullable = false)
+    private Long le500ms;
+
+    @Column(name = "le_1000ms", nullable = false)
+    private Long le1000ms;
+
+    @Column(name = "le_5000ms", nullable = false)
+    private Long le5000ms;
+
+    @Column(name = "gt_5000ms", nullable = false)
+    private Long gt5000ms;
+
+    /**
+     * Histogram counts in LATENCY_BUCKETS_MS order, overflow last
+     */
+    public long[] latencyBuckets() {
+        return new long[]{le10ms, le50ms, le100ms, le250ms, le500ms, le1000ms, le5000ms, gt5000ms};
+    }
+}
@@ -0,0 +1,46 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * RateLimitBucket Entity
+ *
+ * Fixed-window request counter shared by all replicas.
+ * Written with plain JDBC by JdbcRateLimitStore; mapped here so the schema update creates the table.
+ */
+@Entity
+@Table(name = RateLimitBucket.TABLE, indexes = {
+        @Index(name = "idx_rate_limit_window_end", columnList = "window_end")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitBucket {
+
+    public static final String TABLE = "rate_limit_buckets";
+
+    /**
+     * Action, dimension and value, e.g. "scan:device:POS-001"
+     */
+    @Id
+    @Column(name = "bucket_key", length = 200)
+    private String bucketKey;
+
+    /**
+     * Start of the current window, epoch millis
+     */
+    @Column(name = "window_start", nullable = false)
+    private Long windowStart;
+
+    /**
+     * End of the current window, epoch millis; the row can be purged afterwards
+     */
+    @Column(name = "window_end", nullable = false)
+    private Long windowEnd;
+
+    @Column(name = "request_count", nullable = false)
+    private Long requestCount;
+}
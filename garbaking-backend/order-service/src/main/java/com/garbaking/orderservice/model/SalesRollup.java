@@ -0,0 +1,79 @@
+package com.garbaking.orderservice.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * SalesRollup Entity
+ *
+ * Pre-aggregated order totals for one hour or one day, broken down by a single dimension
+ * (overall total, payment method, order type or status).
+ * Maintained incrementally from order events by SalesRollupService.
+ */
+@Entity
+@Table(name = "sales_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sales_rollup_bucket",
+                columnNames = {"granularity", "bucket_start", "dimension", "dimension_value"})
+}, indexes = {
+        @Index(name = "idx_sales_rollup_range", columnList = "granularity, bucket_start")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private Granularity granularity;
+
+    /**
+     * Start of the hour or day covered by this row
+     */
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "dimension", nullable = false, length = 20)
+    private Dimension dimension;
+
+    /**
+     * Enum name of the dimension value, empty for TOTAL
+     */
+    @Column(name = "dimension_value", nullable = false, length = 30)
+    private String dimensionValue;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "revenue", nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "tax_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal taxAmount;
+
+    @Column(name = "discount_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal discountAmount;
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    public enum Dimension {
+        TOTAL,
+        PAYMENT_METHOD,
+        ORDER_TYPE,
+        STATUS
+    }
+}
@@ -4,11 +4,14 @@ import com.garbaking.common.observability.AlertEvent;
 import com.garbaking.common.observability.AlertPublisher;
 import com.garbaking.common.observability.AlertSeverity;
 import com.garbaking.common.observability.ObservabilityProperties;
+import com.garbaking.orderservice.dto.OrderDTO;
 import com.garbaking.orderservice.model.Order;
 import com.garbaking.orderservice.repository.OrderRepository;
+import com.garbaking.orderservice.service.ActiveOrderIndex;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.binder.MeterBinder;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -31,15 +34,18 @@ public class OrderMetricsBinder implements MeterBinder {
     private final OrderRepository orderRepository;
     private final ObservabilityProperties properties;
     private final AlertPublisher alertPublisher;
+    private final ActiveOrderIndex activeOrderIndex;
 
     public OrderMetricsBinder(
             OrderRepository orderRepository,
             ObservabilityProperties properties,
-            AlertPublisher alertPublisher
+            AlertPublisher alertPublisher,
+            ActiveOrderIndex activeOrderIndex
     ) {
         this.orderRepository = orderRepository;
         this.properties = properties;
         this.alertPublisher = alertPublisher;
+        this.activeOrderIndex = activeOrderIndex;
     }
 
     @Override
@@ -50,8 +56,19 @@ public class OrderMetricsBinder implements MeterBinder {
 
     @Scheduled(fixedDelayString = "${garbaking.observability.alerts.evaluation-interval:PT5M}")
     public void refreshMetrics() {
-        int backlogCount = Math.toIntExact(orderRepository.countByStatusIn(BACKLOG_STATUSES));
-        int pendingPaymentCount = orderRepository.findPendingPaymentOrders().size();
+        int backlogCount;
+        int pendingPaymentCount;
+        Optional<List<OrderDTO>> activeOrders = activeOrderIndex.activeOrders();
+        if (activeOrders.isPresent()) {
+            // Both figures only involve active orders, which the index holds in memory
+            backlogCount = Math.toIntExact(activeOrderIndex.countByStatusIn(BACKLOG_STATUSES));
+            pendingPaymentCount = (int) activeOrders.get().stream()
+                    .filter(order -> order.getPaymentStatus() == Order.PaymentStatus.PENDING)
+                    .count();
+        } else {
+            backlogCount = Math.toIntExact(orderRepository.countByStatusIn(BACKLOG_STATUSES));
+            pendingPaymentCount = orderRepository.findPendingPaymentOrders().size();
+        }
 
         backlogOrders.set(backlogCount);
         pendingPayments.set(pendingPaymentCount);
@@ -0,0 +1,219 @@
+package com.garbaking.orderservice.observability;
+
+import com.garbaking.orderservice.model.QRScanMinuteStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * QR Scan Metrics
+ *
+ * Records every QR scan, short-code scan and payment confirmation outcome twice: in a Micrometer
+ * timer (garbaking_qr_operation, tagged by operation, outcome and error code, with percentiles)
+ * for live monitoring, and in per-minute accumulators that are upserted into qr_scan_minute_stats
+ * for the historical view. A minute is flushed once it is over, in a single upsert.
+ */
+@Component
+@Slf4j
+public class QRScanMetrics {
+
+    static final String UPSERT_SQL = "INSERT INTO qr_scan_minute_stats (minute_start, operation, status, payment_method, " +
+            "operation_count, total_processing_ms, max_processing_ms, payment_amount, " +
+            "le_10ms, le_50ms, le_100ms, le_250ms, le_500ms, le_1000ms, le_5000ms, gt_5000ms) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE operation_count = operation_count + VALUES(operation_count), " +
+            "total_processing_ms = total_processing_ms + VALUES(total_processing_ms), " +
+            "max_processing_ms = GREATEST(max_processing_ms, VALUES(max_processing_ms)), " +
+            "payment_amount = payment_amount + VALUES(payment_amount), " +
+            "le_10ms = le_10ms + VALUES(le_10ms), le_50ms = le_50ms + VALUES(le_50ms), " +
+            "le_100ms = le_100ms + VALUES(le_100ms), le_250ms = le_250ms + VALUES(le_250ms), " +
+            "le_500ms = le_500ms + VALUES(le_500ms), le_1000ms = le_1000ms + VALUES(le_1000ms), " +
+            "le_5000ms = le_5000ms + VALUES(le_5000ms), gt_5000ms = gt_5000ms + VALUES(gt_5000ms)";
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final Map<MinuteKey, MinuteAccumulator> minutes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QRScanMetrics(MeterRegistry meterRegistry, JdbcTemplate jdbcTemplate) {
+        this(meterRegistry, jdbcTemplate, Clock.systemDefaultZone());
+    }
+
+    QRScanMetrics(MeterRegistry meterRegistry, JdbcTemplate jdbcTemplate, Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    /**
+     * Record the outcome of one QR operation
+     *
+     * @param operation Which endpoint handled it
+     * @param status SUCCESS or the error code
+     * @param paymentMethod Payment method of a successful confirmation, otherwise null
+     * @param paymentAmount Amount of a successful confirmation, otherwise null
+     * @param processingTimeMs Time spent handling the request
+     */
+    public void record(Operation operation, String status, String paymentMethod,
+                       BigDecimal paymentAmount, long processingTimeMs) {
+        boolean success = SUCCESS.equals(status);
+        Timer.builder("garbaking_qr_operation")
+                .description("QR payment operations by outcome")
+                .tag("operation", operation.tagValue())
+                .tag("outcome", success ? "success" : "failure")
+                .tag("error_code", success ? "none" : status)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(processingTimeMs, TimeUnit.MILLISECONDS);
+
+        LocalDateTime minute = LocalDateTime.now(clock).truncatedTo(ChronoUnit.MINUTES);
+        MinuteKey key = new MinuteKey(minute, operation.tagValue(), status, paymentMethod != null ? paymentMethod : "");
+        minutes.computeIfAbsent(key, ignored -> new MinuteAccumulator())
+                .add(processingTimeMs, paymentAmount);
+    }
+
+    /**
+     * Persist minutes that ended at least a minute ago, leaving in-flight recordings time to land
+     */
+    @Scheduled(fixedDelayString = "${qr.metrics.flush-interval:PT1M}")
+    public void flush() {
+        flushBefore(LocalDateTime.now(clock).truncatedTo(ChronoUnit.MINUTES).minusMinutes(1));
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushBefore(LocalDateTime.MAX);
+    }
+
+    private void flushBefore(LocalDateTime cutoff) {
+        List<Map.Entry<MinuteKey, MinuteAccumulator>> finished = new ArrayList<>();
+        for (MinuteKey key : minutes.keySet()) {
+            if (key.minute().isBefore(cutoff)) {
+                MinuteAccumulator accumulator = minutes.remove(key);
+                if (accumulator != null) {
+                    finished.add(Map.entry(key, accumulator));
+                }
+            }
+        }
+        if (finished.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, finished, finished.size(), (ps, entry) -> {
+                MinuteKey key = entry.getKey();
+                MinuteAccumulator accumulator = entry.getValue();
+                ps.setTimestamp(1, Timestamp.valueOf(key.minute()));
+                ps.setString(2, key.operation());
+                ps.setString(3, key.status());
+                ps.setString(4, key.paymentMethod());
+                ps.setLong(5, accumulator.count.sum());
+                ps.setLong(6, accumulator.totalMs.sum());
+                ps.setLong(7, accumulator.maxMs.get());
+                ps.setBigDecimal(8, accumulator.amount());
+                for (int i = 0; i < accumulator.buckets.length; i++) {
+                    ps.setLong(9 + i, accumulator.buckets[i].sum());
+                }
+            });
+        } catch (DataAccessException e) {
+            // Counts are added on conflict, so re-queue them for the next flush
+            log.warn("Failed to persist {} QR minute stat(s), will retry: {}", finished.size(), e.getMessage());
+            finished.forEach(entry -> minutes.merge(entry.getKey(), entry.getValue(), MinuteAccumulator::merge));
+        }
+    }
+
+    int pendingMinutes() {
+        return minutes.size();
+    }
+
+    public enum Operation {
+        SCAN("scan"),
+        SHORT_CODE_SCAN("short_code_scan"),
+        CONFIRM("confirm");
+
+        private final String tagValue;
+
+        Operation(String tagValue) {
+            this.tagValue = tagValue;
+        }
+
+        public String tagValue() {
+            return tagValue;
+        }
+    }
+
+    private record MinuteKey(LocalDateTime minute, String operation, String status, String paymentMethod) {
+    }
+
+    private static final class MinuteAccumulator {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMs = new LongAdder();
+        private final AtomicLong maxMs = new AtomicLong();
+        private final LongAdder amountCents = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[QRScanMinuteStats.LATENCY_BUCKETS_MS.length + 1];
+
+        private MinuteAccumulator() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void add(long processingTimeMs, BigDecimal paymentAmount) {
+            count.increment();
+            totalMs.add(processingTimeMs);
+            maxMs.accumulateAndGet(processingTimeMs, Math::max);
+            if (paymentAmount != null) {
+                amountCents.add(paymentAmount.movePointRight(2).longValue());
+            }
+            buckets[bucketIndex(processingTimeMs)].increment();
+        }
+
+        BigDecimal amount() {
+            return BigDecimal.valueOf(amountCents.sum(), 2);
+        }
+
+        MinuteAccumulator merge(MinuteAccumulator other) {
+            count.add(other.count.sum());
+            totalMs.add(other.totalMs.sum());
+            maxMs.accumulateAndGet(other.maxMs.get(), Math::max);
+            amountCents.add(other.amountCents.sum());
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i].add(other.buckets[i].sum());
+            }
+            return this;
+        }
+
+        private static int bucketIndex(long processingTimeMs) {
+            long[] bounds = QRScanMinuteStats.LATENCY_BUCKETS_MS;
+            for (int i = 0; i < bounds.length; i++) {
+                if (processingTimeMs <= bounds[i]) {
+                    return i;
+                }
+            }
+            return bounds.length;
+        }
+    }
+}
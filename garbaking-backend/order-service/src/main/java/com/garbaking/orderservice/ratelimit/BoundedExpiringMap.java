@@ -0,0 +1,77 @@
+package com.garbaking.orderservice.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Size- and time-bounded map: entries expire at their own deadline, and once full the least
+ * recently used entry is evicted, so memory stays flat however many keys callers invent.
+ * Also holds recent idempotency keys (see IdempotencyService).
+ */
+public final class BoundedExpiringMap<V> {
+
+    private final LinkedHashMap<String, Expiring<V>> entries;
+
+    public BoundedExpiringMap(int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Expiring<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(String key, long nowMillis) {
+        Expiring<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= nowMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(String key, V value, long expiresAtMillis) {
+        entries.put(key, new Expiring<>(value, expiresAtMillis));
+    }
+
+    /**
+     * Replace the live value of a key (null when absent or expired) with the updater's result
+     */
+    public synchronized V update(String key, long nowMillis, long expiresAtMillis, UnaryOperator<V> updater) {
+        V next = updater.apply(get(key, nowMillis));
+        entries.put(key, new Expiring<>(next, expiresAtMillis));
+        return next;
+    }
+
+    /**
+     * Store the value unless the key already has a live one
+     *
+     * @return The live value already stored, or null when this value was stored
+     */
+    public synchronized V putIfAbsent(String key, V value, long nowMillis, long expiresAtMillis) {
+        V current = get(key, nowMillis);
+        if (current == null) {
+            entries.put(key, new Expiring<>(value, expiresAtMillis));
+        }
+        return current;
+    }
+
+    public synchronized void remove(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized void removeExpired(long nowMillis) {
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= nowMillis);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Expiring<V>(V value, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.garbaking.orderservice.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory Rate Limit Store
+ *
+ * Per-instance counters in a bounded, expiring map. Used for single-instance deployments and
+ * tests (security.rate-limit.backend=local); limits are not shared between replicas.
+ */
+@Component
+@ConditionalOnProperty(name = "security.rate-limit.backend", havingValue = "local")
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final BoundedExpiringMap<Window> windows;
+
+    public InMemoryRateLimitStore(@Value("${security.rate-limit.max-keys:100000}") int maxKeys) {
+        this.windows = new BoundedExpiringMap<>(maxKeys);
+    }
+
+    @Override
+    public long increment(String key, long windowStartMillis, long windowEndMillis) {
+        // Judged on the caller's clock, which the window was cut from
+        return windows.update(key, windowStartMillis, windowEndMillis, window ->
+                window != null && window.startMillis() == windowStartMillis
+                        ? new Window(windowStartMillis, window.count() + 1)
+                        : new Window(windowStartMillis, 1)).count();
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:PT1M}")
+    public void sweep() {
+        windows.removeExpired(System.currentTimeMillis());
+    }
+
+    int size() {
+        return windows.size();
+    }
+
+    private record Window(long startMillis, long count) {
+    }
+}
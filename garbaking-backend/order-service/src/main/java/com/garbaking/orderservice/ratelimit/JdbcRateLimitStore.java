@@ -0,0 +1,75 @@
+package com.garbaking.orderservice.ratelimit;
+
+import com.garbaking.orderservice.model.RateLimitBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * JDBC Rate Limit Store
+ *
+ * Counters in the rate_limit_buckets table, shared by every replica. Each request is one upsert
+ * that either starts a new window or increments the current one; the new count comes back
+ * through LAST_INSERT_ID on the same connection. Lapsed windows are purged in chunks.
+ */
+@Component
+@ConditionalOnProperty(name = "security.rate-limit.backend", havingValue = "jdbc", matchIfMissing = true)
+@Slf4j
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private static final String UPSERT_SQL = "INSERT INTO " + RateLimitBucket.TABLE +
+            " (bucket_key, window_start, window_end, request_count) VALUES (?, ?, ?, 1) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "request_count = LAST_INSERT_ID(IF(window_start = VALUES(window_start), request_count + 1, 1)), " +
+            "window_end = VALUES(window_end), window_start = VALUES(window_start)";
+
+    private static final String PURGE_SQL = "DELETE FROM " + RateLimitBucket.TABLE +
+            " WHERE window_end < ? LIMIT 1000";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcRateLimitStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public long increment(String key, long windowStartMillis, long windowEndMillis) {
+        Long count = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            int affected;
+            try (PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL)) {
+                upsert.setString(1, key);
+                upsert.setLong(2, windowStartMillis);
+                upsert.setLong(3, windowEndMillis);
+                affected = upsert.executeUpdate();
+            }
+            if (affected == 1) {
+                // Inserted: first request of a new key
+                return 1L;
+            }
+            try (PreparedStatement lastValue = connection.prepareStatement("SELECT LAST_INSERT_ID()");
+                 ResultSet resultSet = lastValue.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        });
+        return count != null ? count : 1;
+    }
+
+    /**
+     * Remove counters whose window has ended
+     */
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:PT1M}")
+    public void purgeLapsedWindows() {
+        long now = System.currentTimeMillis();
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(PURGE_SQL, now);
+        } while (deleted == 1000);
+    }
+}
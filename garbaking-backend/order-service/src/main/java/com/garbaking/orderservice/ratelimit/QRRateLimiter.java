@@ -0,0 +1,136 @@
+package com.garbaking.orderservice.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * QR Rate Limiter
+ *
+ * Limits QR scans and payment confirmations per device, per user and per client IP, using
+ * fixed windows counted in a {@link RateLimitStore}. A request must fit every limit that applies
+ * to it. Keys that are over their limit are remembered locally until their window ends, so a
+ * client hammering the endpoint is turned away without touching the store.
+ */
+@Component
+@Slf4j
+public class QRRateLimiter {
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    private final RateLimitStore store;
+    private final Clock clock;
+    private final Map<Action, Limits> limits = new EnumMap<>(Action.class);
+    private final Map<Action, Counter> rejectedCounters = new EnumMap<>(Action.class);
+    private final BoundedExpiringMap<Boolean> deniedKeys;
+
+    @Autowired
+    public QRRateLimiter(
+            RateLimitStore store,
+            MeterRegistry meterRegistry,
+            @Value("${security.rate-limit.qr-scan.requests:10}") int scanRequests,
+            @Value("${security.rate-limit.qr-scan.ip-requests:60}") int scanIpRequests,
+            @Value("${security.rate-limit.qr-scan.per-seconds:60}") int scanPeriod,
+            @Value("${security.rate-limit.qr-confirm.requests:5}") int confirmRequests,
+            @Value("${security.rate-limit.qr-confirm.ip-requests:30}") int confirmIpRequests,
+            @Value("${security.rate-limit.qr-confirm.per-seconds:60}") int confirmPeriod,
+            @Value("${security.rate-limit.max-keys:100000}") int maxKeys
+    ) {
+        this(store, meterRegistry, Clock.systemUTC(), maxKeys,
+                new Limits(scanRequests, scanIpRequests, scanPeriod * 1000L),
+                new Limits(confirmRequests, confirmIpRequests, confirmPeriod * 1000L));
+    }
+
+    QRRateLimiter(RateLimitStore store, MeterRegistry meterRegistry, Clock clock, int maxKeys,
+                  Limits scanLimits, Limits confirmLimits) {
+        this.store = store;
+        this.clock = clock;
+        this.deniedKeys = new BoundedExpiringMap<>(maxKeys);
+        limits.put(Action.SCAN, scanLimits);
+        limits.put(Action.CONFIRM, confirmLimits);
+        for (Action action : Action.values()) {
+            rejectedCounters.put(action, meterRegistry.counter("garbaking_qr_rate_limited_total",
+                    "action", action.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Count a request and tell whether it is within every applicable limit
+     *
+     * @param action Scan or confirmation
+     * @param deviceId Device from the request body
+     * @param user Authenticated user name, when known
+     * @param ipAddress Client address, when known
+     * @return true when the request may proceed
+     */
+    public boolean tryAcquire(Action action, String deviceId, String user, String ipAddress) {
+        Limits actionLimits = limits.get(action);
+        long now = clock.millis();
+        long windowStart = now - Math.floorMod(now, actionLimits.windowMillis());
+        long windowEnd = windowStart + actionLimits.windowMillis();
+
+        List<String> keys = new ArrayList<>(3);
+        List<Integer> maxima = new ArrayList<>(3);
+        addKey(keys, maxima, action, "device", deviceId, actionLimits.requests());
+        addKey(keys, maxima, action, "user", user, actionLimits.requests());
+        addKey(keys, maxima, action, "ip", ipAddress, actionLimits.ipRequests());
+
+        for (String key : keys) {
+            if (deniedKeys.get(key, now) != null) {
+                rejectedCounters.get(action).increment();
+                return false;
+            }
+        }
+
+        boolean allowed = true;
+        for (int i = 0; i < keys.size(); i++) {
+            long count;
+            try {
+                count = store.increment(keys.get(i), windowStart, windowEnd);
+            } catch (DataAccessException e) {
+                // Fail open: a store outage must not stop tills taking payments
+                log.warn("Rate limit store unavailable, skipping remaining limits: {}", e.getMessage());
+                break;
+            }
+            if (count > maxima.get(i)) {
+                deniedKeys.put(keys.get(i), Boolean.TRUE, windowEnd);
+                allowed = false;
+            }
+        }
+        if (!allowed) {
+            rejectedCounters.get(action).increment();
+        }
+        return allowed;
+    }
+
+    private static void addKey(List<String> keys, List<Integer> maxima, Action action,
+                               String dimension, String value, int max) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        String key = action.name().toLowerCase() + ':' + dimension + ':' + value;
+        keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        maxima.add(max);
+    }
+
+    public enum Action {
+        SCAN,
+        CONFIRM
+    }
+
+    /**
+     * Requests allowed per window for a device or user, and for a client IP
+     */
+    record Limits(int requests, int ipRequests, long windowMillis) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.garbaking.orderservice.ratelimit;
+
+/**
+ * Rate Limit Store
+ *
+ * Backend holding fixed-window request counters. {@link JdbcRateLimitStore} shares the counters
+ * between replicas; {@link InMemoryRateLimitStore} keeps them per instance.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Count one request against a key
+     *
+     * @param key Limit key, e.g. "scan:device:POS-001"
+     * @param windowStartMillis Start of the current window
+     * @param windowEndMillis End of the current window, after which the counter can be dropped
+     * @return Requests counted in this window, including this one
+     */
+    long increment(String key, long windowStartMillis, long windowEndMillis);
+}
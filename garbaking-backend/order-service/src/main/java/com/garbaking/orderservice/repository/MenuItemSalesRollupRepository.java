@@ -0,0 +1,59 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.MenuItemSalesRollup;
+import com.garbaking.orderservice.model.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for MenuItemSalesRollup entity
+ */
+@Repository
+public interface MenuItemSalesRollupRepository extends JpaRepository<MenuItemSalesRollup, Long> {
+
+    /**
+     * Find item rollup rows of one granularity whose bucket starts in [from, to)
+     * @param granularity HOUR or DAY
+     * @param from Inclusive lower bound
+     * @param to Exclusive upper bound
+     * @return Item rollup rows
+     */
+    @Query("SELECT r FROM MenuItemSalesRollup r WHERE r.granularity = :granularity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to")
+    List<MenuItemSalesRollup> findBuckets(
+            @Param("granularity") SalesRollup.Granularity granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    /**
+     * Add a delta to an item rollup row, creating it when missing
+     */
+    @Modifying
+    @Query(value = "INSERT INTO menu_item_sales_rollups " +
+            "(granularity, bucket_start, menu_item_id, menu_item_name, menu_item_sku, quantity, revenue, order_count) " +
+            "VALUES (:granularity, :bucketStart, :menuItemId, :menuItemName, :menuItemSku, :quantity, :revenue, :orderCount) " +
+            "ON DUPLICATE KEY UPDATE menu_item_name = VALUES(menu_item_name), " +
+            "menu_item_sku = VALUES(menu_item_sku), " +
+            "quantity = quantity + VALUES(quantity), " +
+            "revenue = revenue + VALUES(revenue), " +
+            "order_count = order_count + VALUES(order_count)",
+            nativeQuery = true)
+    void increment(
+            @Param("granularity") String granularity,
+            @Param("bucketStart") LocalDateTime bucketStart,
+            @Param("menuItemId") Long menuItemId,
+            @Param("menuItemName") String menuItemName,
+            @Param("menuItemSku") String menuItemSku,
+            @Param("quantity") long quantity,
+            @Param("revenue") BigDecimal revenue,
+            @Param("orderCount") long orderCount
+    );
+}
@@ -0,0 +1,30 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.OrderNumberSequence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Repository for OrderNumberSequence entity
+ *
+ * Row-locked access to the daily order number high-water mark.
+ */
+@Repository
+public interface OrderNumberSequenceRepository extends JpaRepository<OrderNumberSequence, LocalDate> {
+
+    /**
+     * Find the sequence row for a day and lock it until the transaction ends
+     * @param sequenceDate Business day
+     * @return Optional containing the sequence if it was already started
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OrderNumberSequence s WHERE s.sequenceDate = :sequenceDate")
+    Optional<OrderNumberSequence> findForUpdate(@Param("sequenceDate") LocalDate sequenceDate);
+}
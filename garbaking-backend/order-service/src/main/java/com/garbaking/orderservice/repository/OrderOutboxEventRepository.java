@@ -0,0 +1,122 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.OrderOutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for OrderOutboxEvent entity
+ *
+ * Provides batch access for the outbox relay and cleanup of published events.
+ */
+@Repository
+public interface OrderOutboxEventRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    /**
+     * Lock the oldest events due for relaying: unpublished, not parked, not claimed by a live lease
+     * and past their backoff. An event is only due once every earlier event of its order is
+     * published or parked, so an order's events reach Kafka in order.
+     * Rows locked by another replica are skipped (lock timeout -2 = SKIP LOCKED)
+     * @param now Current time, compared with leases and backoffs
+     * @param pageable Batch size
+     * @return Due events in insertion order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.publishedAt IS NULL AND e.parkedAt IS NULL " +
+           "AND (e.claimedUntil IS NULL OR e.claimedUntil < :now) " +
+           "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now) " +
+           "AND NOT EXISTS (SELECT earlier.id FROM OrderOutboxEvent earlier WHERE earlier.orderId = e.orderId " +
+           "AND earlier.id < e.id AND earlier.publishedAt IS NULL AND earlier.parkedAt IS NULL) " +
+           "ORDER BY e.id ASC")
+    List<OrderOutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Lease events to one relay instance until the given time
+     * @param ids Events to claim
+     * @param claimedUntil Lease expiry
+     * @return Number of events claimed
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.claimedUntil = :claimedUntil WHERE e.id IN :ids")
+    int claim(@Param("ids") List<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    /**
+     * Mark events published and end their lease
+     * @param ids Events acknowledged by the broker
+     * @param publishedAt Acknowledgement time
+     * @return Number of events marked
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.publishedAt = :publishedAt, e.claimedUntil = NULL WHERE e.id IN :ids")
+    int markPublished(@Param("ids") List<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    /**
+     * Record a failed send and end the event's lease
+     * @param id Event that failed
+     * @param lastError Failure message
+     * @param nextAttemptAt Earliest retry time
+     * @param parkedAt Set when the relay gives up on the event, null otherwise
+     * @return Number of events updated
+     */
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :lastError, " +
+           "e.nextAttemptAt = :nextAttemptAt, e.parkedAt = :parkedAt, e.claimedUntil = NULL WHERE e.id = :id")
+    int recordFailure(
+            @Param("id") Long id,
+            @Param("lastError") String lastError,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+            @Param("parkedAt") LocalDateTime parkedAt
+    );
+
+    /**
+     * Lock the oldest events not yet folded into the sales rollups.
+     * Rows locked by another replica are skipped (lock timeout -2 = SKIP LOCKED)
+     * @param pageable Batch size
+     * @return Unapplied events in insertion order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.rollupAppliedAt IS NULL ORDER BY e.id ASC")
+    List<OrderOutboxEvent> lockNextRollupBatch(Pageable pageable);
+
+    /**
+     * Count events still waiting to be published
+     * @return Outbox backlog
+     */
+    long countByPublishedAtIsNullAndParkedAtIsNull();
+
+    /**
+     * Count events the relay gave up on
+     * @return Parked events
+     */
+    long countByParkedAtIsNotNull();
+
+    /**
+     * Creation time of the oldest event still waiting to be published
+     * @return Oldest pending timestamp, or null when the outbox is drained
+     */
+    @Query("SELECT MIN(e.createdAt) FROM OrderOutboxEvent e WHERE e.publishedAt IS NULL AND e.parkedAt IS NULL")
+    LocalDateTime findOldestPendingCreatedAt();
+
+    /**
+     * Delete events published and folded into the rollups before the given date
+     * @param beforeDate Only delete events published before this date
+     * @return Number of records deleted
+     */
+    @Modifying
+    @Query("DELETE FROM OrderOutboxEvent e WHERE e.publishedAt IS NOT NULL AND e.publishedAt < :beforeDate " +
+           "AND e.rollupAppliedAt IS NOT NULL")
+    int deletePublishedBefore(@Param("beforeDate") LocalDateTime beforeDate);
+}
@@ -1,14 +1,21 @@
 package com.garbaking.orderservice.repository;
 
+import com.garbaking.orderservice.dto.OrderSummaryDTO;
+import com.garbaking.orderservice.dto.analytics.OrderExportRow;
 import com.garbaking.orderservice.model.Order;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Order Repository
@@ -30,10 +37,51 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByUserIdOrderByCreatedAtDesc(Long userId);
 
     /**
-     * Find orders by customer phone
+     * First page of a user's order summaries, newest first (reads idx_order_user_created)
      */
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.customerPhone = :customerPhone ORDER BY o.createdAt DESC")
-    List<Order> findByCustomerPhoneWithItems(@Param("customerPhone") String customerPhone);
+    @Query("SELECT new com.garbaking.orderservice.dto.OrderSummaryDTO(" +
+           "o.id, o.orderNumber, o.status, o.orderType, o.paymentStatus, o.paymentMethod, o.totalAmount, o.createdAt) " +
+           "FROM Order o WHERE o.userId = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Next page of a user's order summaries: orders strictly older than the (createdAt, id) cursor
+     */
+    @Query("SELECT new com.garbaking.orderservice.dto.OrderSummaryDTO(" +
+           "o.id, o.orderNumber, o.status, o.orderType, o.paymentStatus, o.paymentMethod, o.totalAmount, o.createdAt) " +
+           "FROM Order o WHERE o.userId = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryDTO> findSummariesByUserIdBefore(
+            @Param("userId") Long userId,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * First page of order IDs for a customer phone, newest first (reads idx_order_phone_created)
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.customerPhone = :customerPhone ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findIdsByCustomerPhone(@Param("customerPhone") String customerPhone, Pageable pageable);
+
+    /**
+     * Next page of order IDs for a customer phone: orders strictly older than the (createdAt, id) cursor
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.customerPhone = :customerPhone " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Long> findIdsByCustomerPhoneBefore(
+            @Param("customerPhone") String customerPhone,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Count orders by customer phone
+     */
+    long countByCustomerPhone(String customerPhone);
 
     /**
      * Find orders by status
@@ -88,6 +136,12 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.status NOT IN ('COMPLETED', 'CANCELLED') ORDER BY o.createdAt DESC")
     List<Order> findActiveOrders();
 
+    /**
+     * Find active orders with items eagerly loaded
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.status NOT IN ('COMPLETED', 'CANCELLED') ORDER BY o.createdAt DESC")
+    List<Order> findActiveOrdersWithItems();
+
     /**
      * Find orders with items
      */
@@ -155,6 +209,56 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status IN :statuses")
     long countByStatusIn(@Param("statuses") List<Order.OrderStatus> statuses);
 
+    /**
+     * Count distinct customers (email, then phone, then name) among orders created in a range
+     */
+    @Query("SELECT COUNT(DISTINCT COALESCE(o.customerEmail, o.customerPhone, " +
+           "CONCAT('customer-', COALESCE(o.customerName, 'unknown')))) " +
+           "FROM Order o WHERE o.createdAt BETWEEN :start AND :end")
+    long countDistinctCustomers(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Find IDs of orders that were never folded into the sales rollups
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.id > :afterId " +
+           "AND NOT EXISTS (SELECT s.orderId FROM OrderRollupState s WHERE s.orderId = o.id) ORDER BY o.id ASC")
+    List<Long> findIdsWithoutRollupState(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Stream export rows for orders created in a range, oldest first.
+     * Fetch size Integer.MIN_VALUE makes MySQL Connector/J stream rows one by one
+     * instead of buffering the whole result set. Must be consumed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT new com.garbaking.orderservice.dto.analytics.OrderExportRow(" +
+           "o.orderNumber, o.status, o.totalAmount, o.paymentMethod, o.createdAt) " +
+           "FROM Order o WHERE o.createdAt BETWEEN :start AND :end ORDER BY o.createdAt ASC, o.id ASC")
+    Stream<OrderExportRow> streamExportRows(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Stream export rows with one row per line item (orders without items keep a single row)
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT new com.garbaking.orderservice.dto.analytics.OrderExportRow(" +
+           "o.orderNumber, o.status, o.totalAmount, o.paymentMethod, o.createdAt, " +
+           "i.menuItemId, i.menuItemName, i.menuItemSku, i.quantity, i.unitPrice, i.subtotal) " +
+           "FROM Order o LEFT JOIN o.items i WHERE o.createdAt BETWEEN :start AND :end " +
+           "ORDER BY o.createdAt ASC, o.id ASC, i.id ASC")
+    Stream<OrderExportRow> streamExportRowsWithItems(@Param("start") LocalDateTime start,
+                                                     @Param("end") LocalDateTime end);
+
+    /**
+     * Find orders by IDs with items eagerly loaded
+     */
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
     /**
      * Find orders created after a specific date with items eagerly loaded
      */
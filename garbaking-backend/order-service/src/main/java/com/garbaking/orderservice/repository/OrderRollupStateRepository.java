@@ -0,0 +1,28 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.OrderRollupState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for OrderRollupState entity
+ */
+@Repository
+public interface OrderRollupStateRepository extends JpaRepository<OrderRollupState, Long> {
+
+    /**
+     * Lock the rollup state of the given orders until the transaction ends
+     * @param orderIds Order IDs
+     * @return Existing states (orders never applied are absent)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM OrderRollupState s WHERE s.orderId IN :orderIds")
+    List<OrderRollupState> findAllForUpdate(@Param("orderIds") Collection<Long> orderIds);
+}
@@ -2,9 +2,11 @@ package com.garbaking.orderservice.repository;
 
 import com.garbaking.orderservice.model.PaymentQRToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +28,48 @@ public interface PaymentQRTokenRepository extends JpaRepository<PaymentQRToken,
      */
     Optional<PaymentQRToken> findByTokenId(String tokenId);
 
+    /**
+     * Mark a token used if it is still unused and unexpired, in a single statement
+     * Concurrent consumers of the same token serialise on the row; only one sees a row updated
+     * @param tokenId The JWT token identifier (jti claim)
+     * @param userId User confirming payment
+     * @param deviceId Device confirming payment
+     * @param now Consumption time, also the expiry cut-off
+     * @return 1 if this call consumed the token, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE PaymentQRToken t SET t.isUsed = true, t.usedAt = :now, t.usedByUserId = :userId, " +
+           "t.usedByDeviceId = :deviceId, t.updatedAt = :now " +
+           "WHERE t.tokenId = :tokenId AND t.isUsed = false AND t.expiresAt > :now")
+    int consumeToken(
+            @Param("tokenId") String tokenId,
+            @Param("userId") Long userId,
+            @Param("deviceId") String deviceId,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Bind a pre-minted token (see QRTokenPool) to an order, in a single statement
+     * Only rows still unbound (order_id = 0) are taken, so a pooled token is bound at most once
+     * @param tokenId The pre-minted token identifier
+     * @param orderId Order the token is issued for
+     * @param tokenHash SHA-256 hash of the signed JWT
+     * @param issuedAt Issue time, replacing the mint time
+     * @param expiresAt Expiry of the signed JWT
+     * @return 1 if the token was bound, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE PaymentQRToken t SET t.orderId = :orderId, t.tokenHash = :tokenHash, t.issuedAt = :issuedAt, " +
+           "t.expiresAt = :expiresAt, t.updatedAt = :issuedAt " +
+           "WHERE t.tokenId = :tokenId AND t.orderId = 0")
+    int bindPreMintedToken(
+            @Param("tokenId") String tokenId,
+            @Param("orderId") Long orderId,
+            @Param("tokenHash") String tokenHash,
+            @Param("issuedAt") LocalDateTime issuedAt,
+            @Param("expiresAt") LocalDateTime expiresAt
+    );
+
     /**
      * Find token by short code
      * @param shortCode The 6-8 character fallback code
@@ -33,6 +77,35 @@ public interface PaymentQRTokenRepository extends JpaRepository<PaymentQRToken,
      */
     Optional<PaymentQRToken> findByShortCode(String shortCode);
 
+    /**
+     * Find the most recently expired token that held a short code before it was cleared
+     * @param retiredShortCode The cleared short code
+     * @return Optional containing the token if found
+     */
+    Optional<PaymentQRToken> findFirstByRetiredShortCodeOrderByExpiresAtDesc(String retiredShortCode);
+
+    /**
+     * Clear the short codes of tokens that expired before the given time, so the codes can be issued again
+     * Each code is kept as the token's retired short code
+     * @param before Only tokens that expired before this time
+     * @return Number of codes cleared
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentQRToken t SET t.retiredShortCode = t.shortCode, t.shortCode = NULL " +
+           "WHERE t.shortCode IS NOT NULL AND t.expiresAt < :before")
+    int clearShortCodesExpiredBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * Short codes of tokens expiring after the given time
+     * Seeds the in-memory short code allocator
+     * @param after Lower bound on expiry
+     * @return Code and expiry of each token
+     */
+    @Query("SELECT t.shortCode AS shortCode, t.expiresAt AS expiresAt FROM PaymentQRToken t " +
+           "WHERE t.expiresAt > :after AND t.shortCode IS NOT NULL")
+    List<ShortCodeHold> findShortCodesExpiringAfter(@Param("after") LocalDateTime after);
+
     /**
      * Find token by order ID
      * @param orderId The order ID
@@ -116,11 +189,22 @@ public interface PaymentQRTokenRepository extends JpaRepository<PaymentQRToken,
     );
 
     /**
-     * Delete expired tokens older than specified date
-     * Used for database cleanup
+     * Delete a bounded chunk of tokens that expired before the given date
+     * Used for database cleanup; callers repeat until fewer than limit rows are deleted
      * @param beforeDate Only delete tokens that expired before this date
+     * @param limit Maximum rows deleted, bounding lock time
      * @return Number of records deleted
      */
-    @Query("DELETE FROM PaymentQRToken t WHERE t.expiresAt < :beforeDate")
-    int deleteExpiredTokens(@Param("beforeDate") LocalDateTime beforeDate);
+    @Modifying
+    @Query(value = "DELETE FROM payment_qr_tokens WHERE expires_at < :beforeDate ORDER BY expires_at LIMIT :limit",
+           nativeQuery = true)
+    int deleteExpiredTokens(@Param("beforeDate") LocalDateTime beforeDate, @Param("limit") int limit);
+
+    /**
+     * Short code held by a token until it expires
+     */
+    interface ShortCodeHold {
+        String getShortCode();
+        LocalDateTime getExpiresAt();
+    }
 }
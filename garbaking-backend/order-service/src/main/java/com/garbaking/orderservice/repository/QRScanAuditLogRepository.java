@@ -2,11 +2,13 @@ package com.garbaking.orderservice.repository;
 
 import com.garbaking.orderservice.model.QRScanAuditLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -90,65 +92,6 @@ public interface QRScanAuditLogRepository extends JpaRepository<QRScanAuditLog,
             @Param("endTime") LocalDateTime endTime
     );
 
-    /**
-     * Count scans by device within time period
-     * Useful for rate limiting analysis
-     * @param deviceId Device ID
-     * @param since Start of time period
-     * @return Count of scans
-     */
-    @Query("SELECT COUNT(l) FROM QRScanAuditLog l WHERE l.deviceId = :deviceId " +
-           "AND l.action = 'SCAN' AND l.scanTimestamp >= :since")
-    Long countScansByDeviceSince(
-            @Param("deviceId") String deviceId,
-            @Param("since") LocalDateTime since
-    );
-
-    /**
-     * Get average processing time for successful scans
-     * @param startTime Start of time range
-     * @param endTime End of time range
-     * @return Average processing time in milliseconds
-     */
-    @Query("SELECT AVG(l.processingTimeMs) FROM QRScanAuditLog l " +
-           "WHERE l.action = 'SCAN' AND l.status = 'SUCCESS' " +
-           "AND l.scanTimestamp >= :startTime AND l.scanTimestamp < :endTime")
-    Double getAverageScanProcessingTime(
-            @Param("startTime") LocalDateTime startTime,
-            @Param("endTime") LocalDateTime endTime
-    );
-
-    /**
-     * Get average processing time for payment confirmations
-     * @param startTime Start of time range
-     * @param endTime End of time range
-     * @return Average processing time in milliseconds
-     */
-    @Query("SELECT AVG(l.processingTimeMs) FROM QRScanAuditLog l " +
-           "WHERE l.action = 'CONFIRM_PAYMENT' AND l.status = 'SUCCESS' " +
-           "AND l.scanTimestamp >= :startTime AND l.scanTimestamp < :endTime")
-    Double getAverageConfirmProcessingTime(
-            @Param("startTime") LocalDateTime startTime,
-            @Param("endTime") LocalDateTime endTime
-    );
-
-    /**
-     * Count successful vs failed scans in time period
-     * Useful for success rate metrics
-     * @param startTime Start of time range
-     * @param endTime End of time range
-     * @param status Status to count
-     * @return Count of logs with given status
-     */
-    @Query("SELECT COUNT(l) FROM QRScanAuditLog l WHERE l.action = 'SCAN' " +
-           "AND l.status = :status " +
-           "AND l.scanTimestamp >= :startTime AND l.scanTimestamp < :endTime")
-    Long countScansByStatus(
-            @Param("startTime") LocalDateTime startTime,
-            @Param("endTime") LocalDateTime endTime,
-            @Param("status") String status
-    );
-
     /**
      * Find security events (unauthorized, invalid, duplicate attempts)
      * @param startTime Start of time range
@@ -164,25 +107,22 @@ public interface QRScanAuditLogRepository extends JpaRepository<QRScanAuditLog,
     );
 
     /**
-     * Get payment method distribution
-     * @param startTime Start of time range
-     * @param endTime End of time range
-     * @return List of objects with payment method and count
+     * Lock the oldest audit logs scanned before a date (data retention cleanup)
+     * Rows locked by another replica's purge are skipped, so no row is rolled up twice
+     * @param beforeDate Only logs older than this date
+     * @param limit Maximum number of ids, bounding the purge transaction
+     * @return Audit log ids, oldest first
      */
-    @Query("SELECT l.paymentMethod, COUNT(l) FROM QRScanAuditLog l " +
-           "WHERE l.action = 'CONFIRM_PAYMENT' AND l.status = 'SUCCESS' " +
-           "AND l.scanTimestamp >= :startTime AND l.scanTimestamp < :endTime " +
-           "GROUP BY l.paymentMethod")
-    List<Object[]> getPaymentMethodDistribution(
-            @Param("startTime") LocalDateTime startTime,
-            @Param("endTime") LocalDateTime endTime
-    );
+    @Query(value = "SELECT id FROM qr_scan_audit_log WHERE scan_timestamp < :beforeDate " +
+           "ORDER BY scan_timestamp LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findIdsScannedBefore(@Param("beforeDate") LocalDateTime beforeDate, @Param("limit") int limit);
 
     /**
-     * Delete old audit logs (data retention cleanup)
-     * @param beforeDate Only delete logs older than this date
+     * Delete audit logs by id
+     * @param ids Audit log ids
      * @return Number of records deleted
      */
-    @Query("DELETE FROM QRScanAuditLog l WHERE l.createdAt < :beforeDate")
-    int deleteOldLogs(@Param("beforeDate") LocalDateTime beforeDate);
+    @Modifying
+    @Query("DELETE FROM QRScanAuditLog l WHERE l.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,35 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.QRScanDailyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * Repository for QRScanDailyStats entity
+ *
+ * Roll-up of audit rows purged by the retention job.
+ */
+@Repository
+public interface QRScanDailyStatsRepository extends JpaRepository<QRScanDailyStats, Long> {
+
+    /**
+     * Add the given audit rows to their daily stats, creating rows when missing
+     * @param ids Audit log ids about to be purged
+     */
+    @Modifying
+    @Query(value = "INSERT INTO qr_scan_daily_stats " +
+            "(day, action, status, scan_count, total_processing_ms, payment_amount) " +
+            "SELECT * FROM (SELECT DATE(l.scan_timestamp) AS d, l.action AS a, l.status AS s, COUNT(*) AS c, " +
+            "COALESCE(SUM(l.processing_time_ms), 0) AS p, COALESCE(SUM(l.payment_amount), 0) AS m " +
+            "FROM qr_scan_audit_log l WHERE l.id IN (:ids) GROUP BY DATE(l.scan_timestamp), l.action, l.status) AS chunk " +
+            "ON DUPLICATE KEY UPDATE scan_count = scan_count + chunk.c, " +
+            "total_processing_ms = total_processing_ms + chunk.p, " +
+            "payment_amount = payment_amount + chunk.m",
+            nativeQuery = true)
+    void addAuditRows(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,25 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.QRScanMinuteStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for QRScanMinuteStats entity
+ *
+ * Range reads for the QR operation statistics; rows are written in batches by QRScanMetrics.
+ */
+@Repository
+public interface QRScanMinuteStatsRepository extends JpaRepository<QRScanMinuteStats, Long> {
+
+    /**
+     * Find per-minute stats in [from, to)
+     * @param from Inclusive lower bound
+     * @param to Exclusive upper bound
+     * @return Stats rows for every operation, status and payment method
+     */
+    List<QRScanMinuteStats> findByMinuteStartGreaterThanEqualAndMinuteStartLessThan(LocalDateTime from, LocalDateTime to);
+}
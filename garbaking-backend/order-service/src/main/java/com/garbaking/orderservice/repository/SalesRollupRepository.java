@@ -0,0 +1,59 @@
+package com.garbaking.orderservice.repository;
+
+import com.garbaking.orderservice.model.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for SalesRollup entity
+ *
+ * Range reads for analytics and atomic increments for the rollup writer.
+ */
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    /**
+     * Find rollup rows of one granularity whose bucket starts in [from, to)
+     * @param granularity HOUR or DAY
+     * @param from Inclusive lower bound
+     * @param to Exclusive upper bound
+     * @return Rollup rows for all dimensions
+     */
+    @Query("SELECT r FROM SalesRollup r WHERE r.granularity = :granularity " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to")
+    List<SalesRollup> findBuckets(
+            @Param("granularity") SalesRollup.Granularity granularity,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
+
+    /**
+     * Add a delta to a rollup row, creating it when missing
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sales_rollups " +
+            "(granularity, bucket_start, dimension, dimension_value, order_count, revenue, tax_amount, discount_amount) " +
+            "VALUES (:granularity, :bucketStart, :dimension, :dimensionValue, :orderCount, :revenue, :taxAmount, :discountAmount) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + VALUES(order_count), " +
+            "revenue = revenue + VALUES(revenue), " +
+            "tax_amount = tax_amount + VALUES(tax_amount), " +
+            "discount_amount = discount_amount + VALUES(discount_amount)",
+            nativeQuery = true)
+    void increment(
+            @Param("granularity") String granularity,
+            @Param("bucketStart") LocalDateTime bucketStart,
+            @Param("dimension") String dimension,
+            @Param("dimensionValue") String dimensionValue,
+            @Param("orderCount") long orderCount,
+            @Param("revenue") BigDecimal revenue,
+            @Param("taxAmount") BigDecimal taxAmount,
+            @Param("discountAmount") BigDecimal discountAmount
+    );
+}
@@ -0,0 +1,236 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Active Order Index
+ *
+ * In-memory copy of every non-terminal order as a ready-to-serialise OrderDTO, keyed by id and by
+ * status, so the kitchen display and cashier polling endpoints never touch the database.
+ *
+ * Built on startup, kept current by OrderService after each committed change and by the order
+ * events of every replica (see DashboardStreamService), and rebuilt periodically in case one was
+ * missed. Reads go to an immutable snapshot that is swapped on every change; the returned DTOs
+ * are shared and must not be modified.
+ */
+@Component
+@Slf4j
+public class ActiveOrderIndex {
+
+    private static final Comparator<OrderDTO> NEWEST_FIRST = Comparator
+            .comparing(OrderDTO::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(OrderDTO::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+
+    private volatile Snapshot snapshot;
+    private List<OrderDTO> changesDuringRebuild;
+
+    public ActiveOrderIndex(OrderRepository orderRepository, @Lazy OrderService orderService) {
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        rebuild();
+    }
+
+    /**
+     * Reload every active order from the database
+     */
+    @Scheduled(initialDelayString = "${order.active-index.resync-interval:PT1M}",
+            fixedDelayString = "${order.active-index.resync-interval:PT1M}")
+    public void rebuild() {
+        synchronized (this) {
+            changesDuringRebuild = new ArrayList<>();
+        }
+        Map<Long, OrderDTO> orders = new HashMap<>();
+        try {
+            for (Order order : orderRepository.findActiveOrdersWithItems()) {
+                orders.put(order.getId(), orderService.mapToDTO(order));
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                changesDuringRebuild = null;
+            }
+            log.warn("Active order index rebuild failed, keeping the previous copy: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            // Changes committed while the database was being read may be missing from it, but a
+            // change whose afterCommit ran late may also be older than what the read returned
+            for (OrderDTO change : changesDuringRebuild) {
+                if (!isOlder(change, orders.get(change.getId()))) {
+                    applyTo(orders, change);
+                }
+            }
+            changesDuringRebuild = null;
+            snapshot = Snapshot.of(orders);
+        }
+        log.debug("Active order index rebuilt with {} order(s)", orders.size());
+    }
+
+    /**
+     * Record a changed order once the surrounding transaction commits
+     */
+    public void onOrderChanged(OrderDTO order) {
+        afterCommit(() -> apply(order));
+    }
+
+    /**
+     * Drop a deleted order once the surrounding transaction commits
+     */
+    public void onOrderDeleted(Long orderId) {
+        afterCommit(() -> apply(OrderDTO.builder().id(orderId).status(Order.OrderStatus.CANCELLED).build()));
+    }
+
+    /**
+     * Record an order changed on any replica, as relayed from the outbox, unless the copy held is
+     * newer. This replica's own changes come back this way too; an order that reached a terminal
+     * status here may briefly reappear until the relay catches up with that change.
+     */
+    public synchronized void onOrderRelayed(OrderDTO order) {
+        if (order.getId() == null || snapshot != null && isOlder(order, snapshot.byId.get(order.getId()))) {
+            return;
+        }
+        apply(order);
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Active orders, newest first, or empty if the index is not built yet
+     */
+    public Optional<List<OrderDTO>> activeOrders() {
+        Snapshot current = snapshot;
+        return current != null ? Optional.of(current.active) : Optional.empty();
+    }
+
+    /**
+     * Orders in an active status, newest first, or empty if the status is terminal or the index is not built yet
+     */
+    public Optional<List<OrderDTO>> ordersByStatus(Order.OrderStatus status) {
+        Snapshot current = snapshot;
+        if (current == null || !AnalyticsService.ACTIVE_STATUSES.contains(status)) {
+            return Optional.empty();
+        }
+        return Optional.of(current.byStatus.getOrDefault(status, List.of()));
+    }
+
+    public Optional<OrderDTO> get(Long orderId) {
+        Snapshot current = snapshot;
+        return current != null ? Optional.ofNullable(current.byId.get(orderId)) : Optional.empty();
+    }
+
+    /**
+     * Number of active orders in the given statuses, or -1 if the index is not built yet
+     */
+    public long countByStatusIn(Collection<Order.OrderStatus> statuses) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return -1;
+        }
+        long count = 0;
+        for (Order.OrderStatus status : statuses) {
+            count += current.byStatus.getOrDefault(status, List.of()).size();
+        }
+        return count;
+    }
+
+    synchronized void apply(OrderDTO order) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(order);
+        }
+        if (snapshot == null) {
+            return;
+        }
+        Map<Long, OrderDTO> orders = new HashMap<>(snapshot.byId);
+        applyTo(orders, order);
+        snapshot = Snapshot.of(orders);
+    }
+
+    private static void applyTo(Map<Long, OrderDTO> orders, OrderDTO order) {
+        if (order.getId() == null) {
+            return;
+        }
+        if (order.getStatus() != null && AnalyticsService.ACTIVE_STATUSES.contains(order.getStatus())) {
+            orders.put(order.getId(), order);
+        } else {
+            orders.remove(order.getId());
+        }
+    }
+
+    /**
+     * Whether a change predates the copy already held; a change without a timestamp (a deletion) never does
+     */
+    private static boolean isOlder(OrderDTO change, OrderDTO current) {
+        return current != null && change.getUpdatedAt() != null && current.getUpdatedAt() != null
+                && change.getUpdatedAt().isBefore(current.getUpdatedAt());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+            return;
+        }
+        action.run();
+    }
+
+    /**
+     * Immutable view of the active orders
+     */
+    private static final class Snapshot {
+
+        private final Map<Long, OrderDTO> byId;
+        private final List<OrderDTO> active;
+        private final Map<Order.OrderStatus, List<OrderDTO>> byStatus;
+
+        private Snapshot(Map<Long, OrderDTO> byId, List<OrderDTO> active,
+                         Map<Order.OrderStatus, List<OrderDTO>> byStatus) {
+            this.byId = byId;
+            this.active = active;
+            this.byStatus = byStatus;
+        }
+
+        static Snapshot of(Map<Long, OrderDTO> orders) {
+            List<OrderDTO> active = orders.values().stream()
+                    .sorted(NEWEST_FIRST)
+                    .collect(Collectors.toUnmodifiableList());
+            Map<Order.OrderStatus, List<OrderDTO>> byStatus = new EnumMap<>(Order.OrderStatus.class);
+            active.stream()
+                    .collect(Collectors.groupingBy(OrderDTO::getStatus, Collectors.toUnmodifiableList()))
+                    .forEach(byStatus::put);
+            return new Snapshot(Map.copyOf(orders), active, byStatus);
+        }
+    }
+}
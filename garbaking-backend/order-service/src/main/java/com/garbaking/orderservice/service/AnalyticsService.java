@@ -9,14 +9,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -27,24 +30,35 @@ import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class AnalyticsService {
 
+    static final Set<Order.OrderStatus> ACTIVE_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+            Order.OrderStatus.PENDING,
+            Order.OrderStatus.CONFIRMED,
+            Order.OrderStatus.PREPARING,
+            Order.OrderStatus.READY,
+            Order.OrderStatus.OUT_FOR_DELIVERY
+    ));
+
     private final OrderRepository orderRepository;
+    private final SalesRollupReader salesRollupReader;
     private final Clock clock;
 
     private final List<ReportConfigDto> scheduledReports = new CopyOnWriteArrayList<>();
     private final AtomicInteger reportSequence = new AtomicInteger();
 
     @Autowired
-    public AnalyticsService(OrderRepository orderRepository) {
-        this(orderRepository, Clock.systemDefaultZone());
+    public AnalyticsService(OrderRepository orderRepository, SalesRollupReader salesRollupReader) {
+        this(orderRepository, salesRollupReader, Clock.systemDefaultZone());
     }
 
-    public AnalyticsService(OrderRepository orderRepository, Clock clock) {
+    public AnalyticsService(OrderRepository orderRepository, SalesRollupReader salesRollupReader, Clock clock) {
         this.orderRepository = orderRepository;
+        this.salesRollupReader = salesRollupReader;
         this.clock = clock;
     }
 
@@ -56,45 +70,45 @@ public class AnalyticsService {
         LocalDateTime startOfYesterday = startOfToday.minusDays(1);
         LocalDateTime endOfYesterday = startOfToday.minusNanos(1);
 
-        List<Order> todaysOrders = loadOrders(startOfToday, endOfToday);
-        List<Order> yesterdaysOrders = loadOrders(startOfYesterday, endOfYesterday);
+        ActiveOrdersSummary activeOrders = ActiveOrdersSummary.builder()
+                .activeOrders(orderRepository.countByStatusIn(List.copyOf(ACTIVE_STATUSES)))
+                .pendingOrders(orderRepository.countByStatus(Order.OrderStatus.PENDING))
+                .preparingOrders(orderRepository.countByStatus(Order.OrderStatus.PREPARING))
+                .readyOrders(orderRepository.countByStatus(Order.OrderStatus.READY))
+                .build();
 
-        BigDecimal todayRevenue = calculateRevenue(todaysOrders);
-        BigDecimal yesterdayRevenue = calculateRevenue(yesterdaysOrders);
+        return buildDashboard(loadTotals(startOfToday, endOfToday), loadTotals(startOfYesterday, endOfYesterday),
+                activeOrders);
+    }
+
+    /**
+     * Assemble the dashboard view from today's and yesterday's totals
+     */
+    DashboardAnalytics buildDashboard(SalesTotals todaysTotals, SalesTotals yesterdaysTotals,
+                                      ActiveOrdersSummary activeOrders) {
+        BigDecimal todayRevenue = todaysTotals.revenue();
+        BigDecimal yesterdayRevenue = yesterdaysTotals.revenue();
 
         DashboardComparison comparison = DashboardComparison.builder()
-                .ordersChange(calculateChangePercentage(todaysOrders.size(), yesterdaysOrders.size()))
+                .ordersChange(calculateChangePercentage(todaysTotals.orderCount(), yesterdaysTotals.orderCount()))
                 .revenueChange(calculateChangePercentage(todayRevenue, yesterdayRevenue))
                 .build();
 
         DashboardPeriodMetrics todayMetrics = DashboardPeriodMetrics.builder()
-                .orders(todaysOrders.size())
+                .orders(todaysTotals.orderCount())
                 .revenue(todayRevenue)
-                .averageOrderValue(calculateAverage(todayRevenue, todaysOrders.size()))
+                .averageOrderValue(calculateAverage(todayRevenue, todaysTotals.orderCount()))
                 .comparison(comparison)
                 .build();
 
         DashboardPeriodMetrics yesterdayMetrics = DashboardPeriodMetrics.builder()
-                .orders(yesterdaysOrders.size())
+                .orders(yesterdaysTotals.orderCount())
                 .revenue(yesterdayRevenue)
-                .averageOrderValue(calculateAverage(yesterdayRevenue, yesterdaysOrders.size()))
+                .averageOrderValue(calculateAverage(yesterdayRevenue, yesterdaysTotals.orderCount()))
                 .comparison(DashboardComparison.builder().ordersChange(0).revenueChange(0).build())
                 .build();
 
-        ActiveOrdersSummary activeOrders = ActiveOrdersSummary.builder()
-                .activeOrders(orderRepository.findByStatusIn(List.of(
-                        Order.OrderStatus.PENDING,
-                        Order.OrderStatus.CONFIRMED,
-                        Order.OrderStatus.PREPARING,
-                        Order.OrderStatus.READY,
-                        Order.OrderStatus.OUT_FOR_DELIVERY
-                )).size())
-                .pendingOrders(orderRepository.countByStatus(Order.OrderStatus.PENDING))
-                .preparingOrders(orderRepository.countByStatus(Order.OrderStatus.PREPARING))
-                .readyOrders(orderRepository.countByStatus(Order.OrderStatus.READY))
-                .build();
-
-        List<ProductAnalytics> topProducts = buildProductAnalytics(todaysOrders).stream()
+        List<ProductAnalytics> topProducts = buildProductAnalytics(todaysTotals).stream()
                 .sorted(Comparator.comparingDouble(ProductAnalytics::revenue).reversed())
                 .limit(5)
                 .collect(Collectors.toList());
@@ -109,19 +123,17 @@ public class AnalyticsService {
 
     @Transactional(readOnly = true)
     public SalesData getSalesData(LocalDateTime start, LocalDateTime end) {
-        List<Order> orders = loadOrders(start, end);
-        return buildSalesData(orders);
+        return buildSalesData(loadTotals(start, end), start, end);
     }
 
     @Transactional(readOnly = true)
     public MenuPerformanceResponse getMenuPerformance(int days) {
-        LocalDateTime start = LocalDateTime.now(clock).minusDays(days);
-        List<Order> orders = loadOrders(start, LocalDateTime.now(clock));
-        List<ProductAnalytics> analytics = buildProductAnalytics(orders);
+        LocalDateTime now = LocalDateTime.now(clock);
+        SalesTotals totals = loadTotals(now.minusDays(days), now);
         return MenuPerformanceResponse.builder()
                 .period(days + " days")
-                .menuItems(analytics)
-                .totalOrders(orders.size())
+                .menuItems(buildProductAnalytics(totals))
+                .totalOrders(totals.orderCount())
                 .build();
     }
 
@@ -157,23 +169,13 @@ public class AnalyticsService {
 
     @Transactional(readOnly = true)
     public PaymentMethodAnalytics getPaymentMethods(int days) {
-        LocalDateTime start = LocalDateTime.now(clock).minusDays(days);
-        List<Order> orders = orderRepository.findByCreatedAtAfter(start);
-
-        Map<String, Long> counts = orders.stream()
-                .filter(order -> order.getPaymentMethod() != null)
-                .collect(Collectors.groupingBy(order -> order.getPaymentMethod().name(), Collectors.counting()));
-
-        Map<String, BigDecimal> revenue = orders.stream()
-                .filter(order -> order.getPaymentMethod() != null && order.getTotalAmount() != null)
-                .collect(Collectors.groupingBy(order -> order.getPaymentMethod().name(),
-                        Collectors.mapping(Order::getTotalAmount,
-                                Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))));
+        LocalDateTime now = LocalDateTime.now(clock);
+        SalesTotals totals = loadTotals(now.minusDays(days), now);
 
         return PaymentMethodAnalytics.builder()
                 .period(days + " days")
-                .counts(counts)
-                .revenue(revenue)
+                .counts(totals.countByPaymentMethod())
+                .revenue(totals.revenueByPaymentMethod())
                 .build();
     }
 
@@ -233,18 +235,16 @@ public class AnalyticsService {
     @Transactional(readOnly = true)
     public ProductAnalyticsResponse getProductAnalytics(String period) {
         PeriodRange range = resolvePeriodRange(period);
-        List<Order> orders = loadOrders(range.start(), range.end());
         return ProductAnalyticsResponse.builder()
                 .period(period)
-                .products(buildProductAnalytics(orders))
+                .products(buildProductAnalytics(loadTotals(range.start(), range.end())))
                 .build();
     }
 
     @Transactional(readOnly = true)
     public CategoryAnalyticsResponse getCategoryAnalytics(String period) {
         PeriodRange range = resolvePeriodRange(period);
-        List<Order> orders = loadOrders(range.start(), range.end());
-        Map<String, List<ProductAnalytics>> byCategory = buildProductAnalytics(orders).stream()
+        Map<String, List<ProductAnalytics>> byCategory = buildProductAnalytics(loadTotals(range.start(), range.end())).stream()
                 .collect(Collectors.groupingBy(ProductAnalytics::category));
 
         List<CategoryAnalytics> categories = byCategory.entrySet().stream()
@@ -425,11 +425,8 @@ public class AnalyticsService {
         Duration duration = Duration.between(range.start(), range.end());
         PeriodRange previous = new PeriodRange(range.start().minus(duration), range.start());
 
-        List<Order> currentOrders = loadOrders(range.start(), range.end());
-        List<Order> previousOrders = loadOrders(previous.start(), previous.end());
-
-        SalesData current = buildSalesData(currentOrders);
-        SalesData prev = buildSalesData(previousOrders);
+        SalesData current = buildSalesData(loadTotals(range.start(), range.end()), range.start(), range.end());
+        SalesData prev = buildSalesData(loadTotals(previous.start(), previous.end()), previous.start(), previous.end());
 
         ComparisonData comparison = ComparisonData.builder()
                 .current(current)
@@ -455,8 +452,8 @@ public class AnalyticsService {
 
     @Transactional(readOnly = true)
     public InventoryAnalyticsResponse getInventoryAnalytics() {
-        List<Order> orders = orderRepository.findByCreatedAtAfterWithItems(LocalDateTime.now(clock).minusDays(30));
-        List<ProductAnalytics> analytics = buildProductAnalytics(orders);
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<ProductAnalytics> analytics = buildProductAnalytics(loadTotals(now.minusDays(30), now));
 
         List<ProductAnalytics> fastMoving = analytics.stream()
                 .sorted(Comparator.comparingLong(ProductAnalytics::quantitySold).reversed())
@@ -598,25 +595,37 @@ public class AnalyticsService {
                 .build();
     }
 
+    /**
+     * Stream the order export as CSV, reading through a forward-only cursor
+     *
+     * @param period Named period, used when start or end is missing
+     * @param start Optional range start
+     * @param end Optional range end
+     * @param includeItems Write one row per line item instead of one per order
+     * @param outputStream Destination, closed when the export completes
+     * @return Number of rows written
+     */
     @Transactional(readOnly = true)
-    public byte[] exportData(String type, String period, LocalDateTime start, LocalDateTime end) {
+    public long exportData(String period, LocalDateTime start, LocalDateTime end, boolean includeItems,
+                           OutputStream outputStream) throws IOException {
         PeriodRange range = start != null && end != null ? new PeriodRange(start, end) : resolvePeriodRange(period);
-        List<Order> orders = loadOrders(range.start(), range.end());
-
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        try (PrintWriter writer = new PrintWriter(outputStream)) {
-            writer.println("Order Number,Status,Total,Payment Method,Created At");
-            for (Order order : orders) {
-                writer.printf("%s,%s,%s,%s,%s%n",
-                        order.getOrderNumber(),
-                        Optional.ofNullable(order.getStatus()).map(Enum::name).orElse("UNKNOWN"),
-                        Optional.ofNullable(order.getTotalAmount()).orElse(BigDecimal.ZERO),
-                        Optional.ofNullable(order.getPaymentMethod()).map(Enum::name).orElse("UNKNOWN"),
-                        Optional.ofNullable(order.getCreatedAt()).orElse(LocalDateTime.MIN));
+        long startTime = System.nanoTime();
+
+        try (OrderCsvWriter writer = new OrderCsvWriter(outputStream, includeItems);
+             Stream<OrderExportRow> rows = includeItems
+                     ? orderRepository.streamExportRowsWithItems(range.start(), range.end())
+                     : orderRepository.streamExportRows(range.start(), range.end())) {
+            writer.writeHeader();
+            Iterator<OrderExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
             }
-            writer.flush();
+
+            long elapsedMillis = Math.max(Duration.ofNanos(System.nanoTime() - startTime).toMillis(), 1);
+            log.info("Exported {} rows ({} to {}) in {} ms ({} rows/sec)", writer.getRowCount(), range.start(),
+                    range.end(), elapsedMillis, writer.getRowCount() * 1000 / elapsedMillis);
+            return writer.getRowCount();
         }
-        return outputStream.toByteArray();
     }
 
     @Transactional(readOnly = true)
@@ -642,11 +651,8 @@ public class AnalyticsService {
     }
 
     private ComparisonResponse buildComparisonResponse(PeriodRange current, PeriodRange previous) {
-        List<Order> currentOrders = loadOrders(current.start(), current.end());
-        List<Order> previousOrders = loadOrders(previous.start(), previous.end());
-
-        SalesData currentData = buildSalesData(currentOrders);
-        SalesData previousData = buildSalesData(previousOrders);
+        SalesData currentData = buildSalesData(loadTotals(current.start(), current.end()), current.start(), current.end());
+        SalesData previousData = buildSalesData(loadTotals(previous.start(), previous.end()), previous.start(), previous.end());
 
         ComparisonData data = ComparisonData.builder()
                 .current(currentData)
@@ -667,53 +673,39 @@ public class AnalyticsService {
         return ComparisonResponse.builder().comparison(data).build();
     }
 
-    private List<ProductAnalytics> buildProductAnalytics(List<Order> orders) {
-        Map<String, ItemAggregate> aggregates = orders.stream()
-                .flatMap(order -> Optional.ofNullable(order.getItems()).orElse(List.of()).stream())
-                .collect(Collectors.groupingBy(item -> String.valueOf(item.getMenuItemId()), Collectors.collectingAndThen(
-                        Collectors.toList(), this::aggregateItem)));
+    private List<ProductAnalytics> buildProductAnalytics(SalesTotals totals) {
+        List<ItemAggregate> aggregates = totals.items().stream()
+                .filter(item -> item.quantity() > 0 || item.revenue().signum() != 0)
+                .map(item -> new ItemAggregate(item.menuItemId(), item.menuItemName(),
+                        resolveCategory(item.menuItemSku()), item.quantity(), item.revenue(), item.orderCount()))
+                .collect(Collectors.toList());
 
-        double totalRevenue = aggregates.values().stream()
+        double totalRevenue = aggregates.stream()
                 .map(ItemAggregate::revenue)
                 .mapToDouble(BigDecimal::doubleValue)
                 .sum();
 
-        return aggregates.values().stream()
+        return aggregates.stream()
                 .map(aggregate -> aggregate.toProductAnalytics(totalRevenue))
                 .sorted(Comparator.comparingDouble(ProductAnalytics::revenue).reversed())
                 .collect(Collectors.toList());
     }
 
-    private ItemAggregate aggregateItem(List<OrderItem> items) {
-        Set<Long> orderIds = new LinkedHashSet<>();
-        BigDecimal revenue = BigDecimal.ZERO;
-        long quantity = 0;
-        for (OrderItem item : items) {
-            if (item.getOrderId() != null) {
-                orderIds.add(item.getOrderId());
-            }
-            if (item.getSubtotal() != null) {
-                revenue = revenue.add(item.getSubtotal());
-            } else if (item.getUnitPrice() != null && item.getQuantity() != null) {
-                revenue = revenue.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-            }
-            if (item.getQuantity() != null) {
-                quantity += item.getQuantity();
-            }
-        }
-        OrderItem sample = items.get(0);
-        return new ItemAggregate(sample.getMenuItemId(), sample.getMenuItemName(), resolveCategory(sample),
-                quantity, revenue, orderIds.size());
-    }
-
-    private String resolveCategory(OrderItem item) {
-        String sku = Optional.ofNullable(item.getMenuItemSku()).orElse("");
+    /**
+     * Menu category of an order line, taken from its SKU prefix (e.g. MEAL-001 -> MEAL)
+     */
+    public static String resolveCategory(String menuItemSku) {
+        String sku = Optional.ofNullable(menuItemSku).orElse("");
         if (sku.contains("-")) {
             return sku.substring(0, sku.indexOf('-')).toUpperCase(Locale.ENGLISH);
         }
         return "GENERAL";
     }
 
+    private SalesTotals loadTotals(LocalDateTime start, LocalDateTime end) {
+        return salesRollupReader.loadTotals(start, end, LocalDateTime.now(clock));
+    }
+
     private List<Order> loadOrders(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null) {
             return List.of();
@@ -757,25 +749,13 @@ public class AnalyticsService {
                         .orElse("customer-" + Optional.ofNullable(order.getCustomerName()).orElse("unknown")));
     }
 
-    private SalesData buildSalesData(List<Order> orders) {
-        BigDecimal totalRevenue = calculateRevenue(orders);
-        long orderCount = orders.size();
-        long uniqueCustomers = orders.stream().map(this::resolveCustomerKey).distinct().count();
-
-        BigDecimal taxTotal = orders.stream()
-                .map(Order::getTaxAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal discountTotal = orders.stream()
-                .map(Order::getDiscountAmount)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private SalesData buildSalesData(SalesTotals totals, LocalDateTime start, LocalDateTime end) {
+        BigDecimal totalRevenue = totals.revenue();
+        long orderCount = totals.orderCount();
+        long uniqueCustomers = start == null || end == null ? 0 : orderRepository.countDistinctCustomers(start, end);
 
-        Map<Order.PaymentMethod, BigDecimal> revenueByPayment = orders.stream()
-                .filter(order -> order.getPaymentMethod() != null)
-                .collect(Collectors.groupingBy(Order::getPaymentMethod, Collectors.mapping(Order::getTotalAmount,
-                        Collectors.reducing(BigDecimal.ZERO, (left, right) -> Optional.ofNullable(left).orElse(BigDecimal.ZERO)
-                                .add(Optional.ofNullable(right).orElse(BigDecimal.ZERO))))));
+        BigDecimal taxTotal = totals.taxAmount();
+        BigDecimal discountTotal = totals.discountAmount();
 
         return SalesData.builder()
                 .totalSales(totalRevenue)
@@ -790,10 +770,10 @@ public class AnalyticsService {
                         .refunds(BigDecimal.ZERO)
                         .build())
                 .breakdown(SalesData.PaymentBreakdown.builder()
-                        .cash(revenueByPayment.getOrDefault(Order.PaymentMethod.CASH, BigDecimal.ZERO))
-                        .card(revenueByPayment.getOrDefault(Order.PaymentMethod.CARD, BigDecimal.ZERO))
-                        .mobileMoney(revenueByPayment.getOrDefault(Order.PaymentMethod.MOBILE_MONEY, BigDecimal.ZERO))
-                        .credit(revenueByPayment.getOrDefault(Order.PaymentMethod.BANK_TRANSFER, BigDecimal.ZERO))
+                        .cash(totals.revenueFor(Order.PaymentMethod.CASH))
+                        .card(totals.revenueFor(Order.PaymentMethod.CARD))
+                        .mobileMoney(totals.revenueFor(Order.PaymentMethod.MOBILE_MONEY))
+                        .credit(totals.revenueFor(Order.PaymentMethod.BANK_TRANSFER))
                         .build())
                 .build();
     }
@@ -0,0 +1,253 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.analytics.ActiveOrdersSummary;
+import com.garbaking.orderservice.dto.analytics.DashboardAnalytics;
+import com.garbaking.orderservice.dto.analytics.DashboardDelta;
+import com.garbaking.orderservice.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dashboard Stream Service
+ *
+ * Pushes the admin dashboard to /topic/analytics/dashboard, so open tablets stop polling it.
+ * The pushed state is kept in memory rather than re-read on every push. Today's and yesterday's
+ * sales totals are read from the rollups (see SalesRollupReader) every reconcile interval and at
+ * midnight; in between, every replica adds the orders announced on the order.created topic, so
+ * orders written by other replicas and by the Kafka and QR paths are counted as well. Active order
+ * counts come from ActiveOrderIndex, which the order events of all replicas keep current.
+ *
+ * An order whose event is still on its way when the totals are re-read is counted twice until the
+ * next re-read. Pushes are coalesced to at most one per push interval, and each push carries only
+ * the sections that differ from the previous one.
+ */
+@Service
+@Slf4j
+public class DashboardStreamService {
+
+    static final String DASHBOARD_TOPIC = "/topic/analytics/dashboard";
+
+    private final AnalyticsService analyticsService;
+    private final SalesRollupReader salesRollupReader;
+    private final ActiveOrderIndex activeOrderIndex;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final String orderCreatedTopic;
+    private final Duration reconcileInterval;
+    private final Clock clock;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final Set<Long> counted = new HashSet<>();
+    private LocalDate day;
+    private SalesTotals today;
+    private SalesTotals yesterday;
+    private List<OrderDTO> createdDuringReconcile;
+    private Instant lastReconcile = Instant.MIN;
+    private DashboardAnalytics lastPushed;
+    private long sequence;
+
+    @Autowired
+    public DashboardStreamService(AnalyticsService analyticsService, SalesRollupReader salesRollupReader,
+                                  ActiveOrderIndex activeOrderIndex, SimpMessagingTemplate messagingTemplate,
+                                  ObjectMapper objectMapper,
+                                  @Value("${spring.kafka.topics.order-created:order.created}") String orderCreatedTopic,
+                                  @Value("${analytics.dashboard.reconcile-interval:PT1M}") Duration reconcileInterval) {
+        this(analyticsService, salesRollupReader, activeOrderIndex, messagingTemplate, objectMapper, orderCreatedTopic,
+                reconcileInterval, Clock.systemDefaultZone());
+    }
+
+    public DashboardStreamService(AnalyticsService analyticsService, SalesRollupReader salesRollupReader,
+                                  ActiveOrderIndex activeOrderIndex, SimpMessagingTemplate messagingTemplate,
+                                  ObjectMapper objectMapper, String orderCreatedTopic, Duration reconcileInterval,
+                                  Clock clock) {
+        this.analyticsService = analyticsService;
+        this.salesRollupReader = salesRollupReader;
+        this.activeOrderIndex = activeOrderIndex;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.orderCreatedTopic = orderCreatedTopic;
+        this.reconcileInterval = reconcileInterval;
+        this.clock = clock;
+    }
+
+    /**
+     * Push the dashboard at the next push once the current transaction (if any) commits, so a
+     * rolled back change is never shown
+     */
+    public void onOrderChanged() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dirty.set(true);
+                }
+            });
+            return;
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Count a committed order change of any replica. Every replica consumes the order topics in a
+     * group of its own, from the latest offset.
+     */
+    @KafkaListener(
+            topics = {"${spring.kafka.topics.order-created:order.created}",
+                    "${spring.kafka.topics.order-status:order.status.changed}",
+                    "${spring.kafka.topics.order-payment:order.payment.updated}",
+                    "${spring.kafka.topics.order-cancelled:order.cancelled}"},
+            groupId = "order-service-dashboard-${random.uuid}",
+            properties = {
+                    "auto.offset.reset=latest",
+                    "value.deserializer=org.apache.kafka.common.serialization.StringDeserializer"
+            }
+    )
+    public void onOrderEvent(ConsumerRecord<String, String> record) {
+        OrderDTO order;
+        try {
+            order = objectMapper.readValue(record.value(), OrderDTO.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Skipping unreadable order event on {}: {}", record.topic(), e.getMessage());
+            return;
+        }
+        activeOrderIndex.onOrderRelayed(order);
+        if (orderCreatedTopic.equals(record.topic())) {
+            synchronized (this) {
+                if (createdDuringReconcile != null) {
+                    createdDuringReconcile.add(order);
+                }
+                count(order);
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Push the dashboard if it changed since the last push, re-reading the sales totals first
+     * when they are due
+     */
+    @Scheduled(fixedDelayString = "${analytics.dashboard.push-interval:PT0.5S}")
+    public void pushPendingDelta() {
+        Instant now = Instant.now(clock);
+        LocalDate currentDay = LocalDate.now(clock);
+        if (!currentDay.equals(day) || !now.isBefore(lastReconcile.plus(reconcileInterval))) {
+            reconcile(now, currentDay);
+        }
+        if (!activeOrderIndex.isReady() || !dirty.getAndSet(false)) {
+            return;
+        }
+
+        DashboardDelta delta;
+        synchronized (this) {
+            if (today == null) {
+                return;
+            }
+            delta = nextDelta(analyticsService.buildDashboard(today, yesterday, activeOrders()), now);
+        }
+
+        if (delta != null) {
+            messagingTemplate.convertAndSend(DASHBOARD_TOPIC, delta);
+        }
+    }
+
+    /**
+     * Re-read today's and yesterday's totals; orders announced during the read are added on top
+     */
+    private void reconcile(Instant now, LocalDate currentDay) {
+        synchronized (this) {
+            createdDuringReconcile = new ArrayList<>();
+        }
+        lastReconcile = now;
+        SalesTotals loadedToday;
+        SalesTotals loadedYesterday;
+        try {
+            LocalDateTime startOfToday = currentDay.atStartOfDay();
+            LocalDateTime readAt = LocalDateTime.now(clock);
+            loadedToday = salesRollupReader.loadTotals(startOfToday, startOfToday.plusDays(1).minusNanos(1), readAt);
+            loadedYesterday = salesRollupReader.loadTotals(startOfToday.minusDays(1), startOfToday.minusNanos(1), readAt);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                createdDuringReconcile = null;
+            }
+            log.warn("Dashboard totals re-read failed, keeping the in-memory totals: {}", e.getMessage());
+            return;
+        }
+
+        synchronized (this) {
+            day = currentDay;
+            today = loadedToday;
+            yesterday = loadedYesterday;
+            counted.clear();
+            createdDuringReconcile.forEach(this::count);
+            createdDuringReconcile = null;
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Add a created order to the day it belongs to, once; redelivered events are ignored
+     */
+    private void count(OrderDTO order) {
+        if (day == null || order.getId() == null || order.getCreatedAt() == null || !counted.add(order.getId())) {
+            return;
+        }
+        LocalDate createdOn = order.getCreatedAt().toLocalDate();
+        if (createdOn.equals(day)) {
+            today.addOrder(order);
+        } else if (createdOn.equals(day.minusDays(1))) {
+            yesterday.addOrder(order);
+        }
+    }
+
+    private ActiveOrdersSummary activeOrders() {
+        return ActiveOrdersSummary.builder()
+                .activeOrders(activeOrderIndex.countByStatusIn(AnalyticsService.ACTIVE_STATUSES))
+                .pendingOrders(activeOrderIndex.countByStatusIn(List.of(Order.OrderStatus.PENDING)))
+                .preparingOrders(activeOrderIndex.countByStatusIn(List.of(Order.OrderStatus.PREPARING)))
+                .readyOrders(activeOrderIndex.countByStatusIn(List.of(Order.OrderStatus.READY)))
+                .build();
+    }
+
+    private DashboardDelta nextDelta(DashboardAnalytics current, Instant now) {
+        DashboardAnalytics previous = lastPushed;
+        lastPushed = current;
+        if (current.equals(previous)) {
+            return null;
+        }
+        return DashboardDelta.builder()
+                .sequence(++sequence)
+                .generatedAt(now)
+                .today(changed(previous == null ? null : previous.today(), current.today()))
+                .yesterday(changed(previous == null ? null : previous.yesterday(), current.yesterday()))
+                .orders(changed(previous == null ? null : previous.orders(), current.orders()))
+                .topMenuItems(changed(previous == null ? null : previous.topMenuItems(), current.topMenuItems()))
+                .build();
+    }
+
+    private static <T> T changed(T previous, T current) {
+        return Objects.equals(previous, current) ? null : current;
+    }
+}
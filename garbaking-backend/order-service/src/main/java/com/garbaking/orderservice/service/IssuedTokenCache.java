@@ -0,0 +1,126 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.model.PaymentQRToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issued Token Cache
+ *
+ * Short-lived copy of recently issued, unused QR tokens so a scan can be validated without
+ * reading payment_qr_tokens. Entries live for qr.token.cache-ttl at most (never past the token's
+ * expiry) and are evicted when the token is consumed on this instance.
+ *
+ * The cache only speeds up the scan step: a token consumed on another replica can still look
+ * unused here until its entry lapses, but consuming it again fails in the database.
+ */
+@Component
+public class IssuedTokenCache {
+
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Clock clock;
+
+    @Autowired
+    public IssuedTokenCache(
+            @Value("${qr.token.cache-ttl:PT1M}") Duration ttl,
+            @Value("${qr.token.cache-max-entries:10000}") int maxEntries
+    ) {
+        this(ttl, maxEntries, Clock.systemDefaultZone());
+    }
+
+    IssuedTokenCache(Duration ttl, int maxEntries, Clock clock) {
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Cache a token; inside a transaction only once it has committed
+     */
+    public void put(PaymentQRToken token) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putNow(token);
+                }
+            });
+            return;
+        }
+        putNow(token);
+    }
+
+    /**
+     * Cached copy of an unused token, if it has not lapsed
+     */
+    public Optional<CachedToken> get(String tokenId) {
+        CachedToken cached = tokens.get(tokenId);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (cached.cachedUntilMillis() <= clock.millis()) {
+            tokens.remove(tokenId, cached);
+            return Optional.empty();
+        }
+        return Optional.of(cached);
+    }
+
+    /**
+     * Drop a token, typically because it was consumed
+     *
+     * @return The evicted entry, or null when it was not cached
+     */
+    public CachedToken evict(String tokenId) {
+        return tokens.remove(tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${qr.token.cache-ttl:PT1M}")
+    public void evictLapsed() {
+        long now = clock.millis();
+        tokens.values().removeIf(cached -> cached.cachedUntilMillis() <= now);
+    }
+
+    int size() {
+        return tokens.size();
+    }
+
+    private void putNow(PaymentQRToken token) {
+        if (Boolean.TRUE.equals(token.getIsUsed()) || tokens.size() >= maxEntries) {
+            return;
+        }
+        long expiresAtMillis = token.getExpiresAt().atZone(clock.getZone()).toInstant().toEpochMilli();
+        long cachedUntil = Math.min(expiresAtMillis, clock.millis() + ttl.toMillis());
+        if (cachedUntil > clock.millis()) {
+            tokens.put(token.getTokenId(), CachedToken.of(token, cachedUntil));
+        }
+    }
+
+    /**
+     * The fields a scan needs from payment_qr_tokens
+     */
+    public record CachedToken(String tokenId, Long orderId, String nonce, String shortCode,
+                              LocalDateTime expiresAt, long cachedUntilMillis) {
+
+        public static CachedToken of(PaymentQRToken token, long cachedUntilMillis) {
+            return new CachedToken(token.getTokenId(), token.getOrderId(), token.getNonce(),
+                    token.getShortCode(), token.getExpiresAt(), cachedUntilMillis);
+        }
+
+        public boolean isExpired() {
+            return LocalDateTime.now().isAfter(expiresAt);
+        }
+    }
+}
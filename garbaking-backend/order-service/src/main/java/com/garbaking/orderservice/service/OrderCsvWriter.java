@@ -0,0 +1,124 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.analytics.OrderExportRow;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Order CSV Writer
+ *
+ * Writes export rows straight to a buffered stream, one row at a time, so memory use
+ * does not grow with the size of the export.
+ */
+public class OrderCsvWriter implements Closeable {
+
+    static final String ORDER_HEADER = "Order Number,Status,Total,Payment Method,Created At";
+    static final String ITEM_HEADER = ",Menu Item ID,Menu Item,SKU,Quantity,Unit Price,Line Total";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final boolean includeItems;
+    private long rowCount;
+
+    public OrderCsvWriter(OutputStream outputStream, boolean includeItems) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.includeItems = includeItems;
+    }
+
+    public void writeHeader() throws IOException {
+        writer.write(ORDER_HEADER);
+        if (includeItems) {
+            writer.write(ITEM_HEADER);
+        }
+        writer.write('\n');
+    }
+
+    public void write(OrderExportRow row) throws IOException {
+        writeText(row.orderNumber());
+        writer.write(',');
+        writer.write(row.status() != null ? row.status().name() : "UNKNOWN");
+        writer.write(',');
+        writeAmount(row.totalAmount() != null ? row.totalAmount() : BigDecimal.ZERO);
+        writer.write(',');
+        writer.write(row.paymentMethod() != null ? row.paymentMethod().name() : "UNKNOWN");
+        writer.write(',');
+        writer.write((row.createdAt() != null ? row.createdAt() : LocalDateTime.MIN).toString());
+
+        if (includeItems) {
+            writer.write(',');
+            if (row.menuItemId() != null) {
+                writer.write(row.menuItemId().toString());
+            }
+            writer.write(',');
+            writeText(row.menuItemName());
+            writer.write(',');
+            writeText(row.menuItemSku());
+            writer.write(',');
+            if (row.quantity() != null) {
+                writer.write(row.quantity().toString());
+            }
+            writer.write(',');
+            writeAmount(row.unitPrice());
+            writer.write(',');
+            writeAmount(row.subtotal());
+        }
+        writer.write('\n');
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeAmount(BigDecimal amount) throws IOException {
+        if (amount != null) {
+            writer.write(amount.toPlainString());
+        }
+    }
+
+    /**
+     * Write a free-text field, quoting it only when it contains a delimiter, quote or line break
+     */
+    private void writeText(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (!needsQuoting(value)) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,57 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
+import com.garbaking.orderservice.repository.OrderOutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Order Event Outbox
+ *
+ * Records order lifecycle events in the caller's transaction.
+ * Publishing to Kafka is left to OrderOutboxRelay.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderEventOutbox {
+
+    private final OrderOutboxEventRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Append an event for the given order
+     *
+     * @param eventType Lifecycle event type
+     * @param order Already converted order snapshot
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OrderOutboxEvent.EventType eventType, OrderDTO order) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize order event for " + order.getOrderNumber(), e);
+        }
+
+        OrderOutboxEvent event = OrderOutboxEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(eventType)
+                .orderId(order.getId())
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        outboxRepository.save(event);
+        log.debug("Queued {} event for order {}", eventType, order.getOrderNumber());
+    }
+}
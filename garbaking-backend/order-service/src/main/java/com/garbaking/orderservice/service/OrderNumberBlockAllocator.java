@@ -0,0 +1,48 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.model.OrderNumberSequence;
+import com.garbaking.orderservice.repository.OrderNumberSequenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Order Number Block Allocator
+ *
+ * Reserves ranges of the daily order number sequence in a short, independent transaction
+ * so the row lock is never held for the duration of an order write.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderNumberBlockAllocator {
+
+    private final OrderNumberSequenceRepository sequenceRepository;
+
+    /**
+     * Reserve a block of order numbers for a day
+     *
+     * @param date Business day
+     * @param blockSize Number of values to reserve
+     * @return First value of the reserved block [start, start + blockSize)
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long allocate(LocalDate date, int blockSize) {
+        OrderNumberSequence sequence = sequenceRepository.findForUpdate(date)
+                .orElseGet(() -> sequenceRepository.saveAndFlush(OrderNumberSequence.builder()
+                        .sequenceDate(date)
+                        .nextValue(1L)
+                        .build()));
+
+        long start = sequence.getNextValue();
+        sequence.setNextValue(start + blockSize);
+        sequenceRepository.save(sequence);
+
+        log.debug("Reserved order numbers {}-{} for {}", start, start + blockSize - 1, date);
+        return start;
+    }
+}
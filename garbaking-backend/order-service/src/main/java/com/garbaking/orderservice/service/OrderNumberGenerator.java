@@ -0,0 +1,115 @@
+package com.garbaking.orderservice.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Order Number Generator
+ *
+ * Hands out "ORD-yyyyMMdd-NNNN" numbers from blocks reserved in the database (hi/lo).
+ * Each replica owns its blocks, so numbers are unique across the cluster, survive restarts
+ * and restart at 1 every day. The sequence part widens past 9999 instead of wrapping.
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    private static final int MIN_SEQUENCE_DIGITS = 4;
+    private static final int MAX_ALLOCATION_ATTEMPTS = 3;
+
+    private final OrderNumberBlockAllocator blockAllocator;
+    private final Clock clock;
+
+    @Value("${order.number.block-size:50}")
+    private int blockSize = 50;
+
+    private LocalDate blockDate;
+    private char[] datePrefix;
+    private long nextValue;
+    private long blockLimit;
+
+    @Autowired
+    public OrderNumberGenerator(OrderNumberBlockAllocator blockAllocator) {
+        this(blockAllocator, Clock.systemDefaultZone());
+    }
+
+    public OrderNumberGenerator(OrderNumberBlockAllocator blockAllocator, Clock clock) {
+        this.blockAllocator = blockAllocator;
+        this.clock = clock;
+    }
+
+    /**
+     * Next order number for the current business day
+     *
+     * Call outside any transaction: refilling the block takes a connection of its own, so the
+     * callers queued behind a refill must not be holding one.
+     */
+    public synchronized String nextOrderNumber() {
+        LocalDate today = LocalDate.now(clock);
+        if (!today.equals(blockDate) || nextValue >= blockLimit) {
+            reserveBlock(today);
+        }
+        return format(datePrefix, nextValue++);
+    }
+
+    private void reserveBlock(LocalDate date) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                long start = blockAllocator.allocate(date, blockSize);
+                if (!date.equals(blockDate)) {
+                    datePrefix = buildPrefix(date);
+                    blockDate = date;
+                }
+                nextValue = start;
+                blockLimit = start + blockSize;
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Another replica created the day's sequence row first; the next attempt locks it
+                if (attempt >= MAX_ALLOCATION_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Order number sequence for {} created concurrently, retrying", date);
+            }
+        }
+    }
+
+    static char[] buildPrefix(LocalDate date) {
+        char[] prefix = new char[13];
+        "ORD-".getChars(0, 4, prefix, 0);
+        writeDigits(prefix, 4, date.getYear(), 4);
+        writeDigits(prefix, 8, date.getMonthValue(), 2);
+        writeDigits(prefix, 10, date.getDayOfMonth(), 2);
+        prefix[12] = '-';
+        return prefix;
+    }
+
+    static String format(char[] prefix, long value) {
+        int digits = Math.max(MIN_SEQUENCE_DIGITS, digitCount(value));
+        char[] chars = new char[prefix.length + digits];
+        System.arraycopy(prefix, 0, chars, 0, prefix.length);
+        writeDigits(chars, prefix.length, value, digits);
+        return new String(chars);
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void writeDigits(char[] target, int offset, long value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            target[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
+import com.garbaking.orderservice.repository.OrderOutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Order Outbox Relay
+ *
+ * Drains order_outbox_events to the order topics declared in KafkaTopicConfig.
+ * Each poll claims a batch with a lease in a short transaction (skipping rows held by another
+ * replica), sends it asynchronously with no transaction or row lock held, waits for the
+ * acknowledgements and records the outcome in a second short transaction. If an instance dies
+ * mid-batch, its claims lapse after order.outbox.lease and another instance takes them over.
+ *
+ * Failed events are retried with exponential backoff and parked after order.outbox.max-attempts.
+ * An event is only claimed once every earlier event of its order is published or parked, so a
+ * failing event holds back the rest of its order instead of being overtaken.
+ * Delivery is at-least-once; consumers de-duplicate on the "event-id" header.
+ */
+@Component
+@Slf4j
+public class OrderOutboxRelay {
+
+    static final String EVENT_ID_HEADER = "event-id";
+    static final String EVENT_TYPE_HEADER = "event-type";
+
+    private final OrderOutboxEventRepository outboxRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<OrderOutboxEvent.EventType, String> topics = new EnumMap<>(OrderOutboxEvent.EventType.class);
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter parkedCounter;
+    private final Timer batchTimer;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong parkedEvents = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @Value("${order.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${order.outbox.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    @Value("${order.outbox.lease:PT1M}")
+    private Duration lease;
+
+    @Value("${order.outbox.backoff:PT1S}")
+    private Duration backoff;
+
+    @Value("${order.outbox.max-backoff:PT5M}")
+    private Duration maxBackoff;
+
+    @Value("${order.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.outbox.retention:P1D}")
+    private Duration retention;
+
+    public OrderOutboxRelay(
+            OrderOutboxEventRepository outboxRepository,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${spring.kafka.topics.order-created:order.created}") String orderCreatedTopic,
+            @Value("${spring.kafka.topics.order-status:order.status.changed}") String orderStatusTopic,
+            @Value("${spring.kafka.topics.order-payment:order.payment.updated}") String orderPaymentTopic,
+            @Value("${spring.kafka.topics.order-cancelled:order.cancelled}") String orderCancelledTopic
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        topics.put(OrderOutboxEvent.EventType.ORDER_CREATED, orderCreatedTopic);
+        topics.put(OrderOutboxEvent.EventType.ORDER_STATUS_CHANGED, orderStatusTopic);
+        topics.put(OrderOutboxEvent.EventType.ORDER_PAYMENT_UPDATED, orderPaymentTopic);
+        topics.put(OrderOutboxEvent.EventType.ORDER_CANCELLED, orderCancelledTopic);
+
+        this.publishedCounter = meterRegistry.counter("garbaking_order_outbox_published_total");
+        this.failedCounter = meterRegistry.counter("garbaking_order_outbox_failed_total");
+        this.parkedCounter = meterRegistry.counter("garbaking_order_outbox_parked_events_total");
+        this.batchTimer = meterRegistry.timer("garbaking_order_outbox_relay_batch");
+        meterRegistry.gauge("garbaking_order_outbox_pending_total", pendingEvents);
+        meterRegistry.gauge("garbaking_order_outbox_parked_total", parkedEvents);
+        meterRegistry.gauge("garbaking_order_outbox_lag_seconds", lagSeconds);
+    }
+
+    /**
+     * Relay one batch of pending events
+     *
+     * @return Number of events published
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.poll-interval:PT0.25S}")
+    public int relayPendingEvents() {
+        List<OrderOutboxEvent> batch = transactionTemplate.execute(status -> claimNextBatch());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+        List<CompletableFuture<SendResult<String, Object>>> futures = new ArrayList<>(batch.size());
+        for (OrderOutboxEvent event : batch) {
+            futures.add(send(event));
+        }
+
+        List<Long> publishedIds = new ArrayList<>(batch.size());
+        Map<OrderOutboxEvent, String> failures = new LinkedHashMap<>();
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (int i = 0; i < batch.size(); i++) {
+            OrderOutboxEvent event = batch.get(i);
+            try {
+                long remaining = Math.max(deadline - System.nanoTime(), 0);
+                futures.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                publishedIds.add(event.getId());
+            } catch (Exception e) {
+                String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                failures.put(event, message != null && message.length() > 500 ? message.substring(0, 500) : message);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!publishedIds.isEmpty()) {
+                outboxRepository.markPublished(publishedIds, now);
+            }
+            failures.forEach((event, message) -> recordFailure(event, message, now));
+        });
+
+        publishedCounter.increment(publishedIds.size());
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        log.debug("Relayed {}/{} outbox events", publishedIds.size(), batch.size());
+        return publishedIds.size();
+    }
+
+    /**
+     * Refresh the backlog and lag gauges
+     */
+    @Scheduled(fixedDelayString = "${order.outbox.metrics-interval:PT15S}")
+    @Transactional(readOnly = true)
+    public void refreshLagMetrics() {
+        pendingEvents.set(outboxRepository.countByPublishedAtIsNullAndParkedAtIsNull());
+        parkedEvents.set(outboxRepository.countByParkedAtIsNotNull());
+        LocalDateTime oldest = outboxRepository.findOldestPendingCreatedAt();
+        lagSeconds.set(oldest == null ? 0 : Math.max(Duration.between(oldest, LocalDateTime.now()).getSeconds(), 0));
+    }
+
+    /**
+     * Remove published events past the retention window
+     */
+    @Scheduled(cron = "${order.outbox.cleanup-cron:0 15 * * * *}")
+    @Transactional
+    public void purgePublishedEvents() {
+        int deleted = outboxRepository.deletePublishedBefore(LocalDateTime.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    private List<OrderOutboxEvent> claimNextBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderOutboxEvent> batch = outboxRepository.lockNextBatch(now, PageRequest.of(0, batchSize));
+        if (!batch.isEmpty()) {
+            outboxRepository.claim(batch.stream().map(OrderOutboxEvent::getId).toList(), now.plus(lease));
+        }
+        return batch;
+    }
+
+    private void recordFailure(OrderOutboxEvent event, String message, LocalDateTime now) {
+        int attempts = event.getAttempts() + 1;
+        failedCounter.increment();
+        if (attempts >= maxAttempts) {
+            outboxRepository.recordFailure(event.getId(), message, null, now);
+            parkedCounter.increment();
+            log.error("Parked outbox event {} ({}) for order {} after {} attempts: {}",
+                    event.getEventId(), event.getEventType(), event.getOrderId(), attempts, message);
+            return;
+        }
+        // 1x, 2x, 4x ... the base backoff, capped
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        if (delay.compareTo(maxBackoff) > 0) {
+            delay = maxBackoff;
+        }
+        outboxRepository.recordFailure(event.getId(), message, now.plus(delay), null);
+        log.warn("Failed to relay outbox event {} ({}) for order {}, attempt {}, retrying in {}: {}",
+                event.getEventId(), event.getEventType(), event.getOrderId(), attempts, delay, message);
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OrderOutboxEvent event) {
+        try {
+            JsonNode payload = objectMapper.readTree(event.getPayload());
+            ProducerRecord<String, Object> record = new ProducerRecord<>(
+                    topics.get(event.getEventType()), event.getOrderId().toString(), payload);
+            record.headers().add(EVENT_ID_HEADER, event.getEventId().getBytes(StandardCharsets.UTF_8));
+            record.headers().add(EVENT_TYPE_HEADER, event.getEventType().name().getBytes(StandardCharsets.UTF_8));
+            return kafkaTemplate.send(record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -1,25 +1,32 @@
 package com.garbaking.orderservice.service;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.garbaking.orderservice.dto.*;
 import com.garbaking.orderservice.exception.InvalidOrderStateException;
 import com.garbaking.orderservice.exception.ResourceNotFoundException;
 import com.garbaking.orderservice.model.Order;
 import com.garbaking.orderservice.model.OrderItem;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
 import com.garbaking.orderservice.repository.OrderItemRepository;
 import com.garbaking.orderservice.repository.OrderRepository;
-import lombok.RequiredArgsConstructor;
+import com.garbaking.orderservice.websocket.OrderEventJournal;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -29,16 +36,19 @@ import java.util.stream.Collectors;
  */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OrderEventOutbox orderEventOutbox;
     private final WebSocketService webSocketService;
     private final QRTokenService qrTokenService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderEventJournal eventJournal;
+    private final ActiveOrderIndex activeOrderIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
 
-    private static final AtomicLong orderCounter = new AtomicLong(0);
     private static final Map<Order.OrderStatus, List<Order.OrderStatus>> ALLOWED_STATUS_TRANSITIONS = Map.ofEntries(
             Map.entry(Order.OrderStatus.PENDING, List.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.CANCELLED)),
             Map.entry(Order.OrderStatus.CONFIRMED, List.of(Order.OrderStatus.PREPARING, Order.OrderStatus.CANCELLED)),
@@ -47,16 +57,46 @@ public class OrderService {
             Map.entry(Order.OrderStatus.OUT_FOR_DELIVERY, List.of(Order.OrderStatus.COMPLETED, Order.OrderStatus.CANCELLED))
     );
 
+    public OrderService(
+            OrderRepository orderRepository,
+            OrderItemRepository orderItemRepository,
+            OrderEventOutbox orderEventOutbox,
+            WebSocketService webSocketService,
+            QRTokenService qrTokenService,
+            OrderNumberGenerator orderNumberGenerator,
+            OrderEventJournal eventJournal,
+            ActiveOrderIndex activeOrderIndex,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.orderEventOutbox = orderEventOutbox;
+        this.webSocketService = webSocketService;
+        this.qrTokenService = qrTokenService;
+        this.orderNumberGenerator = orderNumberGenerator;
+        this.eventJournal = eventJournal;
+        this.activeOrderIndex = activeOrderIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
     /**
      * Create a new order
+     *
+     * The order number is taken before the transaction opens: refilling the generator's block
+     * needs a connection of its own, which must not queue behind orders already holding one.
      */
-    @Transactional
     public OrderDTO createOrder(CreateOrderDTO createOrderDTO) {
         log.info("Creating new order for user: {}", createOrderDTO.getUserId());
 
         // Generate unique order number
-        String orderNumber = generateOrderNumber();
+        String orderNumber = orderNumberGenerator.nextOrderNumber();
+
+        return transactionTemplate.execute(status -> createOrder(createOrderDTO, orderNumber));
+    }
 
+    private OrderDTO createOrder(CreateOrderDTO createOrderDTO, String orderNumber) {
         // Create order entity
         Order order = Order.builder()
                 .orderNumber(orderNumber)
@@ -97,30 +137,34 @@ public class OrderService {
         // Calculate totals
         order.calculateTotals();
 
-        // Save order
+        // Reserve the QR token up front so the order row is written once, already referencing it
+        QRTokenService.TokenReservation qrReservation = qrTokenService.reserveToken();
+        order.setQrTokenId(qrReservation.tokenId());
+
+        // Save order; its items are inserted as one JDBC batch
         Order savedOrder = orderRepository.save(order);
         log.info("Order created successfully: {}", savedOrder.getOrderNumber());
 
-        // Generate QR payment token for the order
+        // Generate QR payment token for the order in the same unit of work
         try {
-            QRTokenResponseDTO qrToken = qrTokenService.generateToken(savedOrder);
-            savedOrder.setQrTokenId(qrToken.getTokenId());
-            savedOrder = orderRepository.save(savedOrder);
+            QRTokenResponseDTO qrToken = qrTokenService.issueToken(savedOrder, qrReservation);
             log.info("QR payment token generated for order: {} (Token: {}, Short Code: {})",
                     savedOrder.getOrderNumber(), qrToken.getTokenId(), qrToken.getShortCode());
         } catch (Exception e) {
             log.error("Failed to generate QR token for order {}: {}",
                     savedOrder.getOrderNumber(), e.getMessage(), e);
             // Don't fail order creation if QR generation fails
+            savedOrder.setQrTokenId(null);
         }
 
         // Convert to DTO
         OrderDTO orderDTO = convertToDTO(savedOrder);
 
-        // Publish order.created event to Kafka
-        publishOrderEvent("order.created", savedOrder);
+        // Record order.created event in the outbox
+        publishOrderEvent(OrderOutboxEvent.EventType.ORDER_CREATED, orderDTO);
 
-        // Broadcast via WebSocket for real-time updates
+        // Keep the active order index current, then broadcast via WebSocket for real-time updates
+        activeOrderIndex.onOrderChanged(orderDTO);
         webSocketService.broadcastOrderCreated(orderDTO);
         webSocketService.sendOrderToUser(savedOrder.getUserId(), orderDTO);
 
@@ -172,46 +216,138 @@ public class OrderService {
     }
 
     /**
-     * Get orders by customer phone
+     * Get a page of a user's order summaries, newest first
+     *
+     * @param cursor Position after the previous page, null for the first page
+     * @param limit Page size
      */
     @Transactional(readOnly = true)
-    public CustomerOrderHistoryResponse getOrdersByCustomerPhone(String phone, int limit) {
-        log.info("Fetching orders for customer phone: {}", phone);
-        List<Order> orders = orderRepository.findByCustomerPhoneWithItems(phone);
-        long total = orders.size();
+    public OrderSummaryPage getOrderSummariesByUserId(Long userId, OrderHistoryCursor cursor, int limit) {
+        log.info("Fetching order summaries for user: {}", userId);
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<OrderSummaryDTO> summaries = cursor == null
+                ? orderRepository.findSummariesByUserId(userId, page)
+                : orderRepository.findSummariesByUserIdBefore(userId, cursor.createdAt(), cursor.id(), page);
+
+        String nextCursor = null;
+        if (summaries.size() > limit) {
+            summaries = summaries.subList(0, limit);
+            nextCursor = OrderHistoryCursor.of(summaries.get(limit - 1)).encode();
+        }
+        return OrderSummaryPage.builder()
+                .orders(summaries)
+                .nextCursor(nextCursor)
+                .count(orderRepository.countByUserId(userId))
+                .build();
+    }
 
-        List<OrderDTO> orderDtos = orders.stream()
-                .limit(limit)
+    /**
+     * Get a page of orders by customer phone, newest first, with their items
+     * Only the page's orders are loaded; the total comes from a separate count query
+     *
+     * @param cursor Position after the previous page, null for the first page
+     * @param limit Page size
+     */
+    @Transactional(readOnly = true)
+    public CustomerOrderHistoryResponse getOrdersByCustomerPhone(String phone, OrderHistoryCursor cursor, int limit) {
+        log.info("Fetching orders for customer phone: {}", phone);
+        Pageable page = PageRequest.of(0, limit + 1);
+        List<Long> ids = cursor == null
+                ? orderRepository.findIdsByCustomerPhone(phone, page)
+                : orderRepository.findIdsByCustomerPhoneBefore(phone, cursor.createdAt(), cursor.id(), page);
+
+        boolean hasMore = ids.size() > limit;
+        if (hasMore) {
+            ids = ids.subList(0, limit);
+        }
+        Map<Long, Order> ordersById = ids.isEmpty() ? Map.of() : orderRepository.findAllWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderDTO> orderDtos = ids.stream()
+                .map(ordersById::get)
+                .filter(Objects::nonNull)
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
 
+        String nextCursor = null;
+        if (hasMore && !orderDtos.isEmpty()) {
+            OrderDTO last = orderDtos.get(orderDtos.size() - 1);
+            nextCursor = new OrderHistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
         return CustomerOrderHistoryResponse
                 .builder()
                 .orders(orderDtos)
-                .count(total)
+                .count(orderRepository.countByCustomerPhone(phone))
+                .nextCursor(nextCursor)
                 .build();
     }
 
     /**
      * Get orders by status
+     *
+     * Not transactional: polls answered by the active order index must not take a connection,
+     * so only the database fallback opens a transaction.
      */
-    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByStatus(Order.OrderStatus status) {
         log.info("Fetching orders with status: {}", status);
-        return orderRepository.findByStatusOrderByCreatedAtDesc(status).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        Optional<List<OrderDTO>> indexed = activeOrderIndex.ordersByStatus(status);
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        return readOnlyTransactionTemplate.execute(transaction ->
+                orderRepository.findByStatusOrderByCreatedAtDesc(status).stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
     }
 
     /**
      * Get active orders
+     *
+     * Not transactional, for the same reason as getOrdersByStatus.
      */
-    @Transactional(readOnly = true)
     public List<OrderDTO> getActiveOrders() {
         log.info("Fetching active orders");
-        return orderRepository.findActiveOrders().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        Optional<List<OrderDTO>> indexed = activeOrderIndex.activeOrders();
+        if (indexed.isPresent()) {
+            return indexed.get();
+        }
+        return readOnlyTransactionTemplate.execute(transaction ->
+                orderRepository.findActiveOrdersWithItems().stream()
+                        .map(this::convertToDTO)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Resynchronise a reconnecting display: replay the order events after its last sequence,
+     * or return a snapshot of the active orders when they are no longer buffered.
+     * The snapshot sequence is taken before reading, so events racing the read are replayed live.
+     */
+    @Transactional(readOnly = true)
+    public ActiveOrdersSyncDTO syncActiveOrders(Long since) {
+        if (since != null) {
+            Optional<List<OrderEventJournal.Entry>> missed = eventJournal.since(since);
+            if (missed.isPresent()) {
+                List<OrderEventJournal.Entry> entries = missed.get();
+                return ActiveOrdersSyncDTO.builder()
+                        .sequence(entries.isEmpty() ? since : entries.get(entries.size() - 1).sequence())
+                        .snapshot(false)
+                        .events(entries.stream()
+                                .map(entry -> new RawValue(new String(entry.json(), StandardCharsets.UTF_8)))
+                                .collect(Collectors.toList()))
+                        .build();
+            }
+        }
+
+        // The index is updated before events are numbered, so it is never behind the sequence read first
+        long sequence = eventJournal.currentSequence();
+        log.info("Building active order snapshot at sequence {}", sequence);
+        List<OrderDTO> orders = getActiveOrders();
+        return ActiveOrdersSyncDTO.builder()
+                .sequence(sequence)
+                .snapshot(true)
+                .orders(orders)
+                .events(List.of())
+                .build();
     }
 
     /**
@@ -266,12 +402,12 @@ public class OrderService {
         // Convert to DTO
         OrderDTO orderDTO = convertToDTO(updatedOrder);
 
-        // Publish status change event to Kafka
-        publishOrderEvent("order.status.changed", updatedOrder);
+        // Record status change event in the outbox
+        publishOrderEvent(OrderOutboxEvent.EventType.ORDER_STATUS_CHANGED, orderDTO);
 
-        // Broadcast via WebSocket for real-time updates
-        webSocketService.broadcastOrderStatusChanged(orderDTO);
-        webSocketService.broadcastOrderUpdated(orderDTO);
+        // Keep the active order index current, then broadcast via WebSocket for real-time updates
+        activeOrderIndex.onOrderChanged(orderDTO);
+        webSocketService.broadcastOrderStatusChanged(orderDTO, oldStatus);
         webSocketService.sendOrderToUser(updatedOrder.getUserId(), orderDTO);
 
         return orderDTO;
@@ -304,10 +440,11 @@ public class OrderService {
         // Convert to DTO
         OrderDTO orderDTO = convertToDTO(updatedOrder);
 
-        // Publish payment event to Kafka
-        publishOrderEvent("order.payment.updated", updatedOrder);
+        // Record payment event in the outbox
+        publishOrderEvent(OrderOutboxEvent.EventType.ORDER_PAYMENT_UPDATED, orderDTO);
 
-        // Broadcast via WebSocket for real-time updates
+        // Keep the active order index current, then broadcast via WebSocket for real-time updates
+        activeOrderIndex.onOrderChanged(orderDTO);
         webSocketService.broadcastOrderUpdated(orderDTO);
         webSocketService.sendOrderToUser(updatedOrder.getUserId(), orderDTO);
 
@@ -353,10 +490,11 @@ public class OrderService {
         // Convert to DTO
         OrderDTO orderDTO = convertToDTO(cancelledOrder);
 
-        // Publish cancellation event to Kafka
-        publishOrderEvent("order.cancelled", cancelledOrder);
+        // Record cancellation event in the outbox
+        publishOrderEvent(OrderOutboxEvent.EventType.ORDER_CANCELLED, orderDTO);
 
-        // Broadcast via WebSocket for real-time updates
+        // Keep the active order index current, then broadcast via WebSocket for real-time updates
+        activeOrderIndex.onOrderChanged(orderDTO);
         webSocketService.broadcastOrderCancelled(orderDTO);
         webSocketService.sendOrderToUser(cancelledOrder.getUserId(), orderDTO);
 
@@ -384,20 +522,10 @@ public class OrderService {
         }
 
         orderRepository.deleteById(id);
+        activeOrderIndex.onOrderDeleted(id);
         log.info("Order hard deleted successfully");
     }
 
-    /**
-     * Generate unique order number
-     */
-    private String generateOrderNumber() {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-        String datePart = now.format(formatter);
-        long counter = orderCounter.incrementAndGet();
-        return String.format("ORD-%s-%04d", datePart, counter % 10000);
-    }
-
     /**
      * Validate status transition
      */
@@ -488,17 +616,13 @@ public class OrderService {
     }
 
     /**
-     * Publish order events to Kafka
+     * Record order event in the transactional outbox.
+     * Written in the caller's transaction and relayed to Kafka by OrderOutboxRelay,
+     * so a rollback discards the event and broker latency stays off the request path.
      */
-    private void publishOrderEvent(String topic, Order order) {
-        try {
-            OrderDTO orderDTO = convertToDTO(order);
-            kafkaTemplate.send(topic, order.getId().toString(), orderDTO);
-            log.info("Published event to topic {}: {}", topic, order.getOrderNumber());
-        } catch (Exception e) {
-            log.error("Failed to publish event to topic {}: {}", topic, e.getMessage());
-            // Don't throw exception - event publishing shouldn't fail the main operation
-        }
+    private void publishOrderEvent(OrderOutboxEvent.EventType eventType, OrderDTO orderDTO) {
+        orderEventOutbox.append(eventType, orderDTO);
+        log.info("Queued {} event for order {}", eventType, orderDTO.getOrderNumber());
     }
 
     /**
@@ -0,0 +1,168 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.garbaking.orderservice.model.QRScanAuditLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * QR Audit Spool
+ *
+ * Append-only JSON-lines file holding audit records the database could not take yet.
+ *
+ * Replay first moves the file aside (&lt;path&gt;.replay), so records keep being appended while it
+ * runs, then streams it in chunks. Lines that cannot be read back, such as a write torn by a crash,
+ * are moved to &lt;path&gt;.bad instead of blocking every record after them.
+ */
+class QRAuditSpool {
+
+    private final Path path;
+    private final Path replayPath;
+    private final Path quarantinePath;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader recordReader;
+
+    QRAuditSpool(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.replayPath = path.resolveSibling(path.getFileName() + ".replay");
+        this.quarantinePath = path.resolveSibling(path.getFileName() + ".bad");
+        this.objectMapper = objectMapper;
+        // Derived getters (isSuccess etc.) are written out but have no setters to read back into
+        this.recordReader = objectMapper.readerFor(QRScanAuditLog.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    synchronized void append(List<QRScanAuditLog> records) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (QRScanAuditLog auditLog : records) {
+                writer.write(objectMapper.writeValueAsString(auditLog));
+                writer.write('\n');
+            }
+        }
+    }
+
+    synchronized boolean hasRecords() {
+        try {
+            return Files.exists(replayPath) || Files.exists(path) && Files.size(path) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    Path quarantinePath() {
+        return quarantinePath;
+    }
+
+    /**
+     * Replay spooled records oldest first, in chunks of at most chunkSize. Only one caller may
+     * replay at a time.
+     *
+     * @param chunkSize Records per chunk
+     * @param writer Writes a chunk, returning false if it could not
+     * @return Records replayed and lines quarantined; when a chunk fails, it and every record
+     * after it stay spooled for the next replay
+     */
+    Replay replay(int chunkSize, Predicate<List<QRScanAuditLog>> writer) throws IOException {
+        synchronized (this) {
+            if (!Files.exists(replayPath)) {
+                if (!Files.exists(path)) {
+                    return new Replay(0, 0);
+                }
+                Files.move(path, replayPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+
+        int replayed = 0;
+        int quarantined = 0;
+        Path remainder = null;
+        try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>(chunkSize);
+            List<QRScanAuditLog> chunk = new ArrayList<>(chunkSize);
+            String line;
+            do {
+                line = reader.readLine();
+                if (line != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    QRScanAuditLog record = read(line);
+                    if (record == null) {
+                        quarantine(line);
+                        quarantined++;
+                        continue;
+                    }
+                    lines.add(line);
+                    chunk.add(record);
+                }
+                if (chunk.isEmpty() || line != null && chunk.size() < chunkSize) {
+                    continue;
+                }
+                if (!writer.test(chunk)) {
+                    remainder = keep(lines, reader);
+                    break;
+                }
+                replayed += chunk.size();
+                lines.clear();
+                chunk.clear();
+            } while (line != null);
+        }
+
+        if (remainder != null) {
+            Files.move(remainder, replayPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } else {
+            Files.delete(replayPath);
+        }
+        return new Replay(replayed, quarantined);
+    }
+
+    private QRScanAuditLog read(String line) {
+        try {
+            return recordReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void quarantine(String line) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(quarantinePath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(line);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Copy the failed chunk and everything not read yet to a file that replaces the replay file
+     */
+    private Path keep(List<String> failedChunk, BufferedReader unread) throws IOException {
+        Path remainder = replayPath.resolveSibling(replayPath.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(remainder, StandardCharsets.UTF_8)) {
+            for (String line : failedChunk) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            unread.transferTo(writer);
+        }
+        return remainder;
+    }
+
+    /**
+     * Outcome of one replay
+     */
+    record Replay(int replayed, int quarantined) {
+    }
+}
@@ -0,0 +1,243 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.model.QRScanAuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QR Audit Writer
+ *
+ * Takes QR scan audit records off the request path. Callers only enqueue; a background thread
+ * writes the queue to qr_scan_audit_log in JDBC batches.
+ *
+ * The queue is bounded. When it is full, or a batch fails to insert, records go to an optional
+ * append-only spool file that is replayed once the database keeps up again; without a spool they
+ * are dropped and counted in garbaking_qr_audit_dropped_total. Spooled lines that cannot be read
+ * back are set aside and counted in garbaking_qr_audit_quarantined_total.
+ */
+@Component
+@Slf4j
+public class QRAuditWriter {
+
+    static final String INSERT_SQL = "INSERT INTO qr_scan_audit_log (order_id, token_id, short_code, action, status, " +
+            "error_message, device_id, device_type, user_id, user_role, scan_timestamp, processing_time_ms, " +
+            "ip_address, user_agent, store_id, terminal_id, payment_method, payment_amount, transaction_id, " +
+            "created_at, metadata) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QRAuditSpool spool;
+    private final ScheduledExecutorService scheduler;
+    private final Duration flushInterval;
+    private final int capacity;
+    private final int batchSize;
+
+    private final Queue<QRScanAuditLog> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Counter writtenCounter;
+    private final Counter spooledCounter;
+    private final Counter droppedCounter;
+    private final Counter quarantinedCounter;
+
+    @Autowired
+    public QRAuditWriter(
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${qr.audit.queue-capacity:10000}") int capacity,
+            @Value("${qr.audit.batch-size:200}") int batchSize,
+            @Value("${qr.audit.flush-interval:PT0.5S}") Duration flushInterval,
+            @Value("${qr.audit.spool.enabled:false}") boolean spoolEnabled,
+            @Value("${qr.audit.spool.path:qr-audit.spool}") Path spoolPath
+    ) {
+        this(jdbcTemplate, meterRegistry, capacity, batchSize, flushInterval,
+                spoolEnabled ? new QRAuditSpool(spoolPath, objectMapper) : null, newWriterThread());
+    }
+
+    QRAuditWriter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int capacity, int batchSize,
+                  Duration flushInterval, QRAuditSpool spool, ScheduledExecutorService scheduler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.spool = spool;
+        this.scheduler = scheduler;
+        this.writtenCounter = meterRegistry.counter("garbaking_qr_audit_written_total");
+        this.spooledCounter = meterRegistry.counter("garbaking_qr_audit_spooled_total");
+        this.droppedCounter = meterRegistry.counter("garbaking_qr_audit_dropped_total");
+        this.quarantinedCounter = meterRegistry.counter("garbaking_qr_audit_quarantined_total");
+        meterRegistry.gauge("garbaking_qr_audit_queue_size", queued);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (scheduler != null) {
+            long intervalMillis = flushInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::flushSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue an audit record; never blocks and never throws
+     */
+    public void record(QRScanAuditLog auditLog) {
+        if (auditLog.getCreatedAt() == null) {
+            auditLog.setCreatedAt(LocalDateTime.now());
+        }
+        if (queued.incrementAndGet() > capacity) {
+            queued.decrementAndGet();
+            overflow(List.of(auditLog));
+            return;
+        }
+        queue.offer(auditLog);
+    }
+
+    /**
+     * Write everything queued, then anything spooled earlier
+     */
+    void flush() {
+        List<QRScanAuditLog> batch;
+        while (!(batch = takeBatch()).isEmpty()) {
+            if (!write(batch)) {
+                overflow(batch);
+                return;
+            }
+        }
+        replaySpool();
+    }
+
+    int queuedCount() {
+        return queued.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushSafely();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("QR audit flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<QRScanAuditLog> takeBatch() {
+        List<QRScanAuditLog> batch = new ArrayList<>(batchSize);
+        QRScanAuditLog auditLog;
+        while (batch.size() < batchSize && (auditLog = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(auditLog);
+        }
+        return batch;
+    }
+
+    private void replaySpool() {
+        if (spool == null || !spool.hasRecords()) {
+            return;
+        }
+        try {
+            QRAuditSpool.Replay replay = spool.replay(batchSize, this::write);
+            if (replay.quarantined() > 0) {
+                quarantinedCounter.increment(replay.quarantined());
+                log.error("Moved {} unreadable spooled QR audit record(s) to {}",
+                        replay.quarantined(), spool.quarantinePath());
+            }
+            if (replay.replayed() > 0) {
+                log.info("Replayed {} spooled QR audit record(s)", replay.replayed());
+            }
+        } catch (IOException e) {
+            log.error("Failed to replay QR audit spool: {}", e.getMessage());
+        }
+    }
+
+    private boolean write(List<QRScanAuditLog> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, auditLog) -> {
+                ps.setObject(1, auditLog.getOrderId());
+                ps.setString(2, auditLog.getTokenId());
+                ps.setString(3, auditLog.getShortCode());
+                ps.setString(4, auditLog.getAction());
+                ps.setString(5, auditLog.getStatus());
+                ps.setString(6, truncate(auditLog.getErrorMessage(), 500));
+                ps.setString(7, auditLog.getDeviceId());
+                ps.setString(8, auditLog.getDeviceType());
+                ps.setObject(9, auditLog.getUserId());
+                ps.setString(10, auditLog.getUserRole());
+                ps.setTimestamp(11, Timestamp.valueOf(auditLog.getScanTimestamp()));
+                ps.setObject(12, auditLog.getProcessingTimeMs());
+                ps.setString(13, auditLog.getIpAddress());
+                ps.setString(14, auditLog.getUserAgent());
+                ps.setObject(15, auditLog.getStoreId());
+                ps.setString(16, auditLog.getTerminalId());
+                ps.setString(17, auditLog.getPaymentMethod());
+                ps.setBigDecimal(18, auditLog.getPaymentAmount());
+                ps.setString(19, auditLog.getTransactionId());
+                ps.setTimestamp(20, Timestamp.valueOf(auditLog.getCreatedAt()));
+                ps.setString(21, auditLog.getMetadata());
+            });
+            writtenCounter.increment(batch.size());
+            return true;
+        } catch (DataAccessException e) {
+            log.warn("Failed to write {} QR audit record(s): {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void overflow(List<QRScanAuditLog> records) {
+        if (spool != null) {
+            try {
+                spool.append(records);
+                spooledCounter.increment(records.size());
+                return;
+            } catch (IOException e) {
+                log.error("Failed to spool QR audit records: {}", e.getMessage());
+            }
+        }
+        droppedCounter.increment(records.size());
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    private static ScheduledExecutorService newWriterThread() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-audit-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -4,10 +4,11 @@ import com.garbaking.orderservice.dto.ConfirmPaymentDTO;
 import com.garbaking.orderservice.dto.OrderDTO;
 import com.garbaking.orderservice.dto.QRScanResultDTO;
 import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
 import com.garbaking.orderservice.model.PaymentQRToken;
 import com.garbaking.orderservice.model.QRScanAuditLog;
+import com.garbaking.orderservice.observability.QRScanMetrics;
 import com.garbaking.orderservice.repository.OrderRepository;
-import com.garbaking.orderservice.repository.QRScanAuditLogRepository;
 import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,8 +31,11 @@ public class QRPaymentService {
     private final QRTokenService tokenService;
     private final OrderService orderService;
     private final OrderRepository orderRepository;
-    private final QRScanAuditLogRepository auditLogRepository;
+    private final QRAuditWriter auditWriter;
+    private final QRScanMetrics scanMetrics;
     private final WebSocketService webSocketService;
+    private final OrderEventOutbox orderEventOutbox;
+    private final ActiveOrderIndex activeOrderIndex;
 
     /**
      * Scan QR code and retrieve order details
@@ -241,8 +245,8 @@ public class QRPaymentService {
                 throw new IllegalStateException("Order already paid");
             }
 
-            // Mark token as used
-            tokenService.markTokenUsed(tokenId, userId, deviceId);
+            // Consume the token; fails if another till already used it
+            tokenService.consumeToken(tokenId, userId, deviceId);
 
             // Update order payment status
             order.setPaymentStatus(Order.PaymentStatus.PAID);
@@ -270,6 +274,11 @@ public class QRPaymentService {
                     order.getTotalAmount(), confirmDTO.getTransactionId(),
                     System.currentTimeMillis() - startTime);
 
+            // Convert to DTO and record the payment event in the same transaction
+            OrderDTO orderDTO = orderService.mapToDTO(savedOrder);
+            orderEventOutbox.append(OrderOutboxEvent.EventType.ORDER_PAYMENT_UPDATED, orderDTO);
+            activeOrderIndex.onOrderChanged(orderDTO);
+
             // Broadcast WebSocket event
             try {
                 webSocketService.broadcastOrderUpdate(savedOrder);
@@ -278,9 +287,6 @@ public class QRPaymentService {
                 // Don't fail the payment confirmation if WebSocket fails
             }
 
-            // Convert to DTO
-            OrderDTO orderDTO = orderService.mapToDTO(savedOrder);
-
             log.info("Payment confirmed successfully - Order: {}, Amount: {}, Method: {}",
                     order.getOrderNumber(), order.getTotalAmount(), confirmDTO.getPaymentMethod());
 
@@ -307,13 +313,19 @@ public class QRPaymentService {
     }
 
     /**
-     * Log QR scan audit entry
+     * Log QR scan audit entry and record the outcome in the QR operation metrics
+     * Written asynchronously, so it is kept even if the surrounding transaction rolls back
      */
     private void logScan(Long orderId, String tokenId, String shortCode,
                          String action, String status, String deviceId, Long userId,
                          String errorMessage, String paymentMethod,
                          java.math.BigDecimal paymentAmount, String transactionId,
                          long processingTimeMs) {
+        QRScanMetrics.Operation operation = "CONFIRM_PAYMENT".equals(action) ? QRScanMetrics.Operation.CONFIRM
+                : shortCode != null ? QRScanMetrics.Operation.SHORT_CODE_SCAN
+                : QRScanMetrics.Operation.SCAN;
+        scanMetrics.record(operation, status, paymentMethod, paymentAmount, processingTimeMs);
+
         try {
             QRScanAuditLog auditLog = QRScanAuditLog.builder()
                     .orderId(orderId)
@@ -332,7 +344,8 @@ public class QRPaymentService {
                     .transactionId(transactionId)
                     .build();
 
-            auditLogRepository.save(auditLog);
+            // Queued for a background batch insert; never blocks the scan
+            auditWriter.record(auditLog);
 
         } catch (Exception e) {
             // Don't fail the operation if audit logging fails
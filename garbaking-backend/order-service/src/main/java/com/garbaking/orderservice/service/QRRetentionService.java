@@ -0,0 +1,165 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
+import com.garbaking.orderservice.repository.QRScanAuditLogRepository;
+import com.garbaking.orderservice.repository.QRScanDailyStatsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * QR Retention Service
+ *
+ * Keeps qr_scan_audit_log and payment_qr_tokens from growing without bound. Old rows are deleted
+ * in chunks of qr.retention.chunk-size, each in its own short transaction, so a purge never holds
+ * locks on a large range. Audit rows are first added to qr_scan_daily_stats in the same
+ * transaction that deletes them.
+ */
+@Component
+@Slf4j
+public class QRRetentionService {
+
+    static final String AUDIT_TABLE = "qr_scan_audit_log";
+    static final String TOKEN_TABLE = "payment_qr_tokens";
+
+    private static final String TABLE_ROWS_SQL = "SELECT COALESCE(table_rows, 0) FROM information_schema.tables " +
+            "WHERE table_schema = DATABASE() AND table_name = ?";
+
+    private final QRScanAuditLogRepository auditLogRepository;
+    private final PaymentQRTokenRepository tokenRepository;
+    private final QRScanDailyStatsRepository dailyStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter auditPurgedCounter;
+    private final Counter tokensPurgedCounter;
+    private final Timer runTimer;
+    private final Map<String, AtomicLong> tableRows;
+
+    @Value("${qr.retention.audit-retention:P90D}")
+    private Duration auditRetention;
+
+    @Value("${qr.retention.token-retention:P7D}")
+    private Duration tokenRetention;
+
+    @Value("${qr.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${qr.retention.max-chunks-per-run:200}")
+    private int maxChunksPerRun;
+
+    @Value("${qr.retention.rollup-enabled:true}")
+    private boolean rollupEnabled;
+
+    public QRRetentionService(
+            QRScanAuditLogRepository auditLogRepository,
+            PaymentQRTokenRepository tokenRepository,
+            QRScanDailyStatsRepository dailyStatsRepository,
+            PlatformTransactionManager transactionManager,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.auditLogRepository = auditLogRepository;
+        this.tokenRepository = tokenRepository;
+        this.dailyStatsRepository = dailyStatsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+
+        this.auditPurgedCounter = meterRegistry.counter("garbaking_qr_retention_purged_total", "table", AUDIT_TABLE);
+        this.tokensPurgedCounter = meterRegistry.counter("garbaking_qr_retention_purged_total", "table", TOKEN_TABLE);
+        this.runTimer = meterRegistry.timer("garbaking_qr_retention_run");
+        this.tableRows = Map.of(
+                AUDIT_TABLE, meterRegistry.gauge("garbaking_qr_table_rows", Tags.of("table", AUDIT_TABLE), new AtomicLong()),
+                TOKEN_TABLE, meterRegistry.gauge("garbaking_qr_table_rows", Tags.of("table", TOKEN_TABLE), new AtomicLong()));
+    }
+
+    /**
+     * Purge audit logs and tokens past their retention windows
+     */
+    @Scheduled(cron = "${qr.retention.cron:0 30 * * * *}")
+    public void purge() {
+        runTimer.record(() -> {
+            int audits = purgeAuditLogs();
+            int tokens = purgeExpiredTokens();
+            if (audits > 0 || tokens > 0) {
+                log.info("QR retention purged {} audit log(s) and {} expired token(s)", audits, tokens);
+            }
+        });
+        refreshTableSizes();
+    }
+
+    /**
+     * Delete audit logs older than the retention window, rolling them up first when enabled
+     *
+     * @return Number of audit logs deleted
+     */
+    int purgeAuditLogs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(auditRetention);
+        return purgeInChunks(auditPurgedCounter, () -> transactionTemplate.execute(status -> {
+            List<Long> ids = auditLogRepository.findIdsScannedBefore(cutoff, chunkSize);
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            if (rollupEnabled) {
+                dailyStatsRepository.addAuditRows(ids);
+            }
+            return auditLogRepository.deleteByIdIn(ids);
+        }));
+    }
+
+    /**
+     * Delete tokens that expired before the retention window
+     *
+     * @return Number of tokens deleted
+     */
+    int purgeExpiredTokens() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(tokenRetention);
+        return purgeInChunks(tokensPurgedCounter, () -> transactionTemplate.execute(
+                status -> tokenRepository.deleteExpiredTokens(cutoff, chunkSize)));
+    }
+
+    /**
+     * Refresh the table size gauges from the storage engine's row estimates
+     */
+    @Scheduled(initialDelayString = "${qr.retention.metrics-interval:PT5M}",
+            fixedDelayString = "${qr.retention.metrics-interval:PT5M}")
+    public void refreshTableSizes() {
+        tableRows.forEach((table, rows) -> {
+            try {
+                Long estimate = jdbcTemplate.queryForObject(TABLE_ROWS_SQL, Long.class, table);
+                rows.set(estimate != null ? estimate : 0);
+            } catch (DataAccessException e) {
+                log.debug("Failed to read row estimate for {}: {}", table, e.getMessage());
+            }
+        });
+    }
+
+    private int purgeInChunks(Counter purgedCounter, IntSupplier chunk) {
+        int total = 0;
+        for (int i = 0; i < maxChunksPerRun; i++) {
+            int deleted = chunk.getAsInt();
+            total += deleted;
+            purgedCounter.increment(deleted);
+            if (deleted < chunkSize) {
+                break;
+            }
+        }
+        return total;
+    }
+}
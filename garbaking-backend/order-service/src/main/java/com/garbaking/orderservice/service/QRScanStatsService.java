@@ -0,0 +1,117 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.analytics.QRScanOperationStats;
+import com.garbaking.orderservice.dto.analytics.QRScanStats;
+import com.garbaking.orderservice.model.QRScanMinuteStats;
+import com.garbaking.orderservice.repository.QRScanMinuteStatsRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * QR Scan Stats Service
+ *
+ * Historical QR operation statistics summed from qr_scan_minute_stats, so no request scans
+ * the audit log. Live figures come from the garbaking_qr_operation timer.
+ */
+@Service
+@RequiredArgsConstructor
+public class QRScanStatsService {
+
+    private static final String SUCCESS = "SUCCESS";
+
+    private final QRScanMinuteStatsRepository minuteStatsRepository;
+
+    @Transactional(readOnly = true)
+    public QRScanStats getStats(LocalDateTime from, LocalDateTime to) {
+        List<QRScanMinuteStats> rows =
+                minuteStatsRepository.findByMinuteStartGreaterThanEqualAndMinuteStartLessThan(from, to);
+
+        Map<String, OperationTotals> operations = new TreeMap<>();
+        Map<String, Long> paymentMethodCounts = new TreeMap<>();
+        Map<String, BigDecimal> paymentMethodAmounts = new TreeMap<>();
+        for (QRScanMinuteStats row : rows) {
+            operations.computeIfAbsent(row.getOperation(), ignored -> new OperationTotals()).add(row);
+            if (SUCCESS.equals(row.getStatus()) && !row.getPaymentMethod().isEmpty()) {
+                paymentMethodCounts.merge(row.getPaymentMethod(), row.getOperationCount(), Long::sum);
+                paymentMethodAmounts.merge(row.getPaymentMethod(), row.getPaymentAmount(), BigDecimal::add);
+            }
+        }
+
+        List<QRScanOperationStats> operationStats = new ArrayList<>(operations.size());
+        operations.forEach((operation, totals) -> operationStats.add(totals.toStats(operation)));
+
+        return QRScanStats.builder()
+                .from(from)
+                .to(to)
+                .operations(operationStats)
+                .paymentMethodCounts(paymentMethodCounts)
+                .paymentMethodAmounts(paymentMethodAmounts)
+                .build();
+    }
+
+    private static final class OperationTotals {
+
+        private long count;
+        private long successCount;
+        private long totalMs;
+        private long maxMs;
+        private final Map<String, Long> errorCounts = new TreeMap<>();
+        private final long[] buckets = new long[QRScanMinuteStats.LATENCY_BUCKETS_MS.length + 1];
+
+        void add(QRScanMinuteStats row) {
+            count += row.getOperationCount();
+            totalMs += row.getTotalProcessingMs();
+            maxMs = Math.max(maxMs, row.getMaxProcessingMs());
+            if (SUCCESS.equals(row.getStatus())) {
+                successCount += row.getOperationCount();
+            } else {
+                errorCounts.merge(row.getStatus(), row.getOperationCount(), Long::sum);
+            }
+            long[] rowBuckets = row.latencyBuckets();
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] += rowBuckets[i];
+            }
+        }
+
+        QRScanOperationStats toStats(String operation) {
+            return QRScanOperationStats.builder()
+                    .operation(operation)
+                    .count(count)
+                    .successCount(successCount)
+                    .errorCounts(errorCounts)
+                    .averageMs(count == 0 ? 0 : (double) totalMs / count)
+                    .maxMs(maxMs)
+                    .p50Ms(percentile(0.50))
+                    .p95Ms(percentile(0.95))
+                    .p99Ms(percentile(0.99))
+                    .build();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, capped at the observed maximum
+         */
+        private long percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            long[] bounds = QRScanMinuteStats.LATENCY_BUCKETS_MS;
+            for (int i = 0; i < bounds.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(bounds[i], maxMs);
+                }
+            }
+            return maxMs;
+        }
+    }
+}
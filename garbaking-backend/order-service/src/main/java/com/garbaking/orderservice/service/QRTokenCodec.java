@@ -0,0 +1,166 @@
+package com.garbaking.orderservice.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * QR Token Codec
+ *
+ * Signs, verifies and hashes QR payment tokens. Keys and the JWT parser are prepared once and
+ * shared by all threads, so the scan path does no key derivation or parser setup per request.
+ *
+ * Tokens are signed with the active key and carry its id in the "kid" header. Verification also
+ * accepts the previous keys listed in qr.token.previous-keys ("kid=secret,kid=secret"), so the
+ * secret can be rotated without invalidating tokens already printed. Tokens without a "kid"
+ * predate rotation and are checked against the active key.
+ */
+@Component
+@Slf4j
+public class QRTokenCodec {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final String activeKeyId;
+    private final SecretKey activeKey;
+    private final Map<String, SecretKey> verificationKeys;
+    private final String issuer;
+    private final String audience;
+    private final JwtParser parser;
+
+    @Autowired
+    public QRTokenCodec(
+            @Value("${qr.token.secret}") String secret,
+            @Value("${qr.token.key-id:k1}") String activeKeyId,
+            @Value("${qr.token.previous-keys:}") String previousKeys,
+            @Value("${qr.token.issuer:garbaking-pos}") String issuer,
+            @Value("${qr.token.audience:payment-confirmation}") String audience
+    ) {
+        this(activeKeyId, secret, parseKeys(previousKeys), issuer, audience);
+    }
+
+    public QRTokenCodec(String activeKeyId, String activeSecret, Map<String, String> previousSecrets,
+                        String issuer, String audience) {
+        this.activeKeyId = activeKeyId;
+        this.activeKey = hmacKey(activeSecret);
+        this.issuer = issuer;
+        this.audience = audience;
+
+        Map<String, SecretKey> keys = new HashMap<>();
+        previousSecrets.forEach((kid, secret) -> keys.put(kid, hmacKey(secret)));
+        keys.put(activeKeyId, activeKey);
+        this.verificationKeys = Map.copyOf(keys);
+
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    // jjwt 0.11 declares SigningKeyResolver with a raw JwsHeader
+                    @Override
+                    @SuppressWarnings("rawtypes")
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .requireIssuer(issuer)
+                .requireAudience(audience)
+                .build();
+
+        if (previousSecrets.isEmpty()) {
+            log.info("QR tokens signed with key {}", activeKeyId);
+        } else {
+            log.info("QR tokens signed with key {}, also accepting {}", activeKeyId, previousSecrets.keySet());
+        }
+    }
+
+    /**
+     * Sign a token with the active key
+     *
+     * @param claims Custom claims, in addition to the registered ones
+     */
+    public String sign(String tokenId, String subject, Date issuedAt, Date expiresAt, Map<String, Object> claims) {
+        return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, activeKeyId)
+                .setId(tokenId)
+                .setIssuer(issuer)
+                .setAudience(audience)
+                .setSubject(subject)
+                .setIssuedAt(issuedAt)
+                .setExpiration(expiresAt)
+                .addClaims(claims)
+                .signWith(activeKey, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * Verify signature, issuer, audience and expiry, and return the claims
+     *
+     * @throws io.jsonwebtoken.JwtException if the token is not valid
+     */
+    public Claims parse(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * SHA-256 of the token as lowercase hex, as stored in payment_qr_tokens.tokenHash
+     */
+    public String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        return HEX.formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Key resolveKey(String keyId) {
+        if (keyId == null) {
+            return activeKey;
+        }
+        SecretKey key = verificationKeys.get(keyId);
+        if (key == null) {
+            throw new SignatureException("Unknown QR token key id: " + keyId);
+        }
+        return key;
+    }
+
+    private static SecretKey hmacKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Map<String, String> parseKeys(String keys) {
+        Map<String, String> result = new HashMap<>();
+        if (keys == null || keys.isBlank()) {
+            return result;
+        }
+        for (String entry : keys.split(",")) {
+            String trimmed = entry.trim();
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0 || separator == trimmed.length() - 1) {
+                throw new IllegalArgumentException("qr.token.previous-keys entries must be kid=secret");
+            }
+            result.put(trimmed.substring(0, separator), trimmed.substring(separator + 1));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,216 @@
+package com.garbaking.orderservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * QR Token Pool
+ *
+ * Keeps a warm pool of pre-minted QR tokens for kiosk rush hours. A background thread draws
+ * nonces and short codes ahead of time and batch-inserts them into payment_qr_tokens as unbound
+ * rows (order_id = 0); order creation then binds one to its order with a single UPDATE instead of
+ * allocating a code and inserting a row on the request path.
+ *
+ * Unbound rows expire after qr.token.pool.ttl and are purged with other expired tokens. The pool
+ * is off unless qr.token.pool.enabled is set; when it is empty, tokens are minted inline as before.
+ */
+@Component
+@Slf4j
+public class QRTokenPool {
+
+    static final long UNBOUND_ORDER_ID = 0L;
+
+    static final String INSERT_SQL = "INSERT INTO payment_qr_tokens (token_id, order_id, nonce, short_code, " +
+            "token_hash, issued_at, expires_at, is_used, created_at, updated_at) " +
+            "VALUES (?, " + UNBOUND_ORDER_ID + ", ?, ?, '', ?, ?, false, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+    private final boolean enabled;
+    private final int size;
+    private final int batchSize;
+    private final Duration ttl;
+    private final Duration refillInterval;
+
+    private final Queue<QRTokenService.TokenReservation> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+
+    private final Counter mintedCounter;
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    @Autowired
+    public QRTokenPool(
+            JdbcTemplate jdbcTemplate,
+            ShortCodeAllocator shortCodeAllocator,
+            MeterRegistry meterRegistry,
+            @Value("${qr.token.pool.enabled:false}") boolean enabled,
+            @Value("${qr.token.pool.size:200}") int size,
+            @Value("${qr.token.pool.batch-size:50}") int batchSize,
+            @Value("${qr.token.pool.ttl:PT30M}") Duration ttl,
+            @Value("${qr.token.pool.refill-interval:PT1S}") Duration refillInterval
+    ) {
+        this(jdbcTemplate, shortCodeAllocator, meterRegistry, enabled, size, batchSize, ttl, refillInterval,
+                Clock.systemDefaultZone(), enabled ? newRefillThread() : null);
+    }
+
+    QRTokenPool(JdbcTemplate jdbcTemplate, ShortCodeAllocator shortCodeAllocator, MeterRegistry meterRegistry,
+                boolean enabled, int size, int batchSize, Duration ttl, Duration refillInterval,
+                Clock clock, ScheduledExecutorService scheduler) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shortCodeAllocator = shortCodeAllocator;
+        this.enabled = enabled;
+        this.size = size;
+        this.batchSize = batchSize;
+        this.ttl = ttl;
+        this.refillInterval = refillInterval;
+        this.clock = clock;
+        this.scheduler = scheduler;
+        this.mintedCounter = meterRegistry.counter("garbaking_qr_token_pool_minted_total");
+        this.hitCounter = meterRegistry.counter("garbaking_qr_token_pool_takes_total", "result", "hit");
+        this.missCounter = meterRegistry.counter("garbaking_qr_token_pool_takes_total", "result", "miss");
+        meterRegistry.gauge("garbaking_qr_token_pool_available", available);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled && scheduler != null) {
+            long intervalMillis = refillInterval.toMillis();
+            scheduler.scheduleWithFixedDelay(this::refillSafely, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Take a pre-minted token, never blocks
+     *
+     * @return A token whose row is still unbound and unexpired, or empty when the pool is off or drained
+     */
+    public Optional<QRTokenService.TokenReservation> take() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        QRTokenService.TokenReservation reservation;
+        while ((reservation = pool.poll()) != null) {
+            available.decrementAndGet();
+            // Bind well before the row's expiry, so its short code hold outlives the bound token
+            if (reservation.poolExpiresAt().isAfter(now.plus(ttl.dividedBy(2)))) {
+                break;
+            }
+        }
+        if (available.get() < size / 2) {
+            requestRefill();
+        }
+        if (reservation == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        return Optional.of(reservation);
+    }
+
+    /**
+     * Mint tokens until the pool is full again
+     */
+    void refill() {
+        refillRequested.set(false);
+        int missing;
+        while ((missing = size - available.get()) > 0) {
+            if (!mint(Math.min(missing, batchSize))) {
+                return;
+            }
+        }
+    }
+
+    int available() {
+        return available.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        // Rows still in the pool stay unbound and are purged once expired
+    }
+
+    private boolean mint(int count) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime expiresAt = now.plus(ttl);
+        List<QRTokenService.TokenReservation> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(new QRTokenService.TokenReservation(QRTokenService.newTokenId(), UUID.randomUUID().toString(),
+                    shortCodeAllocator.allocate(expiresAt), expiresAt));
+        }
+        try {
+            Timestamp mintedAt = Timestamp.valueOf(now);
+            Timestamp expiry = Timestamp.valueOf(expiresAt);
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, reservation) -> {
+                ps.setString(1, reservation.tokenId());
+                ps.setString(2, reservation.nonce());
+                ps.setString(3, reservation.shortCode());
+                ps.setTimestamp(4, mintedAt);
+                ps.setTimestamp(5, expiry);
+                ps.setTimestamp(6, mintedAt);
+                ps.setTimestamp(7, mintedAt);
+            });
+        } catch (DataAccessException e) {
+            log.warn("Failed to pre-mint {} QR token(s): {}", count, e.getMessage());
+            batch.forEach(reservation -> shortCodeAllocator.release(reservation.shortCode()));
+            return false;
+        }
+        pool.addAll(batch);
+        available.addAndGet(batch.size());
+        mintedCounter.increment(batch.size());
+        return true;
+    }
+
+    private void requestRefill() {
+        if (scheduler != null && refillRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::refillSafely);
+        }
+    }
+
+    private void refillSafely() {
+        try {
+            refill();
+        } catch (RuntimeException e) {
+            log.error("QR token pool refill failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static ScheduledExecutorService newRefillThread() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "qr-token-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -4,28 +4,31 @@ import com.garbaking.orderservice.dto.QRTokenResponseDTO;
 import com.garbaking.orderservice.model.Order;
 import com.garbaking.orderservice.model.PaymentQRToken;
 import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
-import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.security.SignatureException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.crypto.SecretKey;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Service for generating and validating QR payment tokens
  *
- * Handles JWT-based token creation with HMAC-SHA256 signing,
+ * Handles JWT-based token creation with HMAC-SHA256 signing (see QRTokenCodec),
  * replay protection via nonce, and short code generation for fallback.
  */
 @Service
@@ -33,20 +36,22 @@ import java.util.UUID;
 @Slf4j
 public class QRTokenService {
 
-    private final PaymentQRTokenRepository tokenRepository;
+    static final String INSERT_SQL = "INSERT INTO payment_qr_tokens (token_id, order_id, nonce, short_code, " +
+            "token_hash, issued_at, expires_at, is_used, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, false, ?, ?)";
+
+    private static final int MAX_SHORT_CODE_ATTEMPTS = 5;
 
-    @Value("${qr.token.secret}")
-    private String secret;
+    private final PaymentQRTokenRepository tokenRepository;
+    private final QRTokenCodec tokenCodec;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final IssuedTokenCache issuedTokenCache;
+    private final QRTokenPool tokenPool;
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${qr.token.expiry.minutes:5}")
     private int expiryMinutes;
 
-    @Value("${qr.token.issuer:garbaking-pos}")
-    private String issuer;
-
-    @Value("${qr.token.audience:payment-confirmation}")
-    private String audience;
-
     /**
      * Generate QR token for an order
      *
@@ -55,42 +60,70 @@ public class QRTokenService {
      */
     @Transactional
     public QRTokenResponseDTO generateToken(Order order) {
+        return issueToken(order, reserveToken());
+    }
+
+    /**
+     * Reserve a token, so an order can reference its token before the token is written
+     * Takes a pre-minted token from {@link QRTokenPool} when one is available
+     */
+    public TokenReservation reserveToken() {
+        return tokenPool.take().orElseGet(() -> new TokenReservation(newTokenId(), null, null, null));
+    }
+
+    static String newTokenId() {
+        return "qr_" + UUID.randomUUID();
+    }
+
+    /**
+     * Create the QR token for an order with a previously reserved token, in the caller's transaction
+     * A pre-minted token is bound to the order with a single UPDATE; otherwise the token row is inserted
+     *
+     * @param order The order to generate token for
+     * @param reservation Token from {@link #reserveToken()}
+     * @return QRTokenResponseDTO with token and metadata
+     */
+    public QRTokenResponseDTO issueToken(Order order, TokenReservation reservation) {
         log.info("Generating QR token for order: {}", order.getOrderNumber());
 
         try {
-            // Generate unique identifiers
-            String tokenId = "qr_" + UUID.randomUUID().toString();
-            String nonce = UUID.randomUUID().toString();
-            String shortCode = generateShortCode();
+            String tokenId = reservation.tokenId();
 
             // Calculate expiry
             LocalDateTime now = LocalDateTime.now();
             LocalDateTime expiresAt = now.plusMinutes(expiryMinutes);
 
-            // Build JWT
-            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-
-            String token = Jwts.builder()
-                    .setId(tokenId)
-                    .setIssuer(issuer)
-                    .setAudience(audience)
-                    .setSubject("order_" + order.getId())
-                    .setIssuedAt(Date.from(now.atZone(ZoneId.systemDefault()).toInstant()))
-                    .setExpiration(Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()))
-                    .claim("order_id", order.getId())
-                    .claim("order_number", order.getOrderNumber())
-                    .claim("nonce", nonce)
-                    .claim("amount", order.getTotalAmount().toString())
-                    .claim("currency", "XOF")
-                    .claim("short_code", shortCode)
-                    .claim("v", 1) // Token version
-                    .signWith(key, SignatureAlgorithm.HS256)
-                    .compact();
-
-            // Hash token for storage
-            String tokenHash = hashToken(token);
-
-            // Save to database
+            // Unique identifiers come with a pre-minted token
+            String nonce = reservation.preMinted() ? reservation.nonce() : UUID.randomUUID().toString();
+            String shortCode;
+            String token;
+            String tokenHash;
+            if (reservation.preMinted()) {
+                shortCode = reservation.shortCode();
+                token = signToken(order, tokenId, nonce, shortCode, now, expiresAt);
+                tokenHash = tokenCodec.hash(token);
+                if (tokenRepository.bindPreMintedToken(tokenId, order.getId(), tokenHash, now, expiresAt) == 0) {
+                    throw new IllegalStateException("Pre-minted token " + tokenId + " is no longer unbound");
+                }
+            } else {
+                // The unique key on short_code decides: a code taken elsewhere is drawn again.
+                // The insert bypasses the persistence context so a failed attempt leaves the transaction usable.
+                for (int attempt = 1; ; attempt++) {
+                    shortCode = shortCodeAllocator.allocate(expiresAt);
+                    token = signToken(order, tokenId, nonce, shortCode, now, expiresAt);
+                    tokenHash = tokenCodec.hash(token);
+                    try {
+                        insertToken(tokenId, order.getId(), nonce, shortCode, tokenHash, now, expiresAt);
+                        break;
+                    } catch (DuplicateKeyException e) {
+                        if (attempt >= MAX_SHORT_CODE_ATTEMPTS) {
+                            throw e;
+                        }
+                        log.warn("Short code {} is already taken, drawing another", shortCode);
+                    }
+                }
+            }
+
             PaymentQRToken qrToken = PaymentQRToken.builder()
                     .tokenId(tokenId)
                     .orderId(order.getId())
@@ -100,8 +133,7 @@ public class QRTokenService {
                     .issuedAt(now)
                     .expiresAt(expiresAt)
                     .build();
-
-            tokenRepository.save(qrToken);
+            issuedTokenCache.put(qrToken);
 
             log.info("QR token generated successfully: {} (expires at: {})", tokenId, expiresAt);
 
@@ -126,8 +158,42 @@ public class QRTokenService {
         }
     }
 
+    private String signToken(Order order, String tokenId, String nonce, String shortCode,
+                             LocalDateTime now, LocalDateTime expiresAt) {
+        Map<String, Object> claims = new HashMap<>(8);
+        claims.put("order_id", order.getId());
+        claims.put("order_number", order.getOrderNumber());
+        claims.put("nonce", nonce);
+        claims.put("amount", order.getTotalAmount().toString());
+        claims.put("currency", "XOF");
+        claims.put("short_code", shortCode);
+        claims.put("v", 1); // Token version
+
+        return tokenCodec.sign(tokenId, "order_" + order.getId(),
+                Date.from(now.atZone(ZoneId.systemDefault()).toInstant()),
+                Date.from(expiresAt.atZone(ZoneId.systemDefault()).toInstant()),
+                claims);
+    }
+
+    private void insertToken(String tokenId, Long orderId, String nonce, String shortCode, String tokenHash,
+                             LocalDateTime issuedAt, LocalDateTime expiresAt) {
+        Timestamp issued = Timestamp.valueOf(issuedAt);
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            ps.setString(1, tokenId);
+            ps.setLong(2, orderId);
+            ps.setString(3, nonce);
+            ps.setString(4, shortCode);
+            ps.setString(5, tokenHash);
+            ps.setTimestamp(6, issued);
+            ps.setTimestamp(7, Timestamp.valueOf(expiresAt));
+            ps.setTimestamp(8, issued);
+            ps.setTimestamp(9, issued);
+        });
+    }
+
     /**
      * Validate and decode QR token
+     * Recently issued tokens are checked against {@link IssuedTokenCache} without a database read
      *
      * @param token The JWT token string
      * @return Claims from the token if valid
@@ -135,37 +201,35 @@ public class QRTokenService {
      */
     public Claims validateToken(String token) {
         try {
-            SecretKey key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-
             // Parse and validate JWT
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .requireIssuer(issuer)
-                    .requireAudience(audience)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            // Check if token exists in database
+            Claims claims = tokenCodec.parse(token);
             String tokenId = claims.getId();
-            PaymentQRToken qrToken = tokenRepository.findByTokenId(tokenId)
-                    .orElseThrow(() -> new InvalidTokenException("Token not found in database"));
 
-            // Check if token is already used
-            if (qrToken.getIsUsed()) {
-                log.warn("Attempt to use already-used token: {}", tokenId);
-                throw new InvalidTokenException("Token already used");
+            IssuedTokenCache.CachedToken cached = issuedTokenCache.get(tokenId).orElse(null);
+            if (cached == null) {
+                // Check if token exists in database
+                PaymentQRToken qrToken = tokenRepository.findByTokenId(tokenId)
+                        .orElseThrow(() -> new InvalidTokenException("Token not found in database"));
+
+                // Check if token is already used
+                if (qrToken.getIsUsed()) {
+                    log.warn("Attempt to use already-used token: {}", tokenId);
+                    throw new InvalidTokenException("Token already used");
+                }
+
+                issuedTokenCache.put(qrToken);
+                cached = IssuedTokenCache.CachedToken.of(qrToken, 0);
             }
 
             // Check if token is expired (double-check beyond JWT expiry)
-            if (qrToken.isExpired()) {
+            if (cached.isExpired()) {
                 log.warn("Token expired: {}", tokenId);
                 throw new InvalidTokenException("Token expired");
             }
 
             // Verify nonce matches
             String nonce = claims.get("nonce", String.class);
-            if (!qrToken.getNonce().equals(nonce)) {
+            if (!cached.nonce().equals(nonce)) {
                 log.error("Nonce mismatch for token: {}", tokenId);
                 throw new InvalidTokenException("Nonce mismatch - possible replay attack");
             }
@@ -186,23 +250,35 @@ public class QRTokenService {
     }
 
     /**
-     * Mark token as used
+     * Consume a token for payment confirmation
+     * A single conditional UPDATE decides the winner, so two tills confirming with the same
+     * token cannot both succeed. The token row is only read again to explain a failure.
      *
      * @param tokenId The token ID to mark as used
      * @param userId User who used the token
      * @param deviceId Device that used the token
+     * @throws InvalidTokenException if the token is unknown, expired, or already used
      */
     @Transactional
-    public void markTokenUsed(String tokenId, Long userId, String deviceId) {
-        PaymentQRToken token = tokenRepository.findByTokenId(tokenId)
-                .orElseThrow(() -> new InvalidTokenException("Token not found"));
-
-        if (token.getIsUsed()) {
-            throw new InvalidTokenException("Token already marked as used");
+    public void consumeToken(String tokenId, Long userId, String deviceId) {
+        int consumed = tokenRepository.consumeToken(tokenId, userId, deviceId, LocalDateTime.now());
+        IssuedTokenCache.CachedToken cached = issuedTokenCache.evict(tokenId);
+
+        if (consumed == 0) {
+            PaymentQRToken token = tokenRepository.findByTokenId(tokenId)
+                    .orElseThrow(() -> new InvalidTokenException("Token not found"));
+            if (token.getIsUsed()) {
+                log.warn("Attempt to consume already-used token: {}", tokenId);
+                throw new InvalidTokenException("Token already used");
+            }
+            log.warn("Attempt to consume expired token: {}", tokenId);
+            throw new InvalidTokenException("Token expired");
         }
 
-        token.markAsUsed(userId, deviceId);
-        tokenRepository.save(token);
+        if (cached != null) {
+            // Otherwise the allocator frees the code once the token's expiry has passed
+            shortCodeAllocator.release(cached.shortCode());
+        }
 
         log.info("Token marked as used: {} by user {} on device {}", tokenId, userId, deviceId);
     }
@@ -210,12 +286,18 @@ public class QRTokenService {
     /**
      * Validate token by short code
      *
+     * A code cleared for reuse (see ShortCodeAllocator) is looked up among retired codes, so it is
+     * still reported as expired or used rather than invalid until its token is purged.
+     *
      * @param shortCode The 6-8 character short code
      * @return PaymentQRToken if valid
      * @throws InvalidTokenException if code is invalid, expired, or used
      */
     public PaymentQRToken validateByShortCode(String shortCode) {
-        PaymentQRToken token = tokenRepository.findByShortCode(shortCode.toUpperCase())
+        String code = shortCode.toUpperCase();
+        PaymentQRToken token = tokenRepository.findByShortCode(code)
+                .filter(found -> found.getOrderId() != QRTokenPool.UNBOUND_ORDER_ID)
+                .or(() -> tokenRepository.findFirstByRetiredShortCodeOrderByExpiresAtDesc(code))
                 .orElseThrow(() -> new InvalidTokenException("Invalid short code"));
 
         if (token.getIsUsed()) {
@@ -259,60 +341,13 @@ public class QRTokenService {
     }
 
     /**
-     * Generate random 6-8 character short code
-     * Format: "QR" + 6 random alphanumeric characters
-     * Excludes ambiguous characters (0, O, I, 1, etc.)
-     *
-     * @return Short code string
+     * Token id reserved for an order before its token is issued
+     * Pre-minted tokens also carry their nonce, short code and the expiry of their unbound row
      */
-    private String generateShortCode() {
-        String chars = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789"; // Removed ambiguous chars
-        StringBuilder code = new StringBuilder("QR");
-
-        // Generate 6 random characters
-        for (int i = 0; i < 6; i++) {
-            int index = (int) (Math.random() * chars.length());
-            code.append(chars.charAt(index));
-        }
+    public record TokenReservation(String tokenId, String nonce, String shortCode, LocalDateTime poolExpiresAt) {
 
-        // Ensure uniqueness
-        String shortCode = code.toString();
-        while (tokenRepository.findByShortCode(shortCode).isPresent()) {
-            // Regenerate if collision (very unlikely)
-            code = new StringBuilder("QR");
-            for (int i = 0; i < 6; i++) {
-                int index = (int) (Math.random() * chars.length());
-                code.append(chars.charAt(index));
-            }
-            shortCode = code.toString();
-        }
-
-        return shortCode;
-    }
-
-    /**
-     * Hash token using SHA-256 for storage verification
-     *
-     * @param token The token to hash
-     * @return Hexadecimal hash string
-     */
-    private String hashToken(String token) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
-
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-
-            return hexString.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Error hashing token", e);
+        public boolean preMinted() {
+            return poolExpiresAt != null;
         }
     }
 
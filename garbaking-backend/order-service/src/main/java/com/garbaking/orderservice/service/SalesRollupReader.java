@@ -0,0 +1,107 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.model.SalesRollup;
+import com.garbaking.orderservice.repository.MenuItemSalesRollupRepository;
+import com.garbaking.orderservice.repository.OrderRepository;
+import com.garbaking.orderservice.repository.SalesRollupRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sales Rollup Reader
+ *
+ * Answers range totals from the rollup tables: whole days from the daily buckets, whole hours
+ * from the hourly buckets, and only the ragged edges (plus the most recent hour, which the
+ * rollup writer may not have caught up with yet) from the orders table.
+ */
+@Component
+public class SalesRollupReader {
+
+    private final OrderRepository orderRepository;
+    private final SalesRollupRepository salesRollupRepository;
+    private final MenuItemSalesRollupRepository menuItemRollupRepository;
+    private final Duration lagAllowance;
+
+    public SalesRollupReader(
+            OrderRepository orderRepository,
+            SalesRollupRepository salesRollupRepository,
+            MenuItemSalesRollupRepository menuItemRollupRepository,
+            @Value("${analytics.rollup.lag-allowance:PT5M}") Duration lagAllowance
+    ) {
+        this.orderRepository = orderRepository;
+        this.salesRollupRepository = salesRollupRepository;
+        this.menuItemRollupRepository = menuItemRollupRepository;
+        this.lagAllowance = lagAllowance;
+    }
+
+    /**
+     * Load totals for orders created in [start, end]
+     *
+     * @param start Inclusive range start
+     * @param end Inclusive range end
+     * @param now Current time, used to keep the not-yet-rolled-up tail on raw orders
+     * @return Accumulated totals
+     */
+    SalesTotals loadTotals(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        SalesTotals totals = new SalesTotals();
+        if (start == null || end == null || end.isBefore(start)) {
+            return totals;
+        }
+
+        LocalDateTime endExclusive = end.plusNanos(1);
+        LocalDateTime rolledFrom = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime rolledTo = min(endExclusive.truncatedTo(ChronoUnit.HOURS),
+                now.minus(lagAllowance).truncatedTo(ChronoUnit.HOURS));
+
+        Set<Order> rawOrders = new LinkedHashSet<>();
+        if (!rolledFrom.isBefore(rolledTo)) {
+            rawOrders.addAll(orderRepository.findByCreatedAtBetweenWithItems(start, end));
+        } else {
+            if (start.isBefore(rolledFrom)) {
+                rawOrders.addAll(orderRepository.findByCreatedAtBetweenWithItems(start, rolledFrom.minusNanos(1)));
+            }
+
+            LocalDateTime firstDay = min(ceil(rolledFrom, ChronoUnit.DAYS), rolledTo);
+            LocalDateTime lastDay = rolledTo.truncatedTo(ChronoUnit.DAYS);
+            if (firstDay.isBefore(lastDay)) {
+                addBuckets(totals, SalesRollup.Granularity.HOUR, rolledFrom, firstDay);
+                addBuckets(totals, SalesRollup.Granularity.DAY, firstDay, lastDay);
+                addBuckets(totals, SalesRollup.Granularity.HOUR, lastDay, rolledTo);
+            } else {
+                addBuckets(totals, SalesRollup.Granularity.HOUR, rolledFrom, rolledTo);
+            }
+
+            if (rolledTo.isBefore(endExclusive)) {
+                rawOrders.addAll(orderRepository.findByCreatedAtBetweenWithItems(rolledTo, end));
+            }
+        }
+
+        rawOrders.forEach(totals::addOrder);
+        return totals;
+    }
+
+    private void addBuckets(SalesTotals totals, SalesRollup.Granularity granularity,
+                            LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        salesRollupRepository.findBuckets(granularity, from, to).forEach(totals::addRollup);
+        menuItemRollupRepository.findBuckets(granularity, from, to).forEach(totals::addItemRollup);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime floor = time.truncatedTo(unit);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+
+    private static LocalDateTime min(LocalDateTime left, LocalDateTime right) {
+        return left.isBefore(right) ? left : right;
+    }
+}
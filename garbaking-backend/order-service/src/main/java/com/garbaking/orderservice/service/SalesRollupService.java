@@ -0,0 +1,322 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
+import com.garbaking.orderservice.model.OrderRollupState;
+import com.garbaking.orderservice.model.SalesRollup;
+import com.garbaking.orderservice.repository.MenuItemSalesRollupRepository;
+import com.garbaking.orderservice.repository.OrderOutboxEventRepository;
+import com.garbaking.orderservice.repository.OrderRepository;
+import com.garbaking.orderservice.repository.OrderRollupStateRepository;
+import com.garbaking.orderservice.repository.SalesRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sales Rollup Service
+ *
+ * Folds order events from the outbox into the hourly and daily rollup tables.
+ * Every event carries a full order snapshot; it is diffed against the last applied
+ * snapshot (OrderRollupState) so status and payment method changes move counts between
+ * buckets, and stale or redelivered events are no-ops. Deltas of a batch are merged in
+ * memory and written with one atomic upsert per touched row.
+ */
+@Service
+@Slf4j
+public class SalesRollupService {
+
+    private static final String NO_VALUE = "";
+
+    private final OrderOutboxEventRepository outboxRepository;
+    private final OrderRollupStateRepository stateRepository;
+    private final SalesRollupRepository salesRollupRepository;
+    private final MenuItemSalesRollupRepository menuItemRollupRepository;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${analytics.rollup.batch-size:500}")
+    private int batchSize;
+
+    public SalesRollupService(
+            OrderOutboxEventRepository outboxRepository,
+            OrderRollupStateRepository stateRepository,
+            SalesRollupRepository salesRollupRepository,
+            MenuItemSalesRollupRepository menuItemRollupRepository,
+            OrderRepository orderRepository,
+            @Lazy OrderService orderService,
+            ObjectMapper objectMapper
+    ) {
+        this.outboxRepository = outboxRepository;
+        this.stateRepository = stateRepository;
+        this.salesRollupRepository = salesRollupRepository;
+        this.menuItemRollupRepository = menuItemRollupRepository;
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Fold one batch of outbox events into the rollups
+     *
+     * @return Number of events applied
+     */
+    @Scheduled(fixedDelayString = "${analytics.rollup.apply-interval:PT2S}")
+    @Transactional
+    public int applyPendingEvents() {
+        List<OrderOutboxEvent> batch = outboxRepository.lockNextRollupBatch(PageRequest.of(0, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, OrderDTO> snapshots = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (OrderOutboxEvent event : batch) {
+            try {
+                OrderDTO order = objectMapper.readValue(event.getPayload(), OrderDTO.class);
+                snapshots.merge(order.getId(), order, SalesRollupService::latest);
+            } catch (Exception e) {
+                log.error("Skipping unreadable outbox event {} for rollups: {}", event.getEventId(), e.getMessage());
+            }
+            event.setRollupAppliedAt(now);
+        }
+
+        apply(snapshots.values().stream().toList());
+        outboxRepository.saveAll(batch);
+        log.debug("Applied {} outbox events to sales rollups", batch.size());
+        return batch.size();
+    }
+
+    /**
+     * Fold orders that have no rollup state yet (history recorded before the rollups existed)
+     *
+     * @param afterId Resume after this order ID
+     * @param pageSize Orders per page
+     * @return Highest order ID processed, or null when nothing is left
+     */
+    @Transactional
+    public Long backfillPage(Long afterId, int pageSize) {
+        List<Long> ids = orderRepository.findIdsWithoutRollupState(afterId, PageRequest.of(0, pageSize));
+        if (ids.isEmpty()) {
+            return null;
+        }
+        List<OrderDTO> orders = orderRepository.findAllWithItemsByIdIn(ids).stream()
+                .map(orderService::mapToDTO)
+                .toList();
+        apply(orders);
+        return ids.get(ids.size() - 1);
+    }
+
+    /**
+     * Apply order snapshots (at most one per order) to the rollups
+     */
+    void apply(List<OrderDTO> orders) {
+        List<OrderDTO> usable = orders.stream()
+                .filter(order -> order.getId() != null && order.getCreatedAt() != null)
+                .toList();
+        if (usable.isEmpty()) {
+            return;
+        }
+
+        Map<Long, OrderRollupState> states = stateRepository.findAllForUpdate(
+                        usable.stream().map(OrderDTO::getId).toList()).stream()
+                .collect(Collectors.toMap(OrderRollupState::getOrderId, Function.identity()));
+
+        RollupDeltas deltas = new RollupDeltas();
+        for (OrderDTO order : usable) {
+            OrderRollupState state = states.get(order.getId());
+            if (state == null) {
+                addOrder(deltas, order);
+                states.put(order.getId(), OrderRollupState.builder()
+                        .orderId(order.getId())
+                        .orderCreatedAt(order.getCreatedAt())
+                        .status(order.getStatus())
+                        .paymentMethod(order.getPaymentMethod())
+                        .totalAmount(amount(order.getTotalAmount()))
+                        .sourceUpdatedAt(order.getUpdatedAt())
+                        .build());
+            } else if (!isStale(order, state)) {
+                moveOrder(deltas, order, state);
+                state.setStatus(order.getStatus());
+                state.setPaymentMethod(order.getPaymentMethod());
+                state.setSourceUpdatedAt(order.getUpdatedAt());
+            }
+        }
+
+        deltas.flush(salesRollupRepository, menuItemRollupRepository);
+        stateRepository.saveAll(states.values());
+    }
+
+    private void addOrder(RollupDeltas deltas, OrderDTO order) {
+        LocalDateTime createdAt = order.getCreatedAt();
+        BigDecimal total = amount(order.getTotalAmount());
+        BigDecimal tax = amount(order.getTaxAmount());
+        BigDecimal discount = amount(order.getDiscountAmount());
+
+        deltas.add(createdAt, SalesRollup.Dimension.TOTAL, NO_VALUE, 1, total, tax, discount);
+        deltas.add(createdAt, SalesRollup.Dimension.STATUS, name(order.getStatus()), 1, total, tax, discount);
+        deltas.add(createdAt, SalesRollup.Dimension.ORDER_TYPE, name(order.getOrderType()), 1, total, tax, discount);
+        if (order.getPaymentMethod() != null) {
+            deltas.add(createdAt, SalesRollup.Dimension.PAYMENT_METHOD, order.getPaymentMethod().name(),
+                    1, total, tax, discount);
+        }
+
+        Map<Long, List<OrderItemDTO>> itemsByMenuItem = Optional.ofNullable(order.getItems()).orElse(List.of()).stream()
+                .filter(item -> item.getMenuItemId() != null)
+                .collect(Collectors.groupingBy(OrderItemDTO::getMenuItemId, LinkedHashMap::new, Collectors.toList()));
+        itemsByMenuItem.forEach((menuItemId, lines) -> {
+            long quantity = lines.stream().map(OrderItemDTO::getQuantity).filter(Objects::nonNull)
+                    .mapToLong(Integer::longValue).sum();
+            BigDecimal revenue = lines.stream().map(SalesRollupService::lineRevenue)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            OrderItemDTO sample = lines.get(0);
+            deltas.addItem(createdAt, menuItemId, sample.getMenuItemName(), sample.getMenuItemSku(), quantity, revenue);
+        });
+    }
+
+    private void moveOrder(RollupDeltas deltas, OrderDTO order, OrderRollupState state) {
+        LocalDateTime createdAt = state.getOrderCreatedAt();
+        BigDecimal total = amount(state.getTotalAmount());
+
+        if (order.getStatus() != state.getStatus()) {
+            deltas.add(createdAt, SalesRollup.Dimension.STATUS, name(state.getStatus()),
+                    -1, total.negate(), BigDecimal.ZERO, BigDecimal.ZERO);
+            deltas.add(createdAt, SalesRollup.Dimension.STATUS, name(order.getStatus()),
+                    1, total, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        if (order.getPaymentMethod() != state.getPaymentMethod()) {
+            if (state.getPaymentMethod() != null) {
+                deltas.add(createdAt, SalesRollup.Dimension.PAYMENT_METHOD, state.getPaymentMethod().name(),
+                        -1, total.negate(), BigDecimal.ZERO, BigDecimal.ZERO);
+            }
+            if (order.getPaymentMethod() != null) {
+                deltas.add(createdAt, SalesRollup.Dimension.PAYMENT_METHOD, order.getPaymentMethod().name(),
+                        1, total, BigDecimal.ZERO, BigDecimal.ZERO);
+            }
+        }
+    }
+
+    private static boolean isStale(OrderDTO order, OrderRollupState state) {
+        return order.getUpdatedAt() != null && state.getSourceUpdatedAt() != null
+                && order.getUpdatedAt().isBefore(state.getSourceUpdatedAt());
+    }
+
+    private static OrderDTO latest(OrderDTO current, OrderDTO candidate) {
+        if (current.getUpdatedAt() == null || candidate.getUpdatedAt() == null) {
+            return candidate;
+        }
+        return candidate.getUpdatedAt().isBefore(current.getUpdatedAt()) ? current : candidate;
+    }
+
+    private static BigDecimal lineRevenue(OrderItemDTO item) {
+        if (item.getSubtotal() != null) {
+            return item.getSubtotal();
+        }
+        if (item.getUnitPrice() != null && item.getQuantity() != null) {
+            return item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+        }
+        return BigDecimal.ZERO;
+    }
+
+    private static BigDecimal amount(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : "UNKNOWN";
+    }
+
+    /**
+     * Net changes of one batch, keyed by target rollup row
+     */
+    private static final class RollupDeltas {
+
+        private final Map<SalesKey, SalesDelta> sales = new HashMap<>();
+        private final Map<ItemKey, ItemDelta> items = new HashMap<>();
+
+        void add(LocalDateTime createdAt, SalesRollup.Dimension dimension, String value,
+                 long orders, BigDecimal revenue, BigDecimal tax, BigDecimal discount) {
+            for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+                SalesDelta delta = sales.computeIfAbsent(
+                        new SalesKey(granularity, bucketStart(granularity, createdAt), dimension, value),
+                        key -> new SalesDelta());
+                delta.orders += orders;
+                delta.revenue = delta.revenue.add(revenue);
+                delta.tax = delta.tax.add(tax);
+                delta.discount = delta.discount.add(discount);
+            }
+        }
+
+        void addItem(LocalDateTime createdAt, Long menuItemId, String name, String sku,
+                     long quantity, BigDecimal revenue) {
+            for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+                ItemDelta delta = items.computeIfAbsent(
+                        new ItemKey(granularity, bucketStart(granularity, createdAt), menuItemId),
+                        key -> new ItemDelta());
+                delta.name = name;
+                delta.sku = sku;
+                delta.quantity += quantity;
+                delta.revenue = delta.revenue.add(revenue);
+                delta.orders++;
+            }
+        }
+
+        void flush(SalesRollupRepository salesRepository, MenuItemSalesRollupRepository itemRepository) {
+            sales.forEach((key, delta) -> {
+                if (delta.orders != 0 || delta.revenue.signum() != 0) {
+                    salesRepository.increment(key.granularity().name(), key.bucketStart(), key.dimension().name(),
+                            key.value(), delta.orders, delta.revenue, delta.tax, delta.discount);
+                }
+            });
+            items.forEach((key, delta) -> itemRepository.increment(key.granularity().name(), key.bucketStart(),
+                    key.menuItemId(), delta.name, delta.sku, delta.quantity, delta.revenue, delta.orders));
+        }
+
+        private static LocalDateTime bucketStart(SalesRollup.Granularity granularity, LocalDateTime time) {
+            return granularity == SalesRollup.Granularity.HOUR
+                    ? time.truncatedTo(ChronoUnit.HOURS)
+                    : time.truncatedTo(ChronoUnit.DAYS);
+        }
+    }
+
+    private record SalesKey(SalesRollup.Granularity granularity, LocalDateTime bucketStart,
+                            SalesRollup.Dimension dimension, String value) {
+    }
+
+    private record ItemKey(SalesRollup.Granularity granularity, LocalDateTime bucketStart, Long menuItemId) {
+    }
+
+    private static final class SalesDelta {
+        private long orders;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal tax = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+    }
+
+    private static final class ItemDelta {
+        private String name;
+        private String sku;
+        private long quantity;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long orders;
+    }
+}
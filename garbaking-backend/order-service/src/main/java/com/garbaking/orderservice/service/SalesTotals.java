@@ -0,0 +1,208 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.MenuItemSalesRollup;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.model.OrderItem;
+import com.garbaking.orderservice.model.SalesRollup;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Sales totals for a time range, accumulated from rollup rows and raw orders alike
+ * so callers do not care which parts of the range were pre-aggregated.
+ */
+class SalesTotals {
+
+    private long orderCount;
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private BigDecimal taxAmount = BigDecimal.ZERO;
+    private BigDecimal discountAmount = BigDecimal.ZERO;
+
+    private final Map<String, Long> countByPaymentMethod = new HashMap<>();
+    private final Map<String, BigDecimal> revenueByPaymentMethod = new HashMap<>();
+    private final Map<String, Long> countByOrderType = new HashMap<>();
+    private final Map<String, Long> countByStatus = new HashMap<>();
+    private final Map<Long, ItemTotals> items = new LinkedHashMap<>();
+
+    void addOrder(Order order) {
+        addOrderTotals(order.getTotalAmount(), order.getTaxAmount(), order.getDiscountAmount(),
+                order.getStatus(), order.getOrderType(), order.getPaymentMethod());
+        Set<Long> seen = new HashSet<>();
+        for (OrderItem item : Optional.ofNullable(order.getItems()).orElse(List.of())) {
+            addItem(item.getMenuItemId(), item.getMenuItemName(), item.getMenuItemSku(),
+                    item.getQuantity(), item.getUnitPrice(), item.getSubtotal(), seen);
+        }
+    }
+
+    void addOrder(OrderDTO order) {
+        addOrderTotals(order.getTotalAmount(), order.getTaxAmount(), order.getDiscountAmount(),
+                order.getStatus(), order.getOrderType(), order.getPaymentMethod());
+        Set<Long> seen = new HashSet<>();
+        for (OrderItemDTO item : Optional.ofNullable(order.getItems()).orElse(List.of())) {
+            addItem(item.getMenuItemId(), item.getMenuItemName(), item.getMenuItemSku(),
+                    item.getQuantity(), item.getUnitPrice(), item.getSubtotal(), seen);
+        }
+    }
+
+    void addRollup(SalesRollup rollup) {
+        long count = Optional.ofNullable(rollup.getOrderCount()).orElse(0L);
+        BigDecimal amount = Optional.ofNullable(rollup.getRevenue()).orElse(BigDecimal.ZERO);
+        switch (rollup.getDimension()) {
+            case TOTAL -> {
+                orderCount += count;
+                revenue = revenue.add(amount);
+                taxAmount = taxAmount.add(Optional.ofNullable(rollup.getTaxAmount()).orElse(BigDecimal.ZERO));
+                discountAmount = discountAmount.add(
+                        Optional.ofNullable(rollup.getDiscountAmount()).orElse(BigDecimal.ZERO));
+            }
+            case PAYMENT_METHOD -> {
+                countByPaymentMethod.merge(rollup.getDimensionValue(), count, Long::sum);
+                revenueByPaymentMethod.merge(rollup.getDimensionValue(), amount, BigDecimal::add);
+            }
+            case ORDER_TYPE -> countByOrderType.merge(rollup.getDimensionValue(), count, Long::sum);
+            case STATUS -> countByStatus.merge(rollup.getDimensionValue(), count, Long::sum);
+        }
+    }
+
+    void addItemRollup(MenuItemSalesRollup rollup) {
+        ItemTotals totals = items.computeIfAbsent(rollup.getMenuItemId(),
+                id -> new ItemTotals(id, rollup.getMenuItemName(), rollup.getMenuItemSku()));
+        totals.quantity += Optional.ofNullable(rollup.getQuantity()).orElse(0L);
+        totals.revenue = totals.revenue.add(Optional.ofNullable(rollup.getRevenue()).orElse(BigDecimal.ZERO));
+        totals.orderCount += Optional.ofNullable(rollup.getOrderCount()).orElse(0L);
+    }
+
+    long orderCount() {
+        return orderCount;
+    }
+
+    BigDecimal revenue() {
+        return revenue;
+    }
+
+    BigDecimal taxAmount() {
+        return taxAmount;
+    }
+
+    BigDecimal discountAmount() {
+        return discountAmount;
+    }
+
+    Map<String, Long> countByPaymentMethod() {
+        return dropEmpty(countByPaymentMethod);
+    }
+
+    Map<String, BigDecimal> revenueByPaymentMethod() {
+        Map<String, BigDecimal> result = new HashMap<>(revenueByPaymentMethod);
+        result.keySet().retainAll(countByPaymentMethod().keySet());
+        return result;
+    }
+
+    BigDecimal revenueFor(Order.PaymentMethod method) {
+        return revenueByPaymentMethod.getOrDefault(method.name(), BigDecimal.ZERO);
+    }
+
+    Map<String, Long> countByOrderType() {
+        return dropEmpty(countByOrderType);
+    }
+
+    Map<String, Long> countByStatus() {
+        return dropEmpty(countByStatus);
+    }
+
+    Collection<ItemTotals> items() {
+        return items.values();
+    }
+
+    private static Map<String, Long> dropEmpty(Map<String, Long> counts) {
+        Map<String, Long> result = new HashMap<>(counts);
+        result.values().removeIf(count -> count <= 0);
+        return result;
+    }
+
+    private void addOrderTotals(BigDecimal totalAmount, BigDecimal tax, BigDecimal discount, Order.OrderStatus status,
+                                Order.OrderType orderType, Order.PaymentMethod paymentMethod) {
+        BigDecimal total = Optional.ofNullable(totalAmount).orElse(BigDecimal.ZERO);
+        orderCount++;
+        revenue = revenue.add(total);
+        taxAmount = taxAmount.add(Optional.ofNullable(tax).orElse(BigDecimal.ZERO));
+        discountAmount = discountAmount.add(Optional.ofNullable(discount).orElse(BigDecimal.ZERO));
+
+        countByStatus.merge(name(status), 1L, Long::sum);
+        countByOrderType.merge(name(orderType), 1L, Long::sum);
+        if (paymentMethod != null) {
+            countByPaymentMethod.merge(paymentMethod.name(), 1L, Long::sum);
+            revenueByPaymentMethod.merge(paymentMethod.name(), total, BigDecimal::add);
+        }
+    }
+
+    private void addItem(Long menuItemId, String menuItemName, String menuItemSku, Integer quantity,
+                         BigDecimal unitPrice, BigDecimal subtotal, Set<Long> seenInOrder) {
+        if (menuItemId == null) {
+            return;
+        }
+        ItemTotals totals = items.computeIfAbsent(menuItemId, id -> new ItemTotals(id, menuItemName, menuItemSku));
+        totals.quantity += Optional.ofNullable(quantity).orElse(0);
+        if (subtotal != null) {
+            totals.revenue = totals.revenue.add(subtotal);
+        } else if (unitPrice != null && quantity != null) {
+            totals.revenue = totals.revenue.add(unitPrice.multiply(BigDecimal.valueOf(quantity)));
+        }
+        if (seenInOrder.add(menuItemId)) {
+            totals.orderCount++;
+        }
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : "UNKNOWN";
+    }
+
+    static final class ItemTotals {
+        private final Long menuItemId;
+        private final String menuItemName;
+        private final String menuItemSku;
+        private long quantity;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long orderCount;
+
+        private ItemTotals(Long menuItemId, String menuItemName, String menuItemSku) {
+            this.menuItemId = menuItemId;
+            this.menuItemName = menuItemName;
+            this.menuItemSku = menuItemSku;
+        }
+
+        Long menuItemId() {
+            return menuItemId;
+        }
+
+        String menuItemName() {
+            return menuItemName;
+        }
+
+        String menuItemSku() {
+            return menuItemSku;
+        }
+
+        long quantity() {
+            return quantity;
+        }
+
+        BigDecimal revenue() {
+            return revenue;
+        }
+
+        long orderCount() {
+            return orderCount;
+        }
+    }
+}
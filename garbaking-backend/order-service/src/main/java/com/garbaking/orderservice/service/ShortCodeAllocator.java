@@ -0,0 +1,148 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short Code Allocator
+ *
+ * Picks QR short codes ("QR" + 6 characters from a 32-letter alphabet, about a billion codes)
+ * without asking the database whether a code is free. Codes held by live tokens are tracked in
+ * memory until their token expires (or is used) plus a reuse delay, then become available again.
+ *
+ * Seeded from payment_qr_tokens on startup and re-read periodically, which also picks up codes
+ * issued by other replicas. The map only avoids drawing codes known to be taken: the unique key on
+ * short_code stays the arbiter, and callers draw again when an insert hits it. Codes of tokens
+ * past the reuse delay are moved to retired_short_code in the database, so reissuing one does not
+ * hit that key while a scan of the old code is still reported as expired.
+ */
+@Component
+@Slf4j
+public class ShortCodeAllocator {
+
+    static final String PREFIX = "QR";
+    static final int RANDOM_LENGTH = 6;
+    private static final char[] ALPHABET = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789".toCharArray(); // Removed ambiguous chars
+
+    private final PaymentQRTokenRepository tokenRepository;
+    private final Clock clock;
+    private final Duration reuseAfter;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Long> heldUntil = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ShortCodeAllocator(
+            PaymentQRTokenRepository tokenRepository,
+            MeterRegistry meterRegistry,
+            @Value("${qr.short-code.reuse-after:PT1H}") Duration reuseAfter
+    ) {
+        this(tokenRepository, meterRegistry, reuseAfter, Clock.systemDefaultZone());
+    }
+
+    ShortCodeAllocator(PaymentQRTokenRepository tokenRepository, MeterRegistry meterRegistry,
+                       Duration reuseAfter, Clock clock) {
+        this.tokenRepository = tokenRepository;
+        this.reuseAfter = reuseAfter;
+        this.clock = clock;
+        meterRegistry.gaugeMapSize("garbaking_qr_short_codes_held", List.of(), heldUntil);
+    }
+
+    /**
+     * Reserve a code that no live token uses
+     *
+     * @param expiresAt Expiry of the token the code is for
+     */
+    public String allocate(LocalDateTime expiresAt) {
+        long until = toMillis(expiresAt) + reuseAfter.toMillis();
+        while (true) {
+            String code = draw();
+            if (heldUntil.putIfAbsent(code, until) == null) {
+                return code;
+            }
+        }
+    }
+
+    /**
+     * The token holding this code was used: keep the code only for the reuse delay
+     */
+    public void release(String shortCode) {
+        long until = clock.millis() + reuseAfter.toMillis();
+        heldUntil.computeIfPresent(shortCode, (code, current) -> Math.min(current, until));
+    }
+
+    boolean isHeld(String shortCode) {
+        return heldUntil.containsKey(shortCode);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        resync();
+    }
+
+    /**
+     * Merge in the codes of tokens that are still live or within the reuse delay
+     */
+    @Scheduled(initialDelayString = "${qr.short-code.resync-interval:PT5M}",
+            fixedDelayString = "${qr.short-code.resync-interval:PT5M}")
+    public void resync() {
+        LocalDateTime horizon = LocalDateTime.now(clock).minus(reuseAfter);
+        int seeded = 0;
+        for (PaymentQRTokenRepository.ShortCodeHold hold : tokenRepository.findShortCodesExpiringAfter(horizon)) {
+            heldUntil.merge(hold.getShortCode(), toMillis(hold.getExpiresAt()) + reuseAfter.toMillis(), Math::max);
+            seeded++;
+        }
+        log.debug("Short code allocator synced {} code(s) from the database", seeded);
+    }
+
+    /**
+     * Make codes whose hold has lapsed available again, clearing them from expired tokens
+     */
+    @Scheduled(fixedDelayString = "${qr.short-code.reclaim-interval:PT1M}")
+    public void reclaim() {
+        try {
+            int cleared = tokenRepository.clearShortCodesExpiredBefore(LocalDateTime.now(clock).minus(reuseAfter));
+            if (cleared > 0) {
+                log.debug("Cleared {} short code(s) of expired tokens", cleared);
+            }
+        } catch (DataAccessException e) {
+            // Reissued codes that are still set hit the unique key and are drawn again
+            log.warn("Failed to clear short codes of expired tokens: {}", e.getMessage());
+        }
+        long now = clock.millis();
+        heldUntil.entrySet().removeIf(entry -> entry.getValue() <= now);
+    }
+
+    private String draw() {
+        // 6 characters x 5 bits, all from one random draw
+        long bits = random.nextLong();
+        char[] code = new char[PREFIX.length() + RANDOM_LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), code, 0);
+        for (int i = PREFIX.length(); i < code.length; i++) {
+            code[i] = ALPHABET[(int) (bits & 31)];
+            bits >>>= 5;
+        }
+        return new String(code);
+    }
+
+    private long toMillis(LocalDateTime time) {
+        ZoneId zone = clock.getZone();
+        return time.atZone(zone).toInstant().toEpochMilli();
+    }
+}
@@ -1,34 +1,62 @@
 package com.garbaking.orderservice.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.garbaking.orderservice.dto.OrderDTO;
 import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.websocket.OrderEventAttributes;
+import com.garbaking.orderservice.websocket.OrderEventJournal;
 import com.garbaking.orderservice.websocket.RawOrderWebSocketHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.UncheckedIOException;
 
 /**
  * WebSocket Service
  *
  * Handles real-time messaging via WebSocket/STOMP.
- * Broadcasts order updates to subscribed clients.
+ * Broadcasts order updates to subscribed clients and feeds them to the
+ * dashboard stream (/topic/analytics/dashboard).
+ *
+ * Each event is serialised once; the same JSON bytes go to every STOMP topic
+ * and to the raw WebSocket dispatcher. Order events carry an eventSequence that
+ * clients use to resume after a reconnect (GET /orders/active/sync).
  */
 @Service
 @Slf4j
 public class WebSocketService {
 
+    private static final String ACTIVE_ORDERS_KEY = "orders:active";
+
     private final SimpMessagingTemplate messagingTemplate;
     private final RawOrderWebSocketHandler rawOrderWebSocketHandler;
     private final OrderService orderService;
+    private final DashboardStreamService dashboardStreamService;
+    private final ObjectMapper objectMapper;
+    private final OrderEventJournal eventJournal;
 
     // Constructor with @Lazy to break circular dependency
     public WebSocketService(SimpMessagingTemplate messagingTemplate,
                            RawOrderWebSocketHandler rawOrderWebSocketHandler,
-                           @Lazy OrderService orderService) {
+                           @Lazy OrderService orderService,
+                           DashboardStreamService dashboardStreamService,
+                           ObjectMapper objectMapper,
+                           OrderEventJournal eventJournal) {
         this.messagingTemplate = messagingTemplate;
         this.rawOrderWebSocketHandler = rawOrderWebSocketHandler;
         this.orderService = orderService;
+        this.dashboardStreamService = dashboardStreamService;
+        this.objectMapper = objectMapper;
+        this.eventJournal = eventJournal;
     }
 
     /**
@@ -36,8 +64,8 @@ public class WebSocketService {
      */
     public void broadcastOrderCreated(OrderDTO order) {
         log.info("Broadcasting order created: {}", order.getOrderNumber());
-        messagingTemplate.convertAndSend("/topic/orders/created", order);
-        rawOrderWebSocketHandler.broadcast(order);
+        publish(orderKey(order), OrderEventAttributes.of(order), order, "/topic/orders/created");
+        dashboardStreamService.onOrderChanged();
     }
 
     /**
@@ -45,17 +73,26 @@ public class WebSocketService {
      */
     public void broadcastOrderUpdated(OrderDTO order) {
         log.info("Broadcasting order updated: {}", order.getOrderNumber());
-        messagingTemplate.convertAndSend("/topic/orders/updated", order);
-        rawOrderWebSocketHandler.broadcast(order);
+        publish(orderKey(order), OrderEventAttributes.of(order), order, "/topic/orders/updated");
+        dashboardStreamService.onOrderChanged();
     }
 
     /**
-     * Broadcast order status changed event to all subscribers
+     * Broadcast order status changed event to all subscribers.
+     * Also published on /topic/orders/updated, so callers no longer send a separate update.
      */
     public void broadcastOrderStatusChanged(OrderDTO order) {
+        broadcastOrderStatusChanged(order, null);
+    }
+
+    /**
+     * Broadcast order status changed event, also reaching raw clients filtering on the previous status
+     */
+    public void broadcastOrderStatusChanged(OrderDTO order, Order.OrderStatus previousStatus) {
         log.info("Broadcasting order status changed: {} -> {}", order.getOrderNumber(), order.getStatus());
-        messagingTemplate.convertAndSend("/topic/orders/status", order);
-        rawOrderWebSocketHandler.broadcast(order);
+        publish(orderKey(order), OrderEventAttributes.of(order, previousStatus), order,
+                "/topic/orders/status", "/topic/orders/updated");
+        dashboardStreamService.onOrderChanged();
     }
 
     /**
@@ -63,8 +100,8 @@ public class WebSocketService {
      */
     public void broadcastOrderCancelled(OrderDTO order) {
         log.info("Broadcasting order cancelled: {}", order.getOrderNumber());
-        messagingTemplate.convertAndSend("/topic/orders/cancelled", order);
-        rawOrderWebSocketHandler.broadcast(order);
+        publish(orderKey(order), OrderEventAttributes.of(order), order, "/topic/orders/cancelled");
+        dashboardStreamService.onOrderChanged();
     }
 
     /**
@@ -84,8 +121,7 @@ public class WebSocketService {
      */
     public void broadcastActiveOrdersUpdate(Object activeOrders) {
         log.info("Broadcasting active orders update");
-        messagingTemplate.convertAndSend("/topic/orders/active", activeOrders);
-        rawOrderWebSocketHandler.broadcast(activeOrders);
+        publish(ACTIVE_ORDERS_KEY, null, activeOrders, "/topic/orders/active");
     }
 
     /**
@@ -98,15 +134,66 @@ public class WebSocketService {
 
         OrderDTO orderDTO = orderService.mapToDTO(order);
 
-        // Broadcast to general order updates topic
-        messagingTemplate.convertAndSend("/topic/orders/updated", orderDTO);
-
-        // Also broadcast to payment-specific topic for QR payment confirmations
+        // Broadcast to general order updates topic, and to the payment-specific topic
+        // for QR payment confirmations
+        OrderEventAttributes attributes = OrderEventAttributes.of(orderDTO);
         if (order.getPaymentStatus() == Order.PaymentStatus.PAID) {
-            messagingTemplate.convertAndSend("/topic/orders/payment", orderDTO);
+            publish(orderKey(orderDTO), attributes, orderDTO, "/topic/orders/updated", "/topic/orders/payment");
+        } else {
+            publish(orderKey(orderDTO), attributes, orderDTO, "/topic/orders/updated");
         }
 
-        // Broadcast via raw WebSocket handler
-        rawOrderWebSocketHandler.broadcast(orderDTO);
+        // Keep the live dashboard in sync
+        dashboardStreamService.onOrderChanged();
+    }
+
+    /**
+     * Serialise the payload once and send the same bytes to the STOMP topics and raw clients.
+     * Every event is numbered and kept in the {@link OrderEventJournal} so clients can resume.
+     * Inside a transaction the event is published after commit.
+     * Without attributes the payload goes to every raw client regardless of its filter.
+     */
+    private void publish(Object coalesceKey, OrderEventAttributes attributes, Object payload, String... destinations) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Number and send the event only once the change is visible to snapshot reads
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishNow(coalesceKey, attributes, payload, destinations);
+                }
+            });
+            return;
+        }
+        publishNow(coalesceKey, attributes, payload, destinations);
+    }
+
+    private void publishNow(Object coalesceKey, OrderEventAttributes attributes, Object payload, String... destinations) {
+        try {
+            eventJournal.append(coalesceKey, attributes, sequence -> serialize(payload, sequence), entry -> {
+                Message<byte[]> message = MessageBuilder.withPayload(entry.json())
+                        .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                        .build();
+                for (String destination : destinations) {
+                    messagingTemplate.send(destination, message);
+                }
+                rawOrderWebSocketHandler.broadcastEvent(entry);
+            });
+        } catch (UncheckedIOException e) {
+            log.warn("Failed to serialise WebSocket payload: {}", e.getMessage());
+        }
+    }
+
+    private byte[] serialize(Object payload, long sequence) {
+        try {
+            return objectMapper.writer()
+                    .withAttribute(OrderDTO.EVENT_SEQUENCE_ATTRIBUTE, sequence)
+                    .writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String orderKey(OrderDTO order) {
+        return "order:" + order.getId();
     }
 }
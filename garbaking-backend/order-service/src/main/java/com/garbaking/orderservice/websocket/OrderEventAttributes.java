@@ -0,0 +1,48 @@
+package com.garbaking.orderservice.websocket;
+
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.service.AnalyticsService;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Order Event Attributes
+ *
+ * The values of an order event that raw WebSocket subscriptions are matched against.
+ * A status change carries both the new and the previous status, so a client filtering
+ * on a status also sees the order leave it.
+ */
+public record OrderEventAttributes(
+        Order.OrderType orderType,
+        Set<Order.OrderStatus> statuses,
+        Set<String> categories,
+        String tableNumber
+) {
+
+    public static OrderEventAttributes of(OrderDTO order) {
+        return of(order, null);
+    }
+
+    public static OrderEventAttributes of(OrderDTO order, Order.OrderStatus previousStatus) {
+        EnumSet<Order.OrderStatus> statuses = EnumSet.noneOf(Order.OrderStatus.class);
+        if (order.getStatus() != null) {
+            statuses.add(order.getStatus());
+        }
+        if (previousStatus != null) {
+            statuses.add(previousStatus);
+        }
+
+        Set<String> categories = new HashSet<>();
+        if (order.getItems() != null) {
+            for (OrderItemDTO item : order.getItems()) {
+                categories.add(AnalyticsService.resolveCategory(item.getMenuItemSku()));
+            }
+        }
+
+        return new OrderEventAttributes(order.getOrderType(), statuses, categories, order.getTableNumber());
+    }
+}
@@ -0,0 +1,101 @@
+package com.garbaking.orderservice.websocket;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Order Event Journal
+ *
+ * Numbers every order event pushed to WebSocket clients and keeps the most recent ones in a ring
+ * buffer, so a reconnecting kitchen display can resume from the last sequence it saw instead of
+ * reloading every active order. Only a client whose sequence has fallen out of the buffer needs a
+ * full snapshot.
+ *
+ * Sequences start from the boot time in microseconds, so they keep increasing across restarts and a
+ * sequence issued by a previous instance is always treated as too old to resume from.
+ */
+@Component
+public class OrderEventJournal {
+
+    private final Entry[] ring;
+    private long lastSequence;
+    private long firstSequence;
+
+    @Autowired
+    public OrderEventJournal(@Value("${order.websocket.replay-buffer-size:1024}") int capacity) {
+        this(capacity, System.currentTimeMillis() * 1000);
+    }
+
+    OrderEventJournal(int capacity, long startSequence) {
+        this.ring = new Entry[capacity];
+        this.lastSequence = startSequence;
+        this.firstSequence = startSequence + 1;
+    }
+
+    /**
+     * Assign the next sequence, record the event and deliver it while holding the journal lock,
+     * so live delivery order always matches sequence order
+     *
+     * @param serializer Builds the payload for the assigned sequence
+     * @param delivery Sends the recorded event to subscribers
+     */
+    public synchronized Entry append(Object coalesceKey, OrderEventAttributes attributes,
+                                     LongFunction<byte[]> serializer, Consumer<Entry> delivery) {
+        long sequence = lastSequence + 1;
+        Entry entry = new Entry(sequence, coalesceKey, attributes, serializer.apply(sequence));
+        lastSequence = sequence;
+        ring[index(sequence)] = entry;
+        if (sequence - firstSequence >= ring.length) {
+            firstSequence = sequence - ring.length + 1;
+        }
+        delivery.accept(entry);
+        return entry;
+    }
+
+    public synchronized long currentSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Events after the given sequence, or empty if some of them are no longer buffered
+     */
+    public synchronized Optional<List<Entry>> since(long sequence) {
+        if (sequence < firstSequence - 1 || sequence > lastSequence) {
+            return Optional.empty();
+        }
+        List<Entry> missed = new ArrayList<>((int) (lastSequence - sequence));
+        for (long next = sequence + 1; next <= lastSequence; next++) {
+            missed.add(ring[index(next)]);
+        }
+        return Optional.of(missed);
+    }
+
+    /**
+     * Attach a subscriber atomically with respect to {@link #append}: no event is appended between
+     * collecting the missed events and the callback returning, so the subscriber sees no gap
+     *
+     * @param onAttach Receives the missed events, or empty if the client must take a snapshot
+     */
+    public synchronized void attach(long sequence, Consumer<Optional<List<Entry>>> onAttach) {
+        onAttach.accept(since(sequence));
+    }
+
+    private int index(long sequence) {
+        return (int) Math.floorMod(sequence, (long) ring.length);
+    }
+
+    /**
+     * A published order event
+     *
+     * @param json Serialised payload, including its sequence
+     */
+    public record Entry(long sequence, Object coalesceKey, OrderEventAttributes attributes, byte[] json) {
+    }
+}
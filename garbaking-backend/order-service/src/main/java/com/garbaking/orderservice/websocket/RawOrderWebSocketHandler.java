@@ -6,33 +6,80 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.net.URI;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Raw Order WebSocket Handler
+ *
+ * Plain WebSocket endpoint (/ws/orders/raw) for clients without STOMP, such as kitchen displays.
+ * Clients may narrow what they receive with connect-time filters, see {@link SubscriptionFilter},
+ * and resume after a reconnect with ?since=&lt;last eventSequence&gt;. If that sequence is no longer
+ * buffered the client gets {"status":"resync-required"} and should reload through /orders/active/sync.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class RawOrderWebSocketHandler extends TextWebSocketHandler {
 
+    private static final TextMessage ACK = new TextMessage("{\"status\":\"ack\"}");
+    private static final TextMessage RESYNC_REQUIRED = new TextMessage("{\"status\":\"resync-required\"}");
+
     private final SimpMessagingTemplate messagingTemplate;
     private final ObjectMapper objectMapper;
-    private final Set<WebSocketSession> sessions = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final RawSessionDispatcher dispatcher;
+    private final OrderEventJournal eventJournal;
+    private final SubscriptionIndex subscriptions = new SubscriptionIndex();
 
     @Override
-    public void afterConnectionEstablished(WebSocketSession session) {
-        sessions.add(session);
-        log.info("Raw WebSocket client connected: {}", session.getId());
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        SubscriptionFilter filter;
+        Long resumeFrom;
+        try {
+            filter = SubscriptionFilter.fromUri(session.getUri());
+            resumeFrom = resumeSequence(session.getUri());
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejecting raw WebSocket client {}: {}", session.getId(), e.getMessage());
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+            return;
+        }
+
+        if (resumeFrom == null) {
+            attach(session, filter);
+        } else {
+            // Register and queue the missed events under the journal lock so no live event slips in between
+            eventJournal.attach(resumeFrom, missed -> {
+                attach(session, filter);
+                if (missed.isEmpty()) {
+                    dispatcher.send(session, null, RESYNC_REQUIRED);
+                    return;
+                }
+                for (OrderEventJournal.Entry entry : missed.get()) {
+                    if (filter.accepts(entry.attributes())) {
+                        dispatcher.send(session, entry.coalesceKey(), new TextMessage(entry.json()));
+                    }
+                }
+            });
+        }
+
+        if (filter.isUnfiltered()) {
+            log.info("Raw WebSocket client connected: {}", session.getId());
+        } else {
+            log.info("Raw WebSocket client connected: {} with filter {}", session.getId(), filter);
+        }
     }
 
     @Override
-    public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus status) {
-        sessions.remove(session);
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        subscriptions.remove(session.getId());
+        dispatcher.unregister(session);
         log.info("Raw WebSocket client disconnected: {}", session.getId());
     }
 
@@ -41,20 +88,53 @@ public class RawOrderWebSocketHandler extends TextWebSocketHandler {
         JsonNode payload = objectMapper.readTree(message.getPayload());
         String destination = payload.path("destination").asText("/topic/orders/updates");
         messagingTemplate.convertAndSend(destination, payload);
-        session.sendMessage(new TextMessage("{\"status\":\"ack\"}"));
+        dispatcher.send(session, null, ACK);
     }
 
     public void broadcast(Object payload) {
         try {
-            String json = objectMapper.writeValueAsString(payload);
-            TextMessage message = new TextMessage(json);
-            for (WebSocketSession session : sessions) {
-                if (session.isOpen()) {
-                    session.sendMessage(message);
-                }
-            }
+            dispatcher.publish(null, new TextMessage(objectMapper.writeValueAsBytes(payload)));
         } catch (IOException e) {
             log.warn("Failed to broadcast to raw WebSocket clients: {}", e.getMessage());
         }
     }
+
+    /**
+     * Broadcast an already-serialised event to the sessions whose filter accepts it,
+     * without serialising it again per session. Events without attributes go to every session.
+     */
+    public void broadcastEvent(OrderEventJournal.Entry event) {
+        TextMessage message = new TextMessage(event.json());
+        if (event.attributes() == null) {
+            dispatcher.publish(event.coalesceKey(), message);
+            return;
+        }
+        Set<String> sessionIds = subscriptions.match(event.attributes());
+        if (!sessionIds.isEmpty()) {
+            dispatcher.publish(sessionIds, event.coalesceKey(), message);
+        }
+    }
+
+    private void attach(WebSocketSession session, SubscriptionFilter filter) {
+        dispatcher.register(session);
+        subscriptions.add(session.getId(), filter);
+    }
+
+    /**
+     * Sequence the client last saw, from the "since" query parameter
+     */
+    private static Long resumeSequence(URI uri) {
+        if (uri == null || uri.getRawQuery() == null) {
+            return null;
+        }
+        String since = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("since");
+        if (since == null || since.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(since.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid since sequence: " + since);
+        }
+    }
 }
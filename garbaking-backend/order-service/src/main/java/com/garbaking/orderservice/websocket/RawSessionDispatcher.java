@@ -0,0 +1,230 @@
+package com.garbaking.orderservice.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Raw Session Dispatcher
+ *
+ * Delivers already-serialised messages to raw WebSocket sessions off the caller's thread.
+ * Every session has a bounded outbox drained by a small worker pool, one drain at a time per
+ * session so sends never overlap. Messages published with the same coalescing key while an
+ * earlier one is still queued replace it (latest order state wins), and a session whose outbox
+ * overflows is closed instead of slowing down everyone else.
+ */
+@Component
+@Slf4j
+public class RawSessionDispatcher {
+
+    private final Map<String, SessionOutbox> outboxes = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final int queueCapacity;
+
+    private final Counter sentCounter;
+    private final Counter coalescedCounter;
+    private final Counter slowConsumerCounter;
+
+    @Autowired
+    public RawSessionDispatcher(
+            MeterRegistry meterRegistry,
+            @Value("${order.websocket.dispatch-threads:4}") int dispatchThreads,
+            @Value("${order.websocket.session-queue-capacity:256}") int queueCapacity
+    ) {
+        this(meterRegistry, newWorkerPool(dispatchThreads), queueCapacity);
+    }
+
+    RawSessionDispatcher(MeterRegistry meterRegistry, Executor executor, int queueCapacity) {
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.sentCounter = meterRegistry.counter("garbaking_ws_raw_messages_sent_total");
+        this.coalescedCounter = meterRegistry.counter("garbaking_ws_raw_messages_coalesced_total");
+        this.slowConsumerCounter = meterRegistry.counter("garbaking_ws_raw_slow_consumers_closed_total");
+        meterRegistry.gaugeMapSize("garbaking_ws_raw_sessions", List.of(), outboxes);
+    }
+
+    public void register(WebSocketSession session) {
+        outboxes.put(session.getId(), new SessionOutbox(session));
+    }
+
+    public void unregister(WebSocketSession session) {
+        outboxes.remove(session.getId());
+    }
+
+    /**
+     * Queue a message for every registered session
+     *
+     * @param coalesceKey Messages with the same non-null key replace each other while queued
+     * @param message Serialised message, shared by all sessions
+     */
+    public void publish(Object coalesceKey, TextMessage message) {
+        for (SessionOutbox outbox : outboxes.values()) {
+            enqueue(outbox, coalesceKey, message);
+        }
+    }
+
+    /**
+     * Queue a message for the given sessions only
+     */
+    public void publish(Collection<String> sessionIds, Object coalesceKey, TextMessage message) {
+        for (String sessionId : sessionIds) {
+            SessionOutbox outbox = outboxes.get(sessionId);
+            if (outbox != null) {
+                enqueue(outbox, coalesceKey, message);
+            }
+        }
+    }
+
+    /**
+     * Queue a message for a single session
+     */
+    public void send(WebSocketSession session, Object coalesceKey, TextMessage message) {
+        SessionOutbox outbox = outboxes.get(session.getId());
+        if (outbox != null) {
+            enqueue(outbox, coalesceKey, message);
+        }
+    }
+
+    private void enqueue(SessionOutbox outbox, Object coalesceKey, TextMessage message) {
+        if (!outbox.session.isOpen()) {
+            outboxes.remove(outbox.session.getId());
+            return;
+        }
+        switch (outbox.offer(coalesceKey, message, queueCapacity)) {
+            case SCHEDULE -> executor.execute(() -> drain(outbox));
+            case COALESCED -> coalescedCounter.increment();
+            case FULL -> closeSlowConsumer(outbox);
+            case QUEUED -> {
+                // A drain is already running for this session
+            }
+        }
+    }
+
+    private void drain(SessionOutbox outbox) {
+        List<TextMessage> batch;
+        while (!(batch = outbox.takeBatch()).isEmpty()) {
+            for (TextMessage message : batch) {
+                try {
+                    outbox.session.sendMessage(message);
+                    sentCounter.increment();
+                } catch (IOException | IllegalStateException e) {
+                    log.warn("Dropping raw WebSocket session {} after failed send: {}",
+                            outbox.session.getId(), e.getMessage());
+                    outboxes.remove(outbox.session.getId());
+                    outbox.discard();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void closeSlowConsumer(SessionOutbox outbox) {
+        if (outboxes.remove(outbox.session.getId()) == null) {
+            return;
+        }
+        slowConsumerCounter.increment();
+        outbox.discard();
+        log.warn("Closing slow raw WebSocket session {}: more than {} messages queued",
+                outbox.session.getId(), queueCapacity);
+        executor.execute(() -> {
+            try {
+                outbox.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                log.debug("Failed to close raw WebSocket session {}: {}", outbox.session.getId(), e.getMessage());
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private static ExecutorService newWorkerPool(int threads) {
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "ws-raw-dispatch-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    enum OfferResult {
+        SCHEDULE, QUEUED, COALESCED, FULL
+    }
+
+    /**
+     * Pending messages of one session, keyed for coalescing
+     */
+    private static final class SessionOutbox {
+
+        private final WebSocketSession session;
+        private final LinkedHashMap<Object, TextMessage> pending = new LinkedHashMap<>();
+        private long uncoalescedSequence;
+        private boolean draining;
+
+        private SessionOutbox(WebSocketSession session) {
+            this.session = session;
+        }
+
+        synchronized OfferResult offer(Object coalesceKey, TextMessage message, int capacity) {
+            if (coalesceKey != null && pending.remove(coalesceKey) != null) {
+                // Re-queue at the tail so messages still leave in the order they were published
+                pending.put(coalesceKey, message);
+                return OfferResult.COALESCED;
+            }
+            if (pending.size() >= capacity) {
+                return OfferResult.FULL;
+            }
+            pending.put(coalesceKey != null ? coalesceKey : new UncoalescedKey(uncoalescedSequence++), message);
+            if (draining) {
+                return OfferResult.QUEUED;
+            }
+            draining = true;
+            return OfferResult.SCHEDULE;
+        }
+
+        synchronized List<TextMessage> takeBatch() {
+            if (pending.isEmpty()) {
+                draining = false;
+                return List.of();
+            }
+            List<TextMessage> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            return batch;
+        }
+
+        synchronized void discard() {
+            pending.clear();
+        }
+    }
+
+    private record UncoalescedKey(long sequence) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.garbaking.orderservice.websocket;
+
+import com.garbaking.orderservice.model.Order;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Subscription Filter
+ *
+ * What a raw WebSocket client wants to receive, chosen at connect time through query parameters:
+ * <pre>/ws/orders/raw?orderType=DINE_IN&amp;status=CONFIRMED,PREPARING&amp;category=GRILL&amp;table=12</pre>
+ * Each parameter may be repeated or comma-separated. An empty dimension matches everything.
+ */
+public record SubscriptionFilter(
+        Set<Order.OrderType> orderTypes,
+        Set<Order.OrderStatus> statuses,
+        Set<String> categories,
+        Set<String> tables
+) {
+
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(Set.of(), Set.of(), Set.of(), Set.of());
+
+    /**
+     * Parse the filter from a connect URI
+     *
+     * @throws IllegalArgumentException if an order type or status is not recognised
+     */
+    public static SubscriptionFilter fromUri(URI uri) {
+        if (uri == null || uri.getRawQuery() == null) {
+            return ALL;
+        }
+        MultiValueMap<String, String> params = UriComponentsBuilder.fromUri(uri).build().getQueryParams();
+        return new SubscriptionFilter(
+                enumValues(params.get("orderType"), Order.OrderType.class),
+                enumValues(params.get("status"), Order.OrderStatus.class),
+                values(params.get("category"), value -> value.toUpperCase(Locale.ENGLISH)),
+                values(params.get("table"), Function.identity())
+        );
+    }
+
+    /**
+     * Test a single event against this filter; events without attributes are always accepted
+     */
+    public boolean accepts(OrderEventAttributes event) {
+        if (event == null) {
+            return true;
+        }
+        return (orderTypes.isEmpty() || orderTypes.contains(event.orderType()))
+                && (statuses.isEmpty() || event.statuses().stream().anyMatch(statuses::contains))
+                && (categories.isEmpty() || event.categories().stream().anyMatch(categories::contains))
+                && (tables.isEmpty() || tables.contains(event.tableNumber()));
+    }
+
+    public boolean isUnfiltered() {
+        return orderTypes.isEmpty() && statuses.isEmpty() && categories.isEmpty() && tables.isEmpty();
+    }
+
+    private static <E extends Enum<E>> Set<E> enumValues(List<String> raw, Class<E> type) {
+        Set<String> names = values(raw, value -> value.toUpperCase(Locale.ENGLISH));
+        if (names.isEmpty()) {
+            return Set.of();
+        }
+        EnumSet<E> result = EnumSet.noneOf(type);
+        for (String name : names) {
+            try {
+                result.add(Enum.valueOf(type, name));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + name);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static Set<String> values(List<String> raw, Function<String, String> normalizer) {
+        if (raw == null || raw.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> result = new HashSet<>();
+        for (String param : raw) {
+            if (param == null) {
+                continue;
+            }
+            for (String value : param.split(",")) {
+                String trimmed = value.trim();
+                if (!trimmed.isEmpty()) {
+                    result.add(normalizer.apply(trimmed));
+                }
+            }
+        }
+        return Set.copyOf(result);
+    }
+}
@@ -0,0 +1,102 @@
+package com.garbaking.orderservice.websocket;
+
+import com.garbaking.orderservice.model.Order;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Subscription Index
+ *
+ * Finds the raw sessions interested in an order event without testing every session's filter.
+ * Each filter dimension keeps the sessions subscribed to each value plus the sessions that accept
+ * any value; an event matches the intersection of the per-dimension candidates.
+ */
+class SubscriptionIndex {
+
+    private final Map<String, SubscriptionFilter> filters = new HashMap<>();
+    private final Dimension<Order.OrderType> orderTypes = new Dimension<>();
+    private final Dimension<Order.OrderStatus> statuses = new Dimension<>();
+    private final Dimension<String> categories = new Dimension<>();
+    private final Dimension<String> tables = new Dimension<>();
+
+    synchronized void add(String sessionId, SubscriptionFilter filter) {
+        remove(sessionId);
+        filters.put(sessionId, filter);
+        orderTypes.add(sessionId, filter.orderTypes());
+        statuses.add(sessionId, filter.statuses());
+        categories.add(sessionId, filter.categories());
+        tables.add(sessionId, filter.tables());
+    }
+
+    synchronized void remove(String sessionId) {
+        SubscriptionFilter filter = filters.remove(sessionId);
+        if (filter == null) {
+            return;
+        }
+        orderTypes.remove(sessionId, filter.orderTypes());
+        statuses.remove(sessionId, filter.statuses());
+        categories.remove(sessionId, filter.categories());
+        tables.remove(sessionId, filter.tables());
+    }
+
+    /**
+     * @return Ids of the sessions whose filter accepts the event
+     */
+    synchronized Set<String> match(OrderEventAttributes event) {
+        Set<String> matched = orderTypes.matching(event.orderType() != null ? Set.of(event.orderType()) : Set.of());
+        if (!matched.isEmpty()) {
+            matched.retainAll(statuses.matching(event.statuses()));
+        }
+        if (!matched.isEmpty()) {
+            matched.retainAll(categories.matching(event.categories()));
+        }
+        if (!matched.isEmpty()) {
+            matched.retainAll(tables.matching(event.tableNumber() != null ? Set.of(event.tableNumber()) : Set.of()));
+        }
+        return matched;
+    }
+
+    private static final class Dimension<V> {
+
+        private final Set<String> wildcard = new HashSet<>();
+        private final Map<V, Set<String>> byValue = new HashMap<>();
+
+        void add(String sessionId, Set<V> values) {
+            if (values.isEmpty()) {
+                wildcard.add(sessionId);
+                return;
+            }
+            for (V value : values) {
+                byValue.computeIfAbsent(value, key -> new HashSet<>()).add(sessionId);
+            }
+        }
+
+        void remove(String sessionId, Set<V> values) {
+            if (values.isEmpty()) {
+                wildcard.remove(sessionId);
+                return;
+            }
+            for (V value : values) {
+                Set<String> sessions = byValue.get(value);
+                if (sessions != null && sessions.remove(sessionId) && sessions.isEmpty()) {
+                    byValue.remove(value);
+                }
+            }
+        }
+
+        Set<String> matching(Collection<V> eventValues) {
+            Set<String> result = new HashSet<>(wildcard);
+            for (V value : eventValues) {
+                Set<String> sessions = byValue.get(value);
+                if (sessions != null) {
+                    result.addAll(sessions);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.garbaking.orderservice.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.exception.IdempotencyKeyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T09:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger runs = new AtomicInteger();
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(jdbcTemplate, objectMapper, meterRegistry, Duration.ofHours(24),
+                Duration.ofSeconds(30), 100, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void retryReplaysStoredResponseWithoutRunningAgain() {
+        ResponseEntity<?> first = idempotencyService.execute("order-create", "key-1", Map.of("total", 3000), this::created);
+        ResponseEntity<?> retry = idempotencyService.execute("order-create", "key-1", Map.of("total", 3000), this::created);
+
+        assertThat(runs).hasValue(1);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(new String((byte[]) retry.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"id\":1}");
+        verify(jdbcTemplate, times(1)).update(startsWith("INSERT"), any(), any(), any(), any());
+        assertThat(meterRegistry.counter("garbaking_idempotency_requests_total",
+                "scope", "order-create", "result", "replayed").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void keyReusedForDifferentRequestIsRejected() {
+        idempotencyService.execute("order-create", "key-1", Map.of("total", 3000), this::created);
+
+        assertThatThrownBy(() -> idempotencyService.execute("order-create", "key-1", Map.of("total", 4500),
+                this::created))
+                .isInstanceOf(IdempotencyKeyException.class)
+                .extracting("status").isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void failedRequestReleasesItsKey() {
+        ResponseEntity<?> failed = idempotencyService.execute("qr-confirm", "key-1", Map.of("orderId", 7),
+                () -> ResponseEntity.badRequest().body(Map.of("success", false)));
+        idempotencyService.execute("qr-confirm", "key-1", Map.of("orderId", 7), this::created);
+
+        assertThat(failed.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(runs).hasValue(1);
+        verify(jdbcTemplate).update(startsWith("DELETE"), any(Object.class));
+    }
+
+    @Test
+    void replaysResponseStoredByAnotherReplica() throws Exception {
+        String requestHash = fingerprintOf(Map.of("total", 3000));
+        doThrow(new DuplicateKeyException("duplicate")).when(jdbcTemplate)
+                .update(startsWith("INSERT"), any(), any(), any(), any());
+        doReturn(List.of(new IdempotencyService.Entry(requestHash, 201, "{\"id\":1}".getBytes(StandardCharsets.UTF_8),
+                NOW.toEpochMilli() - 1000)))
+                .when(jdbcTemplate).query(startsWith("SELECT"), anyEntryMapper(), any(), any());
+
+        ResponseEntity<?> retry = idempotencyService.execute("order-create", "key-1", Map.of("total", 3000),
+                this::created);
+
+        assertThat(runs).hasValue(0);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+    }
+
+    @Test
+    void requestStillRunningOnAnotherReplicaConflicts() throws Exception {
+        String requestHash = fingerprintOf(Map.of("total", 3000));
+        doThrow(new DuplicateKeyException("duplicate")).when(jdbcTemplate)
+                .update(startsWith("INSERT"), any(), any(), any(), any());
+        doReturn(List.of(IdempotencyService.Entry.pending(requestHash, NOW.toEpochMilli() - 1000)))
+                .when(jdbcTemplate).query(startsWith("SELECT"), anyEntryMapper(), any(), any());
+
+        assertThatThrownBy(() -> idempotencyService.execute("order-create", "key-1", Map.of("total", 3000),
+                this::created))
+                .isInstanceOf(IdempotencyKeyException.class)
+                .extracting("status").isEqualTo(HttpStatus.CONFLICT);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void requestsWithoutKeyRunEveryTime() {
+        idempotencyService.execute("order-create", null, Map.of("total", 3000), this::created);
+        idempotencyService.execute("order-create", null, Map.of("total", 3000), this::created);
+
+        assertThat(runs).hasValue(2);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private ResponseEntity<?> created() {
+        runs.incrementAndGet();
+        return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", 1));
+    }
+
+    private String fingerprintOf(Object request) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+        return HexFormat.of().formatHex(digest);
+    }
+
+    private static RowMapper<IdempotencyService.Entry> anyEntryMapper() {
+        return any();
+    }
+}
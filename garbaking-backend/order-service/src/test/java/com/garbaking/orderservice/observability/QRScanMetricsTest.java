@@ -0,0 +1,93 @@
+package com.garbaking.orderservice.observability;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class QRScanMetricsTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-15T09:00:30Z"));
+
+    @Test
+    void recordsTimersByOperationOutcomeAndErrorCode() {
+        QRScanMetrics metrics = new QRScanMetrics(meterRegistry, jdbcTemplate, clock);
+
+        metrics.record(QRScanMetrics.Operation.SCAN, "SUCCESS", null, null, 12);
+        metrics.record(QRScanMetrics.Operation.SCAN, "TOKEN_EXPIRED", null, null, 4);
+        metrics.record(QRScanMetrics.Operation.CONFIRM, "SUCCESS", "CASH", new BigDecimal("15.00"), 30);
+
+        Timer expired = meterRegistry.get("garbaking_qr_operation")
+                .tags("operation", "scan", "outcome", "failure", "error_code", "TOKEN_EXPIRED").timer();
+        assertThat(expired.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("garbaking_qr_operation").tag("outcome", "success").timers()).hasSize(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flushesOnlyFinishedMinutes() {
+        QRScanMetrics metrics = new QRScanMetrics(meterRegistry, jdbcTemplate, clock);
+        metrics.record(QRScanMetrics.Operation.SCAN, "SUCCESS", null, null, 12);
+        metrics.record(QRScanMetrics.Operation.SCAN, "SUCCESS", null, null, 8);
+
+        metrics.flush();
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+
+        clock.instant = Instant.parse("2024-01-15T09:02:00Z");
+        metrics.flush();
+
+        verify(jdbcTemplate).batchUpdate(eq(QRScanMetrics.UPSERT_SQL),
+                argThat((Collection<?> rows) -> rows.size() == 1), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertThat(metrics.pendingMinutes()).isZero();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
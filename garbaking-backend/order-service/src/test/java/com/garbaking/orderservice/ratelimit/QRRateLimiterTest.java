@@ -0,0 +1,76 @@
+package com.garbaking.orderservice.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QRRateLimiterTest {
+
+    private static final QRRateLimiter.Limits SCAN = new QRRateLimiter.Limits(2, 3, 60_000);
+    private static final QRRateLimiter.Limits CONFIRM = new QRRateLimiter.Limits(1, 1, 60_000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void limitsEachDeviceWithinItsWindow() {
+        QRRateLimiter limiter = limiter(new InMemoryRateLimitStore(100), "2024-01-15T09:00:00Z");
+
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-1", null, null)).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-1", null, null)).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-1", null, null)).isFalse();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-2", null, null)).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.CONFIRM, "POS-1", null, null)).isTrue();
+
+        assertThat(meterRegistry.counter("garbaking_qr_rate_limited_total", "action", "scan").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void rotatingDeviceIdsStillHitUserAndIpLimits() {
+        QRRateLimiter limiter = limiter(new InMemoryRateLimitStore(100), "2024-01-15T09:00:00Z");
+
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-1", "cashier", "10.0.0.5")).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-2", "cashier", "10.0.0.5")).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-3", "cashier", "10.0.0.6")).isFalse();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-4", null, "10.0.0.5")).isTrue();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.SCAN, "POS-5", null, "10.0.0.5")).isFalse();
+    }
+
+    @Test
+    void deniedKeysSkipTheStoreUntilTheWindowEnds() {
+        List<String> calls = new ArrayList<>();
+        RateLimitStore store = (key, windowStart, windowEnd) -> {
+            calls.add(key);
+            return 5;
+        };
+        QRRateLimiter limiter = limiter(store, "2024-01-15T09:00:00Z");
+
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.CONFIRM, "POS-1", null, null)).isFalse();
+        assertThat(limiter.tryAcquire(QRRateLimiter.Action.CONFIRM, "POS-1", null, null)).isFalse();
+
+        assertThat(calls).containsExactly("confirm:device:POS-1");
+    }
+
+    @Test
+    void inMemoryStoreStaysBounded() {
+        InMemoryRateLimitStore store = new InMemoryRateLimitStore(10);
+        long windowEnd = System.currentTimeMillis() + 60_000;
+
+        for (int i = 0; i < 1000; i++) {
+            store.increment("scan:device:POS-" + i, 0, windowEnd);
+        }
+
+        assertThat(store.size()).isEqualTo(10);
+    }
+
+    private QRRateLimiter limiter(RateLimitStore store, String now) {
+        return new QRRateLimiter(store, meterRegistry, Clock.fixed(Instant.parse(now), ZoneOffset.UTC), 100,
+                SCAN, CONFIRM);
+    }
+}
@@ -0,0 +1,133 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveOrderIndexTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private OrderService orderService;
+
+    private ActiveOrderIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ActiveOrderIndex(orderRepository, orderService);
+    }
+
+    @Test
+    void servesNothingUntilBuilt() {
+        assertThat(index.activeOrders()).isEmpty();
+        assertThat(index.countByStatusIn(List.of(Order.OrderStatus.PENDING))).isEqualTo(-1);
+    }
+
+    @Test
+    void rebuildLoadsActiveOrdersNewestFirst() {
+        Order older = Order.builder().id(1L).build();
+        Order newer = Order.builder().id(2L).build();
+        when(orderRepository.findActiveOrdersWithItems()).thenReturn(List.of(older, newer));
+        when(orderService.mapToDTO(older)).thenReturn(order(1L, Order.OrderStatus.PENDING, 9));
+        when(orderService.mapToDTO(newer)).thenReturn(order(2L, Order.OrderStatus.PREPARING, 10));
+
+        index.rebuild();
+
+        assertThat(index.activeOrders()).hasValueSatisfying(orders ->
+                assertThat(orders).extracting(OrderDTO::getId).containsExactly(2L, 1L));
+        assertThat(index.ordersByStatus(Order.OrderStatus.PENDING)).hasValueSatisfying(orders ->
+                assertThat(orders).extracting(OrderDTO::getId).containsExactly(1L));
+        assertThat(index.ordersByStatus(Order.OrderStatus.COMPLETED)).isEmpty();
+    }
+
+    @Test
+    void followsStatusTransitionsAndDropsTerminalOrders() {
+        when(orderRepository.findActiveOrdersWithItems()).thenReturn(List.of());
+        index.rebuild();
+
+        index.onOrderChanged(order(5L, Order.OrderStatus.PENDING, 9));
+        index.onOrderChanged(order(5L, Order.OrderStatus.READY, 9));
+
+        assertThat(index.countByStatusIn(List.of(Order.OrderStatus.PENDING))).isZero();
+        assertThat(index.countByStatusIn(List.of(Order.OrderStatus.READY))).isEqualTo(1);
+
+        index.onOrderChanged(order(5L, Order.OrderStatus.COMPLETED, 9));
+
+        assertThat(index.get(5L)).isEmpty();
+        assertThat(index.activeOrders()).hasValueSatisfying(orders -> assertThat(orders).isEmpty());
+    }
+
+    @Test
+    void keepsChangesCommittedWhileRebuilding() {
+        Order stale = Order.builder().id(7L).build();
+        when(orderRepository.findActiveOrdersWithItems()).thenAnswer(invocation -> {
+            // Committed after the database read started
+            index.onOrderChanged(order(7L, Order.OrderStatus.CANCELLED, 9));
+            return List.of(stale);
+        });
+        when(orderService.mapToDTO(any(Order.class))).thenReturn(order(7L, Order.OrderStatus.PENDING, 9));
+
+        index.rebuild();
+
+        assertThat(index.get(7L)).isEmpty();
+    }
+
+    @Test
+    void doesNotReplayChangesOlderThanTheDatabaseRead() {
+        Order current = Order.builder().id(8L).build();
+        OrderDTO ready = order(8L, Order.OrderStatus.READY, 9);
+        ready.setUpdatedAt(LocalDateTime.of(2024, 1, 15, 9, 5));
+        when(orderRepository.findActiveOrdersWithItems()).thenAnswer(invocation -> {
+            // afterCommit of an earlier transaction, delivered after the newer status was read
+            OrderDTO pending = order(8L, Order.OrderStatus.PENDING, 9);
+            pending.setUpdatedAt(LocalDateTime.of(2024, 1, 15, 9, 0));
+            index.onOrderChanged(pending);
+            return List.of(current);
+        });
+        when(orderService.mapToDTO(current)).thenReturn(ready);
+
+        index.rebuild();
+
+        assertThat(index.get(8L)).hasValueSatisfying(order ->
+                assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.READY));
+    }
+
+    @Test
+    void relayedChangesOlderThanTheCopyHeldAreIgnored() {
+        when(orderRepository.findActiveOrdersWithItems()).thenReturn(List.of());
+        index.rebuild();
+        OrderDTO preparing = order(9L, Order.OrderStatus.PREPARING, 9);
+        preparing.setUpdatedAt(LocalDateTime.of(2024, 1, 15, 9, 5));
+        OrderDTO pending = order(9L, Order.OrderStatus.PENDING, 9);
+        pending.setUpdatedAt(LocalDateTime.of(2024, 1, 15, 9, 0));
+
+        index.onOrderRelayed(preparing);
+        index.onOrderRelayed(pending);
+
+        assertThat(index.get(9L)).hasValueSatisfying(order ->
+                assertThat(order.getStatus()).isEqualTo(Order.OrderStatus.PREPARING));
+    }
+
+    private OrderDTO order(Long id, Order.OrderStatus status, int hour) {
+        return OrderDTO.builder()
+                .id(id)
+                .status(status)
+                .paymentStatus(Order.PaymentStatus.PENDING)
+                .createdAt(LocalDateTime.of(2024, 1, 15, hour, 0))
+                .build();
+    }
+}
@@ -4,7 +4,10 @@ import com.garbaking.orderservice.dto.analytics.DashboardAnalytics;
 import com.garbaking.orderservice.dto.analytics.MenuPerformanceResponse;
 import com.garbaking.orderservice.model.Order;
 import com.garbaking.orderservice.model.OrderItem;
+import com.garbaking.orderservice.model.SalesRollup;
+import com.garbaking.orderservice.repository.MenuItemSalesRollupRepository;
 import com.garbaking.orderservice.repository.OrderRepository;
+import com.garbaking.orderservice.repository.SalesRollupRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -24,6 +28,8 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +38,12 @@ class AnalyticsServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+
+    @Mock
+    private MenuItemSalesRollupRepository menuItemSalesRollupRepository;
+
     @InjectMocks
     private AnalyticsService analyticsService;
 
@@ -42,7 +54,9 @@ class AnalyticsServiceTest {
     @BeforeEach
     void setUp() {
         fixedClock = Clock.fixed(Instant.parse("2024-01-15T10:00:00Z"), ZoneOffset.UTC);
-        analyticsService = new AnalyticsService(orderRepository, fixedClock);
+        SalesRollupReader rollupReader = new SalesRollupReader(orderRepository, salesRollupRepository,
+                menuItemSalesRollupRepository, Duration.ofMinutes(5));
+        analyticsService = new AnalyticsService(orderRepository, rollupReader, fixedClock);
 
         todayOrder = buildOrder("ORD-TODAY", LocalDateTime.of(2024, 1, 15, 9, 0), Order.OrderStatus.CONFIRMED);
         yesterdayOrder = buildOrder("ORD-YDAY", LocalDateTime.of(2024, 1, 14, 11, 0), Order.OrderStatus.COMPLETED);
@@ -63,7 +77,7 @@ class AnalyticsServiceTest {
             return List.of();
         });
 
-        lenient().when(orderRepository.findByStatusIn(ArgumentMatchers.any())).thenReturn(List.of(todayOrder));
+        lenient().when(orderRepository.countByStatusIn(ArgumentMatchers.any())).thenReturn(1L);
         lenient().when(orderRepository.countByStatus(Order.OrderStatus.PENDING)).thenReturn(0L);
         lenient().when(orderRepository.countByStatus(Order.OrderStatus.PREPARING)).thenReturn(0L);
         lenient().when(orderRepository.countByStatus(Order.OrderStatus.READY)).thenReturn(0L);
@@ -79,6 +93,29 @@ class AnalyticsServiceTest {
         assertThat(analytics.orders().activeOrders()).isEqualTo(1);
     }
 
+    @Test
+    void getDashboardAnalyticsReadsClosedDaysFromRollups() {
+        LocalDateTime yesterday = LocalDateTime.of(2024, 1, 14, 0, 0);
+        lenient().when(salesRollupRepository.findBuckets(SalesRollup.Granularity.DAY, yesterday, yesterday.plusDays(1)))
+                .thenReturn(List.of(SalesRollup.builder()
+                        .granularity(SalesRollup.Granularity.DAY)
+                        .bucketStart(yesterday)
+                        .dimension(SalesRollup.Dimension.TOTAL)
+                        .dimensionValue("")
+                        .orderCount(3L)
+                        .revenue(BigDecimal.valueOf(9000))
+                        .taxAmount(BigDecimal.valueOf(500))
+                        .discountAmount(BigDecimal.ZERO)
+                        .build()));
+
+        DashboardAnalytics analytics = analyticsService.getDashboardAnalytics();
+
+        assertThat(analytics.yesterday().orders()).isEqualTo(3);
+        assertThat(analytics.yesterday().revenue()).isEqualByComparingTo(BigDecimal.valueOf(9000));
+        assertThat(analytics.today().orders()).isEqualTo(1);
+        verify(orderRepository, never()).findByCreatedAtBetweenWithItems(yesterday, yesterday.plusDays(1).minusNanos(1));
+    }
+
     @Test
     void getMenuPerformanceReturnsAggregatedItems() {
         when(orderRepository.findByCreatedAtBetweenWithItems(ArgumentMatchers.any(), ArgumentMatchers.any()))
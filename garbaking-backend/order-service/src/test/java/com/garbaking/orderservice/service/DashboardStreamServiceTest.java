@@ -0,0 +1,206 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.analytics.DashboardDelta;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.repository.OrderRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardStreamServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T10:00:00Z");
+    private static final LocalDateTime START_OF_TODAY = LocalDateTime.of(2024, 1, 15, 0, 0);
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private SalesRollupReader salesRollupReader;
+    @Mock
+    private ActiveOrderIndex activeOrderIndex;
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private MutableClock clock;
+    private DashboardStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW);
+        AnalyticsService analyticsService = new AnalyticsService(orderRepository, salesRollupReader, clock);
+        streamService = new DashboardStreamService(analyticsService, salesRollupReader, activeOrderIndex,
+                messagingTemplate, new ObjectMapper().findAndRegisterModules(), "order.created",
+                Duration.ofMinutes(1), clock);
+        when(salesRollupReader.loadTotals(eq(START_OF_TODAY), any(), any())).thenReturn(totals(3000));
+        when(salesRollupReader.loadTotals(eq(START_OF_TODAY.minusDays(1)), any(), any())).thenReturn(totals());
+        when(activeOrderIndex.isReady()).thenReturn(true);
+        when(activeOrderIndex.countByStatusIn(any())).thenReturn(1L);
+        streamService.pushPendingDelta();
+        verify(messagingTemplate).convertAndSend(eq(DashboardStreamService.DASHBOARD_TOPIC), any(DashboardDelta.class));
+        clearInvocations(messagingTemplate, salesRollupReader);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void countsAnnouncedOrdersWithoutReadingTheDatabase() {
+        ConsumerRecord<String, String> created = event("order.created", 5L, Order.OrderStatus.PENDING, "2024-01-15T09:30:00");
+        streamService.onOrderEvent(created);
+        // Redelivered
+        streamService.onOrderEvent(created);
+
+        streamService.pushPendingDelta();
+        streamService.pushPendingDelta();
+
+        DashboardDelta delta = pushedDelta();
+        assertThat(delta.today().orders()).isEqualTo(2);
+        assertThat(delta.today().revenue()).isEqualByComparingTo("5500");
+        assertThat(delta.yesterday()).isNull();
+        verify(activeOrderIndex, times(2)).onOrderRelayed(any(OrderDTO.class));
+        verifyNoInteractions(salesRollupReader, orderRepository);
+    }
+
+    @Test
+    void lateOrdersOfYesterdayAreCountedForYesterday() {
+        streamService.onOrderEvent(event("order.created", 6L, Order.OrderStatus.PENDING, "2024-01-14T23:59:00"));
+
+        streamService.pushPendingDelta();
+
+        DashboardDelta delta = pushedDelta();
+        assertThat(delta.yesterday().orders()).isEqualTo(1);
+        assertThat(delta.today().comparison()).isNotNull();
+    }
+
+    @Test
+    void statusEventsMoveActiveCountsOnly() {
+        when(activeOrderIndex.countByStatusIn(any())).thenReturn(2L);
+
+        streamService.onOrderEvent(event("order.status.changed", 5L, Order.OrderStatus.READY, "2024-01-15T09:30:00"));
+        streamService.pushPendingDelta();
+
+        DashboardDelta delta = pushedDelta();
+        assertThat(delta.today()).isNull();
+        assertThat(delta.orders().readyOrders()).isEqualTo(2);
+        verify(activeOrderIndex).onOrderRelayed(any(OrderDTO.class));
+    }
+
+    @Test
+    void reReadsTheTotalsEveryReconcileIntervalAndAtMidnight() {
+        clock.instant = NOW.plusSeconds(30);
+        streamService.pushPendingDelta();
+        verifyNoInteractions(salesRollupReader);
+
+        clock.instant = NOW.plusSeconds(60);
+        streamService.pushPendingDelta();
+        verify(salesRollupReader, times(2)).loadTotals(any(), any(), any());
+
+        when(salesRollupReader.loadTotals(eq(START_OF_TODAY.plusDays(1)), any(), any())).thenReturn(totals());
+        when(salesRollupReader.loadTotals(eq(START_OF_TODAY), any(), any())).thenReturn(totals(3000));
+        clock.instant = Instant.parse("2024-01-16T00:00:01Z");
+        streamService.pushPendingDelta();
+
+        DashboardDelta delta = pushedDelta();
+        assertThat(delta.today().orders()).isZero();
+        assertThat(delta.yesterday().orders()).isEqualTo(1);
+    }
+
+    @Test
+    void changeIsOnlyPushedOnceItsTransactionCommits() {
+        when(activeOrderIndex.countByStatusIn(any())).thenReturn(3L);
+        TransactionSynchronizationManager.initSynchronization();
+        streamService.onOrderChanged();
+
+        streamService.pushPendingDelta();
+        verifyNoInteractions(messagingTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        streamService.pushPendingDelta();
+        assertThat(pushedDelta().orders().activeOrders()).isEqualTo(3);
+    }
+
+    @Test
+    void unchangedDashboardIsNotPushed() {
+        streamService.onOrderChanged();
+
+        streamService.pushPendingDelta();
+
+        verify(messagingTemplate, never()).convertAndSend(any(String.class), any(Object.class));
+    }
+
+    private DashboardDelta pushedDelta() {
+        ArgumentCaptor<DashboardDelta> delta = ArgumentCaptor.forClass(DashboardDelta.class);
+        verify(messagingTemplate).convertAndSend(eq(DashboardStreamService.DASHBOARD_TOPIC), delta.capture());
+        return delta.getValue();
+    }
+
+    private static ConsumerRecord<String, String> event(String topic, Long orderId, Order.OrderStatus status,
+                                                        String createdAt) {
+        String payload = "{\"id\":" + orderId + ",\"status\":\"" + status + "\",\"orderType\":\"DINE_IN\"," +
+                "\"totalAmount\":2500,\"createdAt\":\"" + createdAt + "\",\"updatedAt\":\"" + createdAt + "\"}";
+        return new ConsumerRecord<>(topic, 0, 0L, orderId.toString(), payload);
+    }
+
+    private static SalesTotals totals(long... orderTotals) {
+        SalesTotals totals = new SalesTotals();
+        for (long total : orderTotals) {
+            totals.addOrder(OrderDTO.builder()
+                    .status(Order.OrderStatus.COMPLETED)
+                    .totalAmount(BigDecimal.valueOf(total))
+                    .build());
+        }
+        return totals;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
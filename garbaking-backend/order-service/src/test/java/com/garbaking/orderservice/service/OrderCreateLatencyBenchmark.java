@@ -0,0 +1,127 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.bootstrap.OrderItemIdGeneratorSeeder;
+import com.garbaking.orderservice.dto.CreateOrderDTO;
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.websocket.OrderEventJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end latency of OrderService.createOrder against MySQL, for 1, 5 and 20 item orders.
+ * Tagged "benchmark" and excluded from the regular test run; run it with
+ * ./gradlew :order-service:benchmarkTest (needs Docker).
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "qr.token.secret=benchmark-secret-benchmark-secret-0123456789",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderService.class, OrderEventOutbox.class, QRTokenService.class, QRTokenCodec.class,
+        ShortCodeAllocator.class, IssuedTokenCache.class, QRTokenPool.class, SimpleMeterRegistry.class,
+        OrderNumberGenerator.class, OrderNumberBlockAllocator.class, OrderItemIdGeneratorSeeder.class,
+        JacksonAutoConfiguration.class})
+class OrderCreateLatencyBenchmark {
+
+    private static final int WARMUP = 100;
+    private static final int MEASURED = 1000;
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> MYSQL.getJdbcUrl() + "?rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @MockBean
+    private WebSocketService webSocketService;
+    @MockBean
+    private OrderEventJournal orderEventJournal;
+    @MockBean
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Autowired
+    private OrderService orderService;
+
+    @ParameterizedTest(name = "{0} item(s)")
+    @ValueSource(ints = {1, 5, 20})
+    void createOrderLatency(int itemCount) {
+        CreateOrderDTO request = request(itemCount);
+        for (int i = 0; i < WARMUP; i++) {
+            orderService.createOrder(request);
+        }
+
+        long[] nanos = new long[MEASURED];
+        OrderDTO last = null;
+        for (int i = 0; i < MEASURED; i++) {
+            long start = System.nanoTime();
+            last = orderService.createOrder(request);
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("createOrder %2d item(s): p50=%.2f ms p99=%.2f ms max=%.2f ms%n", itemCount,
+                percentile(nanos, 0.50), percentile(nanos, 0.99), nanos[nanos.length - 1] / 1_000_000.0);
+        assertThat(last.getItems()).hasSize(itemCount).allSatisfy(item -> assertThat(item.getId()).isNotNull());
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static CreateOrderDTO request(int itemCount) {
+        List<OrderItemDTO> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(OrderItemDTO.builder()
+                    .menuItemId((long) i + 1)
+                    .menuItemName("Item " + i)
+                    .menuItemSku("MEAL-" + i)
+                    .quantity(1 + i % 3)
+                    .unitPrice(BigDecimal.valueOf(1500))
+                    .build());
+        }
+        return CreateOrderDTO.builder()
+                .orderType(Order.OrderType.DINE_IN)
+                .userId(1L)
+                .customerName("Benchmark")
+                .paymentMethod(Order.PaymentMethod.CASH)
+                .tableNumber("1")
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.bootstrap.OrderItemIdGeneratorSeeder;
+import com.garbaking.orderservice.dto.CreateOrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.websocket.OrderEventJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Order-create throughput of 50 kiosks ordering at once against MySQL, with and without the
+ * pre-minted QR token pool. Tagged "benchmark" and excluded from the regular test run; run it with
+ * ./gradlew :order-service:benchmarkTest (needs Docker).
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=update",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.datasource.hikari.maximum-pool-size=60",
+        "qr.token.secret=benchmark-secret-benchmark-secret-0123456789",
+        "qr.token.pool.size=2000",
+        "qr.token.pool.batch-size=200",
+        "eureka.client.enabled=false",
+        "spring.cloud.config.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderService.class, OrderEventOutbox.class, QRTokenService.class, QRTokenCodec.class,
+        ShortCodeAllocator.class, IssuedTokenCache.class, QRTokenPool.class, SimpleMeterRegistry.class,
+        OrderNumberGenerator.class, OrderNumberBlockAllocator.class, OrderItemIdGeneratorSeeder.class,
+        JacksonAutoConfiguration.class})
+class OrderCreateThroughputBenchmark {
+
+    private static final int KIOSKS = 50;
+    private static final int WARMUP_PER_KIOSK = 10;
+    private static final int ORDERS_PER_KIOSK = 40;
+
+    @Container
+    static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> MYSQL.getJdbcUrl() + "?rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", MYSQL::getUsername);
+        registry.add("spring.datasource.password", MYSQL::getPassword);
+    }
+
+    @MockBean
+    private WebSocketService webSocketService;
+    @MockBean
+    private OrderEventJournal orderEventJournal;
+    @MockBean
+    private ActiveOrderIndex activeOrderIndex;
+
+    @Nested
+    @TestPropertySource(properties = "qr.token.pool.enabled=false")
+    class WithoutPool {
+
+        @Autowired
+        private OrderService orderService;
+
+        @Test
+        void createOrderThroughput() throws Exception {
+            run("without pool", orderService, null);
+        }
+    }
+
+    @Nested
+    @TestPropertySource(properties = "qr.token.pool.enabled=true")
+    class WithPool {
+
+        @Autowired
+        private OrderService orderService;
+        @Autowired
+        private QRTokenPool tokenPool;
+
+        @Test
+        void createOrderThroughput() throws Exception {
+            run("with pool", orderService, tokenPool);
+        }
+    }
+
+    private static void run(String label, OrderService orderService, QRTokenPool tokenPool) throws Exception {
+        if (tokenPool != null) {
+            // Measure a warm pool, as it would be at the start of a rush
+            tokenPool.refill();
+        }
+        CreateOrderDTO request = request();
+        ExecutorService kiosks = Executors.newFixedThreadPool(KIOSKS);
+        try {
+            ordersFromEveryKiosk(kiosks, orderService, request, WARMUP_PER_KIOSK);
+            if (tokenPool != null) {
+                tokenPool.refill();
+            }
+
+            long start = System.nanoTime();
+            int created = ordersFromEveryKiosk(kiosks, orderService, request, ORDERS_PER_KIOSK);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+            System.out.printf("createOrder %s, %d kiosks: %d orders in %.2f s = %.0f orders/s%n",
+                    label, KIOSKS, created, seconds, created / seconds);
+            assertThat(created).isEqualTo(KIOSKS * ORDERS_PER_KIOSK);
+        } finally {
+            kiosks.shutdownNow();
+        }
+    }
+
+    private static int ordersFromEveryKiosk(ExecutorService kiosks, OrderService orderService,
+                                            CreateOrderDTO request, int ordersPerKiosk) throws Exception {
+        CountDownLatch ready = new CountDownLatch(KIOSKS);
+        AtomicInteger created = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(KIOSKS);
+        for (int i = 0; i < KIOSKS; i++) {
+            futures.add(kiosks.submit(() -> {
+                ready.countDown();
+                ready.await();
+                for (int n = 0; n < ordersPerKiosk; n++) {
+                    assertThat(orderService.createOrder(request).getId()).isNotNull();
+                    created.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return created.get();
+    }
+
+    private static CreateOrderDTO request() {
+        List<OrderItemDTO> items = new ArrayList<>(3);
+        for (int i = 0; i < 3; i++) {
+            items.add(OrderItemDTO.builder()
+                    .menuItemId((long) i + 1)
+                    .menuItemName("Item " + i)
+                    .menuItemSku("MEAL-" + i)
+                    .quantity(1)
+                    .unitPrice(BigDecimal.valueOf(1500))
+                    .build());
+        }
+        return CreateOrderDTO.builder()
+                .orderType(Order.OrderType.DINE_IN)
+                .userId(1L)
+                .customerName("Kiosk")
+                .paymentMethod(Order.PaymentMethod.CASH)
+                .tableNumber("1")
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.analytics.OrderExportRow;
+import com.garbaking.orderservice.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderCsvWriterTest {
+
+    @Test
+    void writesOrderRowsInLegacyColumnOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OrderCsvWriter writer = new OrderCsvWriter(out, false)) {
+            writer.writeHeader();
+            writer.write(new OrderExportRow("ORD-1", Order.OrderStatus.COMPLETED, new BigDecimal("45.00"),
+                    null, LocalDateTime.of(2024, 1, 15, 9, 0)));
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "Order Number,Status,Total,Payment Method,Created At\n" +
+                "ORD-1,COMPLETED,45.00,UNKNOWN,2024-01-15T09:00\n");
+    }
+
+    @Test
+    void writesLineItemColumnsAndQuotesFreeText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OrderCsvWriter writer = new OrderCsvWriter(out, true)) {
+            writer.write(new OrderExportRow("ORD-2", Order.OrderStatus.READY, new BigDecimal("30"),
+                    Order.PaymentMethod.CASH, LocalDateTime.of(2024, 1, 15, 9, 30),
+                    7L, "Rice, \"large\"", "MEAL-001", 2, new BigDecimal("15"), new BigDecimal("30")));
+            assertThat(writer.getRowCount()).isEqualTo(1);
+        }
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "ORD-2,READY,30,CASH,2024-01-15T09:30,7,\"Rice, \"\"large\"\"\",MEAL-001,2,15,30\n");
+    }
+}
@@ -0,0 +1,85 @@
+package com.garbaking.orderservice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderNumberGeneratorTest {
+
+    @Mock
+    private OrderNumberBlockAllocator blockAllocator;
+
+    @Test
+    void servesNumbersFromReservedBlock() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-26T10:00:00Z"), ZoneOffset.UTC);
+        OrderNumberGenerator generator = new OrderNumberGenerator(blockAllocator, clock);
+        when(blockAllocator.allocate(eq(LocalDate.of(2025, 1, 26)), anyInt())).thenReturn(1L, 101L);
+
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-20250126-0001");
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-20250126-0002");
+        verify(blockAllocator, times(1)).allocate(any(), anyInt());
+    }
+
+    @Test
+    void reservesNewBlockWhenTheDayChanges() {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2025-01-26T23:59:59Z"));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        OrderNumberGenerator generator = new OrderNumberGenerator(blockAllocator, clock);
+        when(blockAllocator.allocate(eq(LocalDate.of(2025, 1, 26)), anyInt())).thenReturn(51L);
+        when(blockAllocator.allocate(eq(LocalDate.of(2025, 1, 27)), anyInt())).thenReturn(1L);
+
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-20250126-0051");
+        now.set(Instant.parse("2025-01-27T00:00:01Z"));
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-20250127-0001");
+    }
+
+    @Test
+    void retriesWhenDailyRowIsCreatedConcurrently() {
+        Clock clock = Clock.fixed(Instant.parse("2025-01-26T10:00:00Z"), ZoneOffset.UTC);
+        OrderNumberGenerator generator = new OrderNumberGenerator(blockAllocator, clock);
+        when(blockAllocator.allocate(any(), anyInt()))
+                .thenThrow(new DataIntegrityViolationException("duplicate"))
+                .thenReturn(51L);
+
+        assertThat(generator.nextOrderNumber()).isEqualTo("ORD-20250126-0051");
+    }
+
+    @Test
+    void widensSequenceInsteadOfWrapping() {
+        char[] prefix = OrderNumberGenerator.buildPrefix(LocalDate.of(2025, 1, 26));
+
+        assertThat(OrderNumberGenerator.format(prefix, 9999)).isEqualTo("ORD-20250126-9999");
+        assertThat(OrderNumberGenerator.format(prefix, 10000)).isEqualTo("ORD-20250126-10000");
+    }
+}
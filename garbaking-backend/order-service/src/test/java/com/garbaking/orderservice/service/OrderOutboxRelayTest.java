@@ -0,0 +1,144 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
+import com.garbaking.orderservice.repository.OrderOutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxRelayTest {
+
+    @Mock
+    private OrderOutboxEventRepository outboxRepository;
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OrderOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OrderOutboxRelay(outboxRepository, kafkaTemplate, new ObjectMapper(), transactionManager,
+                meterRegistry,
+                "order.created", "order.status.changed", "order.payment.updated", "order.cancelled");
+        ReflectionTestUtils.setField(relay, "batchSize", 50);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(relay, "backoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void relaysBatchToMappedTopicsAndMarksPublished() {
+        OrderOutboxEvent created = event(1L, "evt-1", OrderOutboxEvent.EventType.ORDER_CREATED, 7L);
+        OrderOutboxEvent cancelled = event(2L, "evt-2", OrderOutboxEvent.EventType.ORDER_CANCELLED, 8L);
+        when(outboxRepository.lockNextBatch(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(created, cancelled));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        int published = relay.relayPendingEvents();
+
+        ArgumentCaptor<ProducerRecord<String, Object>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(records.capture());
+        assertThat(records.getAllValues()).extracting(ProducerRecord::topic)
+                .containsExactly("order.created", "order.cancelled");
+        assertThat(records.getAllValues().get(0).key()).isEqualTo("7");
+        assertThat(new String(records.getAllValues().get(0).headers()
+                .lastHeader(OrderOutboxRelay.EVENT_ID_HEADER).value())).isEqualTo("evt-1");
+
+        assertThat(published).isEqualTo(2);
+        verify(outboxRepository).markPublished(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        assertThat(meterRegistry.counter("garbaking_order_outbox_published_total").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void claimsBatchAndCommitsBeforeSending() {
+        OrderOutboxEvent event = event(1L, "evt-1", OrderOutboxEvent.EventType.ORDER_CREATED, 7L);
+        when(outboxRepository.lockNextBatch(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+
+        relay.relayPendingEvents();
+
+        InOrder inOrder = inOrder(outboxRepository, transactionManager, kafkaTemplate);
+        inOrder.verify(outboxRepository).claim(eq(List.of(1L)), any(LocalDateTime.class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(kafkaTemplate).send(any(ProducerRecord.class));
+        inOrder.verify(outboxRepository).markPublished(eq(List.of(1L)), any(LocalDateTime.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedSendsBackOffBeforeRetry() {
+        OrderOutboxEvent event = event(3L, "evt-3", OrderOutboxEvent.EventType.ORDER_STATUS_CHANGED, 9L);
+        event.setAttempts(1);
+        when(outboxRepository.lockNextBatch(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        LocalDateTime before = LocalDateTime.now();
+        int published = relay.relayPendingEvents();
+
+        assertThat(published).isZero();
+        ArgumentCaptor<LocalDateTime> nextAttempt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).recordFailure(eq(3L), contains("broker down"), nextAttempt.capture(), isNull());
+        // Second attempt waits twice the base backoff
+        assertThat(nextAttempt.getValue()).isAfterOrEqualTo(before.plusSeconds(2));
+        verify(outboxRepository, never()).markPublished(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void parksEventAfterMaxAttempts() {
+        OrderOutboxEvent event = event(4L, "evt-4", OrderOutboxEvent.EventType.ORDER_PAYMENT_UPDATED, 9L);
+        event.setAttempts(2);
+        when(outboxRepository.lockNextBatch(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(event));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("record too large")));
+
+        relay.relayPendingEvents();
+
+        verify(outboxRepository).recordFailure(eq(4L), contains("record too large"), isNull(), any(LocalDateTime.class));
+        assertThat(meterRegistry.counter("garbaking_order_outbox_parked_events_total").count()).isEqualTo(1.0);
+    }
+
+    private OrderOutboxEvent event(Long id, String eventId, OrderOutboxEvent.EventType type, Long orderId) {
+        return OrderOutboxEvent.builder()
+                .id(id)
+                .eventId(eventId)
+                .eventType(type)
+                .orderId(orderId)
+                .payload("{\"id\":" + orderId + ",\"orderNumber\":\"ORD-" + orderId + "\"}")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
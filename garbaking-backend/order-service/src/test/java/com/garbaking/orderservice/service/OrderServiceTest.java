@@ -1,26 +1,39 @@
 package com.garbaking.orderservice.service;
 
+import com.garbaking.orderservice.dto.CreateOrderDTO;
+import com.garbaking.orderservice.dto.CustomerOrderHistoryResponse;
 import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderHistoryCursor;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.dto.OrderSummaryDTO;
+import com.garbaking.orderservice.dto.OrderSummaryPage;
+import com.garbaking.orderservice.dto.QRTokenResponseDTO;
 import com.garbaking.orderservice.dto.UpdateOrderStatusDTO;
 import com.garbaking.orderservice.exception.InvalidOrderStateException;
 import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.model.OrderOutboxEvent;
 import com.garbaking.orderservice.repository.OrderItemRepository;
 import com.garbaking.orderservice.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +44,17 @@ class OrderServiceTest {
     @Mock
     private OrderItemRepository orderItemRepository;
     @Mock
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OrderEventOutbox orderEventOutbox;
     @Mock
     private WebSocketService webSocketService;
+    @Mock
+    private ActiveOrderIndex activeOrderIndex;
+    @Mock
+    private QRTokenService qrTokenService;
+    @Mock
+    private OrderNumberGenerator orderNumberGenerator;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private OrderService orderService;
@@ -56,6 +77,58 @@ class OrderServiceTest {
                 .build();
     }
 
+    @Test
+    void orderNumberIsTakenBeforeTheTransactionOpens() {
+        when(orderNumberGenerator.nextOrderNumber()).thenReturn("ORD-20250126-0001");
+        QRTokenService.TokenReservation reservation =
+                new QRTokenService.TokenReservation("token-1", "nonce", "ABC234", LocalDateTime.now().plusHours(1));
+        when(qrTokenService.reserveToken()).thenReturn(reservation);
+        when(qrTokenService.issueToken(any(Order.class), eq(reservation)))
+                .thenReturn(QRTokenResponseDTO.builder().tokenId("token-1").shortCode("ABC234").build());
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        OrderDTO created = orderService.createOrder(CreateOrderDTO.builder()
+                .orderType(Order.OrderType.DINE_IN)
+                .userId(5L)
+                .items(List.of(OrderItemDTO.builder()
+                        .menuItemId(1L)
+                        .menuItemName("Attieke")
+                        .quantity(2)
+                        .unitPrice(BigDecimal.valueOf(1500))
+                        .build()))
+                .build());
+
+        assertThat(created.getOrderNumber()).isEqualTo("ORD-20250126-0001");
+        InOrder inOrder = inOrder(orderNumberGenerator, transactionManager, orderRepository);
+        inOrder.verify(orderNumberGenerator).nextOrderNumber();
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(orderRepository).save(any(Order.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void activeOrdersServedFromTheIndexOpenNoTransaction() {
+        OrderDTO ready = OrderDTO.builder().id(1L).status(Order.OrderStatus.READY).build();
+        when(activeOrderIndex.activeOrders()).thenReturn(Optional.of(List.of(ready)));
+        when(activeOrderIndex.ordersByStatus(Order.OrderStatus.READY)).thenReturn(Optional.of(List.of(ready)));
+
+        assertThat(orderService.getActiveOrders()).containsExactly(ready);
+        assertThat(orderService.getOrdersByStatus(Order.OrderStatus.READY)).containsExactly(ready);
+
+        verifyNoInteractions(transactionManager, orderRepository);
+    }
+
+    @Test
+    void activeOrdersFallBackToAReadOnlyTransactionUntilTheIndexIsBuilt() {
+        when(activeOrderIndex.activeOrders()).thenReturn(Optional.empty());
+        when(orderRepository.findActiveOrdersWithItems()).thenReturn(List.of(existingOrder));
+
+        assertThat(orderService.getActiveOrders()).extracting(OrderDTO::getId).containsExactly(1L);
+
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+        verify(transactionManager).commit(any());
+    }
+
     @Test
     void updateOrderStatusIsIdempotent() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(existingOrder));
@@ -68,7 +141,7 @@ class OrderServiceTest {
 
         assertThat(result.getStatus()).isEqualTo(Order.OrderStatus.PENDING);
         verify(orderRepository, never()).save(any());
-        verifyNoInteractions(kafkaTemplate);
+        verifyNoInteractions(orderEventOutbox);
     }
 
     @Test
@@ -84,7 +157,7 @@ class OrderServiceTest {
 
         assertThat(result.getStatus()).isEqualTo(Order.OrderStatus.CONFIRMED);
         verify(orderRepository).save(any(Order.class));
-        verify(kafkaTemplate).send(anyString(), anyString(), any());
+        verify(orderEventOutbox).append(eq(OrderOutboxEvent.EventType.ORDER_STATUS_CHANGED), any(OrderDTO.class));
     }
 
     @Test
@@ -98,4 +171,63 @@ class OrderServiceTest {
         assertThatThrownBy(() -> orderService.updateOrderStatus(1L, dto))
                 .isInstanceOf(InvalidOrderStateException.class);
     }
+
+    @Test
+    void userHistoryPageEndsWithCursorOfItsLastOrder() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 9, 0);
+        when(orderRepository.findSummariesByUserId(eq(5L), any(Pageable.class)))
+                .thenReturn(List.of(summary(9L, now), summary(8L, now), summary(7L, now.minusMinutes(1))));
+        when(orderRepository.countByUserId(5L)).thenReturn(12L);
+
+        OrderSummaryPage page = orderService.getOrderSummariesByUserId(5L, null, 2);
+
+        assertThat(page.getOrders()).extracting(OrderSummaryDTO::id).containsExactly(9L, 8L);
+        assertThat(page.getCount()).isEqualTo(12L);
+        assertThat(OrderHistoryCursor.decode(page.getNextCursor())).isEqualTo(new OrderHistoryCursor(now, 8L));
+    }
+
+    @Test
+    void userHistorySeeksPastCursorAndEndsWithoutOne() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 9, 0);
+        when(orderRepository.findSummariesByUserIdBefore(eq(5L), eq(now), eq(8L), any(Pageable.class)))
+                .thenReturn(List.of(summary(7L, now.minusMinutes(1))));
+
+        OrderSummaryPage page = orderService.getOrderSummariesByUserId(5L, new OrderHistoryCursor(now, 8L), 2);
+
+        assertThat(page.getOrders()).extracting(OrderSummaryDTO::id).containsExactly(7L);
+        assertThat(page.getNextCursor()).isNull();
+        verify(orderRepository, never()).findSummariesByUserId(any(), any());
+    }
+
+    @Test
+    void customerHistoryLoadsOnlyThePageInCursorOrder() {
+        LocalDateTime now = LocalDateTime.of(2024, 1, 15, 9, 0);
+        when(orderRepository.findIdsByCustomerPhone(eq("0700"), any(Pageable.class))).thenReturn(List.of(3L, 2L, 1L));
+        when(orderRepository.findAllWithItemsByIdIn(List.of(3L, 2L)))
+                .thenReturn(List.of(order(2L, now.minusMinutes(1)), order(3L, now)));
+        when(orderRepository.countByCustomerPhone("0700")).thenReturn(3L);
+
+        CustomerOrderHistoryResponse response = orderService.getOrdersByCustomerPhone("0700", null, 2);
+
+        assertThat(response.getOrders()).extracting(OrderDTO::getId).containsExactly(3L, 2L);
+        assertThat(response.getCount()).isEqualTo(3L);
+        assertThat(OrderHistoryCursor.decode(response.getNextCursor()))
+                .isEqualTo(new OrderHistoryCursor(now.minusMinutes(1), 2L));
+    }
+
+    private static OrderSummaryDTO summary(Long id, LocalDateTime createdAt) {
+        return new OrderSummaryDTO(id, "ORD-" + id, Order.OrderStatus.COMPLETED, Order.OrderType.DINE_IN,
+                Order.PaymentStatus.PAID, Order.PaymentMethod.CASH, BigDecimal.TEN, createdAt);
+    }
+
+    private static Order order(Long id, LocalDateTime createdAt) {
+        return Order.builder()
+                .id(id)
+                .orderNumber("ORD-" + id)
+                .status(Order.OrderStatus.COMPLETED)
+                .orderType(Order.OrderType.DINE_IN)
+                .totalAmount(BigDecimal.TEN)
+                .createdAt(createdAt)
+                .build();
+    }
 }
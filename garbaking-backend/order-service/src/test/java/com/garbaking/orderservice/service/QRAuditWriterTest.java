@@ -0,0 +1,167 @@
+package com.garbaking.orderservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.garbaking.orderservice.model.QRScanAuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class QRAuditWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void writesQueuedRecordsInBatches() {
+        List<Integer> batchSizes = captureBatches();
+        QRAuditWriter writer = new QRAuditWriter(jdbcTemplate, meterRegistry, 100, 2, Duration.ofSeconds(1), null, null);
+
+        for (int i = 0; i < 5; i++) {
+            writer.record(auditLog("SUCCESS"));
+        }
+        writer.flush();
+
+        assertThat(batchSizes).containsExactly(2, 2, 1);
+        assertThat(writer.queuedCount()).isZero();
+        assertThat(meterRegistry.counter("garbaking_qr_audit_written_total").count()).isEqualTo(5);
+    }
+
+    @Test
+    void dropsAndCountsRecordsBeyondCapacityWithoutSpool() {
+        QRAuditWriter writer = new QRAuditWriter(jdbcTemplate, meterRegistry, 2, 10, Duration.ofSeconds(1), null, null);
+
+        for (int i = 0; i < 3; i++) {
+            writer.record(auditLog("FAILED"));
+        }
+
+        assertThat(writer.queuedCount()).isEqualTo(2);
+        assertThat(meterRegistry.counter("garbaking_qr_audit_dropped_total").count()).isEqualTo(1);
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), anyCollection(), anyInt(),
+                any());
+    }
+
+    @Test
+    void spoolsFailedBatchesAndReplaysThemLater() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        QRAuditSpool spool = new QRAuditSpool(tempDir.resolve("audit.spool"), objectMapper);
+        QRAuditWriter writer = new QRAuditWriter(jdbcTemplate, meterRegistry, 100, 10, Duration.ofSeconds(1), spool, null);
+
+        doThrow(new QueryTimeoutException("slow")).when(jdbcTemplate).batchUpdate(eq(QRAuditWriter.INSERT_SQL),
+                anyCollection(), anyInt(), any());
+        writer.record(auditLog("SUCCESS"));
+        writer.record(auditLog("EXPIRED"));
+        writer.flush();
+
+        assertThat(spool.hasRecords()).isTrue();
+        assertThat(meterRegistry.counter("garbaking_qr_audit_spooled_total").count()).isEqualTo(2);
+
+        List<Integer> batchSizes = captureBatches();
+        writer.flush();
+
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(spool.hasRecords()).isFalse();
+    }
+
+    @Test
+    void quarantinesUnreadableSpoolLinesAndReplaysTheRest() throws Exception {
+        Path spoolPath = tempDir.resolve("audit.spool");
+        QRAuditSpool spool = new QRAuditSpool(spoolPath, new ObjectMapper().registerModule(new JavaTimeModule()));
+        QRAuditWriter writer = new QRAuditWriter(jdbcTemplate, meterRegistry, 100, 10, Duration.ofSeconds(1), spool, null);
+        spool.append(List.of(auditLog("SUCCESS")));
+        // Torn by a crash mid-write
+        Files.writeString(spoolPath, "{\"orderId\":42,\"tok\n", StandardOpenOption.APPEND);
+        spool.append(List.of(auditLog("EXPIRED")));
+
+        List<Integer> batchSizes = captureBatches();
+        writer.flush();
+
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(spool.hasRecords()).isFalse();
+        assertThat(Files.readAllLines(spool.quarantinePath())).containsExactly("{\"orderId\":42,\"tok");
+        assertThat(meterRegistry.counter("garbaking_qr_audit_quarantined_total").count()).isEqualTo(1);
+    }
+
+    @Test
+    void replaysSpoolInChunksAndKeepsWhatFollowsAFailedChunk() throws Exception {
+        QRAuditSpool spool = new QRAuditSpool(tempDir.resolve("audit.spool"),
+                new ObjectMapper().registerModule(new JavaTimeModule()));
+        QRAuditWriter writer = new QRAuditWriter(jdbcTemplate, meterRegistry, 100, 2, Duration.ofSeconds(1), spool, null);
+        for (int i = 0; i < 5; i++) {
+            spool.append(List.of(auditLog("SUCCESS")));
+        }
+
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<Collection<?>>getArgument(1).size());
+            return new int[0][];
+        }).doThrow(new QueryTimeoutException("slow")).when(jdbcTemplate).batchUpdate(eq(QRAuditWriter.INSERT_SQL),
+                anyCollection(), anyInt(), any());
+        writer.flush();
+
+        assertThat(batchSizes).containsExactly(2);
+        assertThat(spool.hasRecords()).isTrue();
+        // Appended while the replay file is pending
+        spool.append(List.of(auditLog("EXPIRED")));
+
+        List<Integer> retried = captureBatches();
+        writer.flush();
+        writer.flush();
+
+        assertThat(retried).containsExactly(2, 1, 1);
+        assertThat(spool.hasRecords()).isFalse();
+        assertThat(meterRegistry.counter("garbaking_qr_audit_written_total").count()).isEqualTo(6);
+    }
+
+    private List<Integer> captureBatches() {
+        List<Integer> sizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            sizes.add(invocation.<Collection<?>>getArgument(1).size());
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(eq(QRAuditWriter.INSERT_SQL), anyCollection(), anyInt(),
+                any());
+        return sizes;
+    }
+
+    private static QRScanAuditLog auditLog(String status) {
+        return QRScanAuditLog.builder()
+                .orderId(42L)
+                .tokenId("qr_1")
+                .action("SCAN")
+                .status(status)
+                .deviceId("till-1")
+                .scanTimestamp(LocalDateTime.of(2024, 1, 15, 9, 0))
+                .processingTimeMs(3)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
+import com.garbaking.orderservice.repository.QRScanAuditLogRepository;
+import com.garbaking.orderservice.repository.QRScanDailyStatsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QRRetentionServiceTest {
+
+    @Mock
+    private QRScanAuditLogRepository auditLogRepository;
+    @Mock
+    private PaymentQRTokenRepository tokenRepository;
+    @Mock
+    private QRScanDailyStatsRepository dailyStatsRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private QRRetentionService retentionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        retentionService = new QRRetentionService(auditLogRepository, tokenRepository, dailyStatsRepository,
+                transactionManager, jdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(retentionService, "auditRetention", Duration.ofDays(90));
+        ReflectionTestUtils.setField(retentionService, "tokenRetention", Duration.ofDays(7));
+        ReflectionTestUtils.setField(retentionService, "chunkSize", 2);
+        ReflectionTestUtils.setField(retentionService, "maxChunksPerRun", 10);
+        ReflectionTestUtils.setField(retentionService, "rollupEnabled", true);
+    }
+
+    @Test
+    void rollsUpThenDeletesAuditLogsChunkByChunk() {
+        when(auditLogRepository.findIdsScannedBefore(any(), eq(2)))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L))
+                .thenReturn(List.of());
+        when(auditLogRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(auditLogRepository.deleteByIdIn(List.of(3L))).thenReturn(1);
+
+        int purged = retentionService.purgeAuditLogs();
+
+        assertThat(purged).isEqualTo(3);
+        InOrder inOrder = inOrder(dailyStatsRepository, auditLogRepository);
+        inOrder.verify(dailyStatsRepository).addAuditRows(List.of(1L, 2L));
+        inOrder.verify(auditLogRepository).deleteByIdIn(List.of(1L, 2L));
+        inOrder.verify(dailyStatsRepository).addAuditRows(List.of(3L));
+        inOrder.verify(auditLogRepository).deleteByIdIn(List.of(3L));
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(meterRegistry.counter("garbaking_qr_retention_purged_total", "table", "qr_scan_audit_log").count())
+                .isEqualTo(3.0);
+    }
+
+    @Test
+    void stopsPurgingTokensAtChunkLimit() {
+        when(tokenRepository.deleteExpiredTokens(any(), eq(2))).thenReturn(2);
+
+        int purged = retentionService.purgeExpiredTokens();
+
+        assertThat(purged).isEqualTo(20);
+        verify(tokenRepository, times(10)).deleteExpiredTokens(any(), eq(2));
+    }
+}
@@ -0,0 +1,70 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.analytics.QRScanOperationStats;
+import com.garbaking.orderservice.dto.analytics.QRScanStats;
+import com.garbaking.orderservice.model.QRScanMinuteStats;
+import com.garbaking.orderservice.repository.QRScanMinuteStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QRScanStatsServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 1, 15, 9, 0);
+    private static final LocalDateTime TO = FROM.plusHours(1);
+
+    @Mock
+    private QRScanMinuteStatsRepository minuteStatsRepository;
+
+    @InjectMocks
+    private QRScanStatsService statsService;
+
+    @Test
+    void sumsMinutesAndEstimatesPercentilesFromHistogram() {
+        when(minuteStatsRepository.findByMinuteStartGreaterThanEqualAndMinuteStartLessThan(FROM, TO)).thenReturn(List.of(
+                row("scan", "SUCCESS", "", 90, 900, 40, new long[]{90, 0, 0, 0, 0, 0, 0, 0}),
+                row("scan", "TOKEN_EXPIRED", "", 10, 1200, 300, new long[]{0, 0, 5, 3, 2, 0, 0, 0}),
+                row("confirm", "SUCCESS", "CASH", 4, 200, 80, new long[]{0, 2, 2, 0, 0, 0, 0, 0})));
+
+        QRScanStats stats = statsService.getStats(FROM, TO);
+
+        QRScanOperationStats scan = stats.operations().stream()
+                .filter(operation -> operation.operation().equals("scan")).findFirst().orElseThrow();
+        assertThat(scan.count()).isEqualTo(100);
+        assertThat(scan.successCount()).isEqualTo(90);
+        assertThat(scan.errorCounts()).containsEntry("TOKEN_EXPIRED", 10L);
+        assertThat(scan.averageMs()).isEqualTo(21.0);
+        assertThat(scan.p50Ms()).isEqualTo(10);
+        assertThat(scan.p95Ms()).isEqualTo(100);
+        assertThat(scan.p99Ms()).isEqualTo(300);
+        assertThat(scan.maxMs()).isEqualTo(300);
+        assertThat(stats.paymentMethodCounts()).containsEntry("CASH", 4L).hasSize(1);
+        assertThat(stats.paymentMethodAmounts()).containsEntry("CASH", new BigDecimal("60.00"));
+    }
+
+    private static QRScanMinuteStats row(String operation, String status, String paymentMethod,
+                                         long count, long totalMs, long maxMs, long[] buckets) {
+        return QRScanMinuteStats.builder()
+                .minuteStart(FROM)
+                .operation(operation)
+                .status(status)
+                .paymentMethod(paymentMethod)
+                .operationCount(count)
+                .totalProcessingMs(totalMs)
+                .maxProcessingMs(maxMs)
+                .paymentAmount(paymentMethod.isEmpty() ? BigDecimal.ZERO : new BigDecimal("60.00"))
+                .le10ms(buckets[0]).le50ms(buckets[1]).le100ms(buckets[2]).le250ms(buckets[3])
+                .le500ms(buckets[4]).le1000ms(buckets[5]).le5000ms(buckets[6]).gt5000ms(buckets[7])
+                .build();
+    }
+}
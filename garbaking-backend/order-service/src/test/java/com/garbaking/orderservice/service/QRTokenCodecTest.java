@@ -0,0 +1,63 @@
+package com.garbaking.orderservice.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QRTokenCodecTest {
+
+    private static final String OLD_SECRET = "old-qr-secret-old-qr-secret-old-qr-secret";
+    private static final String NEW_SECRET = "new-qr-secret-new-qr-secret-new-qr-secret";
+
+    @Test
+    void acceptsTokensSignedWithRetiredKeys() {
+        QRTokenCodec before = new QRTokenCodec("k1", OLD_SECRET, Map.of(), "garbaking-pos", "payment-confirmation");
+        QRTokenCodec after = new QRTokenCodec("k2", NEW_SECRET, Map.of("k1", OLD_SECRET),
+                "garbaking-pos", "payment-confirmation");
+
+        String token = sign(before);
+
+        Claims claims = after.parse(token);
+        assertThat(claims.getId()).isEqualTo("qr_1");
+        assertThat(claims.get("order_id", Long.class)).isEqualTo(42L);
+        assertThat(after.parse(sign(after)).getSubject()).isEqualTo("order_42");
+    }
+
+    @Test
+    void rejectsUnknownKeyIdsAndWrongAudience() {
+        QRTokenCodec codec = new QRTokenCodec("k2", NEW_SECRET, Map.of(), "garbaking-pos", "payment-confirmation");
+        QRTokenCodec otherKey = new QRTokenCodec("k9", OLD_SECRET, Map.of(), "garbaking-pos", "payment-confirmation");
+        QRTokenCodec otherAudience = new QRTokenCodec("k2", NEW_SECRET, Map.of(), "garbaking-pos", "elsewhere");
+
+        assertThatThrownBy(() -> codec.parse(sign(otherKey))).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> codec.parse(sign(otherAudience))).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void hashesAsLowercaseSha256Hex() throws Exception {
+        QRTokenCodec codec = new QRTokenCodec("k1", NEW_SECRET, Map.of(), "garbaking-pos", "payment-confirmation");
+        byte[] expected = MessageDigest.getInstance("SHA-256").digest("abc.def.ghi".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(codec.hash("abc.def.ghi")).isEqualTo(HexFormat.of().formatHex(expected)).hasSize(64);
+    }
+
+    @Test
+    void parsesPreviousKeyList() {
+        assertThat(QRTokenCodec.parseKeys(" k1=alpha , k0=beta")).containsEntry("k1", "alpha").containsEntry("k0", "beta");
+        assertThatThrownBy(() -> QRTokenCodec.parseKeys("k1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String sign(QRTokenCodec codec) {
+        long now = System.currentTimeMillis();
+        return codec.sign("qr_1", "order_42", new Date(now), new Date(now + 300_000), Map.of("order_id", 42L));
+    }
+}
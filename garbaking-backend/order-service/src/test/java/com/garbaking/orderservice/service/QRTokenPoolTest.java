@@ -0,0 +1,109 @@
+package com.garbaking.orderservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QRTokenPoolTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T09:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private ShortCodeAllocator shortCodeAllocator;
+    @Mock
+    private Clock clock;
+
+    @Test
+    void refillsInBatchesAndHandsOutPreMintedTokens() {
+        stubClock(NOW);
+        stubCodes();
+        QRTokenPool pool = pool(true, 5);
+
+        pool.refill();
+
+        verify(jdbcTemplate, times(3)).batchUpdate(eq(QRTokenPool.INSERT_SQL), anyCollection(), anyInt(),
+                any());
+        assertThat(pool.available()).isEqualTo(5);
+
+        QRTokenService.TokenReservation reservation = pool.take().orElseThrow();
+        assertThat(reservation.preMinted()).isTrue();
+        assertThat(reservation.tokenId()).startsWith("qr_");
+        assertThat(reservation.nonce()).isNotBlank();
+        assertThat(reservation.shortCode()).startsWith("QRPOOL");
+        assertThat(pool.available()).isEqualTo(4);
+    }
+
+    @Test
+    void skipsTokensCloseToTheirRowExpiry() {
+        stubClock(NOW, NOW.plus(Duration.ofMinutes(20)));
+        stubCodes();
+        QRTokenPool pool = pool(true, 2);
+        pool.refill();
+
+        assertThat(pool.take()).isEmpty();
+        assertThat(pool.available()).isZero();
+    }
+
+    @Test
+    void releasesCodesWhenBatchInsertFails() {
+        stubClock(NOW);
+        stubCodes();
+        doThrow(new QueryTimeoutException("timeout")).when(jdbcTemplate).batchUpdate(eq(QRTokenPool.INSERT_SQL),
+                anyCollection(), anyInt(), any());
+        QRTokenPool pool = pool(true, 2);
+
+        pool.refill();
+
+        assertThat(pool.available()).isZero();
+        verify(shortCodeAllocator, times(2)).release(any());
+    }
+
+    @Test
+    void disabledPoolNeverHandsOutTokens() {
+        QRTokenPool pool = pool(false, 5);
+
+        assertThat(pool.take()).isEmpty();
+        verifyNoInteractions(jdbcTemplate, shortCodeAllocator);
+        verify(clock, never()).instant();
+    }
+
+    private QRTokenPool pool(boolean enabled, int size) {
+        return new QRTokenPool(jdbcTemplate, shortCodeAllocator, new SimpleMeterRegistry(), enabled, size, 2,
+                Duration.ofMinutes(30), Duration.ofSeconds(1), clock, null);
+    }
+
+    private void stubClock(Instant first, Instant... next) {
+        when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+        when(clock.instant()).thenReturn(first, next);
+    }
+
+    private void stubCodes() {
+        AtomicInteger sequence = new AtomicInteger();
+        when(shortCodeAllocator.allocate(any())).thenAnswer(invocation -> "QRPOOL" + sequence.incrementAndGet());
+    }
+}
@@ -0,0 +1,193 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.dto.QRTokenResponseDTO;
+import com.garbaking.orderservice.model.Order;
+import com.garbaking.orderservice.model.PaymentQRToken;
+import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class QRTokenServiceTest {
+
+    private static final String SECRET = "test-qr-secret-test-qr-secret-test-qr-secret";
+
+    @Mock
+    private PaymentQRTokenRepository tokenRepository;
+    @Mock
+    private ShortCodeAllocator shortCodeAllocator;
+    @Mock
+    private QRTokenPool tokenPool;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final QRTokenCodec tokenCodec = new QRTokenCodec("k1", SECRET, Map.of(),
+            "garbaking-pos", "payment-confirmation");
+    private IssuedTokenCache issuedTokenCache;
+    private QRTokenService tokenService;
+
+    @BeforeEach
+    void setUp() {
+        issuedTokenCache = new IssuedTokenCache(Duration.ofMinutes(1), 100);
+        tokenService = new QRTokenService(tokenRepository, tokenCodec, shortCodeAllocator, issuedTokenCache, tokenPool,
+                jdbcTemplate);
+        ReflectionTestUtils.setField(tokenService, "expiryMinutes", 5);
+    }
+
+    @Test
+    void validatesCachedTokensWithoutDatabaseRead() {
+        PaymentQRToken token = token();
+        when(tokenRepository.findByTokenId("qr_1")).thenReturn(Optional.of(token));
+
+        Claims first = tokenService.validateToken(sign());
+        Claims second = tokenService.validateToken(sign());
+
+        assertThat(first.getId()).isEqualTo("qr_1");
+        assertThat(second.getId()).isEqualTo("qr_1");
+        verify(tokenRepository).findByTokenId("qr_1");
+    }
+
+    @Test
+    void consumesWithSingleUpdateAndEvictsCachedToken() {
+        issuedTokenCache.put(token());
+        when(tokenRepository.consumeToken(eq("qr_1"), eq(7L), eq("till-1"), any())).thenReturn(1);
+
+        tokenService.consumeToken("qr_1", 7L, "till-1");
+
+        assertThat(issuedTokenCache.get("qr_1")).isEmpty();
+        verify(shortCodeAllocator).release("QRABCDEF");
+        verify(tokenRepository, never()).findByTokenId(any());
+    }
+
+    @Test
+    void secondConsumerOfSameTokenLoses() {
+        PaymentQRToken used = token();
+        used.markAsUsed(7L, "till-1");
+        when(tokenRepository.consumeToken(eq("qr_1"), eq(8L), eq("till-2"), any())).thenReturn(0);
+        when(tokenRepository.findByTokenId("qr_1")).thenReturn(Optional.of(used));
+
+        assertThatThrownBy(() -> tokenService.consumeToken("qr_1", 8L, "till-2"))
+                .isInstanceOf(QRTokenService.InvalidTokenException.class)
+                .hasMessage("Token already used");
+    }
+
+    @Test
+    void bindsPreMintedTokenWithSingleUpdate() {
+        LocalDateTime poolExpiry = LocalDateTime.now().plusMinutes(30);
+        when(tokenPool.take()).thenReturn(Optional.of(
+                new QRTokenService.TokenReservation("qr_9", "nonce-9", "QRPOOLED", poolExpiry)));
+        when(tokenRepository.bindPreMintedToken(eq("qr_9"), eq(42L), any(), any(), any())).thenReturn(1);
+
+        QRTokenResponseDTO response = tokenService.issueToken(order(), tokenService.reserveToken());
+
+        assertThat(response.getTokenId()).isEqualTo("qr_9");
+        assertThat(response.getShortCode()).isEqualTo("QRPOOLED");
+        assertThat(tokenCodec.parse(response.getQrToken()).get("nonce", String.class)).isEqualTo("nonce-9");
+        assertThat(issuedTokenCache.get("qr_9")).isPresent();
+        verify(tokenRepository, never()).save(any());
+        verify(shortCodeAllocator, never()).allocate(any());
+    }
+
+    @Test
+    void insertsTokenWhenPoolIsEmpty() {
+        when(tokenPool.take()).thenReturn(Optional.empty());
+        when(shortCodeAllocator.allocate(any())).thenReturn("QRINLINE");
+
+        QRTokenResponseDTO response = tokenService.issueToken(order(), tokenService.reserveToken());
+
+        assertThat(response.getShortCode()).isEqualTo("QRINLINE");
+        verify(jdbcTemplate).update(eq(QRTokenService.INSERT_SQL), any(PreparedStatementSetter.class));
+        verify(tokenRepository, never()).bindPreMintedToken(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void drawsAnotherShortCodeWhenTheInsertHitsTheUniqueKey() {
+        when(tokenPool.take()).thenReturn(Optional.empty());
+        when(shortCodeAllocator.allocate(any())).thenReturn("QRTAKEN2", "QRFREE23");
+        when(jdbcTemplate.update(eq(QRTokenService.INSERT_SQL), any(PreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate entry 'QRTAKEN2'"))
+                .thenReturn(1);
+
+        QRTokenResponseDTO response = tokenService.issueToken(order(), tokenService.reserveToken());
+
+        assertThat(response.getShortCode()).isEqualTo("QRFREE23");
+        assertThat(tokenCodec.parse(response.getQrToken()).get("short_code", String.class)).isEqualTo("QRFREE23");
+        assertThat(issuedTokenCache.get(response.getTokenId()).map(IssuedTokenCache.CachedToken::shortCode))
+                .contains("QRFREE23");
+    }
+
+    @Test
+    void rejectsShortCodeOfUnboundPooledToken() {
+        PaymentQRToken pooled = token();
+        pooled.setOrderId(QRTokenPool.UNBOUND_ORDER_ID);
+        when(tokenRepository.findByShortCode("QRABCDEF")).thenReturn(Optional.of(pooled));
+
+        assertThatThrownBy(() -> tokenService.validateByShortCode("QRABCDEF"))
+                .isInstanceOf(QRTokenService.InvalidTokenException.class)
+                .hasMessage("Invalid short code");
+    }
+
+    @Test
+    void reportsClearedShortCodeAsExpiredNotInvalid() {
+        PaymentQRToken expired = token();
+        expired.setShortCode(null);
+        expired.setRetiredShortCode("QRABCDEF");
+        expired.setExpiresAt(LocalDateTime.now().minusHours(2));
+        when(tokenRepository.findByShortCode("QRABCDEF")).thenReturn(Optional.empty());
+        when(tokenRepository.findFirstByRetiredShortCodeOrderByExpiresAtDesc("QRABCDEF"))
+                .thenReturn(Optional.of(expired));
+
+        assertThatThrownBy(() -> tokenService.validateByShortCode("qrabcdef"))
+                .isInstanceOf(QRTokenService.InvalidTokenException.class)
+                .hasMessage("Short code expired");
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId(42L);
+        order.setOrderNumber("ORD-42");
+        order.setTotalAmount(new BigDecimal("3000"));
+        return order;
+    }
+
+    private static PaymentQRToken token() {
+        return PaymentQRToken.builder()
+                .tokenId("qr_1")
+                .orderId(42L)
+                .nonce("nonce-1")
+                .shortCode("QRABCDEF")
+                .tokenHash("hash")
+                .issuedAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(5))
+                .build();
+    }
+
+    private String sign() {
+        long now = System.currentTimeMillis();
+        return tokenCodec.sign("qr_1", "order_42", new Date(now), new Date(now + 300_000),
+                Map.of("order_id", 42L, "nonce", "nonce-1", "short_code", "QRABCDEF"));
+    }
+}
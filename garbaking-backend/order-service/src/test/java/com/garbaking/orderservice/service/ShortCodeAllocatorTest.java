@@ -0,0 +1,104 @@
+package com.garbaking.orderservice.service;
+
+import com.garbaking.orderservice.repository.PaymentQRTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ShortCodeAllocatorTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-15T09:00:00Z");
+
+    @Mock
+    private PaymentQRTokenRepository tokenRepository;
+
+    private ShortCodeAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        allocator = new ShortCodeAllocator(tokenRepository, new SimpleMeterRegistry(), Duration.ofHours(1),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void allocatesDistinctWellFormedCodes() {
+        LocalDateTime expiresAt = LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).plusMinutes(5);
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            codes.add(allocator.allocate(expiresAt));
+        }
+
+        assertThat(codes).hasSize(10_000);
+        assertThat(codes).allMatch(code -> code.matches("QR[A-HJ-NP-Z2-9]{6}"));
+    }
+
+    @Test
+    void keepsCodesUntilReuseDelayAfterExpiry() {
+        String code = allocator.allocate(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).minusMinutes(30));
+
+        allocator.reclaim();
+        assertThat(allocator.isHeld(code)).isTrue();
+
+        String lapsed = allocator.allocate(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).minusHours(2));
+        allocator.reclaim();
+        assertThat(allocator.isHeld(lapsed)).isFalse();
+    }
+
+    @Test
+    void clearsCodesOfTokensPastReuseDelayInDatabase() {
+        allocator.reclaim();
+
+        verify(tokenRepository).clearShortCodesExpiredBefore(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).minusHours(1));
+    }
+
+    @Test
+    void usedCodesAreHeldOnlyForReuseDelay() {
+        ShortCodeAllocator shortDelay = new ShortCodeAllocator(tokenRepository, new SimpleMeterRegistry(),
+                Duration.ZERO, Clock.fixed(NOW, ZoneOffset.UTC));
+        String code = shortDelay.allocate(LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).plusMinutes(5));
+
+        shortDelay.release(code);
+        shortDelay.reclaim();
+
+        assertThat(shortDelay.isHeld(code)).isFalse();
+    }
+
+    @Test
+    void seedsLiveCodesFromDatabase() {
+        PaymentQRTokenRepository.ShortCodeHold hold = new PaymentQRTokenRepository.ShortCodeHold() {
+            @Override
+            public String getShortCode() {
+                return "QRABCDEF";
+            }
+
+            @Override
+            public LocalDateTime getExpiresAt() {
+                return LocalDateTime.ofInstant(NOW, ZoneOffset.UTC).plusMinutes(5);
+            }
+        };
+        when(tokenRepository.findShortCodesExpiringAfter(any())).thenReturn(List.of(hold));
+
+        allocator.initialize();
+        allocator.reclaim();
+
+        assertThat(allocator.isHeld("QRABCDEF")).isTrue();
+    }
+}
@@ -0,0 +1,58 @@
+package com.garbaking.orderservice.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventJournalTest {
+
+    private final OrderEventJournal journal = new OrderEventJournal(3, 100);
+
+    @Test
+    void replaysEventsAfterTheClientSequence() {
+        append("a");
+        append("b");
+        append("c");
+
+        assertThat(journal.currentSequence()).isEqualTo(103);
+        assertThat(journal.since(101)).hasValueSatisfying(missed ->
+                assertThat(missed).extracting(OrderEventJournal.Entry::sequence).containsExactly(102L, 103L));
+        assertThat(journal.since(103)).hasValueSatisfying(missed -> assertThat(missed).isEmpty());
+    }
+
+    @Test
+    void requiresSnapshotOnceEventsFallOutOfTheBuffer() {
+        for (String payload : List.of("a", "b", "c", "d")) {
+            append(payload);
+        }
+
+        assertThat(journal.since(100)).isEmpty();
+        assertThat(journal.since(101)).hasValueSatisfying(missed ->
+                assertThat(missed).extracting(entry -> new String(entry.json(), StandardCharsets.UTF_8))
+                        .containsExactly("b", "c", "d"));
+        // A sequence from the future belongs to another server instance
+        assertThat(journal.since(500)).isEmpty();
+    }
+
+    @Test
+    void deliversInSequenceOrder() {
+        List<Long> delivered = new ArrayList<>();
+
+        journal.append("order:1", null, sequence -> bytes("x"), entry -> delivered.add(entry.sequence()));
+        journal.append("order:1", null, sequence -> bytes("y"), entry -> delivered.add(entry.sequence()));
+
+        assertThat(delivered).containsExactly(101L, 102L);
+    }
+
+    private void append(String payload) {
+        journal.append(null, null, sequence -> bytes(payload), entry -> { });
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
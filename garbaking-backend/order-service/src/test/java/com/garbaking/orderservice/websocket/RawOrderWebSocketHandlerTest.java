@@ -1,6 +1,7 @@
 package com.garbaking.orderservice.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +13,7 @@ import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.net.URI;
 import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -32,13 +34,15 @@ class RawOrderWebSocketHandlerTest {
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
-        handler = new RawOrderWebSocketHandler(messagingTemplate, objectMapper);
+        RawSessionDispatcher dispatcher = new RawSessionDispatcher(new SimpleMeterRegistry(), Runnable::run, 16);
+        handler = new RawOrderWebSocketHandler(messagingTemplate, objectMapper, dispatcher, new OrderEventJournal(16, 0));
     }
 
     @Test
     void forwardsMessagesToSimpDestination() throws Exception {
         WebSocketSession session = mock(WebSocketSession.class);
         when(session.getId()).thenReturn("abc");
+        when(session.isOpen()).thenReturn(true);
 
         handler.afterConnectionEstablished(session);
         handler.handleTextMessage(session, new TextMessage("{\"destination\":\"/topic/orders\",\"orderId\":1}"));
@@ -52,6 +56,7 @@ class RawOrderWebSocketHandlerTest {
         WebSocketSession session = mock(WebSocketSession.class);
         when(session.getId()).thenReturn("sess1");
         when(session.isOpen()).thenReturn(true);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/orders/raw"));
 
         handler.afterConnectionEstablished(session);
         handler.broadcast(Map.of("orderNumber", "ORD-1"));
@@ -0,0 +1,73 @@
+package com.garbaking.orderservice.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RawSessionDispatcherTest {
+
+    @Mock
+    private WebSocketSession session;
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private SimpleMeterRegistry meterRegistry;
+    private RawSessionDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new RawSessionDispatcher(meterRegistry, tasks::add, 2);
+        when(session.getId()).thenReturn("kds-1");
+        when(session.isOpen()).thenReturn(true);
+        dispatcher.register(session);
+    }
+
+    @Test
+    void coalescesQueuedMessagesWithSameKey() throws Exception {
+        dispatcher.publish("order:1", new TextMessage("{\"v\":1}"));
+        dispatcher.publish("order:1", new TextMessage("{\"v\":2}"));
+        dispatcher.publish("order:2", new TextMessage("{\"v\":3}"));
+
+        assertThat(tasks).hasSize(1);
+        tasks.poll().run();
+
+        ArgumentCaptor<TextMessage> sent = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(2)).sendMessage(sent.capture());
+        assertThat(sent.getAllValues()).extracting(TextMessage::getPayload)
+                .containsExactly("{\"v\":2}", "{\"v\":3}");
+        assertThat(meterRegistry.counter("garbaking_ws_raw_messages_coalesced_total").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void closesSessionWhoseOutboxOverflows() throws Exception {
+        dispatcher.publish(null, new TextMessage("a"));
+        dispatcher.publish(null, new TextMessage("b"));
+        dispatcher.publish(null, new TextMessage("c"));
+
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+        assertThat(meterRegistry.counter("garbaking_ws_raw_slow_consumers_closed_total").count()).isEqualTo(1.0);
+
+        dispatcher.publish(null, new TextMessage("d"));
+        assertThat(tasks).isEmpty();
+    }
+}
@@ -0,0 +1,68 @@
+package com.garbaking.orderservice.websocket;
+
+import com.garbaking.orderservice.dto.OrderDTO;
+import com.garbaking.orderservice.dto.OrderItemDTO;
+import com.garbaking.orderservice.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SubscriptionIndexTest {
+
+    private final SubscriptionIndex index = new SubscriptionIndex();
+
+    @Test
+    void matchesOnlySessionsWhoseFilterAcceptsTheOrder() {
+        index.add("all", SubscriptionFilter.ALL);
+        index.add("grill", filter("category=grill&status=CONFIRMED,PREPARING"));
+        index.add("takeaway", filter("orderType=TAKEAWAY"));
+        index.add("table12", filter("orderType=DINE_IN&table=12"));
+
+        OrderEventAttributes event = OrderEventAttributes.of(order(Order.OrderStatus.PREPARING, "GRILL-004"));
+
+        assertThat(index.match(event)).containsExactlyInAnyOrder("all", "grill", "table12");
+    }
+
+    @Test
+    void statusChangeReachesSessionsFilteringOnPreviousStatus() {
+        index.add("grill", filter("category=GRILL&status=PREPARING"));
+
+        OrderDTO ready = order(Order.OrderStatus.READY, "GRILL-004");
+
+        assertThat(index.match(OrderEventAttributes.of(ready))).isEmpty();
+        assertThat(index.match(OrderEventAttributes.of(ready, Order.OrderStatus.PREPARING))).containsExactly("grill");
+    }
+
+    @Test
+    void removedSessionsAreNoLongerMatched() {
+        index.add("table12", filter("table=12"));
+        index.remove("table12");
+
+        assertThat(index.match(OrderEventAttributes.of(order(Order.OrderStatus.PENDING, "MEAL-001")))).isEmpty();
+    }
+
+    @Test
+    void rejectsUnknownFilterValues() {
+        assertThatThrownBy(() -> filter("status=EATEN"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("EATEN");
+    }
+
+    private SubscriptionFilter filter(String query) {
+        return SubscriptionFilter.fromUri(URI.create("ws://localhost/ws/orders/raw?" + query));
+    }
+
+    private OrderDTO order(Order.OrderStatus status, String sku) {
+        return OrderDTO.builder()
+                .id(1L)
+                .status(status)
+                .orderType(Order.OrderType.DINE_IN)
+                .tableNumber("12")
+                .items(List.of(OrderItemDTO.builder().menuItemSku(sku).quantity(1).build()))
+                .build();
+    }
+}